@@ -17,6 +17,8 @@ package br.ime.usp.aztec;
 
 import java.io.IOException;
 
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleIterator;
 import br.ime.usp.aztec.io.EncodingOutput;
 
 /**
@@ -29,6 +31,7 @@ public final class AZTEC {
 	private AZTECParameters params;
 	private boolean encodedFirstLine;
 	private State state;
+	private final double[] segment = new double[2];
 
 	/**
 	 * Encodes the given signal, writing the output to the
@@ -47,12 +50,20 @@ public final class AZTEC {
 		this.params = parameters;
 		this.state = new ShortLine();
 		this.encodedFirstLine = false;
-		for (double sample : parameters.getInput()) {
-			this.state.process(sample);
+		DoubleIterator samples = parameters.getInput().doubleIterator();
+		while (samples.hasNext()) {
+			this.state.process(samples.nextDouble());
 		}
 		this.state.finish();
 	}
 
+	private void output(double length, double amplitude) throws IOException {
+		this.segment[0] = length;
+		this.segment[1] = amplitude;
+		AbstractEncodingOutput.put(this.params.getOutput(), this.segment, 0,
+				2);
+	}
+
 	private interface State {
 		void process(double sample) throws IOException;
 
@@ -239,9 +250,7 @@ public final class AZTEC {
 		}
 
 		void end() throws IOException {
-			EncodingOutput out = AZTEC.this.params.getOutput();
-			out.put(this.length);
-			out.put(this.average());
+			AZTEC.this.output(this.length, this.average());
 		}
 
 		double average() {
@@ -269,9 +278,8 @@ public final class AZTEC {
 		}
 
 		void end() throws IOException {
-			EncodingOutput out = AZTEC.this.params.getOutput();
-			out.put(-this.duration);
-			out.put(this.signal * (this.max - this.min));
+			AZTEC.this.output(-this.duration, this.signal
+					* (this.max - this.min));
 		}
 
 		void update(Line line) {
@@ -20,8 +20,7 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 
 import br.ime.usp.aztec.AZTECParameters.OptionalParametersBuilder;
-import br.ime.usp.aztec.io.SignalParser;
-import br.ime.usp.aztec.io.WriterEncodingOutput;
+import br.ime.usp.aztec.io.EncodingHeader;
 
 /**
  * Handles command-line options for the AZTEC algorithm, such as minimum and
@@ -47,10 +46,6 @@ public final class AZTECCommandLineParametersParser extends
 				.withMaximumAcceptableVariation(
 						Double.parseDouble(options.getOptionValue('K',
 								IGNORED_VALUE_JUST_FOR_DECODING)))
-				.withInput(new SignalParser(this.openInputGivenIn(options)))
-				.withOutput(
-						new WriterEncodingOutput(this
-								.openOutputGivenIn(options)))
 				.withMaximumSlopeLineSize(
 						Double.parseDouble(options.getOptionValue('T',
 								String.valueOf(AZTECParameters.DEFAULT_T))))
@@ -58,9 +53,22 @@ public final class AZTECCommandLineParametersParser extends
 						Double.parseDouble(options.getOptionValue('N',
 								String.valueOf(AZTECParameters.DEFAULT_N))));
 		if (options.hasOption('d')) {
-			builder.decoding();
+			return builder
+					.decoding()
+					.withThreads(this.threadsGivenIn(options))
+					.withInput(this.openEncodingGivenIn(options))
+					.withOutput(this.openTextOutputGivenIn(options)).build();
 		}
-		return builder.build();
+		EncodingHeader header = new EncodingHeader("AZTEC");
+		AZTECParameters params = builder
+				.withThreads(this.threadsGivenIn(options))
+				.withInput(this.openSignalGivenIn(options))
+				.withOutput(this.openEncodingOutputGivenIn(options, header))
+				.build();
+		header.withParameter("K", params.getK())
+				.withParameter("T", params.getT())
+				.withParameter("N", params.getN());
+		return params;
 	}
 
 	@Override
@@ -73,6 +81,8 @@ public final class AZTECCommandLineParametersParser extends
 		defaultOptions.addOption("N", true,
 				"Maximum length of a line. Defaults to 25 samples");
 		defaultOptions.addOption("d", false, "Decode instead of encode");
+		defaultOptions.addOption("j", true, "Number of threads encoding "
+				+ "or decoding at the same time. Defaults to 1");
 	}
 
 	@Override
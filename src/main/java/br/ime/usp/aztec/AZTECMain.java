@@ -17,6 +17,7 @@ package br.ime.usp.aztec;
 
 import java.io.IOException;
 
+import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
 import br.ime.usp.aztec.io.PleaseHelpMeException;
@@ -27,19 +28,13 @@ import br.ime.usp.aztec.io.ReadOnlyOutputException;
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
-public final class AZTECMain implements AlgorithmMain {
+public final class AZTECMain extends AbstractAlgorithmMain {
 
 	@Override
 	public void run(String[] args) throws IOException {
 		AZTECCommandLineParametersParser parser = new AZTECCommandLineParametersParser();
 		try {
-			AZTECParameters params = parser.parse(args);
-			if (params.isDecoding()) {
-				new Decoder().decode(params.getInput(), params.getOutput());
-			} else {
-				new AZTEC().encode(params);
-			}
-			params.getOutput().close();
+			this.execute(parser, args);
 		} catch (PleaseHelpMeException e) {
 			parser.printHelp();
 		} catch (ParseException e) {
@@ -52,6 +47,56 @@ public final class AZTECMain implements AlgorithmMain {
 		}
 	}
 
+	@Override
+	public void execute(String[] args) throws IOException, ParseException,
+			PleaseHelpMeException {
+		this.execute(new AZTECCommandLineParametersParser(), args);
+	}
+
+	@Override
+	public Options getCommandLineOptions() {
+		return new AZTECCommandLineParametersParser().getCommandLineOptions();
+	}
+
+	private void execute(AZTECCommandLineParametersParser parser, String[] args)
+			throws IOException, ParseException, PleaseHelpMeException {
+		if (parser.asksForAllLeads(args)) {
+			parser.parseLeads(args).encode(
+					new MultiLeadEncoding.LeadEncoder<AZTECParameters>() {
+						@Override
+						public void encode(AZTECParameters parameters)
+								throws IOException {
+							boolean failed = true;
+							try {
+								new FlatAZTEC().encode(parameters);
+								failed = false;
+							} finally {
+								close(parameters.getInput(),
+										parameters.getOutput(), failed);
+							}
+						}
+					});
+			return;
+		}
+		AZTECParameters params = parser.parse(args);
+		boolean failed = true;
+		try {
+			if (params.isDecoding() && params.getThreads() > 1) {
+				new ParallelDecoder(params.getThreads()).decode(
+						params.getInput(), params.getOutput());
+			} else if (params.isDecoding()) {
+				new Decoder().decode(params.getInput(), params.getOutput());
+			} else if (params.getThreads() > 1) {
+				new ParallelAZTEC(params.getThreads()).encode(params);
+			} else {
+				new FlatAZTEC().encode(params);
+			}
+			failed = false;
+		} finally {
+			close(params.getInput(), params.getOutput(), failed);
+		}
+	}
+
 	private void handleIOError(RuntimeException e) {
 		System.err.println(e.getMessage());
 		System.exit(2);
@@ -19,7 +19,9 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 
 import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.IterableSignalSource;
 import br.ime.usp.aztec.io.SignalParser;
+import br.ime.usp.aztec.io.SignalSource;
 import br.ime.usp.aztec.io.WriterEncodingOutput;
 
 /**
@@ -44,9 +46,10 @@ public final class AZTECParameters {
 	private double t;
 	private double k;
 	private double n;
-	private Iterable<Double> input;
+	private SignalSource input;
 	private EncodingOutput output;
 	private boolean decoding = false;
+	private int threads = 1;
 
 	private AZTECParameters() {
 	}
@@ -73,9 +76,9 @@ public final class AZTECParameters {
 	}
 
 	/**
-	 * @return Iterable with input signal values
+	 * @return Input signal values
 	 */
-	public Iterable<Double> getInput() {
+	public SignalSource getInput() {
 		return this.input;
 	}
 
@@ -93,6 +96,15 @@ public final class AZTECParameters {
 		return this.decoding;
 	}
 
+	/**
+	 * @return Number of threads encoding or decoding at the same time. With
+	 *         more than one, a {@link ParallelAZTEC} or a
+	 *         {@link ParallelDecoder} is used.
+	 */
+	public int getThreads() {
+		return this.threads;
+	}
+
 	/**
 	 * Builder for {@link AZTECParameters}
 	 * 
@@ -157,11 +169,21 @@ public final class AZTECParameters {
 		 * @return The builder
 		 * @see AZTECParameters#getInput()
 		 */
-		public OptionalParametersBuilder withInput(Iterable<Double> input) {
+		public OptionalParametersBuilder withInput(SignalSource input) {
 			this.params.input = input;
 			return this;
 		}
 
+		/**
+		 * @param input
+		 *            A signal, whose values will be unboxed as they are read
+		 * @return The builder
+		 * @see AZTECParameters#getInput()
+		 */
+		public OptionalParametersBuilder withInput(Iterable<Double> input) {
+			return this.withInput(new IterableSignalSource(input));
+		}
+
 		/**
 		 * @param output
 		 *            A processor of the algorithm output
@@ -183,6 +205,17 @@ public final class AZTECParameters {
 			return this;
 		}
 
+		/**
+		 * @param threads
+		 *            Number of threads encoding or decoding at the same time
+		 * @return the builder
+		 * @see AZTECParameters#getThreads()
+		 */
+		public OptionalParametersBuilder withThreads(int threads) {
+			this.params.threads = threads;
+			return this;
+		}
+
 		/**
 		 * Call this method when you have finished the configuration of the
 		 * parameters
@@ -0,0 +1,97 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import br.ime.usp.aztec.batch.BatchMain;
+import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.PleaseHelpMeException;
+import br.ime.usp.aztec.io.SignalSource;
+
+/**
+ * Base class for the entry points of algorithms that can also be run many
+ * times in the same virtual machine, as done by {@link BatchMain}
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public abstract class AbstractAlgorithmMain implements AlgorithmMain {
+
+	/**
+	 * Same as {@link #run(String[])}, but throwing any error instead of
+	 * reporting it and exiting, so that many runs can share the same JVM
+	 * 
+	 * @param algorithmArgs
+	 *            Command-line arguments for this algorithm
+	 * @throws IOException
+	 *             if any IO error occurs during the execution of the algorithm
+	 * @throws ParseException
+	 *             if the arguments cannot be parsed
+	 * @throws PleaseHelpMeException
+	 *             if the arguments ask for help
+	 * @throws IllegalArgumentException
+	 *             if the arguments are not valid
+	 */
+	public abstract void execute(String[] algorithmArgs) throws IOException,
+			ParseException, PleaseHelpMeException;
+
+	/**
+	 * @return The command-line options accepted by {@link #execute(String[])}
+	 */
+	public abstract Options getCommandLineOptions();
+
+	/**
+	 * Closes the output of a run and then its input, if it is
+	 * {@link Closeable}. Both are closed even if closing the other fails, so
+	 * that a failed run does not keep any file open.
+	 * 
+	 * @param input
+	 *            Input of the run
+	 * @param output
+	 *            Output of the run
+	 * @param failed
+	 *            true, if the run failed, so that a failure to close is not
+	 *            thrown instead of the failure of the run
+	 * @throws IOException
+	 *             if the run did not fail and the output or the input cannot
+	 *             be closed
+	 */
+	protected static void close(SignalSource input, EncodingOutput output,
+			boolean failed) throws IOException {
+		IOException failure = null;
+		try {
+			output.close();
+		} catch (IOException e) {
+			failure = e;
+		}
+		if (input instanceof Closeable) {
+			try {
+				((Closeable) input).close();
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null && !failed) {
+			throw failure;
+		}
+	}
+}
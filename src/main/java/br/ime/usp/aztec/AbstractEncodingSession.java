@@ -0,0 +1,106 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+import br.ime.usp.aztec.io.EncodingOutput;
+
+/**
+ * Base class for encoding sessions, which only need to know how to encode a
+ * single sample and how to end the last segment. Implements the rest of
+ * {@link EncodingSession} on top of {@link #process(double)} and
+ * {@link #finish()}.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public abstract class AbstractEncodingSession implements EncodingSession {
+
+	private final EncodingOutput output;
+	private boolean closed = false;
+
+	/**
+	 * @param output
+	 *            Destination of the segments
+	 */
+	protected AbstractEncodingSession(EncodingOutput output) {
+		this.output = output;
+	}
+
+	/**
+	 * @return Destination of the segments
+	 */
+	protected final EncodingOutput getOutput() {
+		return this.output;
+	}
+
+	@Override
+	public final void accept(double sample) throws IOException {
+		this.checkOpen();
+		this.process(sample);
+	}
+
+	@Override
+	public final void accept(double[] samples, int offset, int length)
+			throws IOException {
+		this.checkOpen();
+		for (int i = offset; i < offset + length; i++) {
+			this.process(samples[i]);
+		}
+	}
+
+	@Override
+	public final void flush() throws IOException {
+		if (!this.closed && this.output instanceof Flushable) {
+			((Flushable) this.output).flush();
+		}
+	}
+
+	@Override
+	public final void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.finish();
+		this.output.close();
+	}
+
+	/**
+	 * Encodes the next sample
+	 * 
+	 * @param sample
+	 *            The sample
+	 * @throws IOException
+	 *             if the output throws it
+	 */
+	protected abstract void process(double sample) throws IOException;
+
+	/**
+	 * Puts the segment still being built, as the signal has ended
+	 * 
+	 * @throws IOException
+	 *             if the output throws it
+	 */
+	protected abstract void finish() throws IOException;
+
+	private void checkOpen() {
+		if (this.closed) {
+			throw new IllegalStateException("Session is already closed");
+		}
+	}
+}
@@ -0,0 +1,325 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.IterableEncodingOutput;
+
+/**
+ * Encoding of a whole signal split into chunks. Every chunk but the first is
+ * encoded in parallel by a {@link Guess} of how its encoding starts.
+ * Meanwhile, the first chunk is encoded from its start, and then every guess
+ * is joined in turn to the encoding of the chunks before it, which is what
+ * depends on the algorithm. An instance encodes a single signal.
+ * 
+ * Shared by {@link ParallelAZTEC} and
+ * {@link br.ime.usp.aztec.maztec.ParallelMAZTEC}, and public only because
+ * they live in different packages.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @param <S>
+ *            Session of the algorithm
+ */
+public abstract class ChunkedEncoding<S extends AbstractEncodingSession> {
+
+	/**
+	 * Chunks are not made smaller than this number of samples, so that
+	 * short signals are not split at all
+	 */
+	public static final int MIN_CHUNK_SAMPLES = 1 << 16;
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final double[] samples;
+	private final int threads;
+	private final String name;
+	private final int[] starts;
+
+	/**
+	 * @param samples
+	 *            The whole signal
+	 * @param threads
+	 *            Number of threads encoding at the same time
+	 * @param name
+	 *            Name of the threads
+	 */
+	protected ChunkedEncoding(double[] samples, int threads, String name) {
+		this.samples = samples;
+		this.threads = threads;
+		this.name = name;
+		int chunks = 1;
+		if (threads > 1) {
+			chunks = Math.max(1, Math.min(threads * CHUNKS_PER_THREAD,
+					samples.length / MIN_CHUNK_SAMPLES));
+		}
+		this.starts = new int[chunks + 1];
+		for (int i = 0; i <= chunks; i++) {
+			this.starts[i] = (int) ((long) samples.length * i / chunks);
+		}
+	}
+
+	/**
+	 * @return Number of chunks the signal is split into
+	 */
+	protected final int getChunks() {
+		return this.starts.length - 1;
+	}
+
+	/**
+	 * Encodes the whole signal
+	 * 
+	 * @param first
+	 *            Session encoding the first chunk, writing to the final output
+	 * @throws IOException
+	 *             if the output throws it
+	 */
+	public final void encode(S first) throws IOException {
+		S current = first;
+		if (this.getChunks() == 1) {
+			this.encodeChunk(current, 0, this.samples.length);
+			current.finish();
+			return;
+		}
+		ExecutorService pool = Tasks.newPool(Math.min(this.threads,
+				this.getChunks() - 1), this.name);
+		try {
+			List<Future<Guess<S>>> guesses = new ArrayList<Future<Guess<S>>>();
+			for (int i = 1; i < this.starts.length - 1; i++) {
+				final int from = this.starts[i];
+				final int to = this.starts[i + 1];
+				guesses.add(pool.submit(new Callable<Guess<S>>() {
+					@Override
+					public Guess<S> call() throws IOException {
+						return ChunkedEncoding.this.guess(
+								ChunkedEncoding.this.samples, from, to);
+					}
+				}));
+			}
+			this.encodeChunk(current, 0, this.starts[1]);
+			for (Future<Guess<S>> guess : guesses) {
+				current = Tasks.get(guess, "encoders").join(current,
+						this.samples);
+			}
+			current.finish();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void encodeChunk(S session, int from, int to) throws IOException {
+		for (int i = from; i < to; i++) {
+			session.process(this.samples[i]);
+		}
+	}
+
+	/**
+	 * Guesses the encoding of a chunk. Called by many threads at once.
+	 * 
+	 * @param samples
+	 *            The whole signal
+	 * @param from
+	 *            First sample of the chunk
+	 * @param to
+	 *            Sample after the last one of the chunk
+	 * @return The guess
+	 * @throws IOException
+	 *             if the guess throws it
+	 */
+	protected abstract Guess<S> guess(double[] samples, int from, int to)
+			throws IOException;
+
+	/**
+	 * Encoding of a chunk by a session that had to guess its state at the
+	 * start of the chunk. The segments are kept, as well as the state at the
+	 * samples where a line starts, so that the guess can be joined at any of
+	 * them, after which its session goes on writing to the final output.
+	 * 
+	 * All the guesses are kept until they are joined, and a join happens at
+	 * one of the first line starts where both encodings agree, so only the
+	 * line starts where a join may happen should be kept, at most
+	 * {@link #JOINABLE_LINE_STARTS} of them past the first samples of the
+	 * chunk. A chunk that is not joined at any of them is encoded again.
+	 * 
+	 * @param <S>
+	 *            Session of the algorithm
+	 */
+	public abstract static class Guess<S extends AbstractEncodingSession> {
+		/**
+		 * Number of line starts a guess keeps once its encoding is expected
+		 * to have met the one of the previous chunks
+		 */
+		protected static final int JOINABLE_LINE_STARTS = 256;
+
+		private final int from;
+		private final int to;
+		private final IterableEncodingOutput segments;
+		private final Redirection output;
+		private final List<S> lineStarts = new ArrayList<S>();
+		private final DoubleList lineStartSamples = new DoubleList();
+		private final DoubleList lineStartSegments = new DoubleList();
+
+		/**
+		 * @param from
+		 *            First sample of the chunk
+		 * @param to
+		 *            Sample after the last one of the chunk
+		 */
+		protected Guess(int from, int to) {
+			this.from = from;
+			this.to = to;
+			this.segments = new IterableEncodingOutput();
+			this.output = new Redirection(this.segments);
+		}
+
+		/**
+		 * @return First sample of the chunk
+		 */
+		protected final int getFrom() {
+			return this.from;
+		}
+
+		/**
+		 * @return Sample after the last one of the chunk
+		 */
+		protected final int getTo() {
+			return this.to;
+		}
+
+		/**
+		 * @return Output the session of the guess must write to
+		 */
+		protected final EncodingOutput getOutput() {
+			return this.output;
+		}
+
+		/**
+		 * Keeps the state of the session where a line starts, along with the
+		 * number of segments written before it
+		 * 
+		 * @param state
+		 *            Copy of the session, which is not changed anymore
+		 * @param sample
+		 *            Sample where the line starts
+		 */
+		protected final void keepLineStart(S state, int sample) {
+			this.lineStarts.add(state);
+			this.lineStartSamples.add(sample);
+			this.lineStartSegments.add(this.segments.getValues().size());
+		}
+
+		/**
+		 * @return Number of line starts kept
+		 */
+		protected final int getLineStarts() {
+			return this.lineStarts.size();
+		}
+
+		/**
+		 * @param index
+		 *            Index of the line start, in the order they were kept
+		 * @return The state kept at the line start
+		 */
+		protected final S getLineStart(int index) {
+			return this.lineStarts.get(index);
+		}
+
+		/**
+		 * @param index
+		 *            Index of the line start, in the order they were kept
+		 * @return The sample where the line starts
+		 */
+		protected final int getLineStartSample(int index) {
+			return (int) this.lineStartSamples.get(index);
+		}
+
+		/**
+		 * Writes the segments of this guess from the given line start on to
+		 * the final output, where the session of the guess writes from now on
+		 * 
+		 * @param index
+		 *            Index of the line start, in the order they were kept
+		 * @param finalOutput
+		 *            The output of the whole encoding
+		 * @throws IOException
+		 *             if the output throws it
+		 */
+		protected final void joinAt(int index, EncodingOutput finalOutput)
+				throws IOException {
+			int first = (int) this.lineStartSegments.get(index);
+			double[] values = this.segments.getValues().toArray();
+			AbstractEncodingOutput.put(finalOutput, values, first,
+					values.length - first);
+			this.output.target = finalOutput;
+		}
+
+		/**
+		 * Goes on encoding the chunk from the given session until it can be
+		 * joined to this guess
+		 * 
+		 * @param actual
+		 *            Session that encoded the chunks before this one
+		 * @param samples
+		 *            The whole signal
+		 * @return The session that encodes the next chunk, writing to the
+		 *         final output
+		 * @throws IOException
+		 *             if the output throws it
+		 */
+		protected abstract S join(S actual, double[] samples)
+				throws IOException;
+	}
+
+	/**
+	 * Output whose destination can be changed, so that a guess writes to the
+	 * final output once it is joined
+	 */
+	private static final class Redirection extends AbstractEncodingOutput {
+		EncodingOutput target;
+
+		Redirection(EncodingOutput target) {
+			this.target = target;
+		}
+
+		@Override
+		public void put(double value) throws IOException {
+			this.target.put(value);
+		}
+
+		@Override
+		public void putRun(double value, int count) throws IOException {
+			AbstractEncodingOutput.putRun(this.target, value, count);
+		}
+
+		@Override
+		public void put(double[] values, int offset, int length)
+				throws IOException {
+			AbstractEncodingOutput.put(this.target, values, offset, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.target.close();
+		}
+	}
+}
@@ -15,14 +15,22 @@ limitations under the License.
  */
 package br.ime.usp.aztec;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -30,8 +38,27 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 
+import br.ime.usp.aztec.io.AsyncEncodingOutput;
+import br.ime.usp.aztec.io.BinaryEncodingInput;
+import br.ime.usp.aztec.io.BinaryEncodingOutput;
+import br.ime.usp.aztec.io.CSVColumnReader;
+import br.ime.usp.aztec.io.CSVRowParser;
+import br.ime.usp.aztec.io.EDFSignalReader;
+import br.ime.usp.aztec.io.DoubleFormatter;
+import br.ime.usp.aztec.io.EncodingHeader;
+import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.EntropyEncodingInput;
+import br.ime.usp.aztec.io.EntropyEncodingOutput;
+import br.ime.usp.aztec.io.IndexedEncoding;
+import br.ime.usp.aztec.io.IndexedEncodingOutput;
+import br.ime.usp.aztec.io.PipedSignal;
 import br.ime.usp.aztec.io.PleaseHelpMeException;
+import br.ime.usp.aztec.io.PrefetchingSignalSource;
 import br.ime.usp.aztec.io.ReadOnlyOutputException;
+import br.ime.usp.aztec.io.SignalParser;
+import br.ime.usp.aztec.io.SignalSource;
+import br.ime.usp.aztec.io.WFDBSignalReader;
+import br.ime.usp.aztec.io.WriterEncodingOutput;
 import br.ime.usp.aztec.maztec.MAZTECCommandLineParametersParser;
 
 /**
@@ -47,6 +74,11 @@ import br.ime.usp.aztec.maztec.MAZTECCommandLineParametersParser;
  */
 public abstract class CommandLineParametersParser<T> {
 
+	private static final String ALL_LEADS = "all";
+
+	private PipedSignal[] leads;
+	private int currentLead = -1;
+
 	/**
 	 * Parses the command line and returns an object to be passed to a specific
 	 * algorithm
@@ -64,13 +96,100 @@ public abstract class CommandLineParametersParser<T> {
 	 */
 	public T parse(String[] commandLine) throws ParseException,
 			PleaseHelpMeException, IllegalArgumentException {
+		return this.buildParameters(this.parseOptions(commandLine));
+	}
+
+	/**
+	 * @param commandLine
+	 *            Command line arguments received in main method.
+	 * @return true, if the user wants all the leads of a CSV file encoded at
+	 *         once, which must be done with {@link #parseLeads(String[])}
+	 * @throws ParseException
+	 *             if the given arguments are invalid
+	 */
+	public final boolean asksForAllLeads(String[] commandLine)
+			throws ParseException {
+		CommandLine options = new PosixParser().parse(
+				this.getCommandLineOptions(), commandLine);
+		return ALL_LEADS.equals(options.getOptionValue('c'));
+	}
+
+	/**
+	 * Parses a command line that asks for all the leads of a CSV file, giving
+	 * one object with parameters for each lead. The input of each of them is
+	 * fed with its column while the file is read by the returned encoding, and
+	 * the output of lead n is written to the output file followed by ".n".
+	 * 
+	 * @param commandLine
+	 *            Command line arguments received in main method.
+	 * @return The encoding of all leads
+	 * @throws ParseException
+	 *             if the given arguments are invalid
+	 * @throws PleaseHelpMeException
+	 *             if the user supplied the 'h' option, wanting help
+	 * @throws IllegalArgumentException
+	 *             if the user didn't supply a mandatory argument, or if the
+	 *             algorithm cannot encode many leads at once
+	 * @see #asksForAllLeads(String[])
+	 */
+	public final MultiLeadEncoding<T> parseLeads(String[] commandLine)
+			throws ParseException, PleaseHelpMeException,
+			IllegalArgumentException {
+		CommandLine options = this.parseOptions(commandLine);
+		if (!options.getOptionValue('s', "text").equals("csv")) {
+			throw new IllegalArgumentException(
+					"All leads can only be read from a CSV file");
+		}
+		if (!options.hasOption('i') || !options.hasOption('o')) {
+			throw new IllegalArgumentException("All leads can only be "
+					+ "encoded with both -i and -o");
+		}
+		String fileName = options.getOptionValue('i');
+		CSVRowParser rows;
+		try {
+			rows = new CSVRowParser(new FileInputStream(fileName)
+					.getChannel());
+		} catch (FileNotFoundException e) {
+			throw new IllegalArgumentException("Input file '" + fileName
+					+ "' does not exist");
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Input file '" + fileName
+					+ "' cannot be read: " + e.getMessage());
+		}
+		this.leads = new PipedSignal[rows.getNumberOfColumns()];
+		List<T> parameters = new ArrayList<T>();
+		try {
+			for (int lead = 0; lead < this.leads.length; lead++) {
+				this.currentLead = lead;
+				this.leads[lead] = new PipedSignal();
+				parameters.add(this.buildParameters(options));
+			}
+		} catch (RuntimeException e) {
+			try {
+				rows.close();
+			} catch (IOException closeFailure) {
+				// the command line is wrong anyway
+			}
+			throw e;
+		} finally {
+			this.currentLead = -1;
+		}
+		return new MultiLeadEncoding<T>(rows, this.leads, parameters);
+	}
+
+	private CommandLine parseOptions(String[] commandLine)
+			throws ParseException, PleaseHelpMeException {
 		CommandLineParser parser = new PosixParser();
 		CommandLine options = parser.parse(this.getCommandLineOptions(),
 				commandLine);
 		if (options.hasOption('h')) {
 			throw new PleaseHelpMeException();
 		}
-		return this.buildParameters(options);
+		return options;
+	}
+
+	private boolean isParsingLeads() {
+		return this.currentLead >= 0;
 	}
 
 	/**
@@ -96,6 +215,38 @@ public abstract class CommandLineParametersParser<T> {
 				+ "If none specified, reads signal from standard input");
 		options.addOption("o", true, "Specify an output file. "
 				+ "If none specified, writes encoding to standard output");
+		options.addOption("f", true, "Format of the encoding: "
+				+ "text (one value per line), binary, entropy (binary, "
+				+ "compressed by an arithmetic coder) or indexed (binary, "
+				+ "with an index to decode only part of it). "
+				+ "Defaults to text");
+		options.addOption("q", true, "Resolution of the amplitudes of "
+				+ "a binary encoding. If none specified, "
+				+ "amplitudes are stored without loss. "
+				+ "Mandatory for entropy encodings");
+		options.addOption("s", true, "Format of the signal to be encoded: "
+				+ "text (one sample per line), wfdb (PhysioNet record, "
+				+ "whose header is given with -i), edf (EDF or EDF+ "
+				+ "file) or csv (one lead per column). Defaults to text");
+		options.addOption("c", true, "Index of the signal of a WFDB record, "
+				+ "EDF file or CSV file to be encoded, starting at 0. "
+				+ "Defaults to 0. With 'all', every lead of a CSV file is "
+				+ "encoded in parallel, lead n into the output file "
+				+ "followed by '.n'");
+		options.addOption("p", true, "Number of decimal places of the "
+				+ "values written as text. If none specified, each value is "
+				+ "written with the fewest digits that read back the same");
+		options.addOption("a", "async-output", false, "Writes the output "
+				+ "in a background thread, so that a slow output does not "
+				+ "stall the algorithm");
+		options.addOption("r", "read-ahead", false, "Reads the input "
+				+ "in a background thread, while the algorithm runs");
+		options.addOption(null, "from", true, "Index of the first sample "
+				+ "to be decoded from an indexed encoding, starting at 0. "
+				+ "Defaults to 0");
+		options.addOption(null, "to", true, "Index after the last sample "
+				+ "to be decoded from an indexed encoding. "
+				+ "Defaults to the end of the signal");
 		this.addCustomCommandLineOptions(options);
 		return options;
 	}
@@ -133,6 +284,369 @@ public abstract class CommandLineParametersParser<T> {
 		return new InputStreamReader(System.in);
 	}
 
+	/**
+	 * Opens the signal to be encoded, in the format given in the command line.
+	 * 
+	 * @param options
+	 *            The parsed command line
+	 * @return The signal in a file specified in the command line or in the
+	 *         standard input, or the current lead when parsing all leads. It
+	 *         may be iterated only once.
+	 */
+	protected SignalSource openSignalGivenIn(CommandLine options) {
+		if (this.isParsingLeads()) {
+			return this.leads[this.currentLead];
+		}
+		if (this.isTextSignal(options)) {
+			return this.readAheadIfAskedIn(options, this
+					.openTextSignalGivenIn(options).withoutReplay());
+		}
+		return this.readAheadIfAskedIn(options,
+				this.openRecordedSignalGivenIn(options));
+	}
+
+	private SignalSource readAheadIfAskedIn(CommandLine options,
+			SignalSource signal) {
+		if (options.hasOption("read-ahead")) {
+			return new PrefetchingSignalSource(signal);
+		}
+		return signal;
+	}
+
+	/**
+	 * Gets the given input file and creates a {@link SignalParser} for it.
+	 * Regular files are mapped into memory and parsed in place. Anything else,
+	 * including the standard input, is read through the {@link Reader} given by
+	 * {@link #openInputGivenIn(CommandLine)}.
+	 * 
+	 * @param options
+	 *            The parsed command line
+	 * @return A parser for the signal in a file specified in the command line
+	 *         or in the standard input
+	 */
+	protected SignalParser openTextSignalGivenIn(CommandLine options) {
+		if (options.hasOption('i')) {
+			String fileName = options.getOptionValue('i');
+			File file = new File(fileName);
+			if (file.isFile()) {
+				try {
+					return new SignalParser(new FileInputStream(file)
+							.getChannel());
+				} catch (IOException e) {
+					throw new IllegalArgumentException("Input file '"
+							+ fileName + "' cannot be read");
+				}
+			}
+		}
+		return new SignalParser(this.openInputGivenIn(options));
+	}
+
+	/**
+	 * Opens one signal of a recording given in the command line, such as a
+	 * WFDB record, an EDF file or a column of a CSV file. Recordings are read
+	 * again from their files in each iteration.
+	 * 
+	 * @param options
+	 *            The parsed command line
+	 * @return A reader for the signal of the recording chosen in the command
+	 *         line
+	 */
+	protected SignalSource openRecordedSignalGivenIn(CommandLine options) {
+		if (!options.hasOption('i')) {
+			throw new IllegalArgumentException(
+					"A recording must be given with -i");
+		}
+		String fileName = options.getOptionValue('i');
+		String signalIndex = options.getOptionValue('c', "0");
+		if (signalIndex.equals(ALL_LEADS)) {
+			throw new IllegalArgumentException("This algorithm cannot "
+					+ "encode all leads at once. Choose one with -c");
+		}
+		int signal = Integer.parseInt(signalIndex);
+		try {
+			if (options.getOptionValue('s').equals("csv")) {
+				return new CSVColumnReader(new File(fileName), signal);
+			}
+			if (options.getOptionValue('s').equals("edf")) {
+				return new EDFSignalReader(new File(fileName), signal);
+			}
+			if (!fileName.endsWith(".hea")) {
+				fileName += ".hea";
+			}
+			return new WFDBSignalReader(new File(fileName), signal);
+		} catch (FileNotFoundException e) {
+			throw new IllegalArgumentException("Input file '" + fileName
+					+ "' does not exist");
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Input file '" + fileName
+					+ "' cannot be read: " + e.getMessage());
+		}
+	}
+
+	private boolean isTextSignal(CommandLine options) {
+		String format = options.getOptionValue('s', "text");
+		if (format.equals("text")) {
+			return true;
+		}
+		if (format.equals("wfdb") || format.equals("edf")
+				|| format.equals("csv")) {
+			return false;
+		}
+		throw new IllegalArgumentException("Unknown signal format '" + format
+				+ "'. It must be text, wfdb, edf or csv");
+	}
+
+	/**
+	 * Gets the given input file and opens an {@link InputStream} for it. If no
+	 * file was given, returns the standard input instead.
+	 * 
+	 * @param options
+	 *            The parsed command line
+	 * @return A stream for a file specified in the command line or for the
+	 *         standard input
+	 */
+	protected InputStream openInputStreamGivenIn(CommandLine options) {
+		if (options.hasOption('i')) {
+			String fileName = options.getOptionValue('i');
+			try {
+				return new FileInputStream(fileName);
+			} catch (FileNotFoundException e) {
+				throw new IllegalArgumentException("Input file '" + fileName
+						+ "' does not exist");
+			}
+		}
+		return System.in;
+	}
+
+	/**
+	 * Opens the encoding to be decoded, in the format given in the command
+	 * line
+	 * 
+	 * @param options
+	 *            The parsed command line
+	 * @return The encoding in the file specified in the command line or in the
+	 *         standard input. It can be iterated only once.
+	 */
+	protected SignalSource openEncodingGivenIn(CommandLine options) {
+		if (this.isParsingLeads()) {
+			throw new IllegalArgumentException(
+					"Only one encoding can be decoded at a time");
+		}
+		String format = this.encodingFormatGivenIn(options);
+		if (format.equals("indexed")) {
+			return this.openWindowGivenIn(options);
+		}
+		if (options.hasOption("from") || options.hasOption("to")) {
+			throw new IllegalArgumentException("Only indexed encodings "
+					+ "can be decoded from or to a given sample");
+		}
+		if (format.equals("binary")) {
+			BinaryEncodingInput encoding;
+			try {
+				encoding = new BinaryEncodingInput(
+						this.openInputStreamGivenIn(options));
+			} catch (IOException e) {
+				throw new IllegalArgumentException(
+						"Input is not a binary encoding");
+			}
+			checkSegmentsOf(encoding.getHeader(), encoding);
+			return this.readAheadIfAskedIn(options, encoding);
+		}
+		if (format.equals("entropy")) {
+			EntropyEncodingInput encoding;
+			try {
+				encoding = new EntropyEncodingInput(
+						this.openInputStreamGivenIn(options));
+			} catch (IOException e) {
+				throw new IllegalArgumentException(
+						"Input is not an entropy encoding");
+			}
+			checkSegmentsOf(encoding.getHeader(), encoding);
+			return this.readAheadIfAskedIn(options, encoding);
+		}
+		return this.readAheadIfAskedIn(options, this
+				.openTextSignalGivenIn(options).withoutReplay());
+	}
+
+	/**
+	 * Gets the number of threads to be used, given with -j
+	 * 
+	 * @param options
+	 *            The parsed command line
+	 * @return The number of threads, 1 if none was given
+	 * @throws IllegalArgumentException
+	 *             if the number of threads is not positive
+	 */
+	protected int threadsGivenIn(CommandLine options) {
+		int threads = Integer.parseInt(options.getOptionValue('j', "1"));
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be "
+					+ "positive, but was " + threads);
+		}
+		return threads;
+	}
+
+	private SignalSource openWindowGivenIn(CommandLine options) {
+		if (!options.hasOption('i')) {
+			throw new IllegalArgumentException("Indexed encodings must be "
+					+ "read from a file, given with -i");
+		}
+		String fileName = options.getOptionValue('i');
+		IndexedEncoding encoding;
+		try {
+			encoding = new IndexedEncoding(new File(fileName));
+		} catch (FileNotFoundException e) {
+			throw new IllegalArgumentException("Input file '" + fileName
+					+ "' does not exist");
+		} catch (IOException e) {
+			throw new IllegalArgumentException(
+					"Input is not an indexed encoding");
+		}
+		checkSegmentsOf(encoding.getHeader(), null);
+		long from = Long.parseLong(options.getOptionValue("from", "0"));
+		long to = encoding.getNumberOfSamples();
+		if (options.hasOption("to")) {
+			to = Long.parseLong(options.getOptionValue("to"));
+		}
+		return encoding.window(from, to);
+	}
+
+	/**
+	 * Refuses encodings that are not made of the (length, amplitude) segments
+	 * of AZTEC, which are the only ones the decoders understand, closing the
+	 * input (if any) first
+	 */
+	private static void checkSegmentsOf(EncodingHeader header,
+			Closeable input) {
+		if (!isSegmentEncoding(header.getAlgorithm())) {
+			try {
+				if (input != null) {
+					input.close();
+				}
+			} catch (IOException e) {
+				// The refusal tells more than the failure to close
+			}
+			throw new IllegalArgumentException("Only AZTEC and mAZTEC "
+					+ "encodings can be decoded, but the input was encoded "
+					+ "by " + header.getAlgorithm());
+		}
+	}
+
+	private static boolean isSegmentEncoding(String algorithm) {
+		return algorithm.equals("AZTEC") || algorithm.equals("MAZTEC");
+	}
+
+	/**
+	 * Creates the output for an encoding, in the format given in the command
+	 * line
+	 * 
+	 * @param options
+	 *            The parsed command line
+	 * @param header
+	 *            Description of the encoding, used only by binary, entropy and
+	 *            indexed encodings. Only AZTEC and mAZTEC encodings can be
+	 *            indexed.
+	 *            It is not written until the first value is output, so its
+	 *            parameters may still be added after this call.
+	 * @return An output to a file specified in the command line or to the
+	 *         standard output
+	 */
+	protected EncodingOutput openEncodingOutputGivenIn(CommandLine options,
+			EncodingHeader header) {
+		String format = this.encodingFormatGivenIn(options);
+		if (format.equals("entropy")) {
+			if (!options.hasOption('q')) {
+				throw new IllegalArgumentException("Entropy encodings need "
+						+ "the resolution of the amplitudes, given with -q");
+			}
+			header.withEntropyCodedAmplitudes(Double.parseDouble(options
+					.getOptionValue('q')));
+			return this.asyncIfAskedIn(options, new EntropyEncodingOutput(
+					this.openOutputStreamGivenIn(options), header));
+		}
+		if (format.equals("indexed")) {
+			if (!isSegmentEncoding(header.getAlgorithm())) {
+				throw new IllegalArgumentException("Only AZTEC and mAZTEC "
+						+ "encodings can be indexed, not "
+						+ header.getAlgorithm() + " ones");
+			}
+			if (options.hasOption('q')) {
+				header.withScaledAmplitudes(Double.parseDouble(options
+						.getOptionValue('q')));
+			}
+			header.withIndex(IndexedEncodingOutput.DEFAULT_INDEX_INTERVAL);
+			return this.asyncIfAskedIn(options, new IndexedEncodingOutput(
+					this.openOutputStreamGivenIn(options), header));
+		}
+		if (format.equals("binary")) {
+			if (options.hasOption('q')) {
+				header.withScaledAmplitudes(Double.parseDouble(options
+						.getOptionValue('q')));
+			}
+			return this.asyncIfAskedIn(options, new BinaryEncodingOutput(
+					this.openOutputStreamGivenIn(options), header));
+		}
+		return this.openTextOutputGivenIn(options);
+	}
+
+	/**
+	 * Creates an output that writes values as text, one per line, with the
+	 * precision given in the command line
+	 * 
+	 * @param options
+	 *            The parsed command line
+	 * @return An output to a file specified in the command line or to the
+	 *         standard output
+	 */
+	protected EncodingOutput openTextOutputGivenIn(CommandLine options) {
+		DoubleFormatter formatter = new DoubleFormatter();
+		if (options.hasOption('p')) {
+			formatter = new DoubleFormatter(Integer.parseInt(options
+					.getOptionValue('p')));
+		}
+		return this.asyncIfAskedIn(options, new WriterEncodingOutput(
+				this.openOutputGivenIn(options), formatter));
+	}
+
+	private EncodingOutput asyncIfAskedIn(CommandLine options,
+			EncodingOutput output) {
+		if (options.hasOption("async-output")) {
+			return new AsyncEncodingOutput(output);
+		}
+		return output;
+	}
+
+	private String encodingFormatGivenIn(CommandLine options) {
+		String format = options.getOptionValue('f', "text");
+		if (format.equals("text") || format.equals("binary")
+				|| format.equals("entropy") || format.equals("indexed")) {
+			return format;
+		}
+		throw new IllegalArgumentException("Unknown format '" + format
+				+ "'. It must be text, binary, entropy or indexed");
+	}
+
+	/**
+	 * Gets the given output file and opens an {@link OutputStream} for it. If
+	 * no file was given, returns the standard output instead.
+	 * 
+	 * @param options
+	 *            The parsed command line
+	 * @return A stream for a file specified in the command line or for the
+	 *         standard output
+	 */
+	protected OutputStream openOutputStreamGivenIn(CommandLine options) {
+		if (options.hasOption('o')) {
+			String fileName = this.outputFileGivenIn(options);
+			try {
+				return new FileOutputStream(fileName);
+			} catch (IOException e) {
+				throw new ReadOnlyOutputException(fileName);
+			}
+		}
+		return System.out;
+	}
+
 	/**
 	 * Gets the given output file and opens a {@link Writer} for it. If no file
 	 * was given, opens a Writer for the standard output instead.
@@ -144,7 +658,7 @@ public abstract class CommandLineParametersParser<T> {
 	 */
 	protected Writer openOutputGivenIn(CommandLine options) {
 		if (options.hasOption('o')) {
-			String fileName = options.getOptionValue('o');
+			String fileName = this.outputFileGivenIn(options);
 			try {
 				return new FileWriter(fileName);
 			} catch (IOException e) {
@@ -154,6 +668,14 @@ public abstract class CommandLineParametersParser<T> {
 		return new OutputStreamWriter(System.out);
 	}
 
+	private String outputFileGivenIn(CommandLine options) {
+		String fileName = options.getOptionValue('o');
+		if (this.isParsingLeads()) {
+			return fileName + "." + this.currentLead;
+		}
+		return fileName;
+	}
+
 	/**
 	 * Prints help message with program usage
 	 */
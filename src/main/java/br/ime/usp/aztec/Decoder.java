@@ -16,17 +16,24 @@ limitations under the License.
 package br.ime.usp.aztec;
 
 import java.io.IOException;
-import java.util.Iterator;
 
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleIterator;
 import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.IndexedEncoding;
+import br.ime.usp.aztec.io.IterableSignalSource;
 import br.ime.usp.aztec.io.MalformedInputException;
+import br.ime.usp.aztec.io.SignalSource;
 
 /**
- * Decodes a signal encoded by the AZTEC, mAZTEC or imAZTEC algorithm.
+ * Decodes a signal encoded by the AZTEC, mAZTEC or imAZTEC algorithm. Note that
+ * this class is NOT thread-safe.
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
 public final class Decoder {
+	private double[] slope = new double[64];
+
 	/**
 	 * Decodes a signal encoded using the AZTEC algorithm or one of its modified
 	 * versions.
@@ -45,37 +52,165 @@ public final class Decoder {
 	 * @throws MalformedInputException
 	 *             if the input is not as expected
 	 */
-	public void decode(Iterable<Double> encoded, EncodingOutput output)
+	public void decode(SignalSource encoded, EncodingOutput output)
 			throws IOException, MalformedInputException {
-		Iterator<Double> iterator = encoded.iterator();
-		Double lastValue = null;
+		if (encoded instanceof IndexedEncoding.Window) {
+			this.decode((IndexedEncoding.Window) encoded, output);
+		} else {
+			this.decode(encoded.doubleIterator(), 0.0, output);
+		}
+	}
+
+	/**
+	 * Decodes only the samples of a window of an indexed encoding. Decoding
+	 * starts at the segment given by the index, so the time taken depends on
+	 * the size of the window, not on where it is in the signal.
+	 * 
+	 * @param window
+	 *            Part of an indexed encoding to be decoded
+	 * @param output
+	 *            Destination of the samples of the window
+	 * @throws IOException
+	 *             if the output throws it
+	 * @throws MalformedInputException
+	 *             if the input is not as expected
+	 * @see IndexedEncoding#window(long, long)
+	 */
+	public void decode(IndexedEncoding.Window window, EncodingOutput output)
+			throws IOException, MalformedInputException {
+		long first = window.getFirstSegmentSample();
+		this.decode(window.doubleIterator(), window.getInitialValue(),
+				new SampleRange(output, window.getFromSample() - first,
+						window.getToSample() - first));
+	}
+
+	/**
+	 * Decodes the samples from <code>fromSample</code> up to (but not
+	 * including) <code>toSample</code> of an indexed encoding.
+	 * 
+	 * @param encoding
+	 *            Indexed encoding to be decoded
+	 * @param fromSample
+	 *            Index of the first sample to be decoded, starting at 0
+	 * @param toSample
+	 *            Index after the last sample to be decoded
+	 * @param output
+	 *            Destination of the decoded samples
+	 * @throws IOException
+	 *             if the output throws it
+	 * @throws MalformedInputException
+	 *             if the input is not as expected
+	 * @throws IllegalArgumentException
+	 *             if the range is not valid
+	 */
+	public void decode(IndexedEncoding encoding, long fromSample,
+			long toSample, EncodingOutput output) throws IOException,
+			MalformedInputException {
+		this.decode(encoding.window(fromSample, toSample), output);
+	}
+
+	private void decode(DoubleIterator iterator, double initialValue,
+			EncodingOutput output) throws IOException {
+		double lastValue = initialValue;
 		while (iterator.hasNext()) {
-			int repetitions = iterator.next().intValue();
+			int repetitions = (int) iterator.nextDouble();
 			if (repetitions > 0) {
-				lastValue = iterator.next();
+				lastValue = iterator.nextDouble();
 				this.decodeLine(repetitions, output, lastValue);
 			} else {
 				lastValue = this.decodeSlope(-repetitions, output,
-						iterator.next(), lastValue);
+						iterator.nextDouble(), lastValue);
 			}
 		}
 	}
 
+	/**
+	 * Same as {@link #decode(SignalSource, EncodingOutput)}, but unboxing the
+	 * encoded values as they are read.
+	 * 
+	 * @param encoded
+	 *            Encoded signal to be decoded
+	 * @param output
+	 *            Destination of the decoded signal
+	 * @throws IOException
+	 *             if the output throws it
+	 * @throws MalformedInputException
+	 *             if the input is not as expected
+	 */
+	public void decode(Iterable<Double> encoded, EncodingOutput output)
+			throws IOException, MalformedInputException {
+		this.decode(new IterableSignalSource(encoded), output);
+	}
+
 	private void decodeLine(int repetitions, EncodingOutput output, double value)
 			throws IOException {
-		for (int i = 0; i < repetitions; i++) {
-			output.put(value);
-		}
+		AbstractEncodingOutput.putRun(output, value, repetitions);
 	}
 
 	private double decodeSlope(int length, EncodingOutput output,
 			double height, double base) throws IOException {
+		if (this.slope.length < length) {
+			this.slope = new double[Math.max(length, this.slope.length * 2)];
+		}
 		double step = height / length;
 		double value = base;
 		for (int i = 0; i < length; i++) {
 			value += step;
-			output.put(value);
+			this.slope[i] = value;
 		}
+		AbstractEncodingOutput.put(output, this.slope, 0, length);
 		return value;
 	}
+
+	/**
+	 * Passes on only the samples between two positions of the decoded signal
+	 */
+	private static final class SampleRange extends AbstractEncodingOutput {
+		private final EncodingOutput output;
+		private final long from;
+		private final long to;
+		private long position = 0;
+
+		SampleRange(EncodingOutput output, long from, long to) {
+			this.output = output;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public void put(double value) throws IOException {
+			if (this.position >= this.from && this.position < this.to) {
+				this.output.put(value);
+			}
+			this.position++;
+		}
+
+		@Override
+		public void putRun(double value, int count) throws IOException {
+			long start = Math.max(this.position, this.from);
+			long end = Math.min(this.position + count, this.to);
+			if (start < end) {
+				AbstractEncodingOutput.putRun(this.output, value,
+						(int) (end - start));
+			}
+			this.position += count;
+		}
+
+		@Override
+		public void put(double[] values, int offset, int length)
+				throws IOException {
+			long start = Math.max(this.position, this.from);
+			long end = Math.min(this.position + length, this.to);
+			if (start < end) {
+				AbstractEncodingOutput.put(this.output, values, offset
+						+ (int) (start - this.position), (int) (end - start));
+			}
+			this.position += length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.output.close();
+		}
+	}
 }
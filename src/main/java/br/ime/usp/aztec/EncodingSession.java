@@ -0,0 +1,81 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.IOException;
+
+/**
+ * An encoding in progress, fed with samples as they arrive instead of reading
+ * them from an input. It keeps the state of the algorithm between calls and
+ * puts each segment in the output as soon as it cannot change anymore, so the
+ * last segment is only put when the session is closed.
+ * 
+ * A session is not thread-safe, but it holds only the state of the
+ * algorithm, so many of them can be open at the same time.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see FlatAZTEC#open(AZTECParameters)
+ * @see br.ime.usp.aztec.maztec.MAZTEC#open(br.ime.usp.aztec.maztec.MAZTECParameters)
+ */
+public interface EncodingSession {
+	/**
+	 * Encodes the next sample of the signal
+	 * 
+	 * @param sample
+	 *            The sample
+	 * @throws IOException
+	 *             if the output throws it
+	 * @throws IllegalStateException
+	 *             if the session is closed
+	 */
+	void accept(double sample) throws IOException;
+
+	/**
+	 * Encodes the next samples of the signal, as if {@link #accept(double)}
+	 * was called for each one, in order
+	 * 
+	 * @param samples
+	 *            An array with the samples
+	 * @param offset
+	 *            Index of the first sample to be encoded
+	 * @param length
+	 *            Number of samples to be encoded
+	 * @throws IOException
+	 *             if the output throws it
+	 * @throws IllegalStateException
+	 *             if the session is closed
+	 */
+	void accept(double[] samples, int offset, int length) throws IOException;
+
+	/**
+	 * Makes the segments already put reach their destination, by flushing
+	 * the output if it is {@link java.io.Flushable}. The segment still being
+	 * built is not put, since the next samples may still change it.
+	 * 
+	 * @throws IOException
+	 *             if the output throws it
+	 */
+	void flush() throws IOException;
+
+	/**
+	 * Puts the last segment and closes the output. Closing a closed session
+	 * does nothing.
+	 * 
+	 * @throws IOException
+	 *             if the output throws it
+	 */
+	void close() throws IOException;
+}
@@ -0,0 +1,344 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.IOException;
+
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.EncodingOutput;
+
+/**
+ * The AZTEC algorithm implemented as a single state machine. It gives exactly
+ * the same encoding as {@link AZTEC}, whose states, lines and slopes are
+ * objects, but keeps them all in primitive fields instead, so that no object
+ * is created while encoding, however long the signal is.
+ * 
+ * At any time there is at most a line being built, the line before it (when a
+ * slope may be starting) and a slope, so each of them has its own fields.
+ * Samples can also be pushed to the encoder one by one, as they arrive, by an
+ * {@link EncodingSession}.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see AZTEC
+ */
+public final class FlatAZTEC {
+
+	private static final int SHORT_LINE = 0;
+	private static final int NORMAL_LINE = 1;
+	private static final int POSSIBLE_SLOPE = 2;
+	private static final int ASCENDING_SLOPE = 3;
+	private static final int DESCENDING_SLOPE = 4;
+
+	/**
+	 * Encodes the given signal, writing the output to the
+	 * {@link EncodingOutput} specified in the {@link AZTECParameters} passed as
+	 * argument. Note that this method is NOT thread-safe.
+	 * 
+	 * @param parameters
+	 *            Parameters for the execution of the algorithm, such as input,
+	 *            output, maximum line length etc.
+	 * @throws IOException
+	 *             If the output throws it
+	 * @see AZTEC#encode(AZTECParameters)
+	 */
+	public void encode(AZTECParameters parameters) throws IOException {
+		Session session = new Session(parameters);
+		DoubleIterator samples = parameters.getInput().doubleIterator();
+		while (samples.hasNext()) {
+			session.process(samples.nextDouble());
+		}
+		session.finish();
+	}
+
+	/**
+	 * Starts an encoding whose samples are given one by one, as they arrive,
+	 * instead of read from the input of the parameters, which is ignored.
+	 * Each session has its own state, so many of them can be open at the
+	 * same time.
+	 * 
+	 * @param parameters
+	 *            Parameters for the execution of the algorithm, such as
+	 *            output, maximum line length etc.
+	 * @return The session, which closes the output when closed
+	 */
+	public EncodingSession open(AZTECParameters parameters) {
+		return new Session(parameters);
+	}
+
+	/**
+	 * State of the algorithm between samples. Besides being an
+	 * {@link EncodingSession}, it lets {@link ParallelAZTEC} find where two
+	 * sessions started at different samples reach the same state.
+	 */
+	static final class Session extends AbstractEncodingSession {
+		private final double[] segment = new double[2];
+		private final double k;
+		private final double t;
+		private final double n;
+		private boolean encodedFirstLine = false;
+		private int state = SHORT_LINE;
+
+		private double lineMin;
+		private double lineMax;
+		private int lineLength;
+
+		private double previousMin;
+		private double previousMax;
+		private int previousLength;
+
+		private double slopeMin;
+		private double slopeMax;
+		private double slopeDuration;
+
+		Session(AZTECParameters parameters) {
+			this(parameters, parameters.getOutput(), false);
+		}
+
+		/**
+		 * @param parameters
+		 *            Parameters of the algorithm, whose input and output are
+		 *            ignored
+		 * @param output
+		 *            Destination of the segments
+		 * @param afterFirstLine
+		 *            Whether the session starts as if a line had already
+		 *            been encoded, so that it can start in the middle of a
+		 *            signal
+		 */
+		Session(AZTECParameters parameters, EncodingOutput output,
+				boolean afterFirstLine) {
+			super(output);
+			this.k = parameters.getK();
+			this.t = parameters.getT();
+			this.n = parameters.getN();
+			this.encodedFirstLine = afterFirstLine;
+			this.startLine();
+		}
+
+		/**
+		 * @return true, if a line has just started, at most with the last
+		 *         sample. The state is then given only by the line, since
+		 *         the previous line and the slope are not used anymore.
+		 * @see #hasSameLineAs(Session)
+		 */
+		boolean isAtLineStart() {
+			return this.encodedFirstLine && this.lineLength <= 1
+					&& (this.state == SHORT_LINE || this.state == NORMAL_LINE);
+		}
+
+		/**
+		 * @param other
+		 *            Another session
+		 * @return true, if both sessions are building the same line, in the
+		 *         same state. If they are also at the start of a line, they
+		 *         will put the same segments from now on.
+		 */
+		boolean hasSameLineAs(Session other) {
+			return this.state == other.state
+					&& this.encodedFirstLine == other.encodedFirstLine
+					&& this.lineLength == other.lineLength
+					&& Double.doubleToLongBits(this.lineMin) == Double
+							.doubleToLongBits(other.lineMin)
+					&& Double.doubleToLongBits(this.lineMax) == Double
+							.doubleToLongBits(other.lineMax);
+		}
+
+		/**
+		 * @return A copy of the state of the line being built, whose output
+		 *         is the same as this session's
+		 */
+		Session copyLine() {
+			Session copy = new Session(this);
+			copy.state = this.state;
+			copy.encodedFirstLine = this.encodedFirstLine;
+			copy.lineMin = this.lineMin;
+			copy.lineMax = this.lineMax;
+			copy.lineLength = this.lineLength;
+			return copy;
+		}
+
+		private Session(Session original) {
+			super(original.getOutput());
+			this.k = original.k;
+			this.t = original.t;
+			this.n = original.n;
+		}
+
+		@Override
+		protected void process(double sample) throws IOException {
+			while (true) {
+				switch (this.state) {
+				case SHORT_LINE:
+					if (this.lineCanContain(sample) || !this.encodedFirstLine) {
+						this.updateLine(sample);
+						if (this.lineLength >= this.t) {
+							this.encodedFirstLine = true;
+							this.state = NORMAL_LINE;
+						}
+						return;
+					}
+					this.keepLineAsPrevious();
+					this.state = POSSIBLE_SLOPE;
+					continue;
+				case NORMAL_LINE:
+					if (this.lineCanContain(sample)) {
+						this.updateLine(sample);
+						if (this.lineLength >= this.n) {
+							this.endLine();
+							this.startLine();
+							this.state = SHORT_LINE;
+						}
+						return;
+					}
+					this.endLine();
+					this.startLine();
+					this.state = SHORT_LINE;
+					continue;
+				case POSSIBLE_SLOPE:
+					if (this.lineCanContain(sample)) {
+						this.updateLine(sample);
+						if (this.lineLength >= this.t) {
+							this.output(this.previousLength, (this.previousMax
+									+ this.previousMin) * 0.5);
+							this.state = NORMAL_LINE;
+						}
+						return;
+					}
+					this.startSlope();
+					continue;
+				default:
+					if (this.lineCanContain(sample)) {
+						this.updateLine(sample);
+						if (this.lineLength >= this.t) {
+							this.endSlope();
+							this.state = NORMAL_LINE;
+						}
+						return;
+					}
+					if (this.changedSignal()) {
+						this.endSlope();
+						this.keepLineAsPrevious();
+						this.state = POSSIBLE_SLOPE;
+						continue;
+					}
+					this.addLineToSlope();
+					this.startLine();
+					this.updateLine(sample);
+					return;
+				}
+			}
+		}
+
+		@Override
+		protected void finish() throws IOException {
+			switch (this.state) {
+			case SHORT_LINE:
+			case NORMAL_LINE:
+				this.endLine();
+				break;
+			case POSSIBLE_SLOPE:
+				this.startSlope();
+				this.endSlope();
+				break;
+			default:
+				this.addLineToSlope();
+				this.endSlope();
+			}
+		}
+
+		private void startLine() {
+			this.lineMin = Double.POSITIVE_INFINITY;
+			this.lineMax = Double.NEGATIVE_INFINITY;
+			this.lineLength = 0;
+		}
+
+		private void updateLine(double sample) {
+			this.lineMin = Math.min(sample, this.lineMin);
+			this.lineMax = Math.max(sample, this.lineMax);
+			this.lineLength++;
+		}
+
+		private boolean lineCanContain(double value) {
+			return value <= this.lineMin + this.k
+					&& this.k + value >= this.lineMax;
+		}
+
+		private double lineAverage() {
+			return (this.lineMax + this.lineMin) * 0.5;
+		}
+
+		private void endLine() throws IOException {
+			this.output(this.lineLength, this.lineAverage());
+		}
+
+		/**
+		 * The current line becomes the one before a possible slope, and a new
+		 * line is started
+		 */
+		private void keepLineAsPrevious() {
+			this.previousMin = this.lineMin;
+			this.previousMax = this.lineMax;
+			this.previousLength = this.lineLength;
+			this.startLine();
+		}
+
+		/**
+		 * Starts a slope over the previous and the current lines, going up if
+		 * the current line is above the previous one, and starts a new line
+		 */
+		private void startSlope() {
+			this.slopeDuration = this.previousLength + this.lineLength;
+			double previousAverage = (this.previousMax + this.previousMin) * 0.5;
+			if (this.lineAverage() > previousAverage) {
+				this.slopeMin = this.previousMin;
+				this.slopeMax = this.lineMax;
+				this.state = ASCENDING_SLOPE;
+			} else {
+				this.slopeMin = this.lineMin;
+				this.slopeMax = this.previousMax;
+				this.state = DESCENDING_SLOPE;
+			}
+			this.startLine();
+		}
+
+		private boolean changedSignal() {
+			if (this.state == ASCENDING_SLOPE) {
+				return this.lineAverage() < this.slopeMax;
+			}
+			return this.lineAverage() > this.slopeMin;
+		}
+
+		private void addLineToSlope() {
+			this.slopeMin = Math.min(this.lineMin, this.slopeMin);
+			this.slopeMax = Math.max(this.lineMax, this.slopeMax);
+			this.slopeDuration += this.lineLength;
+		}
+
+		private void endSlope() throws IOException {
+			double signal = this.state == ASCENDING_SLOPE ? 1.0 : -1.0;
+			this.output(-this.slopeDuration, signal
+					* (this.slopeMax - this.slopeMin));
+		}
+
+		private void output(double length, double amplitude)
+				throws IOException {
+			this.segment[0] = length;
+			this.segment[1] = amplitude;
+			AbstractEncodingOutput.put(this.getOutput(), this.segment, 0, 2);
+		}
+	}
+}
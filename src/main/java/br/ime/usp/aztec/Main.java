@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import br.ime.usp.aztec.aztdis.AZTDISMain;
+import br.ime.usp.aztec.batch.BatchMain;
 import br.ime.usp.aztec.maztec.MAZTECMain;
 
 /**
@@ -30,10 +31,10 @@ import br.ime.usp.aztec.maztec.MAZTECMain;
  */
 public final class Main {
 
-	private static Map<String, AlgorithmMain> algorithms;
+	private static Map<String, AbstractAlgorithmMain> algorithms;
 
 	static {
-		algorithms = new HashMap<String, AlgorithmMain>();
+		algorithms = new HashMap<String, AbstractAlgorithmMain>();
 		algorithms.put("AZTEC", new AZTECMain());
 		algorithms.put("MAZTEC", new MAZTECMain());
 		algorithms.put("AZTDIS", new AZTDISMain());
@@ -46,6 +47,10 @@ public final class Main {
 		}
 		String algorithm = args[0];
 		String[] algorithmArgs = removeFirst(args);
+		if (algorithm.equals("BATCH")) {
+			new BatchMain(algorithms).run(algorithmArgs);
+			return;
+		}
 		try {
 			findAlgorithm(algorithm).run(algorithmArgs);
 		} catch (IllegalArgumentException e) {
@@ -56,7 +61,7 @@ public final class Main {
 		}
 	}
 
-	private static AlgorithmMain findAlgorithm(String algorithm) {
+	private static AbstractAlgorithmMain findAlgorithm(String algorithm) {
 		if (algorithms.containsKey(algorithm)) {
 			return algorithms.get(algorithm);
 		}
@@ -84,6 +89,9 @@ public final class Main {
 		System.out.print(listAlgorithms());
 		System.out
 				.println("and <algorithm options> depend on the chosen algorithm.");
+		System.out.println("To encode many files at once, use");
+		System.out.println("encoder BATCH <batch options> <algorithm> "
+				+ "<algorithm options>");
 		System.out.println("For more information on the options accepted by");
 		System.out
 				.println("each algorithm, pass nothing in <algorithm options>.");
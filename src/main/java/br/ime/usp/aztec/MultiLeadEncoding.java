@@ -0,0 +1,150 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import br.ime.usp.aztec.io.CSVRowParser;
+import br.ime.usp.aztec.io.MalformedInputException;
+import br.ime.usp.aztec.io.PipedSignal;
+
+/**
+ * Encodes all the leads of a multi-column signal at once. The rows are read
+ * only once, by the calling thread, and their columns are handed to one
+ * encoder per lead, each running in its own thread and writing to its own
+ * output.
+ * 
+ * Each encoder pulls its values from a {@link PipedSignal}, so each lead needs
+ * a thread of its own to wait on it while the others are fed.
+ * 
+ * @param T
+ *            Type of the parameters given to the encoder of each lead
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see CommandLineParametersParser#parseLeads(String[])
+ */
+public final class MultiLeadEncoding<T> {
+
+	/**
+	 * Encodes one lead with the algorithm chosen by the caller
+	 * 
+	 * @param T
+	 *            Type of the parameters of the algorithm
+	 */
+	public interface LeadEncoder<T> {
+		/**
+		 * Encodes the input of the given parameters into their output,
+		 * closing it when done
+		 * 
+		 * @param parameters
+		 *            Parameters of the lead, whose input is fed with the
+		 *            values of its column
+		 * @throws IOException
+		 *             if the output throws it
+		 */
+		void encode(T parameters) throws IOException;
+	}
+
+	private final CSVRowParser rows;
+	private final PipedSignal[] leads;
+	private final List<T> parameters;
+
+	MultiLeadEncoding(CSVRowParser rows, PipedSignal[] leads,
+			List<T> parameters) {
+		this.rows = rows;
+		this.leads = leads;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * @return Number of leads to be encoded
+	 */
+	public int getNumberOfLeads() {
+		return this.leads.length;
+	}
+
+	/**
+	 * @return Parameters of each lead, in the order of the columns
+	 */
+	public List<T> getParameters() {
+		return this.parameters;
+	}
+
+	/**
+	 * Reads all the rows and encodes their columns in parallel, returning
+	 * only after every lead is encoded
+	 * 
+	 * @param encoder
+	 *            Encoder of a single lead
+	 * @throws IOException
+	 *             if any encoder throws it
+	 * @throws MalformedInputException
+	 *             if a row is not valid
+	 */
+	public void encode(final LeadEncoder<T> encoder) throws IOException,
+			MalformedInputException {
+		ExecutorService pool = Tasks.newPool(this.leads.length,
+				"Lead encoder");
+		boolean fed = false;
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int i = 0; i < this.leads.length; i++) {
+				final PipedSignal lead = this.leads[i];
+				final T leadParameters = this.parameters.get(i);
+				results.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						try {
+							encoder.encode(leadParameters);
+						} finally {
+							lead.abandon();
+						}
+						return null;
+					}
+				}));
+			}
+			this.feedLeads();
+			fed = true;
+			Tasks.waitForAll(results, "encoders");
+		} finally {
+			if (fed) {
+				pool.shutdown();
+			} else {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	private void feedLeads() throws IOException {
+		try {
+			double[] row = new double[this.leads.length];
+			while (this.rows.nextRow(row)) {
+				for (int i = 0; i < row.length; i++) {
+					this.leads[i].put(row[i]);
+				}
+			}
+		} finally {
+			this.rows.close();
+		}
+		for (PipedSignal lead : this.leads) {
+			lead.close();
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.IOException;
+
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.EncodingOutput;
+
+/**
+ * Encodes a signal with the AZTEC algorithm using many threads. The encoding
+ * is exactly the same as the one given by {@link FlatAZTEC} or {@link AZTEC}.
+ * 
+ * The whole signal is read first and split into chunks. Every chunk but the
+ * first is encoded in parallel as if a line started at its first sample,
+ * which is just a guess. Meanwhile, the first chunk is encoded from its
+ * start, and the encoding goes on into the next chunk until it starts a line
+ * exactly as the guess did, at the same sample. From there on, both give the
+ * same segments, so the rest of the guess is used and the encoding goes on
+ * from its end into the next chunk. If they never meet, the chunk is simply
+ * encoded again. As AZTEC lines end every few samples, the chunks are
+ * usually joined after a few samples, so each guess keeps only its first
+ * line starts.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see FlatAZTEC
+ * @see ChunkedEncoding
+ */
+public final class ParallelAZTEC {
+
+	private final int threads;
+
+	/**
+	 * @param threads
+	 *            Number of threads encoding at the same time
+	 * @throws IllegalArgumentException
+	 *             if the number of threads is not positive
+	 */
+	public ParallelAZTEC(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be "
+					+ "positive, but was " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Encodes the given signal, writing the output to the
+	 * {@link EncodingOutput} specified in the {@link AZTECParameters} passed as
+	 * argument. The whole signal is kept in memory.
+	 * 
+	 * @param parameters
+	 *            Parameters for the execution of the algorithm, such as input,
+	 *            output, maximum line length etc.
+	 * @throws IOException
+	 *             If the output throws it
+	 * @see FlatAZTEC#encode(AZTECParameters)
+	 */
+	public void encode(AZTECParameters parameters) throws IOException {
+		DoubleList signal = new DoubleList();
+		DoubleIterator values = parameters.getInput().doubleIterator();
+		while (values.hasNext()) {
+			signal.add(values.nextDouble());
+		}
+		this.encode(signal.toArray(), parameters);
+	}
+
+	/**
+	 * Same as {@link #encode(AZTECParameters)}, but encoding the given samples
+	 * instead of the input of the parameters
+	 * 
+	 * @param samples
+	 *            The signal to be encoded
+	 * @param parameters
+	 *            Parameters for the execution of the algorithm, whose input is
+	 *            ignored
+	 * @throws IOException
+	 *             If the output throws it
+	 */
+	public void encode(double[] samples, AZTECParameters parameters)
+			throws IOException {
+		new Encoding(samples, this.threads, parameters)
+				.encode(new FlatAZTEC.Session(parameters));
+	}
+
+	private static final class Encoding extends
+			ChunkedEncoding<FlatAZTEC.Session> {
+		private final AZTECParameters parameters;
+
+		Encoding(double[] samples, int threads, AZTECParameters parameters) {
+			super(samples, threads, "AZTEC encoder");
+			this.parameters = parameters;
+		}
+
+		@Override
+		protected LineGuess guess(double[] samples, int from, int to)
+				throws IOException {
+			return new LineGuess(this.parameters, samples, from, to);
+		}
+	}
+
+	/**
+	 * Encoding of a chunk as if a line started at its first sample
+	 */
+	private static final class LineGuess extends
+			ChunkedEncoding.Guess<FlatAZTEC.Session> {
+		private final AZTECParameters parameters;
+		private final FlatAZTEC.Session session;
+
+		LineGuess(AZTECParameters parameters, double[] samples, int from,
+				int to) throws IOException {
+			super(from, to);
+			this.parameters = parameters;
+			this.session = new FlatAZTEC.Session(parameters,
+					this.getOutput(), true);
+			this.keepLineStart(this.session.copyLine(), from);
+			for (int i = from; i < to; i++) {
+				this.session.process(samples[i]);
+				if (this.session.isAtLineStart()
+						&& this.getLineStarts() < JOINABLE_LINE_STARTS) {
+					this.keepLineStart(this.session.copyLine(), i + 1);
+				}
+			}
+		}
+
+		/**
+		 * Goes on encoding the chunk from the given session, until it starts
+		 * a line exactly as this guess did
+		 */
+		@Override
+		protected FlatAZTEC.Session join(FlatAZTEC.Session actual,
+				double[] samples) throws IOException {
+			int lineStart = 0;
+			for (int i = this.getFrom();; i++) {
+				while (lineStart < this.getLineStarts()
+						&& this.getLineStartSample(lineStart) < i) {
+					lineStart++;
+				}
+				if (lineStart < this.getLineStarts()
+						&& this.getLineStartSample(lineStart) == i
+						&& actual.hasSameLineAs(this.getLineStart(lineStart))) {
+					this.joinAt(lineStart, this.parameters.getOutput());
+					return this.session;
+				}
+				if (i == this.getTo()) {
+					return actual;
+				}
+				actual.process(samples[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.IndexedEncoding;
+import br.ime.usp.aztec.io.MalformedInputException;
+import br.ime.usp.aztec.io.SignalSource;
+
+/**
+ * Decodes a signal encoded by the AZTEC, mAZTEC or imAZTEC algorithm using
+ * many threads. The samples are exactly the same as the ones given by
+ * {@link Decoder}.
+ * 
+ * A slope starts from the last sample before it, so the segments cannot be
+ * decoded independently. A line, however, does not depend on anything
+ * before it. The whole encoding is read first, and the lengths of the
+ * segments give where each one starts in the decoded signal. The encoding is
+ * then split into chunks starting at lines, which are decoded in parallel
+ * straight into their place in a single array.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see Decoder
+ */
+public final class ParallelDecoder {
+
+	/**
+	 * Chunks are not made smaller than this number of samples, so that
+	 * short signals are not split at all
+	 */
+	static final int MIN_CHUNK_SAMPLES = 1 << 16;
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final int threads;
+
+	/**
+	 * @param threads
+	 *            Number of threads decoding at the same time
+	 * @throws IllegalArgumentException
+	 *             if the number of threads is not positive
+	 */
+	public ParallelDecoder(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be "
+					+ "positive, but was " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Decodes the whole signal in memory and then gives it to the output.
+	 * Windows of an indexed encoding are small by design, and are decoded by
+	 * a {@link Decoder}.
+	 * 
+	 * @param encoded
+	 *            Encoded signal to be decoded
+	 * @param output
+	 *            Destination of the decoded signal
+	 * @throws IOException
+	 *             if the output throws it
+	 * @throws MalformedInputException
+	 *             if the input is not as expected
+	 * @see Decoder#decode(SignalSource, EncodingOutput)
+	 */
+	public void decode(SignalSource encoded, EncodingOutput output)
+			throws IOException, MalformedInputException {
+		if (encoded instanceof IndexedEncoding.Window) {
+			new Decoder().decode(encoded, output);
+			return;
+		}
+		double[] samples = this.decode(encoded);
+		AbstractEncodingOutput.put(output, samples, 0, samples.length);
+	}
+
+	/**
+	 * @param encoded
+	 *            Encoded signal to be decoded
+	 * @return All the samples of the decoded signal
+	 * @throws IOException
+	 *             if a decoding thread is interrupted
+	 * @throws MalformedInputException
+	 *             if the input is not as expected, or too long to be decoded
+	 *             in memory
+	 */
+	public double[] decode(SignalSource encoded) throws IOException,
+			MalformedInputException {
+		DoubleList values = new DoubleList();
+		DoubleIterator iterator = encoded.doubleIterator();
+		while (iterator.hasNext()) {
+			values.add(iterator.nextDouble());
+		}
+		if (values.size() % 2 != 0) {
+			throw new MalformedInputException("Length without amplitude at "
+					+ "the end of the encoding");
+		}
+		double[] segments = values.toArray();
+		int[] offsets = new int[segments.length / 2 + 1];
+		long samples = 0;
+		for (int i = 0; i < segments.length; i += 2) {
+			offsets[i / 2] = (int) samples;
+			samples += Math.abs((long) (int) segments[i]);
+			if (samples > Integer.MAX_VALUE - 8) {
+				throw new MalformedInputException("Decoded signal is too long "
+						+ "to be kept in memory");
+			}
+		}
+		offsets[segments.length / 2] = (int) samples;
+		double[] decoded = new double[(int) samples];
+		this.decodeChunks(segments, offsets, this.chunkStarts(segments,
+				offsets), decoded);
+		return decoded;
+	}
+
+	/**
+	 * Splits the segments into chunks of about the same number of samples,
+	 * each starting at a line, except the first one
+	 */
+	private int[] chunkStarts(double[] segments, int[] offsets) {
+		int total = offsets[offsets.length - 1];
+		int chunkSamples = Math.max(MIN_CHUNK_SAMPLES, total
+				/ (this.threads * CHUNKS_PER_THREAD));
+		int[] starts = new int[offsets.length + 1];
+		int chunks = 0;
+		starts[chunks++] = 0;
+		int chunkStart = 0;
+		for (int segment = 1; segment < offsets.length - 1; segment++) {
+			if (offsets[segment] - chunkStart >= chunkSamples
+					&& (int) segments[2 * segment] > 0) {
+				starts[chunks++] = segment;
+				chunkStart = offsets[segment];
+			}
+		}
+		starts[chunks++] = offsets.length - 1;
+		int[] result = new int[chunks];
+		System.arraycopy(starts, 0, result, 0, chunks);
+		return result;
+	}
+
+	private void decodeChunks(final double[] segments, final int[] offsets,
+			int[] starts, final double[] decoded) throws IOException {
+		if (this.threads == 1 || starts.length <= 2) {
+			decodeChunk(segments, offsets, 0, starts[starts.length - 1],
+					decoded);
+			return;
+		}
+		ExecutorService pool = Tasks.newPool(Math.min(this.threads,
+				starts.length - 1), "AZTEC decoder");
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int i = 0; i < starts.length - 1; i++) {
+				final int first = starts[i];
+				final int end = starts[i + 1];
+				results.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						decodeChunk(segments, offsets, first, end, decoded);
+						return null;
+					}
+				}));
+			}
+			Tasks.waitFor(results, "decoders");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Decodes the segments from <code>first</code> up to (but not including)
+	 * <code>end</code>, with the same arithmetic as {@link Decoder}
+	 */
+	private static void decodeChunk(double[] segments, int[] offsets,
+			int first, int end, double[] decoded) {
+		double lastValue = 0.0;
+		for (int segment = first; segment < end; segment++) {
+			int repetitions = (int) segments[2 * segment];
+			double amplitude = segments[2 * segment + 1];
+			int position = offsets[segment];
+			if (repetitions > 0) {
+				lastValue = amplitude;
+				for (int i = 0; i < repetitions; i++) {
+					decoded[position + i] = lastValue;
+				}
+			} else {
+				int length = -repetitions;
+				double step = amplitude / length;
+				for (int i = 0; i < length; i++) {
+					lastValue += step;
+					decoded[position + i] = lastValue;
+				}
+			}
+		}
+	}
+}
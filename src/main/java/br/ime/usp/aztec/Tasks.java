@@ -0,0 +1,170 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Helpers for the encoders and decoders that run tasks on many threads. They
+ * are public only because those live in different packages.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class Tasks {
+
+	private Tasks() {
+	}
+
+	/**
+	 * @param threads
+	 *            Number of threads of the pool
+	 * @param name
+	 *            Name of the threads, followed by their number
+	 * @return A pool of daemon threads, so that an abandoned task does not
+	 *         keep the program running
+	 */
+	public static ExecutorService newPool(int threads, String name) {
+		return Executors.newFixedThreadPool(threads, new DaemonThreads(name));
+	}
+
+	/**
+	 * Waits for a task and gives its result
+	 * 
+	 * @param task
+	 *            The task
+	 * @param workers
+	 *            What runs the task, for the message of an interruption
+	 * @return The result of the task
+	 * @throws IOException
+	 *             if the task throws it, or if the thread is interrupted while
+	 *             waiting
+	 */
+	public static <T> T get(Future<T> task, String workers)
+			throws IOException {
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			throw rethrow(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for "
+					+ "the " + workers);
+		}
+	}
+
+	/**
+	 * Waits for the given tasks in order, stopping at the first that fails
+	 * 
+	 * @param tasks
+	 *            The tasks
+	 * @param workers
+	 *            What runs the tasks, for the message of an interruption
+	 * @throws IOException
+	 *             if a task throws it, or if the thread is interrupted while
+	 *             waiting
+	 * @see #get(Future, String)
+	 */
+	public static void waitFor(List<? extends Future<?>> tasks, String workers)
+			throws IOException {
+		for (Future<?> task : tasks) {
+			get(task, workers);
+		}
+	}
+
+	/**
+	 * Waits for all the given tasks, even if some of them fail, so that none
+	 * is still running after returning
+	 * 
+	 * @param tasks
+	 *            The tasks
+	 * @param workers
+	 *            What runs the tasks, for the message of an interruption
+	 * @throws IOException
+	 *             if a task throws it, in which case the failure of the first
+	 *             task that failed is thrown, or if the thread is interrupted
+	 *             while waiting
+	 * @see #rethrow(Throwable)
+	 */
+	public static void waitForAll(List<? extends Future<?>> tasks,
+			String workers) throws IOException {
+		Throwable failure = null;
+		for (Future<?> task : tasks) {
+			try {
+				task.get();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting "
+						+ "for the " + workers);
+			}
+		}
+		if (failure != null) {
+			throw rethrow(failure);
+		}
+	}
+
+	/**
+	 * Throws the failure of a task as it is, unless it is a checked exception
+	 * other than an {@link IOException}, which is wrapped in an
+	 * {@link IllegalStateException}
+	 * 
+	 * @param failure
+	 *            The failure
+	 * @return Never returns, but lets callers write
+	 *         <code>throw rethrow(failure)</code>
+	 * @throws IOException
+	 *             if the failure is one
+	 */
+	public static IllegalStateException rethrow(Throwable failure)
+			throws IOException {
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		throw new IllegalStateException(failure);
+	}
+
+	private static final class DaemonThreads implements ThreadFactory {
+		private final String name;
+		private int created = 0;
+
+		DaemonThreads(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public synchronized Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, this.name + " " + this.created++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -17,13 +17,19 @@ package br.ime.usp.aztec.aztdis;
 
 import java.io.IOException;
 
-import br.ime.usp.aztec.AZTEC;
 import br.ime.usp.aztec.AZTECParameters;
+import br.ime.usp.aztec.EncodingSession;
+import br.ime.usp.aztec.FlatAZTEC;
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.DoubleList;
 import br.ime.usp.aztec.io.EncodingOutput;
 import br.ime.usp.aztec.io.IterableEncodingOutput;
+import br.ime.usp.aztec.io.SignalSource;
 
 /**
- * The AZTDIS algorithm implementation
+ * The AZTDIS algorithm implementation. The input is read only once, into a
+ * single array that both the AZTEC pass and every refinement pass use. The
+ * refinement passes alternate between two lists of significant samples.
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
@@ -41,26 +47,41 @@ public class AZTDIS {
 	 * @see EncodingOutput
 	 */
 	public void encode(AZTDISParameters parameters) throws IOException {
-		AZTEC aztec = new AZTEC();
+		double[] samples = read(parameters.getInput());
 		IterableEncodingOutput aztecOutput = new IterableEncodingOutput();
 		AZTECParameters aztecParameters = new AZTECParameters.Builder()
 				.withMaximumAcceptableVariation(parameters.getThreshold())
 				.withMaximumLineLength(Double.POSITIVE_INFINITY)
-				.withInput(parameters.getInput()).withOutput(aztecOutput)
-				.build();
-		aztec.encode(aztecParameters);
-		Iterable<Double> significantSamples = new AZTECToSampleConverter()
-				.convert(aztecOutput);
+				.withOutput(aztecOutput).build();
+		EncodingSession aztec = new FlatAZTEC().open(aztecParameters);
+		aztec.accept(samples, 0, samples.length);
+		aztec.close();
+		DoubleList significantSamples = new AZTECToSampleConverter()
+				.convert(aztecOutput.getValues());
+		DoubleList refinement = new DoubleList(significantSamples.size());
 		EncodingRefinement refiner = new EncodingRefinement();
 		for (int i = 0; i < 5; i++) {
-			significantSamples = refiner.refine(significantSamples,
-					parameters.getInput(), parameters.getEpsilon());
+			refiner.refine(significantSamples, samples,
+					parameters.getEpsilon(), refinement);
+			DoubleList refined = refinement;
+			refinement = significantSamples;
+			significantSamples = refined;
 		}
 
 		// TODO refine encoding using SLOPE
 
-		for (Double sample : significantSamples) {
-			parameters.getOutput().put(sample);
+		EncodingOutput output = parameters.getOutput();
+		for (int i = 0; i < significantSamples.size(); i++) {
+			output.put(significantSamples.get(i));
 		}
 	}
+
+	private static double[] read(SignalSource input) {
+		DoubleList signal = new DoubleList();
+		DoubleIterator values = input.doubleIterator();
+		while (values.hasNext()) {
+			signal.add(values.nextDouble());
+		}
+		return signal.toArray();
+	}
 }
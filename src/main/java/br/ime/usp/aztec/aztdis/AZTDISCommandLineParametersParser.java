@@ -20,8 +20,7 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 
 import br.ime.usp.aztec.CommandLineParametersParser;
-import br.ime.usp.aztec.io.SignalParser;
-import br.ime.usp.aztec.io.WriterEncodingOutput;
+import br.ime.usp.aztec.io.EncodingHeader;
 
 /**
  * @author Luiz Fernando Oliveira Corte Real
@@ -38,14 +37,17 @@ public final class AZTDISCommandLineParametersParser extends
 					.getOptionValue('e'));
 			double minimumDistance = Double.parseDouble(options.getOptionValue(
 					'k', Double.toString(AZTDISParameters.DEFAULT_K)));
+			EncodingHeader header = new EncodingHeader("AZTDIS")
+					.withParameter("t", threshold)
+					.withParameter("e", displacement)
+					.withParameter("k", minimumDistance);
 			return new AZTDISParameters.Builder()
 					.withThreshold(threshold)
 					.withMaximumDisplacement(displacement)
 					.withMinimumDistanceBetweenEvents(minimumDistance)
-					.withInput(new SignalParser(this.openInputGivenIn(options)))
-					.withOutput(
-							new WriterEncodingOutput(this
-									.openOutputGivenIn(options))).build();
+					.withInput(this.openSignalGivenIn(options))
+					.withOutput(this.openEncodingOutputGivenIn(options, header))
+					.build();
 		}
 		throw new IllegalArgumentException("Mandatory argument not given."
 				+ " -t and -e are mandatory.");
@@ -17,9 +17,11 @@ package br.ime.usp.aztec.aztdis;
 
 import java.io.IOException;
 
+import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
-import br.ime.usp.aztec.AlgorithmMain;
+import br.ime.usp.aztec.AbstractAlgorithmMain;
+import br.ime.usp.aztec.MultiLeadEncoding;
 import br.ime.usp.aztec.io.PleaseHelpMeException;
 
 /**
@@ -27,15 +29,13 @@ import br.ime.usp.aztec.io.PleaseHelpMeException;
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
-public class AZTDISMain implements AlgorithmMain {
+public class AZTDISMain extends AbstractAlgorithmMain {
 
 	@Override
 	public void run(String[] algorithmArgs) throws IOException {
 		AZTDISCommandLineParametersParser parametersParser = new AZTDISCommandLineParametersParser();
 		try {
-			AZTDISParameters parameters = parametersParser.parse(algorithmArgs);
-			new AZTDIS().encode(parameters);
-			parameters.getOutput().close();
+			this.execute(parametersParser, algorithmArgs);
 		} catch (IllegalArgumentException e) {
 			System.err.println(e.getMessage());
 			parametersParser.printHelp();
@@ -48,4 +48,46 @@ public class AZTDISMain implements AlgorithmMain {
 			parametersParser.printHelp();
 		}
 	}
+
+	@Override
+	public void execute(String[] algorithmArgs) throws IOException,
+			ParseException, PleaseHelpMeException {
+		this.execute(new AZTDISCommandLineParametersParser(), algorithmArgs);
+	}
+
+	@Override
+	public Options getCommandLineOptions() {
+		return new AZTDISCommandLineParametersParser().getCommandLineOptions();
+	}
+
+	private void execute(AZTDISCommandLineParametersParser parametersParser,
+			String[] algorithmArgs) throws IOException, ParseException,
+			PleaseHelpMeException {
+		if (parametersParser.asksForAllLeads(algorithmArgs)) {
+			parametersParser.parseLeads(algorithmArgs).encode(
+					new MultiLeadEncoding.LeadEncoder<AZTDISParameters>() {
+						@Override
+						public void encode(AZTDISParameters parameters)
+								throws IOException {
+							boolean failed = true;
+							try {
+								new AZTDIS().encode(parameters);
+								failed = false;
+							} finally {
+								close(parameters.getInput(),
+										parameters.getOutput(), failed);
+							}
+						}
+					});
+			return;
+		}
+		AZTDISParameters parameters = parametersParser.parse(algorithmArgs);
+		boolean failed = true;
+		try {
+			new AZTDIS().encode(parameters);
+			failed = false;
+		} finally {
+			close(parameters.getInput(), parameters.getOutput(), failed);
+		}
+	}
 }
@@ -20,7 +20,9 @@ import java.io.OutputStreamWriter;
 
 import br.ime.usp.aztec.AZTECParameters;
 import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.IterableSignalSource;
 import br.ime.usp.aztec.io.SignalParser;
+import br.ime.usp.aztec.io.SignalSource;
 import br.ime.usp.aztec.io.WriterEncodingOutput;
 
 /**
@@ -38,7 +40,7 @@ public final class AZTDISParameters {
 	private double threshold;
 	private double epsilon;
 	private double k;
-	private Iterable<Double> input;
+	private SignalSource input;
 	private EncodingOutput output;
 
 	private AZTDISParameters() {
@@ -66,9 +68,9 @@ public final class AZTDISParameters {
 	}
 
 	/**
-	 * @return Iterable with input signal values
+	 * @return Input signal values
 	 */
-	public Iterable<Double> getInput() {
+	public SignalSource getInput() {
 		return this.input;
 	}
 
@@ -171,11 +173,21 @@ public final class AZTDISParameters {
 		 * @return The builder
 		 * @see AZTECParameters#getInput()
 		 */
-		public OptionalParametersBuilder withInput(Iterable<Double> input) {
+		public OptionalParametersBuilder withInput(SignalSource input) {
 			this.params.input = input;
 			return this;
 		}
 
+		/**
+		 * @param input
+		 *            A signal, whose values will be unboxed as they are read
+		 * @return The builder
+		 * @see AZTECParameters#getInput()
+		 */
+		public OptionalParametersBuilder withInput(Iterable<Double> input) {
+			return this.withInput(new IterableSignalSource(input));
+		}
+
 		/**
 		 * @param output
 		 *            A processor of the algorithm output
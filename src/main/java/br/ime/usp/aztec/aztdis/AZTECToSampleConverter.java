@@ -15,10 +15,10 @@ limitations under the License.
  */
 package br.ime.usp.aztec.aztdis;
 
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.IterableSignalSource;
+import br.ime.usp.aztec.io.SignalSource;
 
 /**
  * Converts an encoding given by the AZTEC algorithm, which is composed by
@@ -33,19 +33,20 @@ public final class AZTECToSampleConverter {
 	/**
 	 * @param aztecEncoding
 	 *            The AZTEC-encoded signal to be converted
-	 * @return The significant samples represented in the given encoding
+	 * @return The significant samples represented in the given encoding, as
+	 *         pairs of position and value
 	 */
-	public Iterable<Double> convert(Iterable<Double> aztecEncoding) {
-		List<Double> converted = new LinkedList<Double>();
-		Iterator<Double> iterator = aztecEncoding.iterator();
+	public DoubleList convert(SignalSource aztecEncoding) {
+		DoubleList converted = new DoubleList();
+		DoubleIterator iterator = aztecEncoding.doubleIterator();
 		if (!iterator.hasNext()) {
-			return Collections.emptyList();
+			return converted;
 		}
 		double currentPosition = 0.0;
 		double lastSignificantSample = 0.0;
 		while (iterator.hasNext()) {
-			double sampleDuration = iterator.next();
-			double sampleValue = iterator.next();
+			double sampleDuration = iterator.nextDouble();
+			double sampleValue = iterator.nextDouble();
 			converted.add(currentPosition);
 			if (sampleDuration < 0) {
 				sampleDuration *= -1.0;
@@ -62,4 +63,14 @@ public final class AZTECToSampleConverter {
 		return converted;
 	}
 
+	/**
+	 * @param aztecEncoding
+	 *            The AZTEC-encoded signal to be converted
+	 * @return The significant samples represented in the given encoding
+	 * @see #convert(SignalSource)
+	 */
+	public DoubleList convert(Iterable<Double> aztecEncoding) {
+		return this.convert(new IterableSignalSource(aztecEncoding));
+	}
+
 }
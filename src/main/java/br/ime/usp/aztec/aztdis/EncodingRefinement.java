@@ -15,9 +15,12 @@ limitations under the License.
  */
 package br.ime.usp.aztec.aztdis;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.NoSuchElementException;
+
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.IterableSignalSource;
+import br.ime.usp.aztec.io.SignalSource;
 
 /**
  * Implementation of the second phase of the AZTDIS algorithm. Here we refine
@@ -45,111 +48,107 @@ public final class EncodingRefinement {
 	 *            the correspondent sample of the encoding
 	 * @return A new encoding with significant samples added
 	 */
-	public Iterable<Double> refine(Iterable<Double> encoding,
-			Iterable<Double> signal, double threshold) {
-		List<Double> refinement = new LinkedList<Double>();
-		Iterator<Double> encodingIterator = encoding.iterator();
-		Slope currentSlope = this.setup(refinement, encodingIterator);
-		SignalReader signalReader = new SignalReader(signal.iterator());
-		while (signalReader.hasNext()) {
-			signalReader.step();
-			if (signalReader.tooFarFromSlopeNow(currentSlope, threshold)) {
-				signalReader.refineAndStepTo(refinement, currentSlope.nextT());
-				currentSlope.outputRightBoundTo(refinement);
-				currentSlope = currentSlope.makeNext(encodingIterator.next(),
-						encodingIterator.next());
-			} else if (currentSlope.outOfBounds(signalReader.currentT())) {
-				currentSlope.outputRightBoundTo(refinement);
-				if (encodingIterator.hasNext()) {
-					currentSlope = currentSlope.makeNext(
-							encodingIterator.next(), encodingIterator.next());
-				}
-			}
-		}
+	public DoubleList refine(SignalSource encoding, SignalSource signal,
+			double threshold) {
+		DoubleList refinement = new DoubleList();
+		this.refine(this.toList(encoding), this.toList(signal).toArray(),
+				threshold, refinement);
 		return refinement;
 	}
 
-	private Slope setup(List<Double> refined, Iterator<Double> encodingIterator) {
-		double firstX = encodingIterator.next();
-		double firstY = encodingIterator.next();
-		refined.add(firstX);
-		refined.add(firstY);
-		Slope currentSlope = new Slope(firstX, firstY, encodingIterator.next(),
-				encodingIterator.next());
-		return currentSlope;
+	/**
+	 * @see #refine(SignalSource, SignalSource, double)
+	 */
+	public DoubleList refine(Iterable<Double> encoding,
+			Iterable<Double> signal, double threshold) {
+		return this.refine(new IterableSignalSource(encoding),
+				new IterableSignalSource(signal), threshold);
 	}
 
-	private static class SignalReader {
-		private int t = -1;
-		private double current;
-		private final Iterator<Double> values;
-
-		SignalReader(Iterator<Double> values) {
-			this.values = values;
-			this.current = Double.NaN;
-		}
-
-		boolean hasNext() {
-			return this.values.hasNext();
-		}
-
-		int currentT() {
-			return this.t;
-		}
-
-		void step() {
-			this.t++;
-			this.current = this.values.next();
-		}
-
-		boolean tooFarFromSlopeNow(Slope s, double threshold) {
-			return Math.abs(this.current - s.valueAt(this.t)) > threshold;
+	/**
+	 * Same as {@link #refine(SignalSource, SignalSource, double)}, but working
+	 * on a signal already in memory and writing the refined encoding into a
+	 * list given by the caller, so that many refinement passes can reuse the
+	 * same two lists.
+	 * 
+	 * @param encoding
+	 *            Encoding to be refined
+	 * @param signal
+	 *            Signal to be used as reference for refinement
+	 * @param threshold
+	 *            Maximum acceptable distance between a sample of the signal and
+	 *            the correspondent sample of the encoding
+	 * @param refinement
+	 *            List that is cleared and then filled with the refined
+	 *            encoding. Must not be the encoding list.
+	 * @throws IllegalArgumentException
+	 *             if the encoding and the refinement are the same list
+	 */
+	public void refine(DoubleList encoding, double[] signal, double threshold,
+			DoubleList refinement) {
+		if (encoding == refinement) {
+			throw new IllegalArgumentException(
+					"Cannot refine an encoding into itself");
 		}
-
-		void refineAndStepTo(List<Double> refinement, double newT) {
-			refinement.add((double) this.t);
-			refinement.add(this.current);
-			while (this.t < newT) {
-				this.step();
+		refinement.clear();
+		int next = 0;
+		double x0 = valueAt(encoding, next++);
+		double y0 = valueAt(encoding, next++);
+		refinement.add(x0);
+		refinement.add(y0);
+		double x1 = valueAt(encoding, next++);
+		double y1 = valueAt(encoding, next++);
+		double m = (y1 - y0) / (x1 - x0);
+		int t = -1;
+		while (t + 1 < signal.length) {
+			double current = signal[++t];
+			if (Math.abs(current - (m * (t - x0) + y0)) > threshold) {
+				refinement.add(t);
+				refinement.add(current);
+				int nextT = (int) x1;
+				while (t < nextT) {
+					if (++t >= signal.length) {
+						throw new NoSuchElementException(
+								"Failed to read more items");
+					}
+				}
+				refinement.add(x1);
+				refinement.add(y1);
+				x0 = x1;
+				y0 = y1;
+				x1 = valueAt(encoding, next++);
+				y1 = valueAt(encoding, next++);
+				m = (y1 - y0) / (x1 - x0);
+			} else if (t < x0 || t >= x1) {
+				refinement.add(x1);
+				refinement.add(y1);
+				if (next < encoding.size()) {
+					x0 = x1;
+					y0 = y1;
+					x1 = valueAt(encoding, next++);
+					y1 = valueAt(encoding, next++);
+					m = (y1 - y0) / (x1 - x0);
+				}
 			}
 		}
 	}
 
-	private static class Slope {
-		private final double x0;
-		private final double y0;
-		private final double x1;
-		private final double y1;
-		private final double m;
-
-		Slope(double x0, double y0, double x1, double y1) {
-			this.x0 = x0;
-			this.y0 = y0;
-			this.x1 = x1;
-			this.y1 = y1;
-			this.m = (y1 - y0) / (x1 - x0);
-		}
-
-		void outputRightBoundTo(List<Double> refinement) {
-			refinement.add(this.x1);
-			refinement.add(this.y1);
-		}
-
-		Slope makeNext(double newX1, double newY1) {
-			return new Slope(this.x1, this.y1, newX1, newY1);
+	private static double valueAt(DoubleList encoding, int index) {
+		if (index >= encoding.size()) {
+			throw new NoSuchElementException("Failed to read more items");
 		}
+		return encoding.get(index);
+	}
 
-		double valueAt(double x) {
-			return this.m * (x - this.x0) + this.y0;
+	private DoubleList toList(SignalSource source) {
+		if (source instanceof DoubleList) {
+			return (DoubleList) source;
 		}
-
-		int nextT() {
-			return (int) this.x1;
-		}
-
-		boolean outOfBounds(double x) {
-			return x < this.x0 || x >= this.x1;
+		DoubleList values = new DoubleList();
+		DoubleIterator iterator = source.doubleIterator();
+		while (iterator.hasNext()) {
+			values.add(iterator.nextDouble());
 		}
+		return values;
 	}
-
 }
@@ -0,0 +1,251 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+import br.ime.usp.aztec.AbstractAlgorithmMain;
+import br.ime.usp.aztec.Tasks;
+
+/**
+ * Encodes many files with the same algorithm and options, on a fixed number
+ * of threads, each file into its own output in a common directory.
+ * 
+ * The files are sorted from the largest to the smallest, and each thread
+ * takes the next file not taken yet as soon as it finishes the previous one.
+ * This way a thread is never idle while there is work left, and the largest
+ * files, which would delay the end of the batch, are started first.
+ * 
+ * Each output is written to a temporary file, renamed once its encoding is
+ * closed and only then recorded in a {@link ProgressJournal}, so a batch can
+ * be interrupted at any moment and resumed with the same journal. A file
+ * that fails to be encoded is reported in the end, without stopping the
+ * others.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class BatchEncoding {
+
+	private static final String PARTIAL_SUFFIX = ".part";
+
+	private final AbstractAlgorithmMain algorithm;
+	private final String[] algorithmArgs;
+	private final File outputDirectory;
+	private final String extension;
+	private final ProgressJournal journal;
+
+	/**
+	 * @param algorithm
+	 *            The algorithm to encode the files with
+	 * @param algorithmArgs
+	 *            Options for the algorithm, applied to all the files. The
+	 *            input and output files (-i and -o) are given by the batch.
+	 * @param outputDirectory
+	 *            Directory where the outputs are written, each named after
+	 *            its input plus the extension
+	 * @param extension
+	 *            Extension added to the name of the inputs, such as ".azt"
+	 * @param journal
+	 *            Journal with the files already encoded, which are skipped,
+	 *            and where the files encoded by this batch are recorded
+	 * @throws IllegalArgumentException
+	 *             if the algorithm options cannot be parsed or give the
+	 *             input or the output
+	 */
+	public BatchEncoding(AbstractAlgorithmMain algorithm,
+			String[] algorithmArgs, File outputDirectory, String extension,
+			ProgressJournal journal) {
+		CommandLine options;
+		try {
+			options = new PosixParser().parse(
+					algorithm.getCommandLineOptions(), algorithmArgs);
+		} catch (ParseException e) {
+			throw new IllegalArgumentException("Invalid algorithm options: "
+					+ e.getMessage(), e);
+		}
+		if (options.hasOption('i') || options.hasOption('o')) {
+			throw new IllegalArgumentException("The input and output of "
+					+ "each file are given by the batch, not with -i or -o");
+		}
+		this.algorithm = algorithm;
+		this.algorithmArgs = algorithmArgs.clone();
+		this.outputDirectory = outputDirectory;
+		this.extension = extension;
+		this.journal = journal;
+	}
+
+	/**
+	 * Encodes the files not recorded in the journal yet
+	 * 
+	 * @param inputs
+	 *            Files to be encoded
+	 * @param threads
+	 *            Number of files encoded at the same time
+	 * @return How many files were encoded, skipped or failed
+	 * @throws IOException
+	 *             if the output directory cannot be created or the batch is
+	 *             interrupted
+	 * @throws IllegalArgumentException
+	 *             if two inputs have the same name, so their outputs would
+	 *             overwrite each other
+	 */
+	public Result encode(List<File> inputs, int threads) throws IOException {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be "
+					+ "positive, but was " + threads);
+		}
+		checkNamesAreUnique(inputs);
+		if (!this.outputDirectory.isDirectory()
+				&& !this.outputDirectory.mkdirs()) {
+			throw new IOException("Cannot create output directory '"
+					+ this.outputDirectory + "'");
+		}
+		final Result result = new Result();
+		final List<File> pending = new ArrayList<File>();
+		for (File input : inputs) {
+			if (this.journal.isDone(input)) {
+				result.skipped++;
+			} else {
+				pending.add(input);
+			}
+		}
+		Collections.sort(pending, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				long difference = b.length() - a.length();
+				return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+			}
+		});
+		final AtomicInteger next = new AtomicInteger();
+		int workers = Math.max(1, Math.min(threads, pending.size()));
+		ExecutorService pool = Tasks.newPool(workers, "Batch encoder");
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int i = 0; i < workers; i++) {
+				results.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						int index;
+						while ((index = next.getAndIncrement()) < pending
+								.size()) {
+							BatchEncoding.this.encode(pending.get(index),
+									result);
+						}
+						return null;
+					}
+				}));
+			}
+			Tasks.waitFor(results, "encoders");
+		} finally {
+			pool.shutdownNow();
+		}
+		return result;
+	}
+
+	private void encode(File input, Result result) {
+		File output = new File(this.outputDirectory, input.getName()
+				+ this.extension);
+		File partial = new File(this.outputDirectory, output.getName()
+				+ PARTIAL_SUFFIX);
+		try {
+			String[] args = Arrays.copyOf(this.algorithmArgs,
+					this.algorithmArgs.length + 4);
+			args[args.length - 4] = "-i";
+			args[args.length - 3] = input.getPath();
+			args[args.length - 2] = "-o";
+			args[args.length - 1] = partial.getPath();
+			this.algorithm.execute(args);
+			if (output.exists() && !output.delete()
+					|| !partial.renameTo(output)) {
+				throw new IOException("Cannot rename '" + partial + "' to '"
+						+ output + "'");
+			}
+			this.journal.markDone(input);
+			result.encoded();
+		} catch (Exception e) {
+			partial.delete();
+			result.failed(input, e);
+		}
+	}
+
+	private void checkNamesAreUnique(List<File> inputs) {
+		Set<String> names = new HashSet<String>();
+		for (File input : inputs) {
+			if (!names.add(input.getName())) {
+				throw new IllegalArgumentException("More than one input is "
+						+ "named '" + input.getName() + "'");
+			}
+		}
+	}
+
+	/**
+	 * Summary of a batch
+	 */
+	public static final class Result {
+		private int encoded = 0;
+		private int skipped = 0;
+		private final Map<File, Exception> failures =
+				new LinkedHashMap<File, Exception>();
+
+		private synchronized void encoded() {
+			this.encoded++;
+		}
+
+		private synchronized void failed(File input, Exception failure) {
+			this.failures.put(input, failure);
+		}
+
+		/**
+		 * @return Number of files encoded by this batch
+		 */
+		public synchronized int getEncoded() {
+			return this.encoded;
+		}
+
+		/**
+		 * @return Number of files skipped because they were already encoded
+		 */
+		public synchronized int getSkipped() {
+			return this.skipped;
+		}
+
+		/**
+		 * @return The files that could not be encoded, with the reason of
+		 *         each failure, in the order they failed
+		 */
+		public synchronized Map<File, Exception> getFailures() {
+			return new LinkedHashMap<File, Exception>(this.failures);
+		}
+	}
+}
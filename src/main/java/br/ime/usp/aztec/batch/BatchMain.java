@@ -0,0 +1,183 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+import br.ime.usp.aztec.AbstractAlgorithmMain;
+
+/**
+ * Entry point for encoding many files in a batch
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see BatchEncoding
+ */
+public final class BatchMain {
+
+	private static final String DEFAULT_EXTENSION = ".azt";
+	private static final String DEFAULT_JOURNAL = "batch.journal";
+
+	private final Map<String, AbstractAlgorithmMain> algorithms;
+
+	/**
+	 * @param algorithms
+	 *            The algorithms that can encode the files, by name
+	 */
+	public BatchMain(Map<String, AbstractAlgorithmMain> algorithms) {
+		this.algorithms = algorithms;
+	}
+
+	/**
+	 * @param args
+	 *            Command-line arguments of the batch, followed by the name of
+	 *            the algorithm and its options
+	 * @throws IOException
+	 *             if the journal cannot be opened
+	 */
+	public void run(String[] args) throws IOException {
+		CommandLine options;
+		try {
+			options = new PosixParser().parse(getCommandLineOptions(), args,
+					true);
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			printHelp();
+			System.exit(1);
+			return;
+		}
+		List<String> rest = Arrays.asList(options.getArgs());
+		if (options.hasOption('h') || rest.isEmpty()) {
+			printHelp();
+			return;
+		}
+		try {
+			BatchEncoding.Result result = this.encode(options, rest);
+			System.err.println("Encoded " + result.getEncoded()
+					+ " files, skipped " + result.getSkipped()
+					+ " already encoded, " + result.getFailures().size()
+					+ " failed");
+			for (Map.Entry<File, Exception> failure : result.getFailures()
+					.entrySet()) {
+				System.err.println(failure.getKey() + ": "
+						+ failure.getValue());
+			}
+			if (!result.getFailures().isEmpty()) {
+				System.exit(2);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	private BatchEncoding.Result encode(CommandLine options, List<String> rest)
+			throws IOException {
+		AbstractAlgorithmMain algorithm = this.algorithms
+				.get(rest.get(0));
+		if (algorithm == null) {
+			throw new IllegalArgumentException("Algorithm not found: '"
+					+ rest.get(0) + "'");
+		}
+		String[] algorithmArgs = rest.subList(1, rest.size()).toArray(
+				new String[rest.size() - 1]);
+		if (!options.hasOption('O')) {
+			throw new IllegalArgumentException("An output directory must be "
+					+ "given with -O");
+		}
+		File outputDirectory = new File(options.getOptionValue('O'));
+		List<File> inputs = inputsGivenIn(options);
+		int threads = Integer.parseInt(options.getOptionValue('j',
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+		File journalFile = options.hasOption("journal") ? new File(
+				options.getOptionValue("journal")) : new File(outputDirectory,
+				DEFAULT_JOURNAL);
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new IllegalArgumentException("Cannot create output "
+					+ "directory '" + outputDirectory + "'");
+		}
+		StringBuilder encoding = new StringBuilder();
+		for (String arg : rest) {
+			encoding.append(encoding.length() == 0 ? "" : " ").append(arg);
+		}
+		ProgressJournal journal = new ProgressJournal(journalFile,
+				encoding.toString());
+		try {
+			return new BatchEncoding(algorithm, algorithmArgs,
+					outputDirectory, options.getOptionValue('e',
+							DEFAULT_EXTENSION), journal).encode(inputs,
+					threads);
+		} finally {
+			journal.close();
+		}
+	}
+
+	private static List<File> inputsGivenIn(CommandLine options)
+			throws IOException {
+		if (!options.hasOption('I') && !options.hasOption('m')) {
+			throw new IllegalArgumentException("The files to be encoded must "
+					+ "be given with -I or -m");
+		}
+		List<File> inputs = new ArrayList<File>();
+		if (options.hasOption('I')) {
+			inputs.addAll(InputFiles.find(options.getOptionValue('I')));
+		}
+		if (options.hasOption('m')) {
+			inputs.addAll(InputFiles.listedIn(new File(options
+					.getOptionValue('m'))));
+		}
+		return inputs;
+	}
+
+	private static Options getCommandLineOptions() {
+		Options options = new Options();
+		options.addOption("h", false, "Prints this help and exit");
+		options.addOption("I", true, "Directory with the files to be "
+				+ "encoded, or a glob such as records/*.txt");
+		options.addOption("m", true, "Manifest with the files to be "
+				+ "encoded, one per line");
+		options.addOption("O", true, "Directory where the encodings are "
+				+ "written");
+		options.addOption("e", true, "Extension added to the name of each "
+				+ "encoding (defaults to " + DEFAULT_EXTENSION + ")");
+		options.addOption("j", true, "Number of files encoded at the same "
+				+ "time (defaults to the number of processors)");
+		options.addOption(null, "journal", true, "File recording the files "
+				+ "already encoded, so an interrupted batch can be resumed "
+				+ "(defaults to " + DEFAULT_JOURNAL
+				+ " in the output directory)");
+		return options;
+	}
+
+	private static void printHelp() {
+		HelpFormatter help = new HelpFormatter();
+		help.printHelp(60, "aztec BATCH [options] <algorithm> "
+				+ "<algorithm options>", "Encodes many files with the same "
+				+ "algorithm and options", getCommandLineOptions(),
+				"The algorithm options cannot include -i or -o, which are "
+						+ "given for each file", false);
+	}
+}
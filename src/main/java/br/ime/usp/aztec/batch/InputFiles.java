@@ -0,0 +1,134 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the files to be encoded by a batch: the files of a directory, the
+ * ones matching a glob, or the ones listed in a manifest.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class InputFiles {
+
+	private InputFiles() {
+	}
+
+	/**
+	 * @param directoryOrGlob
+	 *            A directory, whose files are taken, or a glob such as
+	 *            <code>records/*.txt</code>, where only the name of the files
+	 *            may have wildcards: '*' for any number of characters and '?'
+	 *            for a single one
+	 * @return The files found, sorted by name. Subdirectories are not
+	 *         searched.
+	 * @throws IllegalArgumentException
+	 *             if the directory does not exist
+	 */
+	public static List<File> find(String directoryOrGlob) {
+		File file = new File(directoryOrGlob);
+		if (file.isDirectory()) {
+			return filesIn(file, null);
+		}
+		File directory = file.getParentFile();
+		if (directory == null) {
+			directory = new File(".");
+		}
+		if (!directory.isDirectory()) {
+			throw new IllegalArgumentException("Input directory '"
+					+ directory + "' does not exist");
+		}
+		return filesIn(directory, globToPattern(file.getName()));
+	}
+
+	/**
+	 * @param manifest
+	 *            A text file with the path of one file per line. Blank lines
+	 *            and lines starting with '#' are ignored. Relative paths are
+	 *            relative to the directory of the manifest.
+	 * @return The files listed, in the order of the manifest
+	 * @throws IOException
+	 *             if the manifest cannot be read
+	 */
+	public static List<File> listedIn(File manifest) throws IOException {
+		List<File> files = new ArrayList<File>();
+		BufferedReader reader = new BufferedReader(new FileReader(manifest));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				File file = new File(line);
+				if (!file.isAbsolute()) {
+					file = new File(manifest.getAbsoluteFile().getParentFile(),
+							line);
+				}
+				files.add(file);
+			}
+		} finally {
+			reader.close();
+		}
+		return files;
+	}
+
+	private static List<File> filesIn(File directory, Pattern names) {
+		File[] children = directory.listFiles();
+		if (children == null) {
+			throw new IllegalArgumentException("Cannot list the files of '"
+					+ directory + "'");
+		}
+		Arrays.sort(children);
+		List<File> files = new ArrayList<File>();
+		for (File child : children) {
+			if (child.isFile()
+					&& (names == null || names.matcher(child.getName())
+							.matches())) {
+				files.add(child);
+			}
+		}
+		return files;
+	}
+
+	static Pattern globToPattern(String glob) {
+		StringBuilder regex = new StringBuilder();
+		int literalStart = 0;
+		for (int i = 0; i < glob.length(); i++) {
+			char c = glob.charAt(i);
+			if (c == '*' || c == '?') {
+				if (literalStart < i) {
+					regex.append(Pattern.quote(glob
+							.substring(literalStart, i)));
+				}
+				regex.append(c == '*' ? ".*" : ".");
+				literalStart = i + 1;
+			}
+		}
+		if (literalStart < glob.length()) {
+			regex.append(Pattern.quote(glob.substring(literalStart)));
+		}
+		return Pattern.compile(regex.toString());
+	}
+}
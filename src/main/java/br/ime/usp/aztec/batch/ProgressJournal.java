@@ -0,0 +1,124 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records which files of a batch were already encoded, so that an
+ * interrupted batch can be resumed without encoding them again. The journal
+ * is a text file with a line per encoded file, appended and flushed right
+ * after its encoding is closed. Each line has the size and modification time
+ * of the file, so a file changed after being encoded is encoded again, and
+ * the algorithm and options it was encoded with, so a file is encoded again
+ * when the batch is resumed with other ones.
+ * 
+ * A line is only complete once its encoding is, so a batch killed at any
+ * moment loses at most the files being encoded at the time.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class ProgressJournal {
+
+	private final Set<String> done = new HashSet<String>();
+	private final String encoding;
+	private final Writer out;
+
+	/**
+	 * Reads the files already recorded in the journal, if it exists, and
+	 * opens it to record more
+	 * 
+	 * @param journal
+	 *            File with the journal
+	 * @param encoding
+	 *            Algorithm and options the files are encoded with. Files
+	 *            recorded with other ones are not considered encoded.
+	 * @throws IOException
+	 *             if the journal cannot be read or written
+	 */
+	public ProgressJournal(File journal, String encoding) throws IOException {
+		this.encoding = encoding;
+		if (journal.exists()) {
+			BufferedReader reader = new BufferedReader(new FileReader(journal));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					this.done.add(line);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		this.out = new OutputStreamWriter(new FileOutputStream(journal, true),
+				"UTF-8");
+	}
+
+	/**
+	 * @param input
+	 *            A file of the batch
+	 * @return true, if the file was recorded as encoded with the same
+	 *         algorithm and options and has not changed since
+	 */
+	public synchronized boolean isDone(File input) {
+		return this.done.contains(entryFor(input));
+	}
+
+	/**
+	 * Records that a file was encoded
+	 * 
+	 * @param input
+	 *            The file, whose encoding must be already closed
+	 * @throws IOException
+	 *             if the journal cannot be written
+	 */
+	public synchronized void markDone(File input) throws IOException {
+		String entry = entryFor(input);
+		this.out.write(entry + "\n");
+		this.out.flush();
+		this.done.add(entry);
+	}
+
+	/**
+	 * @return Number of files recorded as encoded, including the ones
+	 *         recorded by previous batches
+	 */
+	public synchronized int size() {
+		return this.done.size();
+	}
+
+	/**
+	 * Closes the journal
+	 * 
+	 * @throws IOException
+	 *             if the journal cannot be closed
+	 */
+	public synchronized void close() throws IOException {
+		this.out.close();
+	}
+
+	private String entryFor(File input) {
+		return input.length() + "\t" + input.lastModified() + "\t"
+				+ this.encoding + "\t" + input.getAbsolutePath();
+	}
+}
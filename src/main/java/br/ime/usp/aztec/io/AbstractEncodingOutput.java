@@ -0,0 +1,119 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.IOException;
+
+/**
+ * Base class for encoding outputs, which adds many values at once by calling
+ * {@link #put(double)} for each one. Subclasses may override the bulk methods
+ * when they can do better.
+ * 
+ * Bulk methods are not part of {@link EncodingOutput}, so that outputs
+ * implementing it directly keep working. The static methods of this class
+ * add many values to any output, in bulk if it extends this class.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public abstract class AbstractEncodingOutput implements EncodingOutput {
+
+	/**
+	 * Adds the same value to the algorithm output many times, as if
+	 * {@link #put(double)} was called for each one
+	 * 
+	 * @param value
+	 *            Any value generated by the algorithm
+	 * @param count
+	 *            How many times the value should be added
+	 * @throws IOException
+	 *             if the underlying output cannot be modified correctly
+	 */
+	public void putRun(double value, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			this.put(value);
+		}
+	}
+
+	/**
+	 * Adds many values to the algorithm output, as if {@link #put(double)} was
+	 * called for each one, in order
+	 * 
+	 * @param values
+	 *            An array with values generated by the algorithm
+	 * @param offset
+	 *            Index of the first value to be added
+	 * @param length
+	 *            Number of values to be added
+	 * @throws IOException
+	 *             if the underlying output cannot be modified correctly
+	 */
+	public void put(double[] values, int offset, int length)
+			throws IOException {
+		for (int i = offset; i < offset + length; i++) {
+			this.put(values[i]);
+		}
+	}
+
+	/**
+	 * Adds the same value to an output many times, with
+	 * {@link #putRun(double, int)} if it extends this class
+	 * 
+	 * @param output
+	 *            Any output
+	 * @param value
+	 *            Any value generated by the algorithm
+	 * @param count
+	 *            How many times the value should be added
+	 * @throws IOException
+	 *             if the output cannot be modified correctly
+	 */
+	public static void putRun(EncodingOutput output, double value, int count)
+			throws IOException {
+		if (output instanceof AbstractEncodingOutput) {
+			((AbstractEncodingOutput) output).putRun(value, count);
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			output.put(value);
+		}
+	}
+
+	/**
+	 * Adds many values to an output, with {@link #put(double[], int, int)} if
+	 * it extends this class
+	 * 
+	 * @param output
+	 *            Any output
+	 * @param values
+	 *            An array with values generated by the algorithm
+	 * @param offset
+	 *            Index of the first value to be added
+	 * @param length
+	 *            Number of values to be added
+	 * @throws IOException
+	 *             if the output cannot be modified correctly
+	 */
+	public static void put(EncodingOutput output, double[] values,
+			int offset, int length) throws IOException {
+		if (output instanceof AbstractEncodingOutput) {
+			((AbstractEncodingOutput) output).put(values, offset, length);
+			return;
+		}
+		for (int i = offset; i < offset + length; i++) {
+			output.put(values[i]);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.util.Iterator;
+
+/**
+ * Base class for signal sources that only know how to iterate over primitive
+ * values. Implements the boxed {@link #iterator()} on top of
+ * {@link #doubleIterator()}.
+ *
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public abstract class AbstractSignalSource implements SignalSource {
+
+	@Override
+	public Iterator<Double> iterator() {
+		final DoubleIterator values = this.doubleIterator();
+		return new Iterator<Double>() {
+			@Override
+			public boolean hasNext() {
+				return values.hasNext();
+			}
+
+			@Override
+			public Double next() {
+				return values.nextDouble();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Read-only iterator");
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append('[');
+		DoubleIterator values = this.doubleIterator();
+		while (values.hasNext()) {
+			builder.append(values.nextDouble());
+			if (values.hasNext()) {
+				builder.append(", ");
+			}
+		}
+		builder.append(']');
+		return builder.toString();
+	}
+}
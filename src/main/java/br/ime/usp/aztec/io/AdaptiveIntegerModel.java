@@ -0,0 +1,96 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.IOException;
+
+/**
+ * Adaptive model of a stream of signed integers, coded by a
+ * {@link RangeEncoder}. The sign is moved to the lowest bit (zigzag
+ * encoding), then the number of significant bits of the value is coded with
+ * adaptive probabilities, followed by the bits after the leading one. The
+ * first of these bits are coded with probabilities that depend on the size
+ * and on the bits before them, so values seen often in the stream become the
+ * cheapest. The remaining low bits, usually noise, are coded as they are.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class AdaptiveIntegerModel {
+
+	private static final int SIZE_BITS = 7;
+	private static final int MAX_SIZE = 64;
+	private static final int ADAPTIVE_BITS = 8;
+
+	private final short[] sizes = RangeEncoder
+			.newProbabilities(1 << SIZE_BITS);
+	private final short[] bits = RangeEncoder
+			.newProbabilities((MAX_SIZE + 1) << ADAPTIVE_BITS);
+
+	void encode(RangeEncoder encoder, long value) throws IOException {
+		long zigzag = (value << 1) ^ (value >> 63);
+		int size = 64 - Long.numberOfLeadingZeros(zigzag);
+		int node = 1;
+		for (int i = SIZE_BITS - 1; i >= 0; i--) {
+			int bit = size >>> i & 1;
+			encoder.encodeBit(this.sizes, node, bit);
+			node = node << 1 | bit;
+		}
+		int remaining = Math.max(size - 1, 0);
+		int context = size << ADAPTIVE_BITS;
+		node = 1;
+		for (int i = Math.min(remaining, ADAPTIVE_BITS); i > 0; i--) {
+			int bit = (int) (zigzag >>> --remaining) & 1;
+			encoder.encodeBit(this.bits, context | node, bit);
+			node = node << 1 | bit;
+		}
+		if (remaining > 32) {
+			encoder.encodeDirectBits((int) (zigzag >>> 32), remaining - 32);
+			remaining = 32;
+		}
+		encoder.encodeDirectBits((int) zigzag, remaining);
+	}
+
+	long decode(RangeDecoder decoder) throws IOException,
+			MalformedInputException {
+		int node = 1;
+		for (int i = 0; i < SIZE_BITS; i++) {
+			node = node << 1 | decoder.decodeBit(this.sizes, node);
+		}
+		int size = node - (1 << SIZE_BITS);
+		if (size > MAX_SIZE) {
+			throw new MalformedInputException("Integer of " + size + " bits");
+		}
+		if (size == 0) {
+			return 0;
+		}
+		int remaining = size - 1;
+		int context = size << ADAPTIVE_BITS;
+		node = 1;
+		for (int i = Math.min(remaining, ADAPTIVE_BITS); i > 0; i--) {
+			node = node << 1 | decoder.decodeBit(this.bits, context | node);
+			remaining--;
+		}
+		long zigzag = node;
+		if (remaining > 32) {
+			zigzag = zigzag << remaining - 32
+					| decoder.decodeDirectBits(remaining - 32) & 0xFFFFFFFFL;
+			remaining = 32;
+		}
+		zigzag = zigzag << remaining
+				| decoder.decodeDirectBits(remaining) & 0xFFFFFFFFL;
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+}
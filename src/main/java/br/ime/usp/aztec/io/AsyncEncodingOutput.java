@@ -0,0 +1,288 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Decorates an {@link EncodingOutput} so that it is written by a background
+ * thread. Values put are stored in a buffer, which is handed to the
+ * background thread when full while another buffer is filled. If all the
+ * buffers are waiting to be written, putting more values waits for the
+ * background thread, so a slow output holds the algorithm back instead of
+ * filling the memory.
+ * 
+ * Errors of the decorated output are thrown by the next call that hands a
+ * buffer over, or else by {@link #close()}, which must always be called to
+ * write the last values.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class AsyncEncodingOutput extends AbstractEncodingOutput
+		implements Flushable {
+
+	/**
+	 * Number of values in each buffer, if none is given
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	/**
+	 * Number of buffers, if none is given: one being filled while the other
+	 * is written
+	 */
+	public static final int DEFAULT_BUFFERS = 2;
+
+	private static final Chunk END = new Chunk(0);
+	private static final Chunk FLUSH = new Chunk(0);
+
+	private final EncodingOutput out;
+	private final BlockingQueue<Chunk> full;
+	private final BlockingQueue<Chunk> free;
+	private final Thread writer;
+	private final Semaphore flushed = new Semaphore(0);
+	private volatile Throwable failure;
+	private Chunk current;
+	private boolean closed = false;
+
+	/**
+	 * Uses {@link #DEFAULT_BUFFERS} buffers of {@link #DEFAULT_BUFFER_SIZE}
+	 * values
+	 * 
+	 * @param out
+	 *            Output to be written by the background thread
+	 */
+	public AsyncEncodingOutput(EncodingOutput out) {
+		this(out, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+	}
+
+	/**
+	 * @param out
+	 *            Output to be written by the background thread
+	 * @param bufferSize
+	 *            Number of values in each buffer
+	 * @param buffers
+	 *            Number of buffers, including the one being filled, so at
+	 *            most buffers - 1 of them wait for the background thread
+	 * @throws IllegalArgumentException
+	 *             if the buffers are empty, or if there are less than two of
+	 *             them
+	 */
+	public AsyncEncodingOutput(EncodingOutput out, int bufferSize, int buffers) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffers must not be empty");
+		}
+		if (buffers < 2) {
+			throw new IllegalArgumentException(
+					"At least two buffers are needed");
+		}
+		this.out = out;
+		this.full = new ArrayBlockingQueue<Chunk>(buffers);
+		this.free = new ArrayBlockingQueue<Chunk>(buffers);
+		for (int i = 1; i < buffers; i++) {
+			this.free.add(new Chunk(bufferSize));
+		}
+		this.current = new Chunk(bufferSize);
+		this.writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				AsyncEncodingOutput.this.writeChunks();
+			}
+		}, "Encoding output writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public void put(double value) throws IOException {
+		Chunk chunk = this.current;
+		chunk.values[chunk.length++] = value;
+		if (chunk.length == chunk.values.length) {
+			this.handOver();
+		}
+	}
+
+	@Override
+	public void putRun(double value, int count) throws IOException {
+		while (count > 0) {
+			Chunk chunk = this.current;
+			int run = Math.min(count, chunk.values.length - chunk.length);
+			for (int i = 0; i < run; i++) {
+				chunk.values[chunk.length++] = value;
+			}
+			count -= run;
+			if (chunk.length == chunk.values.length) {
+				this.handOver();
+			}
+		}
+	}
+
+	@Override
+	public void put(double[] values, int offset, int length)
+			throws IOException {
+		while (length > 0) {
+			Chunk chunk = this.current;
+			int copied = Math.min(length, chunk.values.length - chunk.length);
+			System.arraycopy(values, offset, chunk.values, chunk.length,
+					copied);
+			chunk.length += copied;
+			offset += copied;
+			length -= copied;
+			if (chunk.length == chunk.values.length) {
+				this.handOver();
+			}
+		}
+	}
+
+	/**
+	 * Waits for all the values put to be written, then flushes the decorated
+	 * output, if it is {@link Flushable}
+	 * 
+	 * @throws IOException
+	 *             if the decorated output failed at any time, or if it cannot
+	 *             be flushed
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.closed) {
+			throw new IOException("Output is already closed");
+		}
+		if (this.current.length > 0) {
+			this.handOver();
+		}
+		try {
+			this.full.put(FLUSH);
+			this.flushed.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while waiting for the output to be written");
+		}
+		this.throwFailure();
+	}
+
+	/**
+	 * Waits for all the values put to be written, then closes the decorated
+	 * output
+	 * 
+	 * @throws IOException
+	 *             if the decorated output failed at any time, or if it cannot
+	 *             be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			if (this.current.length > 0) {
+				this.full.put(this.current);
+			}
+			this.full.put(END);
+			this.writer.join();
+		} catch (InterruptedException e) {
+			this.writer.interrupt();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while waiting for the output to be written");
+		}
+		try {
+			this.out.close();
+		} finally {
+			this.throwFailure();
+		}
+	}
+
+	private void handOver() throws IOException {
+		this.throwFailure();
+		try {
+			this.full.put(this.current);
+			this.current = this.free.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while waiting for the output to be written");
+		}
+	}
+
+	private void throwFailure() throws IOException {
+		Throwable failure = this.failure;
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+	}
+
+	/**
+	 * Body of the background thread. After a failure, the buffers are still
+	 * taken and given back, so that the algorithm does not wait forever.
+	 */
+	private void writeChunks() {
+		try {
+			Chunk chunk;
+			while ((chunk = this.full.take()) != END) {
+				if (chunk == FLUSH) {
+					this.flushOutput();
+					continue;
+				}
+				if (this.failure == null) {
+					try {
+						AbstractEncodingOutput.put(this.out, chunk.values, 0,
+								chunk.length);
+					} catch (Throwable e) {
+						this.failure = e;
+					}
+				}
+				chunk.length = 0;
+				this.free.put(chunk);
+			}
+		} catch (InterruptedException e) {
+			if (this.failure == null) {
+				this.failure = new InterruptedIOException(
+						"Output writer was interrupted");
+			}
+		}
+	}
+
+	private void flushOutput() {
+		if (this.failure == null && this.out instanceof Flushable) {
+			try {
+				((Flushable) this.out).flush();
+			} catch (Throwable e) {
+				this.failure = e;
+			}
+		}
+		this.flushed.release();
+	}
+
+	private static final class Chunk {
+		final double[] values;
+		int length = 0;
+
+		Chunk(int size) {
+			this.values = new double[size];
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+
+import br.ime.usp.aztec.io.EncodingHeader.AmplitudeFormat;
+
+/**
+ * Reads an encoding written by a {@link BinaryEncodingOutput}, giving back the
+ * same lengths and amplitudes, so that it can be given to the
+ * {@link br.ime.usp.aztec.Decoder}. The encoding is read directly from the
+ * stream, so it can be iterated only once.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class BinaryEncodingInput extends AbstractSignalSource
+		implements Closeable {
+
+	private final DataInputStream in;
+	private final EncodingHeader header;
+	private boolean iterated = false;
+
+	/**
+	 * Reads the header of the encoding
+	 * 
+	 * @param in
+	 *            Stream with the binary encoding
+	 * @throws IOException
+	 *             if the stream cannot be read
+	 * @throws MalformedInputException
+	 *             if the stream does not start with a valid header, or if the
+	 *             encoding is entropy coded or indexed
+	 */
+	public BinaryEncodingInput(InputStream in) throws IOException,
+			MalformedInputException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		this.header = EncodingHeader.readFrom(this.in);
+		if (this.header.getAmplitudeFormat() == AmplitudeFormat.ENTROPY_CODED) {
+			throw new MalformedInputException("Entropy-coded encodings "
+					+ "must be read by an EntropyEncodingInput");
+		}
+		if (this.header.isIndexed()) {
+			throw new MalformedInputException("Indexed encodings "
+					+ "must be read by an IndexedEncoding");
+		}
+	}
+
+	/**
+	 * @return The header of the encoding, telling which algorithm generated it
+	 */
+	public EncodingHeader getHeader() {
+		return this.header;
+	}
+
+	/**
+	 * @return An iterator over the lengths and amplitudes of the encoding
+	 * @throws IllegalStateException
+	 *             if the encoding was already iterated
+	 */
+	@Override
+	public DoubleIterator doubleIterator() {
+		if (this.iterated) {
+			throw new IllegalStateException(
+					"A binary encoding can be iterated only once");
+		}
+		this.iterated = true;
+		return new DoubleIterator() {
+			private int nextByte = -2;
+			private boolean amplitudeNext = false;
+
+			@Override
+			public boolean hasNext() {
+				if (this.amplitudeNext) {
+					return true;
+				}
+				if (this.nextByte == -2) {
+					try {
+						this.nextByte = in.read();
+					} catch (IOException e) {
+						this.nextByte = -1;
+					}
+				}
+				return this.nextByte >= 0;
+			}
+
+			@Override
+			public double nextDouble() {
+				if (!this.hasNext()) {
+					throw new NoSuchElementException("No more values");
+				}
+				try {
+					double value;
+					if (this.amplitudeNext) {
+						value = header.readAmplitude(in);
+					} else {
+						value = VarInt.read(in, this.nextByte);
+						this.nextByte = -2;
+					}
+					this.amplitudeNext = !this.amplitudeNext;
+					return value;
+				} catch (IOException e) {
+					throw new NoSuchElementException(
+							"Failed to read more items");
+				}
+			}
+		};
+	}
+
+	/**
+	 * Closes the underlying stream
+	 * 
+	 * @throws IOException
+	 *             If the underlying stream throws this exception
+	 */
+	@Override
+	public void close() throws IOException {
+		this.in.close();
+	}
+
+	@Override
+	public String toString() {
+		return this.header.toString();
+	}
+}
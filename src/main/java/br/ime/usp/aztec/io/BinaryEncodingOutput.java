@@ -0,0 +1,119 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import br.ime.usp.aztec.io.EncodingHeader.AmplitudeFormat;
+
+/**
+ * Writes an encoding in a compact binary format. The values put are taken as
+ * pairs: first a length, which must be an integer (negative for slopes), then
+ * an amplitude. Lengths are stored as variable-length integers with the sign
+ * in their lowest bit, so the ones up to 63 samples take a single byte.
+ * Amplitudes are stored as described in the {@link EncodingHeader}, which is
+ * written before the first pair.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see BinaryEncodingInput
+ */
+public final class BinaryEncodingOutput extends AbstractEncodingOutput
+		implements Flushable {
+
+	private final DataOutputStream out;
+	private final EncodingHeader header;
+	private boolean wroteHeader = false;
+	private boolean amplitudeNext = false;
+
+	/**
+	 * @param out
+	 *            Stream where the encoding will be written
+	 * @param header
+	 *            Description of the encoding
+	 * @throws IllegalArgumentException
+	 *             if the header asks for entropy-coded amplitudes, which are
+	 *             written by {@link EntropyEncodingOutput}, or for an index,
+	 *             written by {@link IndexedEncodingOutput}
+	 */
+	public BinaryEncodingOutput(OutputStream out, EncodingHeader header) {
+		if (header.getAmplitudeFormat() == AmplitudeFormat.ENTROPY_CODED) {
+			throw new IllegalArgumentException(
+					"Entropy-coded amplitudes need an EntropyEncodingOutput");
+		}
+		if (header.isIndexed()) {
+			throw new IllegalArgumentException(
+					"Indexed encodings need an IndexedEncodingOutput");
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.header = header;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if a length is expected and the value isn't an integer
+	 */
+	@Override
+	public void put(double value) throws IOException {
+		if (!this.wroteHeader) {
+			this.writeHeader();
+		}
+		if (this.amplitudeNext) {
+			this.header.writeAmplitude(this.out, value);
+		} else {
+			long length = (long) value;
+			if (length != value) {
+				throw new IllegalArgumentException("Length " + value
+						+ " is not an integer");
+			}
+			VarInt.write(this.out, length);
+		}
+		this.amplitudeNext = !this.amplitudeNext;
+	}
+
+	/**
+	 * Writes the pairs put so far to the underlying stream and flushes it
+	 * 
+	 * @throws IOException
+	 *             If the underlying stream throws this exception
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.out.flush();
+	}
+
+	/**
+	 * Writes the header, if nothing was put, and closes the underlying stream
+	 * 
+	 * @throws IOException
+	 *             If the underlying stream throws this exception
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!this.wroteHeader) {
+			this.writeHeader();
+		}
+		this.out.close();
+	}
+
+	private void writeHeader() throws IOException {
+		this.header.writeTo(this.out);
+		this.wroteHeader = true;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads one sample per line from ASCII text. The lines are split by a
+ * {@link LineReader}, directly in the buffers given by a {@link ByteSource},
+ * and converted by a {@link DecimalParser}, so no object is created per
+ * sample. A failure to read the source is taken as its end.
+ *
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class ByteSampleScanner implements DoubleIterator {
+
+	private final LineReader lines;
+	private final DecimalParser parser = new DecimalParser();
+	private boolean failed = false;
+
+	ByteSampleScanner(ByteSource source) {
+		this.lines = new LineReader(source);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (this.failed) {
+			return false;
+		}
+		try {
+			return this.lines.hasMoreLines();
+		} catch (IOException e) {
+			this.failed = true;
+			return false;
+		}
+	}
+
+	@Override
+	public double nextDouble() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException("Failed to read more items");
+		}
+		try {
+			this.lines.readLine();
+		} catch (IOException e) {
+			this.failed = true;
+			throw new NoSuchElementException("Failed to read more items");
+		}
+		ByteBuffer buffer = this.lines.buffer();
+		int start = this.lines.lineStart();
+		int end = this.lines.lineEnd();
+		while (start < end && buffer.get(start) <= ' ') {
+			start++;
+		}
+		while (end > start && buffer.get(end - 1) <= ' ') {
+			end--;
+		}
+		try {
+			return this.parser.parse(buffer, start, end);
+		} catch (NumberFormatException e) {
+			throw new NoSuchElementException("Failed to read more items");
+		}
+	}
+}
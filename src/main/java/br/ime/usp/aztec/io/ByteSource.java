@@ -0,0 +1,42 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Provides the bytes scanned by a {@link ByteSampleScanner}, one buffer at a
+ * time. Closing it releases the underlying input, even if not all of its
+ * bytes were given.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+interface ByteSource extends Closeable {
+
+	/**
+	 * @param current
+	 *            The buffer being scanned. Its bytes between its position and
+	 *            its limit were not consumed yet.
+	 * @return A buffer, ready to be read, that starts with the bytes not
+	 *         consumed from the current buffer followed by at least one new
+	 *         byte, or null if there are no more bytes
+	 * @throws IOException
+	 *             if the underlying input cannot be read
+	 */
+	ByteBuffer refill(ByteBuffer current) throws IOException;
+}
@@ -0,0 +1,131 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads one column of a signal stored as comma separated values, such as one
+ * lead of an ECG. The file is parsed by a {@link CSVRowParser} again for each
+ * iteration, so the signal may be iterated many times without keeping its
+ * values.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class CSVColumnReader extends AbstractSignalSource {
+
+	private final File file;
+	private final int column;
+	private final String columnName;
+
+	/**
+	 * @param file
+	 *            File with the rows of the signal
+	 * @param column
+	 *            Index of the column to be read, starting at 0
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws MalformedInputException
+	 *             if the column does not exist
+	 */
+	public CSVColumnReader(File file, int column) throws IOException,
+			MalformedInputException {
+		this.file = file;
+		this.column = column;
+		CSVRowParser parser = open(file);
+		try {
+			if (column < 0 || column >= parser.getNumberOfColumns()) {
+				throw new MalformedInputException("CSV file has no column "
+						+ column);
+			}
+			this.columnName = parser.getColumnNames()[column];
+		} finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * @return An iterator that parses the file from its beginning
+	 * @throws IllegalStateException
+	 *             if the file cannot be opened
+	 */
+	@Override
+	public DoubleIterator doubleIterator() {
+		try {
+			return new ColumnIterator(open(this.file));
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read " + this.file, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.file.getName() + " " + this.columnName;
+	}
+
+	private static CSVRowParser open(File file) throws IOException {
+		return new CSVRowParser(new FileInputStream(file).getChannel());
+	}
+
+	private final class ColumnIterator implements DoubleIterator {
+		private final CSVRowParser parser;
+		private final double[] row;
+		private boolean hasRow = false;
+		private boolean ended = false;
+		private boolean failed = false;
+
+		ColumnIterator(CSVRowParser parser) {
+			this.parser = parser;
+			this.row = new double[parser.getNumberOfColumns()];
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.hasRow || this.failed) {
+				return true;
+			}
+			if (this.ended) {
+				return false;
+			}
+			try {
+				this.hasRow = this.parser.nextRow(this.row);
+			} catch (IOException e) {
+				this.failed = true;
+			}
+			if (!this.hasRow) {
+				this.ended = true;
+				try {
+					this.parser.close();
+				} catch (IOException e) {
+					// nothing else to be read
+				}
+			}
+			return this.hasRow || this.failed;
+		}
+
+		@Override
+		public double nextDouble() {
+			if (!this.hasNext() || this.failed) {
+				throw new NoSuchElementException("Failed to read more items");
+			}
+			this.hasRow = false;
+			return this.row[column];
+		}
+	}
+}
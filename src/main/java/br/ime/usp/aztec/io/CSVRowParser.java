@@ -0,0 +1,257 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Parses a signal with many columns, such as the leads of an ECG, stored as
+ * ASCII text with one row per line. Columns may be separated by commas,
+ * semicolons or tabs, whichever appears in the first line. If the first line
+ * is not made of numbers, it is taken as the names of the columns.
+ * 
+ * The lines are split by a {@link LineReader}, directly in the buffers given
+ * by a {@link ByteSource}, and converted by a {@link DecimalParser}, so no
+ * object is created per row.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class CSVRowParser {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAPPED_WINDOW_SIZE = 16 * 1024 * 1024;
+	private static final byte[] SEPARATORS = { ',', ';', '\t' };
+
+	private final LineReader lines;
+	private final DecimalParser parser = new DecimalParser();
+	private ByteBuffer buffer;
+	private int lineStart;
+	private int lineEnd;
+
+	private byte separator = ',';
+	private String[] columnNames;
+	private boolean hasPendingRow = false;
+	private long row = 0;
+
+	/**
+	 * @param channel
+	 *            Channel of ASCII text from where the rows should be read
+	 * @throws IOException
+	 *             if the first line cannot be read
+	 */
+	public CSVRowParser(ReadableByteChannel channel) throws IOException {
+		this(new ChannelByteSource(channel, BUFFER_SIZE));
+	}
+
+	/**
+	 * Maps the given file into memory, in windows of fixed size, and parses
+	 * it directly from the mapped region
+	 * 
+	 * @param file
+	 *            File of ASCII text from where the rows should be read,
+	 *            starting at its current position
+	 * @throws IOException
+	 *             if the first line cannot be read
+	 */
+	public CSVRowParser(FileChannel file) throws IOException {
+		this(new MappedFileByteSource(file, MAPPED_WINDOW_SIZE));
+	}
+
+	CSVRowParser(ByteSource source) throws IOException {
+		this.lines = new LineReader(source);
+		this.readFirstLine();
+	}
+
+	/**
+	 * @return Number of columns of each row, or 0 if the input is empty
+	 */
+	public int getNumberOfColumns() {
+		return this.columnNames.length;
+	}
+
+	/**
+	 * @return Names of the columns given in the first line, or their indexes
+	 *         if the first line is made of numbers
+	 */
+	public String[] getColumnNames() {
+		return this.columnNames.clone();
+	}
+
+	/**
+	 * Reads the next row
+	 * 
+	 * @param values
+	 *            Array where the values of the row will be stored. Must have
+	 *            room for {@link #getNumberOfColumns()} values.
+	 * @return false, if there are no more rows
+	 * @throws MalformedInputException
+	 *             if the row has a different number of columns or a value that
+	 *             is not a number
+	 * @throws IOException
+	 *             if the input cannot be read
+	 */
+	public boolean nextRow(double[] values) throws IOException,
+			MalformedInputException {
+		if (this.hasPendingRow) {
+			this.hasPendingRow = false;
+		} else if (!this.nextLine()) {
+			return false;
+		}
+		this.row++;
+		if (this.parseLine(values) != this.columnNames.length) {
+			throw new MalformedInputException("Row " + this.row + " has "
+					+ "a different number of columns");
+		}
+		return true;
+	}
+
+	/**
+	 * Closes the underlying channel
+	 * 
+	 * @throws IOException
+	 *             if the channel cannot be closed
+	 */
+	public void close() throws IOException {
+		this.lines.close();
+	}
+
+	private void readFirstLine() throws IOException {
+		if (!this.nextLine()) {
+			this.columnNames = new String[0];
+			return;
+		}
+		for (byte candidate : SEPARATORS) {
+			if (this.indexOf(candidate, this.lineStart) >= 0) {
+				this.separator = candidate;
+				break;
+			}
+		}
+		int columns = 1;
+		for (int i = this.lineStart; i < this.lineEnd; i++) {
+			if (this.buffer.get(i) == this.separator) {
+				columns++;
+			}
+		}
+		this.columnNames = new String[columns];
+		try {
+			this.parseLine(new double[columns]);
+			for (int i = 0; i < columns; i++) {
+				this.columnNames[i] = String.valueOf(i);
+			}
+			this.hasPendingRow = true;
+		} catch (MalformedInputException e) {
+			int start = this.lineStart;
+			for (int i = 0; i < columns; i++) {
+				int end = this.indexOf(this.separator, start);
+				if (end < 0) {
+					end = this.lineEnd;
+				}
+				this.columnNames[i] = this.text(start, end);
+				start = end + 1;
+			}
+		}
+	}
+
+	/**
+	 * @return Number of fields in the current line
+	 */
+	private int parseLine(double[] values) throws MalformedInputException {
+		int columns = 0;
+		int start = this.lineStart;
+		while (start <= this.lineEnd) {
+			int end = this.indexOf(this.separator, start);
+			if (end < 0) {
+				end = this.lineEnd;
+			}
+			if (columns < values.length) {
+				values[columns] = this.parseField(start, end);
+			}
+			columns++;
+			start = end + 1;
+		}
+		return columns;
+	}
+
+	private double parseField(int start, int end)
+			throws MalformedInputException {
+		while (start < end && this.buffer.get(start) <= ' ') {
+			start++;
+		}
+		while (end > start && this.buffer.get(end - 1) <= ' ') {
+			end--;
+		}
+		try {
+			return this.parser.parse(this.buffer, start, end);
+		} catch (NumberFormatException e) {
+			throw new MalformedInputException("Row " + this.row
+					+ " has a value that is not a number");
+		}
+	}
+
+	private int indexOf(byte value, int from) {
+		for (int i = from; i < this.lineEnd; i++) {
+			if (this.buffer.get(i) == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private String text(int start, int end) {
+		StringBuilder text = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			text.append((char) (this.buffer.get(i) & 0xff));
+		}
+		return text.toString().trim();
+	}
+
+	/**
+	 * Finds the next line that is not blank, setting {@link #lineStart} and
+	 * {@link #lineEnd}
+	 * 
+	 * @return false, if there are no more lines
+	 */
+	private boolean nextLine() throws IOException {
+		do {
+			if (!this.readLine()) {
+				return false;
+			}
+		} while (this.isBlank());
+		return true;
+	}
+
+	private boolean isBlank() {
+		for (int i = this.lineStart; i < this.lineEnd; i++) {
+			if (this.buffer.get(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean readLine() throws IOException {
+		if (!this.lines.readLine()) {
+			return false;
+		}
+		this.buffer = this.lines.buffer();
+		this.lineStart = this.lines.lineStart();
+		this.lineEnd = this.lines.lineEnd();
+		return true;
+	}
+}
@@ -0,0 +1,66 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads bytes from a channel into a single buffer, reused for the whole
+ * input. The buffer only grows when a line does not fit in it.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class ChannelByteSource implements ByteSource {
+
+	private final ReadableByteChannel channel;
+	private ByteBuffer buffer;
+
+	ChannelByteSource(ReadableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+	}
+
+	/**
+	 * The bytes of the current buffer are copied without consuming them, so
+	 * that they are still there if the channel has ended
+	 */
+	@Override
+	public ByteBuffer refill(ByteBuffer current) throws IOException {
+		if (current.remaining() == this.buffer.capacity()) {
+			ByteBuffer bigger = ByteBuffer.allocate(this.buffer.capacity() * 2);
+			bigger.put(current.duplicate());
+			this.buffer = bigger;
+		} else if (current == this.buffer) {
+			this.buffer.compact();
+		} else {
+			this.buffer.clear();
+			this.buffer.put(current.duplicate());
+		}
+		int read = 0;
+		while (read == 0) {
+			read = this.channel.read(this.buffer);
+		}
+		this.buffer.flip();
+		return read < 0 ? null : this.buffer;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
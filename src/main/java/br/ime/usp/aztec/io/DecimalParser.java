@@ -0,0 +1,151 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts ASCII decimal numbers stored in a {@link ByteBuffer} straight into
+ * doubles, without creating any object.
+ *
+ * Plain decimals such as "-1.25" or "3.2e-3" with up to 15 significant digits
+ * are converted exactly as {@link Double#parseDouble(String)} would do: the
+ * digits form an integer that is exactly representable as a double, and it is
+ * multiplied or divided by an exactly representable power of ten, so the only
+ * rounding is the one of this single operation (Clinger's fast path). Anything
+ * else is given to {@link Double#parseDouble(String)}.
+ *
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class DecimalParser {
+
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	private static final int MAX_MANTISSA_DIGITS = 18;
+	private static final int MAX_EXPONENT_DIGITS = 4;
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private char[] slowPathChars = new char[32];
+
+	/**
+	 * @param bytes
+	 *            Buffer with the text to be parsed
+	 * @param from
+	 *            Index of the first byte of the number
+	 * @param to
+	 *            Index after the last byte of the number
+	 * @return The parsed number
+	 * @throws NumberFormatException
+	 *             if the bytes are not a number
+	 */
+	double parse(ByteBuffer bytes, int from, int to) {
+		int position = from;
+		boolean negative = false;
+		if (position < to) {
+			byte sign = bytes.get(position);
+			if (sign == '-' || sign == '+') {
+				negative = sign == '-';
+				position++;
+			}
+		}
+		long mantissa = 0;
+		int mantissaDigits = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean inFraction = false;
+		for (; position < to; position++) {
+			int c = bytes.get(position);
+			if (c >= '0' && c <= '9') {
+				digits++;
+				if (mantissa != 0 || c != '0') {
+					if (++mantissaDigits > MAX_MANTISSA_DIGITS) {
+						return this.slowPath(bytes, from, to);
+					}
+				}
+				mantissa = mantissa * 10 + (c - '0');
+				if (inFraction) {
+					fractionDigits++;
+				}
+			} else if (c == '.' && !inFraction) {
+				inFraction = true;
+			} else {
+				break;
+			}
+		}
+		if (digits == 0) {
+			return this.slowPath(bytes, from, to);
+		}
+		int exponent = 0;
+		if (position < to) {
+			int c = bytes.get(position);
+			if (c != 'e' && c != 'E') {
+				return this.slowPath(bytes, from, to);
+			}
+			position++;
+			boolean negativeExponent = false;
+			if (position < to) {
+				c = bytes.get(position);
+				if (c == '-' || c == '+') {
+					negativeExponent = c == '-';
+					position++;
+				}
+			}
+			int exponentStart = position;
+			for (; position < to; position++) {
+				c = bytes.get(position);
+				if (c < '0' || c > '9'
+						|| position - exponentStart >= MAX_EXPONENT_DIGITS) {
+					return this.slowPath(bytes, from, to);
+				}
+				exponent = exponent * 10 + (c - '0');
+			}
+			if (position == exponentStart) {
+				return this.slowPath(bytes, from, to);
+			}
+			if (negativeExponent) {
+				exponent = -exponent;
+			}
+		}
+		if (mantissa == 0) {
+			return negative ? -0.0 : 0.0;
+		}
+		if (mantissa > MAX_EXACT_MANTISSA) {
+			return this.slowPath(bytes, from, to);
+		}
+		exponent -= fractionDigits;
+		double value;
+		if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return this.slowPath(bytes, from, to);
+		}
+		return negative ? -value : value;
+	}
+
+	private double slowPath(ByteBuffer bytes, int from, int to) {
+		int length = to - from;
+		if (this.slowPathChars.length < length) {
+			this.slowPathChars = new char[length];
+		}
+		for (int i = 0; i < length; i++) {
+			this.slowPathChars[i] = (char) (bytes.get(from + i) & 0xff);
+		}
+		return Double.parseDouble(new String(this.slowPathChars, 0, length));
+	}
+}
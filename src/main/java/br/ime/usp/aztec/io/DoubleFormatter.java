@@ -0,0 +1,410 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.math.BigInteger;
+
+/**
+ * Writes doubles as ASCII text into a given char array, without creating any
+ * object.
+ *
+ * By default, a value is written with the fewest digits that are read back as
+ * the same double, using the Ryu algorithm by Ulf Adams, and laid out as
+ * {@link Double#toString(double)} does: plain notation between 10^-3 and 10^7,
+ * scientific notation otherwise. In the few cases where
+ * {@link Double#toString(double)} writes more digits than needed, this class
+ * writes less, but both are read back as the same double.
+ *
+ * Alternatively, values may be rounded to a fixed number of decimal places,
+ * with trailing zeros removed.
+ *
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class DoubleFormatter {
+
+	/**
+	 * Maximum number of chars written for a single value
+	 */
+	public static final int MAX_LENGTH = 40;
+
+	private static final int MANTISSA_BITS = 52;
+	private static final long MANTISSA_MASK = (1L << MANTISSA_BITS) - 1;
+	private static final int EXPONENT_MASK = (1 << 11) - 1;
+	private static final int EXPONENT_BIAS = 1023;
+
+	private static final int POW5_BITCOUNT = 125;
+	private static final int POW5_INV_BITCOUNT = 125;
+	private static final long[][] POW5_SPLIT = new long[326][2];
+	private static final long[][] POW5_INV_SPLIT = new long[342][2];
+
+	private static final int MAX_FIXED_DECIMALS = 15;
+	private static final double MAX_FIXED_SCALED = 1e18;
+
+	static {
+		BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(
+				BigInteger.ONE);
+		for (int i = 0; i < POW5_INV_SPLIT.length; i++) {
+			BigInteger pow = BigInteger.valueOf(5).pow(i);
+			int bits = pow.bitLength();
+			if (i < POW5_SPLIT.length) {
+				BigInteger split = bits > POW5_BITCOUNT ? pow
+						.shiftRight(bits - POW5_BITCOUNT) : pow
+						.shiftLeft(POW5_BITCOUNT - bits);
+				POW5_SPLIT[i][0] = split.and(mask).longValue();
+				POW5_SPLIT[i][1] = split.shiftRight(64).longValue();
+			}
+			BigInteger inverse = BigInteger.ONE
+					.shiftLeft(bits - 1 + POW5_INV_BITCOUNT).divide(pow)
+					.add(BigInteger.ONE);
+			POW5_INV_SPLIT[i][0] = inverse.and(mask).longValue();
+			POW5_INV_SPLIT[i][1] = inverse.shiftRight(64).longValue();
+		}
+	}
+
+	private final int decimals;
+	private final double scale;
+	private final char[] digits = new char[20];
+
+	/**
+	 * Creates a formatter that writes the shortest representation of each
+	 * value
+	 */
+	public DoubleFormatter() {
+		this.decimals = -1;
+		this.scale = 1.0;
+	}
+
+	/**
+	 * Creates a formatter that rounds each value to a fixed number of decimal
+	 * places
+	 *
+	 * @param decimals
+	 *            Number of decimal places kept
+	 * @throws IllegalArgumentException
+	 *             if the number of decimal places is negative or bigger than
+	 *             15
+	 */
+	public DoubleFormatter(int decimals) {
+		if (decimals < 0 || decimals > MAX_FIXED_DECIMALS) {
+			throw new IllegalArgumentException(
+					"Number of decimal places must be between 0 and "
+							+ MAX_FIXED_DECIMALS);
+		}
+		this.decimals = decimals;
+		this.scale = Math.pow(10, decimals);
+	}
+
+	/**
+	 * Writes the given value in the given array
+	 *
+	 * @param value
+	 *            The value to be written
+	 * @param buffer
+	 *            Where the value will be written. Must have at least
+	 *            {@link #MAX_LENGTH} chars after the offset.
+	 * @param offset
+	 *            Index where the first char will be written
+	 * @return Index after the last char written
+	 */
+	public int format(double value, char[] buffer, int offset) {
+		if (this.decimals >= 0 && Math.abs(value) * this.scale < MAX_FIXED_SCALED) {
+			return this.formatFixed(value, buffer, offset);
+		}
+		return this.formatShortest(value, buffer, offset);
+	}
+
+	private int formatFixed(double value, char[] buffer, int offset) {
+		long scaled = (long) Math.floor(Math.abs(value) * this.scale + 0.5);
+		int position = offset;
+		if (scaled != 0 && value < 0) {
+			buffer[position++] = '-';
+		}
+		int decimalsLeft = this.decimals;
+		while (decimalsLeft > 0 && scaled % 10 == 0) {
+			scaled /= 10;
+			decimalsLeft--;
+		}
+		int length = this.toDigits(scaled);
+		int start = 20 - length;
+		if (decimalsLeft == 0) {
+			System.arraycopy(this.digits, start, buffer, position, length);
+			return position + length;
+		}
+		if (length <= decimalsLeft) {
+			buffer[position++] = '0';
+			buffer[position++] = '.';
+			for (int i = length; i < decimalsLeft; i++) {
+				buffer[position++] = '0';
+			}
+			System.arraycopy(this.digits, start, buffer, position, length);
+			return position + length;
+		}
+		int integerDigits = length - decimalsLeft;
+		System.arraycopy(this.digits, start, buffer, position, integerDigits);
+		position += integerDigits;
+		buffer[position++] = '.';
+		System.arraycopy(this.digits, start + integerDigits, buffer, position,
+				decimalsLeft);
+		return position + decimalsLeft;
+	}
+
+	private int formatShortest(double value, char[] buffer, int offset) {
+		long bits = Double.doubleToRawLongBits(value);
+		long ieeeMantissa = bits & MANTISSA_MASK;
+		int ieeeExponent = (int) (bits >>> MANTISSA_BITS) & EXPONENT_MASK;
+		int position = offset;
+		if (ieeeExponent == EXPONENT_MASK) {
+			if (ieeeMantissa != 0) {
+				return this.copy("NaN", buffer, position);
+			}
+			if (bits < 0) {
+				buffer[position++] = '-';
+			}
+			return this.copy("Infinity", buffer, position);
+		}
+		if (bits < 0) {
+			buffer[position++] = '-';
+		}
+		if (ieeeExponent == 0 && ieeeMantissa == 0) {
+			return this.copy("0.0", buffer, position);
+		}
+
+		int e2;
+		long m2;
+		if (ieeeExponent == 0) {
+			e2 = 1 - EXPONENT_BIAS - MANTISSA_BITS - 2;
+			m2 = ieeeMantissa;
+		} else {
+			e2 = ieeeExponent - EXPONENT_BIAS - MANTISSA_BITS - 2;
+			m2 = ieeeMantissa | (1L << MANTISSA_BITS);
+		}
+		boolean acceptBounds = (m2 & 1) == 0;
+		long mv = 4 * m2;
+		int mmShift = ieeeMantissa != 0 || ieeeExponent <= 1 ? 1 : 0;
+
+		long vr, vp, vm;
+		int e10;
+		boolean vmIsTrailingZeros = false;
+		boolean vrIsTrailingZeros = false;
+		if (e2 >= 0) {
+			int q = log10Pow2(e2) - (e2 > 3 ? 1 : 0);
+			e10 = q;
+			int k = POW5_INV_BITCOUNT + pow5bits(q) - 1;
+			int i = -e2 + q + k;
+			vr = mulShift(mv, POW5_INV_SPLIT[q], i);
+			vp = mulShift(mv + 2, POW5_INV_SPLIT[q], i);
+			vm = mulShift(mv - 1 - mmShift, POW5_INV_SPLIT[q], i);
+			if (q <= 21) {
+				if (mv % 5 == 0) {
+					vrIsTrailingZeros = multipleOfPowerOf5(mv, q);
+				} else if (acceptBounds) {
+					vmIsTrailingZeros = multipleOfPowerOf5(mv - 1 - mmShift, q);
+				} else if (multipleOfPowerOf5(mv + 2, q)) {
+					vp--;
+				}
+			}
+		} else {
+			int q = log10Pow5(-e2) - (-e2 > 1 ? 1 : 0);
+			e10 = q + e2;
+			int i = -e2 - q;
+			int k = pow5bits(i) - POW5_BITCOUNT;
+			int j = q - k;
+			vr = mulShift(mv, POW5_SPLIT[i], j);
+			vp = mulShift(mv + 2, POW5_SPLIT[i], j);
+			vm = mulShift(mv - 1 - mmShift, POW5_SPLIT[i], j);
+			if (q <= 1) {
+				vrIsTrailingZeros = true;
+				if (acceptBounds) {
+					vmIsTrailingZeros = mmShift == 1;
+				} else {
+					vp--;
+				}
+			} else if (q < 63) {
+				vrIsTrailingZeros = (mv & ((1L << q) - 1)) == 0;
+			}
+		}
+
+		int removed = 0;
+		int lastRemovedDigit = 0;
+		long output;
+		if (vmIsTrailingZeros || vrIsTrailingZeros) {
+			while (vp / 10 > vm / 10) {
+				vmIsTrailingZeros &= vm % 10 == 0;
+				vrIsTrailingZeros &= lastRemovedDigit == 0;
+				lastRemovedDigit = (int) (vr % 10);
+				vr /= 10;
+				vp /= 10;
+				vm /= 10;
+				removed++;
+			}
+			if (vmIsTrailingZeros) {
+				while (vm % 10 == 0) {
+					vrIsTrailingZeros &= lastRemovedDigit == 0;
+					lastRemovedDigit = (int) (vr % 10);
+					vr /= 10;
+					vp /= 10;
+					vm /= 10;
+					removed++;
+				}
+			}
+			if (vrIsTrailingZeros && lastRemovedDigit == 5 && vr % 2 == 0) {
+				// the exact value ends in 5 followed by zeros: round to even
+				lastRemovedDigit = 4;
+			}
+			output = vr
+					+ ((vr == vm && (!acceptBounds || !vmIsTrailingZeros))
+							|| lastRemovedDigit >= 5 ? 1 : 0);
+		} else {
+			boolean roundUp = false;
+			while (vp / 10 > vm / 10) {
+				roundUp = vr % 10 >= 5;
+				vr /= 10;
+				vp /= 10;
+				vm /= 10;
+				removed++;
+			}
+			output = vr + (vr == vm || roundUp ? 1 : 0);
+		}
+		return this.layOut(output, e10 + removed, buffer, position);
+	}
+
+	/**
+	 * Writes output * 10^exponent the way {@link Double#toString(double)}
+	 * does
+	 */
+	private int layOut(long output, int exponent, char[] buffer, int offset) {
+		int length = this.toDigits(output);
+		int start = 20 - length;
+		int scientificExponent = exponent + length - 1;
+		int position = offset;
+		if (scientificExponent >= -3 && scientificExponent < 7) {
+			if (scientificExponent < 0) {
+				buffer[position++] = '0';
+				buffer[position++] = '.';
+				for (int i = -1; i > scientificExponent; i--) {
+					buffer[position++] = '0';
+				}
+				System.arraycopy(this.digits, start, buffer, position, length);
+				return position + length;
+			}
+			int integerDigits = scientificExponent + 1;
+			for (int i = 0; i < integerDigits; i++) {
+				buffer[position++] = i < length ? this.digits[start + i] : '0';
+			}
+			buffer[position++] = '.';
+			if (length <= integerDigits) {
+				buffer[position++] = '0';
+				return position;
+			}
+			System.arraycopy(this.digits, start + integerDigits, buffer,
+					position, length - integerDigits);
+			return position + length - integerDigits;
+		}
+		buffer[position++] = this.digits[start];
+		buffer[position++] = '.';
+		if (length == 1) {
+			buffer[position++] = '0';
+		} else {
+			System.arraycopy(this.digits, start + 1, buffer, position,
+					length - 1);
+			position += length - 1;
+		}
+		buffer[position++] = 'E';
+		if (scientificExponent < 0) {
+			buffer[position++] = '-';
+			scientificExponent = -scientificExponent;
+		}
+		int exponentLength = this.toDigits(scientificExponent);
+		System.arraycopy(this.digits, 20 - exponentLength, buffer, position,
+				exponentLength);
+		return position + exponentLength;
+	}
+
+	/**
+	 * Writes the decimal digits of a non-negative number at the end of
+	 * {@link #digits}
+	 *
+	 * @return Number of digits written
+	 */
+	private int toDigits(long value) {
+		int position = this.digits.length;
+		do {
+			this.digits[--position] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+		return this.digits.length - position;
+	}
+
+	private int copy(String text, char[] buffer, int offset) {
+		text.getChars(0, text.length(), buffer, offset);
+		return offset + text.length();
+	}
+
+	private static int pow5bits(int e) {
+		return ((e * 1217359) >>> 19) + 1;
+	}
+
+	private static int log10Pow2(int e) {
+		return (e * 78913) >>> 18;
+	}
+
+	private static int log10Pow5(int e) {
+		return (e * 732923) >>> 20;
+	}
+
+	private static boolean multipleOfPowerOf5(long value, int p) {
+		int count = 0;
+		while (value % 5 == 0 && count < p) {
+			value /= 5;
+			count++;
+		}
+		return count >= p;
+	}
+
+	/**
+	 * @return (m * multiplier) >> shift, where the multiplier has 128 bits
+	 *         (low and high halves) and the shift is at least 64
+	 */
+	private static long mulShift(long m, long[] multiplier, int shift) {
+		long high0 = multiplyHigh(m, multiplier[0]);
+		long low1 = m * multiplier[1];
+		long high1 = multiplyHigh(m, multiplier[1]);
+		long sum = high0 + low1;
+		if (sum + Long.MIN_VALUE < high0 + Long.MIN_VALUE) {
+			high1++;
+		}
+		int distance = shift - 64;
+		if (distance == 0) {
+			return sum;
+		}
+		return (high1 << (64 - distance)) | (sum >>> distance);
+	}
+
+	/**
+	 * @return The high 64 bits of the unsigned 128-bit product a * b
+	 */
+	private static long multiplyHigh(long a, long b) {
+		long aLow = a & 0xFFFFFFFFL;
+		long aHigh = a >>> 32;
+		long bLow = b & 0xFFFFFFFFL;
+		long bHigh = b >>> 32;
+		long lowLow = aLow * bLow;
+		long highLow = aHigh * bLow;
+		long lowHigh = aLow * bHigh;
+		long cross = (lowLow >>> 32) + (highLow & 0xFFFFFFFFL) + lowHigh;
+		return aHigh * bHigh + (highLow >>> 32) + (cross >>> 32);
+	}
+}
@@ -0,0 +1,41 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over primitive double values. Works like
+ * {@link java.util.Iterator}, but does not box each value it returns.
+ *
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see SignalSource
+ */
+public interface DoubleIterator {
+
+	/**
+	 * @return true, if there are more values to be read
+	 */
+	boolean hasNext();
+
+	/**
+	 * @return The next value
+	 * @throws NoSuchElementException
+	 *             if there are no more values or the next one could not be
+	 *             read
+	 */
+	double nextDouble();
+}
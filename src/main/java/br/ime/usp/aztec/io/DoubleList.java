@@ -0,0 +1,156 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A growable list of primitive doubles. Values are kept in a single array,
+ * which doubles its size when full, so each value costs 8 bytes of heap and
+ * no object is created when values are added or read.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class DoubleList extends AbstractSignalSource {
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	private double[] values;
+	private int size = 0;
+
+	/**
+	 * Creates an empty list
+	 */
+	public DoubleList() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty list with room for the given number of values
+	 * 
+	 * @param capacity
+	 *            Number of values that can be added before the list grows
+	 */
+	public DoubleList(int capacity) {
+		this.values = new double[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Adds a value to the end of the list
+	 */
+	public void add(double value) {
+		if (this.size == this.values.length) {
+			this.grow(this.size + 1);
+		}
+		this.values[this.size++] = value;
+	}
+
+	/**
+	 * Adds the same value to the end of the list many times
+	 */
+	public void addRun(double value, int count) {
+		if (count <= 0) {
+			return;
+		}
+		this.grow(this.size + count);
+		Arrays.fill(this.values, this.size, this.size + count, value);
+		this.size += count;
+	}
+
+	/**
+	 * Adds part of an array to the end of the list
+	 */
+	public void add(double[] values, int offset, int length) {
+		this.grow(this.size + length);
+		System.arraycopy(values, offset, this.values, this.size, length);
+		this.size += length;
+	}
+
+	/**
+	 * @return The value at the given position
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no value at the given position
+	 */
+	public double get(int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ this.size);
+		}
+		return this.values[index];
+	}
+
+	/**
+	 * @return Number of values in the list
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return true, if the list has no value
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Removes every value, keeping the allocated room
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * @return A new array with the values of the list
+	 */
+	public double[] toArray() {
+		return Arrays.copyOf(this.values, this.size);
+	}
+
+	/**
+	 * @return An iterator over the values in the list. Values added while
+	 *         iterating are also returned.
+	 */
+	@Override
+	public DoubleIterator doubleIterator() {
+		return new DoubleIterator() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.next < size;
+			}
+
+			@Override
+			public double nextDouble() {
+				if (this.next >= size) {
+					throw new NoSuchElementException();
+				}
+				return values[this.next++];
+			}
+		};
+	}
+
+	private void grow(int minimumCapacity) {
+		if (minimumCapacity > this.values.length) {
+			long doubled = Math.min(this.values.length * 2L, MAX_CAPACITY);
+			this.values = Arrays.copyOf(this.values,
+					(int) Math.max(minimumCapacity, doubled));
+		}
+	}
+}
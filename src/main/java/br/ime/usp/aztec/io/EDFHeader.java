@@ -0,0 +1,379 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Header of an EDF or EDF+ file, describing the signals stored in each data
+ * record and how their digital values are converted into physical units.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see <a href="http://www.edfplus.info/specs/edf.html">EDF specification</a>
+ */
+public final class EDFHeader {
+
+	/**
+	 * Size in bytes of the part of the header that does not depend on the
+	 * number of signals
+	 */
+	public static final int FIXED_SIZE = 256;
+
+	/**
+	 * Size in bytes of the part of the header describing each signal
+	 */
+	public static final int SIZE_PER_SIGNAL = 256;
+
+	private static final String ANNOTATIONS_LABEL = "EDF Annotations";
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private final String patient;
+	private final String recording;
+	private final String startDate;
+	private final String startTime;
+	private final int size;
+	private final String reserved;
+	private final int numberOfRecords;
+	private final double recordDuration;
+	private final List<Signal> signals;
+
+	/**
+	 * Reads a header, leaving the stream at the first data record
+	 * 
+	 * @param input
+	 *            Stream with the contents of the EDF file
+	 * @throws IOException
+	 *             if the header cannot be read
+	 * @throws MalformedInputException
+	 *             if the header is not valid
+	 */
+	public EDFHeader(InputStream input) throws IOException,
+			MalformedInputException {
+		Fields fields = new Fields(input, FIXED_SIZE);
+		if (fields.parseInt(8) != 0) {
+			throw new MalformedInputException("Not an EDF file");
+		}
+		this.patient = fields.next(80);
+		this.recording = fields.next(80);
+		this.startDate = fields.next(8);
+		this.startTime = fields.next(8);
+		this.size = fields.parseInt(8);
+		this.reserved = fields.next(44);
+		this.numberOfRecords = fields.parseInt(8);
+		this.recordDuration = fields.parseDouble(8);
+		int numberOfSignals = fields.parseInt(4);
+		if (numberOfSignals <= 0
+				|| this.size != FIXED_SIZE + numberOfSignals * SIZE_PER_SIGNAL) {
+			throw new MalformedInputException("Invalid EDF header size");
+		}
+
+		fields = new Fields(input, numberOfSignals * SIZE_PER_SIGNAL);
+		String[] labels = fields.next(16, numberOfSignals);
+		String[] transducers = fields.next(80, numberOfSignals);
+		String[] dimensions = fields.next(8, numberOfSignals);
+		String[] physicalMinimums = fields.next(8, numberOfSignals);
+		String[] physicalMaximums = fields.next(8, numberOfSignals);
+		String[] digitalMinimums = fields.next(8, numberOfSignals);
+		String[] digitalMaximums = fields.next(8, numberOfSignals);
+		String[] prefilterings = fields.next(80, numberOfSignals);
+		String[] samples = fields.next(8, numberOfSignals);
+		this.signals = new ArrayList<Signal>(numberOfSignals);
+		int offset = 0;
+		for (int i = 0; i < numberOfSignals; i++) {
+			Signal signal = new Signal(labels[i], transducers[i],
+					dimensions[i], parseDouble(physicalMinimums[i]),
+					parseDouble(physicalMaximums[i]),
+					parseInt(digitalMinimums[i]), parseInt(digitalMaximums[i]),
+					prefilterings[i], parseInt(samples[i]), offset);
+			if (signal.getDigitalMaximum() <= signal.getDigitalMinimum()
+					|| signal.getSamplesPerRecord() < 0) {
+				throw new MalformedInputException("Invalid EDF signal " + i);
+			}
+			offset += 2 * signal.getSamplesPerRecord();
+			this.signals.add(signal);
+		}
+	}
+
+	/**
+	 * @return Identification of the patient
+	 */
+	public String getPatient() {
+		return this.patient;
+	}
+
+	/**
+	 * @return Identification of the recording
+	 */
+	public String getRecording() {
+		return this.recording;
+	}
+
+	/**
+	 * @return Start date of the recording, as dd.mm.yy
+	 */
+	public String getStartDate() {
+		return this.startDate;
+	}
+
+	/**
+	 * @return Start time of the recording, as hh.mm.ss
+	 */
+	public String getStartTime() {
+		return this.startTime;
+	}
+
+	/**
+	 * @return Size of the header in bytes, where the first data record starts
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * @return true, if this is an EDF+ file
+	 */
+	public boolean isEDFPlus() {
+		return this.reserved.startsWith("EDF+");
+	}
+
+	/**
+	 * @return Number of data records, or -1 if unknown
+	 */
+	public int getNumberOfRecords() {
+		return this.numberOfRecords;
+	}
+
+	/**
+	 * @return Duration of each data record in seconds
+	 */
+	public double getRecordDuration() {
+		return this.recordDuration;
+	}
+
+	/**
+	 * @return Size of each data record in bytes
+	 */
+	public int getRecordSize() {
+		Signal last = this.signals.get(this.signals.size() - 1);
+		return last.getRecordOffset() + 2 * last.getSamplesPerRecord();
+	}
+
+	/**
+	 * @return Number of signals in each data record
+	 */
+	public int getNumberOfSignals() {
+		return this.signals.size();
+	}
+
+	/**
+	 * @param index
+	 *            Index of the signal, starting at 0
+	 * @return Description of the signal
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no such signal
+	 */
+	public Signal getSignal(int index) {
+		return this.signals.get(index);
+	}
+
+	/**
+	 * Description of one signal of an EDF file
+	 */
+	public static final class Signal {
+		private final String label;
+		private final String transducer;
+		private final String physicalDimension;
+		private final double physicalMinimum;
+		private final double physicalMaximum;
+		private final int digitalMinimum;
+		private final int digitalMaximum;
+		private final String prefiltering;
+		private final int samplesPerRecord;
+		private final int recordOffset;
+		private final double scale;
+
+		Signal(String label, String transducer, String physicalDimension,
+				double physicalMinimum, double physicalMaximum,
+				int digitalMinimum, int digitalMaximum, String prefiltering,
+				int samplesPerRecord, int recordOffset) {
+			this.label = label;
+			this.transducer = transducer;
+			this.physicalDimension = physicalDimension;
+			this.physicalMinimum = physicalMinimum;
+			this.physicalMaximum = physicalMaximum;
+			this.digitalMinimum = digitalMinimum;
+			this.digitalMaximum = digitalMaximum;
+			this.prefiltering = prefiltering;
+			this.samplesPerRecord = samplesPerRecord;
+			this.recordOffset = recordOffset;
+			this.scale = (physicalMaximum - physicalMinimum)
+					/ (digitalMaximum - digitalMinimum);
+		}
+
+		/**
+		 * @return Name of the signal, such as the name of an ECG lead
+		 */
+		public String getLabel() {
+			return this.label;
+		}
+
+		/**
+		 * @return Type of the sensor
+		 */
+		public String getTransducer() {
+			return this.transducer;
+		}
+
+		/**
+		 * @return Physical units of the signal, such as mV
+		 */
+		public String getPhysicalDimension() {
+			return this.physicalDimension;
+		}
+
+		/**
+		 * @return Physical value of the smallest digital value
+		 */
+		public double getPhysicalMinimum() {
+			return this.physicalMinimum;
+		}
+
+		/**
+		 * @return Physical value of the biggest digital value
+		 */
+		public double getPhysicalMaximum() {
+			return this.physicalMaximum;
+		}
+
+		/**
+		 * @return Smallest digital value of the signal
+		 */
+		public int getDigitalMinimum() {
+			return this.digitalMinimum;
+		}
+
+		/**
+		 * @return Biggest digital value of the signal
+		 */
+		public int getDigitalMaximum() {
+			return this.digitalMaximum;
+		}
+
+		/**
+		 * @return Filters applied to the signal before recording
+		 */
+		public String getPrefiltering() {
+			return this.prefiltering;
+		}
+
+		/**
+		 * @return Number of samples of this signal in each data record
+		 */
+		public int getSamplesPerRecord() {
+			return this.samplesPerRecord;
+		}
+
+		/**
+		 * @return Position in bytes of the first sample of this signal in
+		 *         each data record
+		 */
+		public int getRecordOffset() {
+			return this.recordOffset;
+		}
+
+		/**
+		 * @return true, if this signal holds EDF+ annotations instead of
+		 *         samples
+		 */
+		public boolean isAnnotation() {
+			return this.label.equals(ANNOTATIONS_LABEL);
+		}
+
+		/**
+		 * @return The value in physical units of a sample stored as the given
+		 *         digital value
+		 */
+		public double toPhysical(int digitalValue) {
+			return this.physicalMinimum + (digitalValue - this.digitalMinimum)
+					* this.scale;
+		}
+	}
+
+	/**
+	 * Reads fixed-width ASCII fields from a block of the header
+	 */
+	private static final class Fields {
+		private final byte[] bytes;
+		private int position = 0;
+
+		Fields(InputStream input, int size) throws IOException {
+			this.bytes = new byte[size];
+			try {
+				new DataInputStream(input).readFully(this.bytes);
+			} catch (EOFException e) {
+				throw new MalformedInputException("EDF header is truncated");
+			}
+		}
+
+		String next(int width) {
+			String field = new String(this.bytes, this.position, width,
+					ASCII).trim();
+			this.position += width;
+			return field;
+		}
+
+		String[] next(int width, int count) {
+			String[] fields = new String[count];
+			for (int i = 0; i < count; i++) {
+				fields[i] = this.next(width);
+			}
+			return fields;
+		}
+
+		int parseInt(int width) throws MalformedInputException {
+			return EDFHeader.parseInt(this.next(width));
+		}
+
+		double parseDouble(int width) throws MalformedInputException {
+			return EDFHeader.parseDouble(this.next(width));
+		}
+	}
+
+	private static int parseInt(String number) throws MalformedInputException {
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			throw new MalformedInputException("Invalid number in EDF header: "
+					+ number);
+		}
+	}
+
+	private static double parseDouble(String number)
+			throws MalformedInputException {
+		try {
+			return Double.parseDouble(number);
+		} catch (NumberFormatException e) {
+			throw new MalformedInputException("Invalid number in EDF header: "
+					+ number);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads one signal of an EDF or EDF+ file, one data record at a time,
+ * converting its 16-bit digital values into physical units with the
+ * calibration given in the header.
+ * 
+ * The file is mapped into memory in windows and read again for each
+ * iteration, so the memory used does not depend on the length of the
+ * recording, and the signal may be iterated many times without keeping its
+ * values.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class EDFSignalReader extends AbstractSignalSource {
+
+	private static final int MAPPED_WINDOW_SIZE = 1024 * 1024;
+
+	private final File file;
+	private final EDFHeader header;
+	private final EDFHeader.Signal signal;
+	private final int windowSize;
+
+	/**
+	 * @param file
+	 *            The EDF file
+	 * @param signalIndex
+	 *            Index of the signal to be read, starting at 0
+	 * @throws IOException
+	 *             if the header cannot be read
+	 * @throws MalformedInputException
+	 *             if the header is not valid, or the signal does not exist or
+	 *             holds EDF+ annotations
+	 */
+	public EDFSignalReader(File file, int signalIndex) throws IOException,
+			MalformedInputException {
+		this(file, signalIndex, MAPPED_WINDOW_SIZE);
+	}
+
+	EDFSignalReader(File file, int signalIndex, int windowSize)
+			throws IOException, MalformedInputException {
+		this.file = file;
+		InputStream input = new FileInputStream(file);
+		try {
+			this.header = new EDFHeader(input);
+		} finally {
+			input.close();
+		}
+		if (signalIndex < 0 || signalIndex >= this.header.getNumberOfSignals()) {
+			throw new MalformedInputException("EDF file has no signal "
+					+ signalIndex);
+		}
+		this.signal = this.header.getSignal(signalIndex);
+		if (this.signal.isAnnotation() || this.signal.getSamplesPerRecord() == 0) {
+			throw new MalformedInputException("EDF signal " + signalIndex
+					+ " has no samples");
+		}
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * @return Header of the file
+	 */
+	public EDFHeader getHeader() {
+		return this.header;
+	}
+
+	/**
+	 * @return Description of the signal being read
+	 */
+	public EDFHeader.Signal getSignal() {
+		return this.signal;
+	}
+
+	/**
+	 * @return An iterator that reads the file from its first data record
+	 * @throws IllegalStateException
+	 *             if the file cannot be opened
+	 */
+	@Override
+	public DoubleIterator doubleIterator() {
+		try {
+			return new RecordIterator();
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read " + this.file, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.file.getName() + " " + this.signal.getLabel();
+	}
+
+	private final class RecordIterator implements DoubleIterator {
+		private final SampleFileReader reader;
+		private final double[] record;
+		private int nextInRecord;
+		private int recordsRead = 0;
+		private boolean endOfSignal = false;
+
+		RecordIterator() throws IOException {
+			this.reader = new SampleFileReader(file, header.getSize(),
+					windowSize);
+			this.record = new double[signal.getSamplesPerRecord()];
+			this.nextInRecord = this.record.length;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.nextInRecord < this.record.length) {
+				return true;
+			}
+			if (this.endOfSignal) {
+				return false;
+			}
+			if (this.readRecord()) {
+				this.nextInRecord = 0;
+				return true;
+			}
+			this.endOfSignal = true;
+			this.reader.close();
+			return false;
+		}
+
+		@Override
+		public double nextDouble() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException("Failed to read more items");
+			}
+			return this.record[this.nextInRecord++];
+		}
+
+		private boolean readRecord() {
+			int total = header.getNumberOfRecords();
+			if (total >= 0 && this.recordsRead >= total) {
+				return false;
+			}
+			int before = signal.getRecordOffset();
+			int after = header.getRecordSize() - before - 2
+					* this.record.length;
+			if (!this.reader.skip(before)) {
+				return false;
+			}
+			for (int i = 0; i < this.record.length; i++) {
+				if (this.reader.ensure(2) < 2) {
+					return false;
+				}
+				this.record[i] = signal.toPhysical(this.reader.nextShort());
+			}
+			this.reader.skip(after);
+			this.recordsRead++;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,308 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Header of a binary encoding. Records which algorithm generated the encoding,
+ * the parameters it was given and how the amplitudes are stored.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see BinaryEncodingOutput
+ * @see BinaryEncodingInput
+ * @see EntropyEncodingOutput
+ */
+public final class EncodingHeader {
+
+	/**
+	 * Ways of storing the amplitudes of an encoding
+	 */
+	public enum AmplitudeFormat {
+		/**
+		 * 64-bit floating point, without any loss
+		 */
+		FLOAT64,
+		/**
+		 * 32-bit floating point
+		 */
+		FLOAT32,
+		/**
+		 * Integer multiples of a fixed resolution, stored as variable-length
+		 * integers
+		 */
+		SCALED,
+		/**
+		 * Integer multiples of a fixed resolution, coded together with the
+		 * lengths by an adaptive arithmetic coder
+		 * 
+		 * @see EntropyEncodingOutput
+		 */
+		ENTROPY_CODED
+	}
+
+	private static final int MAGIC = ('A' << 24) | ('Z' << 16) | ('T' << 8)
+			| 'B';
+	private static final int VERSION = 1;
+	private static final int INDEXED_VERSION = 2;
+
+	private final String algorithm;
+	private final Map<String, Double> parameters = new LinkedHashMap<String, Double>();
+	private AmplitudeFormat amplitudeFormat = AmplitudeFormat.FLOAT64;
+	private double resolution = 1.0;
+	private int indexInterval = 0;
+
+	/**
+	 * Creates a header whose amplitudes are stored without loss
+	 * 
+	 * @param algorithm
+	 *            Name of the algorithm that generated the encoding
+	 */
+	public EncodingHeader(String algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	/**
+	 * @param name
+	 *            Name of a parameter given to the algorithm
+	 * @param value
+	 *            Value of the parameter
+	 * @return This header
+	 */
+	public EncodingHeader withParameter(String name, double value) {
+		this.parameters.put(name, value);
+		return this;
+	}
+
+	/**
+	 * Stores the amplitudes as 32-bit floating point numbers
+	 * 
+	 * @return This header
+	 */
+	public EncodingHeader withFloatAmplitudes() {
+		this.amplitudeFormat = AmplitudeFormat.FLOAT32;
+		return this;
+	}
+
+	/**
+	 * Stores the amplitudes as integer multiples of the given resolution
+	 * 
+	 * @param resolution
+	 *            Smallest difference between two amplitudes that should be
+	 *            kept
+	 * @return This header
+	 * @throws IllegalArgumentException
+	 *             if the resolution isn't positive
+	 */
+	public EncodingHeader withScaledAmplitudes(double resolution) {
+		return this.withResolution(AmplitudeFormat.SCALED, resolution);
+	}
+
+	/**
+	 * Stores the amplitudes as integer multiples of the given resolution,
+	 * entropy coded together with the lengths
+	 * 
+	 * @param resolution
+	 *            Smallest difference between two amplitudes that should be
+	 *            kept
+	 * @return This header
+	 * @throws IllegalArgumentException
+	 *             if the resolution isn't positive
+	 * @see EntropyEncodingOutput
+	 */
+	public EncodingHeader withEntropyCodedAmplitudes(double resolution) {
+		return this.withResolution(AmplitudeFormat.ENTROPY_CODED, resolution);
+	}
+
+	private EncodingHeader withResolution(AmplitudeFormat format,
+			double resolution) {
+		if (!(resolution > 0)) {
+			throw new IllegalArgumentException("Resolution must be positive");
+		}
+		this.amplitudeFormat = format;
+		this.resolution = resolution;
+		return this;
+	}
+
+	/**
+	 * Marks the encoding as indexed, with an entry of its index every given
+	 * number of segments
+	 * 
+	 * @param segmentsPerEntry
+	 *            Number of segments between two entries of the index
+	 * @return This header
+	 * @throws IllegalArgumentException
+	 *             if the number of segments isn't positive
+	 * @see IndexedEncodingOutput
+	 */
+	public EncodingHeader withIndex(int segmentsPerEntry) {
+		if (segmentsPerEntry < 1) {
+			throw new IllegalArgumentException(
+					"Index must have an entry every 1 or more segments");
+		}
+		this.indexInterval = segmentsPerEntry;
+		return this;
+	}
+
+	/**
+	 * @return Name of the algorithm that generated the encoding
+	 */
+	public String getAlgorithm() {
+		return this.algorithm;
+	}
+
+	/**
+	 * @return Parameters given to the algorithm, in the order they were added
+	 */
+	public Map<String, Double> getParameters() {
+		return Collections.unmodifiableMap(this.parameters);
+	}
+
+	/**
+	 * @return How the amplitudes are stored
+	 */
+	public AmplitudeFormat getAmplitudeFormat() {
+		return this.amplitudeFormat;
+	}
+
+	/**
+	 * @return Resolution of the amplitudes, if they are
+	 *         {@link AmplitudeFormat#SCALED} or
+	 *         {@link AmplitudeFormat#ENTROPY_CODED}
+	 */
+	public double getResolution() {
+		return this.resolution;
+	}
+
+	/**
+	 * @return true, if the encoding has an index
+	 */
+	public boolean isIndexed() {
+		return this.indexInterval > 0;
+	}
+
+	/**
+	 * @return Number of segments between two entries of the index, or 0 if
+	 *         the encoding has no index
+	 */
+	public int getIndexInterval() {
+		return this.indexInterval;
+	}
+
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(this.isIndexed() ? INDEXED_VERSION : VERSION);
+		out.writeUTF(this.algorithm);
+		out.writeByte(this.amplitudeFormat.ordinal());
+		if (this.hasResolution()) {
+			out.writeDouble(this.resolution);
+		}
+		out.writeShort(this.parameters.size());
+		for (Map.Entry<String, Double> parameter : this.parameters.entrySet()) {
+			out.writeUTF(parameter.getKey());
+			out.writeDouble(parameter.getValue());
+		}
+		if (this.isIndexed()) {
+			out.writeInt(this.indexInterval);
+		}
+	}
+
+	void writeAmplitude(DataOutput out, double amplitude) throws IOException {
+		switch (this.amplitudeFormat) {
+		case FLOAT64:
+			out.writeDouble(amplitude);
+			break;
+		case FLOAT32:
+			out.writeFloat((float) amplitude);
+			break;
+		case SCALED:
+			VarInt.write(out, Math.round(amplitude / this.resolution));
+			break;
+		}
+	}
+
+	/**
+	 * @return The given amplitude as it will be read back, after the loss
+	 *         caused by its format
+	 */
+	double storedAmplitude(double amplitude) {
+		switch (this.amplitudeFormat) {
+		case FLOAT32:
+			return (float) amplitude;
+		case SCALED:
+		case ENTROPY_CODED:
+			return Math.round(amplitude / this.resolution) * this.resolution;
+		default:
+			return amplitude;
+		}
+	}
+
+	double readAmplitude(DataInput in) throws IOException {
+		switch (this.amplitudeFormat) {
+		case FLOAT32:
+			return in.readFloat();
+		case SCALED:
+			return VarInt.read(in) * this.resolution;
+		default:
+			return in.readDouble();
+		}
+	}
+
+	static EncodingHeader readFrom(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new MalformedInputException();
+		}
+		int version = in.readByte();
+		if (version != VERSION && version != INDEXED_VERSION) {
+			throw new MalformedInputException();
+		}
+		EncodingHeader header = new EncodingHeader(in.readUTF());
+		int format = in.readByte();
+		if (format < 0 || format >= AmplitudeFormat.values().length) {
+			throw new MalformedInputException();
+		}
+		header.amplitudeFormat = AmplitudeFormat.values()[format];
+		if (header.hasResolution()) {
+			header.resolution = in.readDouble();
+		}
+		int numParameters = in.readUnsignedShort();
+		for (int i = 0; i < numParameters; i++) {
+			header.withParameter(in.readUTF(), in.readDouble());
+		}
+		if (version == INDEXED_VERSION) {
+			header.withIndex(in.readInt());
+		}
+		return header;
+	}
+
+	private boolean hasResolution() {
+		return this.amplitudeFormat == AmplitudeFormat.SCALED
+				|| this.amplitudeFormat == AmplitudeFormat.ENTROPY_CODED;
+	}
+
+	@Override
+	public String toString() {
+		return "EncodingHeader [algorithm=" + this.algorithm + ", parameters="
+				+ this.parameters + ", amplitudeFormat="
+				+ this.amplitudeFormat + ", resolution=" + this.resolution
+				+ ", indexInterval=" + this.indexInterval + "]";
+	}
+}
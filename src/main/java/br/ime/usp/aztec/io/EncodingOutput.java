@@ -19,7 +19,8 @@ import java.io.IOException;
 
 /**
  * An object to transform the algorithm output, composed of real values, to any
- * desired format
+ * desired format. Implementations should extend
+ * {@link AbstractEncodingOutput}, which lets them add many values at once.
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
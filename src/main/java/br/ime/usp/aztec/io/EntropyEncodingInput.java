@@ -0,0 +1,169 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static br.ime.usp.aztec.io.EntropyEncodingOutput.LINE;
+import static br.ime.usp.aztec.io.EntropyEncodingOutput.SLOPE;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+
+import br.ime.usp.aztec.io.EncodingHeader.AmplitudeFormat;
+
+/**
+ * Reads an encoding written by an {@link EntropyEncodingOutput}, giving back
+ * its lengths and amplitudes, rounded to the resolution of the encoding, so
+ * that it can be given to the {@link br.ime.usp.aztec.Decoder}. The encoding
+ * is read directly from the stream, so it can be iterated only once.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class EntropyEncodingInput extends AbstractSignalSource
+		implements Closeable {
+
+	private final DataInputStream in;
+	private final EncodingHeader header;
+	private final RangeDecoder decoder;
+	private boolean iterated = false;
+
+	/**
+	 * Reads the header of the encoding
+	 * 
+	 * @param in
+	 *            Stream with the entropy-coded encoding
+	 * @throws IOException
+	 *             if the stream cannot be read
+	 * @throws MalformedInputException
+	 *             if the stream does not start with a valid header of an
+	 *             entropy-coded encoding
+	 */
+	public EntropyEncodingInput(InputStream in) throws IOException,
+			MalformedInputException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		this.header = EncodingHeader.readFrom(this.in);
+		if (this.header.getAmplitudeFormat() != AmplitudeFormat.ENTROPY_CODED) {
+			throw new MalformedInputException("Encoding is not entropy coded");
+		}
+		this.decoder = new RangeDecoder(this.in);
+	}
+
+	/**
+	 * @return The header of the encoding, telling which algorithm generated it
+	 */
+	public EncodingHeader getHeader() {
+		return this.header;
+	}
+
+	/**
+	 * @return An iterator over the lengths and amplitudes of the encoding
+	 * @throws IllegalStateException
+	 *             if the encoding was already iterated
+	 */
+	@Override
+	public DoubleIterator doubleIterator() {
+		if (this.iterated) {
+			throw new IllegalStateException(
+					"An entropy-coded encoding can be iterated only once");
+		}
+		this.iterated = true;
+		return new PairIterator();
+	}
+
+	/**
+	 * Closes the underlying stream
+	 * 
+	 * @throws IOException
+	 *             If the underlying stream throws this exception
+	 */
+	@Override
+	public void close() throws IOException {
+		this.in.close();
+	}
+
+	@Override
+	public String toString() {
+		return this.header.toString();
+	}
+
+	private final class PairIterator implements DoubleIterator {
+		private final short[] moreMarks = RangeEncoder.newProbabilities(2);
+		private final AdaptiveIntegerModel[] lengths = {
+				new AdaptiveIntegerModel(), new AdaptiveIntegerModel() };
+		private final AdaptiveIntegerModel levels = new AdaptiveIntegerModel();
+		private final AdaptiveIntegerModel heights = new AdaptiveIntegerModel();
+		private final double resolution = header.getResolution();
+		private int previousKind = LINE;
+		private long level = 0;
+		private long length;
+		private long amplitude;
+		private boolean hasPair = false;
+		private boolean amplitudeNext = false;
+		private boolean ended = false;
+		private boolean failed = false;
+
+		@Override
+		public boolean hasNext() {
+			if (this.amplitudeNext || this.hasPair || this.failed) {
+				return true;
+			}
+			if (this.ended) {
+				return false;
+			}
+			try {
+				this.readPair();
+			} catch (IOException e) {
+				this.failed = true;
+			}
+			return this.hasPair || this.failed;
+		}
+
+		@Override
+		public double nextDouble() {
+			if (!this.hasNext() || this.failed) {
+				throw new NoSuchElementException("Failed to read more items");
+			}
+			if (this.amplitudeNext) {
+				this.amplitudeNext = false;
+				return this.amplitude * this.resolution;
+			}
+			this.hasPair = false;
+			this.amplitudeNext = true;
+			return this.length;
+		}
+
+		private void readPair() throws IOException {
+			if (decoder.decodeBit(this.moreMarks, this.previousKind) == 0) {
+				this.ended = true;
+				return;
+			}
+			this.length = this.lengths[this.previousKind].decode(decoder);
+			if (this.length > 0) {
+				this.level += this.levels.decode(decoder);
+				this.amplitude = this.level;
+				this.previousKind = LINE;
+			} else {
+				this.amplitude = this.heights.decode(decoder);
+				this.level += this.amplitude;
+				this.previousKind = SLOPE;
+			}
+			this.hasPair = true;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import br.ime.usp.aztec.io.EncodingHeader.AmplitudeFormat;
+
+/**
+ * Writes an encoding compressed by an adaptive arithmetic coder. As in a
+ * {@link BinaryEncodingOutput}, the values put are taken as pairs of a length
+ * and an amplitude, and the {@link EncodingHeader} is written before the
+ * first pair. Amplitudes are rounded to the resolution given in the header.
+ * 
+ * Lengths, the levels of lines and the heights of slopes are coded as three
+ * separate streams of integers, each with its own adaptive model. The level
+ * of a line is coded as its difference from the value where the previous
+ * line or slope ended, so a signal that goes back to its baseline costs only
+ * a few bits per pair. A length without its amplitude is not written.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see EntropyEncodingInput
+ */
+public final class EntropyEncodingOutput extends AbstractEncodingOutput {
+
+	static final int LINE = 0;
+	static final int SLOPE = 1;
+
+	private final DataOutputStream out;
+	private final EncodingHeader header;
+	private final RangeEncoder encoder;
+	private final short[] moreMarks = RangeEncoder.newProbabilities(2);
+	private final AdaptiveIntegerModel[] lengths = {
+			new AdaptiveIntegerModel(), new AdaptiveIntegerModel() };
+	private final AdaptiveIntegerModel levels = new AdaptiveIntegerModel();
+	private final AdaptiveIntegerModel heights = new AdaptiveIntegerModel();
+	private int previousKind = LINE;
+	private long level = 0;
+	private long length;
+	private boolean wroteHeader = false;
+	private boolean amplitudeNext = false;
+
+	/**
+	 * @param out
+	 *            Stream where the encoding will be written
+	 * @param header
+	 *            Description of the encoding, with
+	 *            {@link AmplitudeFormat#ENTROPY_CODED} amplitudes
+	 * @throws IllegalArgumentException
+	 *             if the header has another amplitude format, or asks for an
+	 *             index
+	 * @see EncodingHeader#withEntropyCodedAmplitudes(double)
+	 */
+	public EntropyEncodingOutput(OutputStream out, EncodingHeader header) {
+		if (header.getAmplitudeFormat() != AmplitudeFormat.ENTROPY_CODED) {
+			throw new IllegalArgumentException(
+					"Header must ask for entropy-coded amplitudes");
+		}
+		if (header.isIndexed()) {
+			throw new IllegalArgumentException(
+					"Entropy-coded encodings cannot be indexed");
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.header = header;
+		this.encoder = new RangeEncoder(this.out);
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if a length is expected and the value isn't an integer
+	 */
+	@Override
+	public void put(double value) throws IOException {
+		if (this.amplitudeNext) {
+			this.putPair(this.length, value);
+		} else {
+			this.length = (long) value;
+			if (this.length != value) {
+				throw new IllegalArgumentException("Length " + value
+						+ " is not an integer");
+			}
+		}
+		this.amplitudeNext = !this.amplitudeNext;
+	}
+
+	/**
+	 * Writes the end of the encoding, and the header if nothing was put, and
+	 * closes the underlying stream
+	 * 
+	 * @throws IOException
+	 *             If the underlying stream throws this exception
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!this.wroteHeader) {
+			this.writeHeader();
+		}
+		this.encoder.encodeBit(this.moreMarks, this.previousKind, 0);
+		this.encoder.finish();
+		this.out.close();
+	}
+
+	private void putPair(long length, double amplitude) throws IOException {
+		if (!this.wroteHeader) {
+			this.writeHeader();
+		}
+		long quantized = Math.round(amplitude / this.header.getResolution());
+		this.encoder.encodeBit(this.moreMarks, this.previousKind, 1);
+		this.lengths[this.previousKind].encode(this.encoder, length);
+		if (length > 0) {
+			this.levels.encode(this.encoder, quantized - this.level);
+			this.level = quantized;
+			this.previousKind = LINE;
+		} else {
+			this.heights.encode(this.encoder, quantized);
+			this.level += quantized;
+			this.previousKind = SLOPE;
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		this.header.writeTo(this.out);
+		this.wroteHeader = true;
+	}
+}
@@ -0,0 +1,279 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static br.ime.usp.aztec.io.IndexedEncodingOutput.ENTRY_SIZE;
+import static br.ime.usp.aztec.io.IndexedEncodingOutput.TRAILER_MAGIC;
+import static br.ime.usp.aztec.io.IndexedEncodingOutput.TRAILER_SIZE;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Gives random access to an encoding written by an
+ * {@link IndexedEncodingOutput}. Only the header, the trailer and the index
+ * are read when the encoding is opened. Each {@link Window} then reads only
+ * the segments from the index entry before its first sample up to its last
+ * sample, so any part of a long recording is found in the time it takes to
+ * read a few segments.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see br.ime.usp.aztec.Decoder#decode(IndexedEncoding.Window, EncodingOutput)
+ */
+public final class IndexedEncoding {
+
+	private final File file;
+	private final EncodingHeader header;
+	private final long samples;
+	private final long segments;
+	private final long[] entrySamples;
+	private final long[] entryOffsets;
+	private final double[] entryValues;
+
+	/**
+	 * Reads the header and the index of the encoding
+	 * 
+	 * @param file
+	 *            File with the indexed encoding
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws MalformedInputException
+	 *             if the file is not an indexed encoding
+	 */
+	public IndexedEncoding(File file) throws IOException,
+			MalformedInputException {
+		this.file = file;
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			this.header = EncodingHeader.readFrom(input);
+			if (!this.header.isIndexed()) {
+				throw new MalformedInputException("Encoding has no index");
+			}
+			long length = input.length();
+			if (length < TRAILER_SIZE) {
+				throw new MalformedInputException("Encoding has no trailer");
+			}
+			input.seek(length - TRAILER_SIZE);
+			this.samples = input.readLong();
+			this.segments = input.readLong();
+			long indexOffset = input.readLong();
+			if (input.readInt() != TRAILER_MAGIC) {
+				throw new MalformedInputException("Encoding has no trailer");
+			}
+			long entries = (this.segments + this.header.getIndexInterval() - 1)
+					/ this.header.getIndexInterval();
+			if (this.samples < 0 || this.segments < 0 || indexOffset < 0
+					|| indexOffset + entries * ENTRY_SIZE + TRAILER_SIZE != length) {
+				throw new MalformedInputException("Index does not match "
+						+ "the size of the encoding");
+			}
+			this.entrySamples = new long[(int) entries];
+			this.entryOffsets = new long[(int) entries];
+			this.entryValues = new double[(int) entries];
+			input.seek(indexOffset);
+			DataInputStream index = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(input.getFD())));
+			for (int i = 0; i < entries; i++) {
+				this.entrySamples[i] = index.readLong();
+				this.entryOffsets[i] = index.readLong();
+				this.entryValues[i] = index.readDouble();
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * @return The header of the encoding, telling which algorithm generated it
+	 */
+	public EncodingHeader getHeader() {
+		return this.header;
+	}
+
+	/**
+	 * @return Number of samples of the decoded signal
+	 */
+	public long getNumberOfSamples() {
+		return this.samples;
+	}
+
+	/**
+	 * @return Number of segments (lines and slopes) of the encoding
+	 */
+	public long getNumberOfSegments() {
+		return this.segments;
+	}
+
+	/**
+	 * @param fromSample
+	 *            Index of the first sample of the window, starting at 0
+	 * @param toSample
+	 *            Index after the last sample of the window. Samples after the
+	 *            end of the signal are ignored.
+	 * @return The segments needed to decode the given samples
+	 * @throws IllegalArgumentException
+	 *             if the window starts before the signal or ends before
+	 *             starting
+	 */
+	public Window window(long fromSample, long toSample) {
+		if (fromSample < 0 || toSample < fromSample) {
+			throw new IllegalArgumentException("Invalid window ["
+					+ fromSample + ", " + toSample + ")");
+		}
+		int entry = Arrays.binarySearch(this.entrySamples, fromSample);
+		if (entry < 0) {
+			entry = -entry - 2;
+		}
+		while (entry > 0 && this.entrySamples[entry - 1] == fromSample) {
+			entry--;
+		}
+		return new Window(entry, fromSample, Math.min(toSample, this.samples));
+	}
+
+	@Override
+	public String toString() {
+		return this.header.toString();
+	}
+
+	/**
+	 * Part of an indexed encoding, starting at an entry of its index. Its
+	 * values are the lengths and amplitudes of the segments from the entry
+	 * up to the one with the last sample of the window.
+	 */
+	public final class Window extends AbstractSignalSource {
+		private final int entry;
+		private final long fromSample;
+		private final long toSample;
+
+		Window(int entry, long fromSample, long toSample) {
+			this.entry = entry;
+			this.fromSample = fromSample;
+			this.toSample = toSample;
+		}
+
+		/**
+		 * @return Index of the first sample decoded from the first segment
+		 *         of the window, at or before {@link #getFromSample()}
+		 */
+		public long getFirstSegmentSample() {
+			return this.entry < 0 ? 0 : entrySamples[this.entry];
+		}
+
+		/**
+		 * @return Value of the signal right before the first segment, from
+		 *         where a slope starts
+		 */
+		public double getInitialValue() {
+			return this.entry < 0 ? 0.0 : entryValues[this.entry];
+		}
+
+		/**
+		 * @return Index of the first sample of the window
+		 */
+		public long getFromSample() {
+			return this.fromSample;
+		}
+
+		/**
+		 * @return Index after the last sample of the window
+		 */
+		public long getToSample() {
+			return this.toSample;
+		}
+
+		/**
+		 * @return An iterator that reads the segments of the window from the
+		 *         file, closing it after the last one
+		 * @throws IllegalStateException
+		 *             if the file cannot be opened
+		 */
+		@Override
+		public DoubleIterator doubleIterator() {
+			if (this.entry < 0 || this.fromSample >= this.toSample) {
+				return new DoubleList().doubleIterator();
+			}
+			try {
+				return new SegmentIterator(this.entry, this.toSample);
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot read " + file, e);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return header.getAlgorithm() + " [" + this.fromSample + ", "
+					+ this.toSample + ")";
+		}
+	}
+
+	private final class SegmentIterator implements DoubleIterator {
+		private final DataInputStream in;
+		private final long toSample;
+		private long sample;
+		private long remainingSegments;
+		private boolean amplitudeNext = false;
+
+		SegmentIterator(int entry, long toSample) throws IOException {
+			FileInputStream input = new FileInputStream(file);
+			input.getChannel().position(entryOffsets[entry]);
+			this.in = new DataInputStream(new BufferedInputStream(input));
+			this.toSample = toSample;
+			this.sample = entrySamples[entry];
+			this.remainingSegments = segments - (long) entry
+					* header.getIndexInterval();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.amplitudeNext || this.remainingSegments > 0;
+		}
+
+		@Override
+		public double nextDouble() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException("No more values");
+			}
+			try {
+				if (this.amplitudeNext) {
+					this.amplitudeNext = false;
+					double amplitude = header.readAmplitude(this.in);
+					if (this.remainingSegments == 0) {
+						this.in.close();
+					}
+					return amplitude;
+				}
+				long length = VarInt.read(this.in);
+				this.sample += Math.abs(length);
+				this.remainingSegments--;
+				if (this.sample >= this.toSample) {
+					this.remainingSegments = 0;
+				}
+				this.amplitudeNext = true;
+				return length;
+			} catch (IOException e) {
+				this.remainingSegments = 0;
+				this.amplitudeNext = false;
+				throw new NoSuchElementException("Failed to read more items");
+			}
+		}
+	}
+}
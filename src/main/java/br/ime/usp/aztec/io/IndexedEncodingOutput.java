@@ -0,0 +1,198 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import br.ime.usp.aztec.io.EncodingHeader.AmplitudeFormat;
+
+/**
+ * Writes a binary encoding followed by a sparse index of its segments, so
+ * that any range of the signal can be decoded without decoding everything
+ * before it. The header and the pairs of lengths and amplitudes are written
+ * as by a {@link BinaryEncodingOutput}. Every few segments, as given in the
+ * header, the index records where the segment starts in the signal, where it
+ * starts in the file and the value of the signal right before it, needed by
+ * a slope.
+ * 
+ * The index is written after the last segment, followed by a trailer of
+ * fixed size pointing to it, so the whole encoding is still written in a
+ * single pass. A length without its amplitude is not written.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see IndexedEncoding
+ */
+public final class IndexedEncodingOutput extends AbstractEncodingOutput
+		implements Flushable {
+
+	/**
+	 * Number of segments between two entries of the index, if none is given
+	 */
+	public static final int DEFAULT_INDEX_INTERVAL = 1024;
+
+	static final int TRAILER_MAGIC = ('A' << 24) | ('Z' << 16) | ('T' << 8)
+			| 'I';
+	static final int ENTRY_SIZE = 24;
+	static final int TRAILER_SIZE = 28;
+
+	private final CountingOutputStream counter;
+	private final DataOutputStream out;
+	private final EncodingHeader header;
+	private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+	private final DataOutputStream index = new DataOutputStream(
+			this.indexBytes);
+	private long samples = 0;
+	private long segments = 0;
+	private double lastValue = 0.0;
+	private long length;
+	private boolean wroteHeader = false;
+	private boolean amplitudeNext = false;
+
+	/**
+	 * @param out
+	 *            Stream where the encoding will be written
+	 * @param header
+	 *            Description of the encoding, which must have an index
+	 * @throws IllegalArgumentException
+	 *             if the header has no index, or asks for entropy-coded
+	 *             amplitudes
+	 * @see EncodingHeader#withIndex(int)
+	 */
+	public IndexedEncodingOutput(OutputStream out, EncodingHeader header) {
+		if (!header.isIndexed()) {
+			throw new IllegalArgumentException("Header must ask for an index");
+		}
+		if (header.getAmplitudeFormat() == AmplitudeFormat.ENTROPY_CODED) {
+			throw new IllegalArgumentException(
+					"Entropy-coded encodings cannot be indexed");
+		}
+		this.counter = new CountingOutputStream(new BufferedOutputStream(out));
+		this.out = new DataOutputStream(this.counter);
+		this.header = header;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if a length is expected and the value isn't an integer
+	 */
+	@Override
+	public void put(double value) throws IOException {
+		if (this.amplitudeNext) {
+			this.putSegment(this.length, value);
+		} else {
+			this.length = (long) value;
+			if (this.length != value) {
+				throw new IllegalArgumentException("Length " + value
+						+ " is not an integer");
+			}
+		}
+		this.amplitudeNext = !this.amplitudeNext;
+	}
+
+	/**
+	 * Writes the pairs put so far to the underlying stream and flushes it
+	 * 
+	 * @throws IOException
+	 *             If the underlying stream throws this exception
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.out.flush();
+	}
+
+	/**
+	 * Writes the index and the trailer, and the header if nothing was put,
+	 * and closes the underlying stream
+	 * 
+	 * @throws IOException
+	 *             If the underlying stream throws this exception
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!this.wroteHeader) {
+			this.writeHeader();
+		}
+		long indexOffset = this.counter.count;
+		this.indexBytes.writeTo(this.out);
+		this.out.writeLong(this.samples);
+		this.out.writeLong(this.segments);
+		this.out.writeLong(indexOffset);
+		this.out.writeInt(TRAILER_MAGIC);
+		this.out.close();
+	}
+
+	private void putSegment(long length, double amplitude) throws IOException {
+		if (!this.wroteHeader) {
+			this.writeHeader();
+		}
+		if (this.segments % this.header.getIndexInterval() == 0) {
+			this.index.writeLong(this.samples);
+			this.index.writeLong(this.counter.count);
+			this.index.writeDouble(this.lastValue);
+		}
+		VarInt.write(this.out, length);
+		this.header.writeAmplitude(this.out, amplitude);
+		this.segments++;
+		double stored = this.header.storedAmplitude(amplitude);
+		if (length > 0) {
+			this.samples += length;
+			this.lastValue = stored;
+		} else {
+			int slopeLength = (int) -length;
+			double step = stored / slopeLength;
+			for (int i = 0; i < slopeLength; i++) {
+				this.lastValue += step;
+			}
+			this.samples += slopeLength;
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		this.header.writeTo(this.out);
+		this.wroteHeader = true;
+	}
+
+	/**
+	 * Counts the bytes written, to know the position of each segment in the
+	 * file
+	 */
+	private static final class CountingOutputStream extends
+			FilterOutputStream {
+		long count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+	}
+}
@@ -17,33 +17,54 @@ package br.ime.usp.aztec.io;
 
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 
 import br.ime.usp.aztec.io.EncodingOutput;
 
 /**
  * An implementation of {@link EncodingOutput} that is also iterable, so that
  * one can inspect what values were put and use them as input for another
- * method.
+ * method. Values are kept unboxed in a {@link DoubleList}.
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
-public final class IterableEncodingOutput implements Iterable<Double>,
-		EncodingOutput {
+public final class IterableEncodingOutput extends AbstractEncodingOutput
+		implements SignalSource {
 
-	private final List<Double> values = new LinkedList<Double>();
+	private final DoubleList values = new DoubleList();
 
 	@Override
 	public void put(double value) throws IOException {
 		this.values.add(value);
 	}
 
+	@Override
+	public void putRun(double value, int count) throws IOException {
+		this.values.addRun(value, count);
+	}
+
+	@Override
+	public void put(double[] values, int offset, int length)
+			throws IOException {
+		this.values.add(values, offset, length);
+	}
+
 	@Override
 	public Iterator<Double> iterator() {
 		return this.values.iterator();
 	}
 
+	@Override
+	public DoubleIterator doubleIterator() {
+		return this.values.doubleIterator();
+	}
+
+	/**
+	 * @return The values put so far
+	 */
+	public DoubleList getValues() {
+		return this.values;
+	}
+
 	@Override
 	public String toString() {
 		return this.values.toString();
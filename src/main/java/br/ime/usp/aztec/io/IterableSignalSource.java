@@ -0,0 +1,63 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.util.Iterator;
+
+/**
+ * Adapts any {@link Iterable} of {@link Double} to a {@link SignalSource}. The
+ * values are unboxed as they are read.
+ *
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class IterableSignalSource implements SignalSource {
+
+	private final Iterable<Double> values;
+
+	/**
+	 * @param values
+	 *            The signal values to be adapted
+	 */
+	public IterableSignalSource(Iterable<Double> values) {
+		this.values = values;
+	}
+
+	@Override
+	public Iterator<Double> iterator() {
+		return this.values.iterator();
+	}
+
+	@Override
+	public DoubleIterator doubleIterator() {
+		final Iterator<Double> iterator = this.values.iterator();
+		return new DoubleIterator() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public double nextDouble() {
+				return iterator.next();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return this.values.toString();
+	}
+}
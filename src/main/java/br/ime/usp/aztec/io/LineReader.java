@@ -0,0 +1,153 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits the bytes given by a {@link ByteSource} into lines, ended by "\n",
+ * "\r" or "\r\n". Lines are not copied: each one is given as a range of the
+ * current buffer, which is valid until the next line is read.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class LineReader implements Closeable {
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final ByteSource source;
+	private ByteBuffer buffer = EMPTY;
+	private boolean endOfInput = false;
+	private boolean skipLineFeed = false;
+	private int lineStart;
+	private int lineEnd;
+
+	/**
+	 * @param source
+	 *            Source of the bytes to be split
+	 */
+	LineReader(ByteSource source) {
+		this.source = source;
+	}
+
+	/**
+	 * @return true, if there is at least one more line to be read
+	 * @throws IOException
+	 *             if the source cannot be read
+	 */
+	boolean hasMoreLines() throws IOException {
+		if (this.skipLineFeed) {
+			this.skipLineFeed = false;
+			if ((this.buffer.hasRemaining() || this.fill())
+					&& this.buffer.get(this.buffer.position()) == '\n') {
+				this.buffer.get();
+			}
+		}
+		return this.buffer.hasRemaining() || this.fill();
+	}
+
+	/**
+	 * Reads the next line, whose bytes are then found in {@link #buffer()}
+	 * from {@link #lineStart()} to {@link #lineEnd()}
+	 * 
+	 * @return false, if there are no more lines
+	 * @throws IOException
+	 *             if the source cannot be read
+	 */
+	boolean readLine() throws IOException {
+		if (!this.hasMoreLines()) {
+			return false;
+		}
+		int end = this.findLineEnd();
+		while (end < 0 && this.fill()) {
+			end = this.findLineEnd();
+		}
+		this.lineStart = this.buffer.position();
+		if (end < 0) {
+			this.lineEnd = this.buffer.limit();
+			this.buffer.position(this.lineEnd);
+		} else {
+			this.lineEnd = end;
+			this.skipLineFeed = this.buffer.get(end) == '\r';
+			this.buffer.position(end + 1);
+		}
+		return true;
+	}
+
+	/**
+	 * @return The buffer with the bytes of the last line read
+	 */
+	ByteBuffer buffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * @return Index of the first byte of the last line read
+	 */
+	int lineStart() {
+		return this.lineStart;
+	}
+
+	/**
+	 * @return Index after the last byte of the last line read, excluding the
+	 *         line terminator
+	 */
+	int lineEnd() {
+		return this.lineEnd;
+	}
+
+	/**
+	 * Closes the source
+	 * 
+	 * @throws IOException
+	 *             if the source cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		this.source.close();
+	}
+
+	private int findLineEnd() {
+		int limit = this.buffer.limit();
+		for (int i = this.buffer.position(); i < limit; i++) {
+			byte c = this.buffer.get(i);
+			if (c == '\n' || c == '\r') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Asks the source for more bytes, keeping the ones not consumed yet
+	 * 
+	 * @return true, if any byte was read
+	 */
+	private boolean fill() throws IOException {
+		if (this.endOfInput) {
+			return false;
+		}
+		ByteBuffer next = this.source.refill(this.buffer);
+		if (next == null) {
+			this.endOfInput = true;
+			return false;
+		}
+		this.buffer = next;
+		return true;
+	}
+}
@@ -26,4 +26,16 @@ public final class MalformedInputException extends IOException {
 
 	private static final long serialVersionUID = 3805176973749706223L;
 
+	public MalformedInputException() {
+		super();
+	}
+
+	/**
+	 * @param message
+	 *            Description of what was unexpected in the input
+	 */
+	public MalformedInputException(String message) {
+		super(message);
+	}
+
 }
@@ -0,0 +1,74 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Maps a file into memory one window at a time. Each window starts at the
+ * first byte not consumed from the previous one, so lines are never split.
+ * Only the current window is referenced, so the memory used does not depend
+ * on the size of the file.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class MappedFileByteSource implements ByteSource {
+
+	private final FileChannel file;
+	private final long size;
+	private int windowSize;
+	private long windowStart;
+
+	MappedFileByteSource(FileChannel file, int windowSize) throws IOException {
+		this.file = file;
+		this.size = file.size();
+		this.windowSize = windowSize;
+		this.windowStart = file.position();
+	}
+
+	@Override
+	public ByteBuffer refill(ByteBuffer current) throws IOException {
+		if (this.windowStart + current.limit() >= this.size) {
+			return null;
+		}
+		long start = this.windowStart + current.position();
+		if (current.remaining() >= this.windowSize) {
+			this.windowSize *= 2;
+		}
+		long length = Math.min(this.windowSize, this.size - start);
+		MappedByteBuffer window = this.file.map(MapMode.READ_ONLY, start,
+				length);
+		this.windowStart = start;
+		if (start + length == this.size) {
+			// the mapping stays valid after the channel is closed
+			this.file.close();
+		}
+		return window;
+	}
+
+	/**
+	 * Closes the file, if its last window was not mapped yet. Windows already
+	 * mapped stay valid.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.file.close();
+	}
+}
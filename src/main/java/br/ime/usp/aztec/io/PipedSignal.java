@@ -0,0 +1,186 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A signal whose values are put by one thread while another thread iterates
+ * over them, as done by {@link java.io.PipedInputStream} with bytes. Values
+ * are handed over in chunks through a bounded queue, so a writer faster than
+ * its reader waits instead of filling the memory. Chunks are given back to
+ * the writer after read, so no object is created per value.
+ * 
+ * The signal can be iterated only once.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class PipedSignal extends AbstractSignalSource {
+
+	private static final int CHUNK_SIZE = 4096;
+	private static final int MAX_PENDING_CHUNKS = 16;
+	private static final double[] END = new double[0];
+
+	private final BlockingQueue<double[]> pending = new ArrayBlockingQueue<double[]>(
+			MAX_PENDING_CHUNKS);
+	private final BlockingQueue<double[]> free = new ArrayBlockingQueue<double[]>(
+			MAX_PENDING_CHUNKS + 1);
+	private double[] chunk = new double[CHUNK_SIZE];
+	private int chunkSize = 0;
+	private boolean iterated = false;
+	private volatile boolean abandoned = false;
+	private volatile RuntimeException failure;
+
+	/**
+	 * Adds a value to the end of the signal, waiting if the reader is too far
+	 * behind. Values put after the reader abandoned the signal are ignored.
+	 * 
+	 * @throws InterruptedIOException
+	 *             if the writer is interrupted while waiting
+	 */
+	public void put(double value) throws IOException {
+		this.chunk[this.chunkSize++] = value;
+		if (this.chunkSize == CHUNK_SIZE) {
+			this.send(this.chunk);
+			double[] reused = this.free.poll();
+			this.chunk = reused != null ? reused : new double[CHUNK_SIZE];
+			this.chunkSize = 0;
+		}
+	}
+
+	/**
+	 * Ends the signal, so that the reader finishes after the values already
+	 * put
+	 * 
+	 * @throws InterruptedIOException
+	 *             if the writer is interrupted while waiting
+	 */
+	public void close() throws IOException {
+		if (this.chunkSize > 0) {
+			this.send(Arrays.copyOf(this.chunk, this.chunkSize));
+			this.chunkSize = 0;
+		}
+		this.send(END);
+	}
+
+	/**
+	 * Ends the signal with a failure, so that the reader gets the given
+	 * exception when asking for the value after the ones already put
+	 * 
+	 * @param failure
+	 *            Exception thrown by the source of the values
+	 * @throws InterruptedIOException
+	 *             if the writer is interrupted while waiting
+	 */
+	public void fail(RuntimeException failure) throws IOException {
+		this.failure = failure;
+		this.close();
+	}
+
+	/**
+	 * Tells the writer that no more values will be read, so it does not wait
+	 * for the reader anymore. Called by the reader.
+	 */
+	public void abandon() {
+		this.abandoned = true;
+		this.pending.clear();
+	}
+
+	/**
+	 * @return true, if the reader told it will not read more values
+	 */
+	boolean isAbandoned() {
+		return this.abandoned;
+	}
+
+	/**
+	 * @return An iterator over the values put, waiting for them if needed.
+	 *         If the reading thread is interrupted while waiting, the iterator
+	 *         throws an {@link IllegalStateException} caused by an
+	 *         {@link InterruptedIOException}, so that an interrupted read is
+	 *         never taken as the end of the signal.
+	 * @throws IllegalStateException
+	 *             if the signal was already iterated
+	 */
+	@Override
+	public DoubleIterator doubleIterator() {
+		if (this.iterated) {
+			throw new IllegalStateException("Signal was already iterated");
+		}
+		this.iterated = true;
+		return new DoubleIterator() {
+			private double[] current = new double[0];
+			private int next = 0;
+			private boolean ended = false;
+
+			@Override
+			public boolean hasNext() {
+				while (this.next == this.current.length && !this.ended) {
+					if (this.current.length == CHUNK_SIZE) {
+						free.offer(this.current);
+					}
+					try {
+						this.current = pending.take();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IllegalStateException(
+								new InterruptedIOException(
+										"Interrupted while waiting for "
+												+ "the writer"));
+					}
+					this.next = 0;
+					this.ended = this.current == END;
+				}
+				return this.next < this.current.length || failure != null;
+			}
+
+			@Override
+			public double nextDouble() {
+				if (!this.hasNext()) {
+					throw new NoSuchElementException(
+							"Failed to read more items");
+				}
+				if (this.next == this.current.length) {
+					throw failure;
+				}
+				return this.current[this.next++];
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "PipedSignal";
+	}
+
+	private void send(double[] values) throws InterruptedIOException {
+		if (this.abandoned) {
+			return;
+		}
+		try {
+			this.pending.put(values);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while waiting for the reader");
+		}
+	}
+}
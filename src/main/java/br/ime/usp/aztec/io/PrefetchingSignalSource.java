@@ -0,0 +1,107 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads a signal ahead of its consumer, in a background thread, so that
+ * reading and parsing the input overlap with the algorithm. The values are
+ * handed over through a {@link PipedSignal}, in chunks, so at most a few
+ * chunks are read ahead and the memory used stays the same for any signal.
+ * 
+ * The values are given in the same order as the decorated source would give
+ * them, and a failure to read it is thrown when asking for the value that
+ * could not be read. Each iteration starts its own background thread, so the
+ * decorated source must not be iterated by many of them at once.
+ * 
+ * Closing this source makes the background thread stop reading, even if the
+ * consumer did not read every value, and closes the decorated source if it is
+ * {@link Closeable}.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class PrefetchingSignalSource extends AbstractSignalSource
+		implements Closeable {
+
+	private final SignalSource source;
+	private volatile PipedSignal current;
+
+	/**
+	 * @param source
+	 *            Signal to be read in a background thread
+	 */
+	public PrefetchingSignalSource(SignalSource source) {
+		this.source = source;
+	}
+
+	@Override
+	public DoubleIterator doubleIterator() {
+		final PipedSignal values = new PipedSignal();
+		this.current = values;
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				PrefetchingSignalSource.this.readInto(values);
+			}
+		}, "Signal reader");
+		reader.setDaemon(true);
+		reader.start();
+		return values.doubleIterator();
+	}
+
+	/**
+	 * Stops reading the decorated source in the background and closes it, if
+	 * it is {@link Closeable}
+	 * 
+	 * @throws IOException
+	 *             if the decorated source cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		PipedSignal values = this.current;
+		if (values != null) {
+			values.abandon();
+		}
+		if (this.source instanceof Closeable) {
+			((Closeable) this.source).close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.source.toString();
+	}
+
+	private void readInto(PipedSignal values) {
+		try {
+			try {
+				DoubleIterator iterator = this.source.doubleIterator();
+				while (!values.isAbandoned() && iterator.hasNext()) {
+					values.put(iterator.nextDouble());
+				}
+			} catch (RuntimeException e) {
+				// also thrown if the source is closed while being read
+				values.fail(e);
+				return;
+			}
+			values.close();
+		} catch (IOException e) {
+			// interrupted while the consumer is gone, nothing else to do
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static br.ime.usp.aztec.io.RangeEncoder.MOVE_BITS;
+import static br.ime.usp.aztec.io.RangeEncoder.PROBABILITY_BITS;
+import static br.ime.usp.aztec.io.RangeEncoder.TOP;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the bits coded by a {@link RangeEncoder}. Each bit must be decoded
+ * with the same kind of call and the same probabilities used to code it.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class RangeDecoder {
+
+	private final InputStream in;
+	private int code = 0;
+	private int range = -1;
+
+	/**
+	 * @throws IOException
+	 *             if the first bytes cannot be read
+	 * @throws MalformedInputException
+	 *             if the stream ends too early
+	 */
+	RangeDecoder(InputStream in) throws IOException, MalformedInputException {
+		this.in = in;
+		for (int i = 0; i < 5; i++) {
+			this.code = this.code << 8 | this.nextByte();
+		}
+	}
+
+	int decodeBit(short[] probabilities, int context) throws IOException {
+		int probability = probabilities[context];
+		int bound = (this.range >>> PROBABILITY_BITS) * probability;
+		int bit;
+		if ((this.code ^ Integer.MIN_VALUE) < (bound ^ Integer.MIN_VALUE)) {
+			this.range = bound;
+			probabilities[context] = (short) (probability + ((1 << PROBABILITY_BITS)
+					- probability >>> MOVE_BITS));
+			bit = 0;
+		} else {
+			this.range -= bound;
+			this.code -= bound;
+			probabilities[context] = (short) (probability - (probability >>> MOVE_BITS));
+			bit = 1;
+		}
+		if ((this.range & ~(TOP - 1)) == 0) {
+			this.code = this.code << 8 | this.nextByte();
+			this.range <<= 8;
+		}
+		return bit;
+	}
+
+	/**
+	 * @param count
+	 *            Number of bits, up to 32
+	 */
+	int decodeDirectBits(int count) throws IOException {
+		int value = 0;
+		for (int i = count; i > 0; i--) {
+			this.range >>>= 1;
+			int borrow = (this.code - this.range) >>> 31;
+			this.code -= this.range & (borrow - 1);
+			value = value << 1 | (1 - borrow);
+			if ((this.range & ~(TOP - 1)) == 0) {
+				this.code = this.code << 8 | this.nextByte();
+				this.range <<= 8;
+			}
+		}
+		return value;
+	}
+
+	private int nextByte() throws IOException {
+		int next = this.in.read();
+		if (next < 0) {
+			throw new MalformedInputException("Entropy-coded stream ended "
+					+ "before its end mark");
+		}
+		return next;
+	}
+}
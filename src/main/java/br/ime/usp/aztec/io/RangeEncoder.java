@@ -0,0 +1,127 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Binary adaptive arithmetic coder, in the range coder form used by LZMA.
+ * Each bit is coded with a probability that adapts to the bits already seen
+ * in its context, so bits that are easy to predict take much less than one
+ * bit of output. The probabilities are kept by the caller, in arrays created
+ * by {@link #newProbabilities(int)}, so that the decoder can repeat them.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see RangeDecoder
+ */
+final class RangeEncoder {
+
+	static final int PROBABILITY_BITS = 11;
+	static final int MOVE_BITS = 5;
+	static final int TOP = 1 << 24;
+	private static final short INITIAL_PROBABILITY = 1 << PROBABILITY_BITS >>> 1;
+
+	private final OutputStream out;
+	private long low = 0;
+	private int range = -1;
+	private int cache = 0;
+	private long cacheSize = 1;
+
+	RangeEncoder(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * @param contexts
+	 *            Number of contexts
+	 * @return Probabilities of each context, starting with an even chance
+	 */
+	static short[] newProbabilities(int contexts) {
+		short[] probabilities = new short[contexts];
+		Arrays.fill(probabilities, INITIAL_PROBABILITY);
+		return probabilities;
+	}
+
+	/**
+	 * Codes a bit, updating the probability of its context
+	 */
+	void encodeBit(short[] probabilities, int context, int bit)
+			throws IOException {
+		int probability = probabilities[context];
+		int bound = (this.range >>> PROBABILITY_BITS) * probability;
+		if (bit == 0) {
+			this.range = bound;
+			probabilities[context] = (short) (probability + ((1 << PROBABILITY_BITS)
+					- probability >>> MOVE_BITS));
+		} else {
+			this.low += bound & 0xFFFFFFFFL;
+			this.range -= bound;
+			probabilities[context] = (short) (probability - (probability >>> MOVE_BITS));
+		}
+		if ((this.range & ~(TOP - 1)) == 0) {
+			this.range <<= 8;
+			this.shiftLow();
+		}
+	}
+
+	/**
+	 * Codes the lowest bits of a value, most significant first, each with an
+	 * even chance
+	 * 
+	 * @param count
+	 *            Number of bits, up to 32
+	 */
+	void encodeDirectBits(int value, int count) throws IOException {
+		for (int i = count - 1; i >= 0; i--) {
+			this.range >>>= 1;
+			this.low += this.range & (0 - (value >>> i & 1));
+			if ((this.range & ~(TOP - 1)) == 0) {
+				this.range <<= 8;
+				this.shiftLow();
+			}
+		}
+	}
+
+	/**
+	 * Writes the bytes still kept by the coder. Nothing else may be coded
+	 * afterwards.
+	 */
+	void finish() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			this.shiftLow();
+		}
+	}
+
+	/**
+	 * Writes the highest byte of {@link #low}, unless a carry may still
+	 * change it. Bytes 0xFF waiting for a carry are only counted.
+	 */
+	private void shiftLow() throws IOException {
+		int carry = (int) (this.low >>> 32);
+		if (carry != 0 || this.low < 0xFF000000L) {
+			int pending = this.cache;
+			do {
+				this.out.write(pending + carry);
+				pending = 0xFF;
+			} while (--this.cacheSize != 0);
+			this.cache = (int) this.low >>> 24;
+		}
+		this.cacheSize++;
+		this.low = (this.low & 0x00FFFFFFL) << 8;
+	}
+}
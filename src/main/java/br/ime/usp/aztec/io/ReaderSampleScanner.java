@@ -0,0 +1,64 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads one sample per line from a {@link Reader}, using
+ * {@link Double#parseDouble(String)} for each line.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class ReaderSampleScanner implements DoubleIterator {
+
+	private final BufferedReader reader;
+	private String nextLine;
+
+	ReaderSampleScanner(Reader reader) {
+		this.reader = new BufferedReader(reader);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return this.nextLine() != null;
+	}
+
+	@Override
+	public double nextDouble() {
+		try {
+			String toParse = this.nextLine();
+			this.nextLine = null;
+			return Double.parseDouble(toParse);
+		} catch (Exception e) {
+			throw new NoSuchElementException("Failed to read more items");
+		}
+	}
+
+	private String nextLine() {
+		if (this.nextLine == null) {
+			try {
+				this.nextLine = this.reader.readLine();
+			} catch (IOException e) {
+				this.nextLine = null;
+			}
+		}
+		return this.nextLine;
+	}
+}
@@ -0,0 +1,206 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Keeps a sequence of values so that it can be read again, using a bounded
+ * amount of heap. The first values are kept in a primitive array, up to a
+ * given capacity. The remaining ones are written in blocks to a temporary
+ * file, which is mapped into memory in windows when they are read.
+ * 
+ * The temporary file is deleted as soon as it is opened, where the platform
+ * allows it, or when the virtual machine exits. Its disk space is only given
+ * back when this buffer is closed.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class ReplayBuffer implements Closeable {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int SPILL_BLOCK_SIZE = 64 * 1024;
+	private static final int WINDOW_SIZE = 1024 * 1024;
+
+	private final int memoryCapacity;
+	private final int spillBlockSize;
+	private final int windowSize;
+
+	private double[] memory;
+	private long size = 0;
+
+	private FileChannel spillFile;
+	private ByteBuffer pending;
+	private long spilled = 0;
+	private DoubleBuffer window;
+	private long windowStart;
+	private boolean closed = false;
+
+	/**
+	 * @param memoryCapacity
+	 *            Maximum number of values kept in the heap
+	 */
+	ReplayBuffer(int memoryCapacity) {
+		this(memoryCapacity, SPILL_BLOCK_SIZE, WINDOW_SIZE);
+	}
+
+	/**
+	 * @param memoryCapacity
+	 *            Maximum number of values kept in the heap
+	 * @param spillBlockSize
+	 *            Number of values written to the temporary file at once
+	 * @param windowSize
+	 *            Number of values of the temporary file mapped at once
+	 */
+	ReplayBuffer(int memoryCapacity, int spillBlockSize, int windowSize) {
+		if (memoryCapacity < 0) {
+			throw new IllegalArgumentException(
+					"Memory capacity must not be negative");
+		}
+		this.memoryCapacity = memoryCapacity;
+		this.spillBlockSize = spillBlockSize;
+		this.windowSize = windowSize;
+		this.memory = new double[Math.min(memoryCapacity, INITIAL_CAPACITY)];
+	}
+
+	/**
+	 * @return Number of values added
+	 */
+	long size() {
+		return this.size;
+	}
+
+	/**
+	 * Adds a value after the ones already kept
+	 * 
+	 * @throws IllegalStateException
+	 *             if the temporary file cannot be written, or if this
+	 *             buffer is closed
+	 */
+	void add(double value) {
+		this.checkNotClosed();
+		if (this.size < this.memoryCapacity) {
+			if (this.size == this.memory.length) {
+				this.memory = Arrays.copyOf(this.memory, (int) Math.min(
+						this.memoryCapacity, this.memory.length * 2L));
+			}
+			this.memory[(int) this.size++] = value;
+			return;
+		}
+		try {
+			if (this.spillFile == null) {
+				this.openSpillFile();
+			}
+			this.pending.putDouble(value);
+			this.size++;
+			if (!this.pending.hasRemaining()) {
+				this.writePending();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"Failed to write values to temporary file", e);
+		}
+	}
+
+	/**
+	 * @return The value added at the given position
+	 * @throws IllegalStateException
+	 *             if the temporary file cannot be read, or if this buffer
+	 *             is closed
+	 */
+	double get(long index) {
+		this.checkNotClosed();
+		if (index < this.memoryCapacity) {
+			return this.memory[(int) index];
+		}
+		long spillIndex = index - this.memoryCapacity;
+		if (spillIndex >= this.spilled) {
+			return this.pending.getDouble((int) (spillIndex - this.spilled)
+					* 8);
+		}
+		if (this.window == null || spillIndex < this.windowStart
+				|| spillIndex >= this.windowStart + this.window.limit()) {
+			this.mapWindow(spillIndex);
+		}
+		return this.window.get((int) (spillIndex - this.windowStart));
+	}
+
+	/**
+	 * Closes the temporary file, if any, and forgets every value added
+	 * 
+	 * @throws IOException
+	 *             if the temporary file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		this.closed = true;
+		this.memory = null;
+		this.pending = null;
+		this.window = null;
+		if (this.spillFile != null) {
+			this.spillFile.close();
+		}
+	}
+
+	private void checkNotClosed() {
+		if (this.closed) {
+			throw new IllegalStateException("Replay buffer is closed");
+		}
+	}
+
+	private void openSpillFile() throws IOException {
+		File file = File.createTempFile("aztec", ".samples");
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		if (!file.delete()) {
+			file.deleteOnExit();
+		}
+		this.spillFile = access.getChannel();
+		this.pending = ByteBuffer.allocateDirect(this.spillBlockSize * 8)
+				.order(ByteOrder.nativeOrder());
+	}
+
+	private void writePending() throws IOException {
+		this.pending.flip();
+		long position = this.spilled * 8;
+		while (this.pending.hasRemaining()) {
+			position += this.spillFile.write(this.pending, position);
+		}
+		this.pending.clear();
+		this.spilled += this.spillBlockSize;
+	}
+
+	private void mapWindow(long spillIndex) {
+		this.windowStart = spillIndex - spillIndex % this.windowSize;
+		long length = Math.min(this.windowSize, this.spilled
+				- this.windowStart);
+		try {
+			this.window = this.spillFile.map(FileChannel.MapMode.READ_ONLY,
+					this.windowStart * 8, length * 8)
+					.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		} catch (IOException e) {
+			throw new IllegalStateException(
+					"Failed to read values from temporary file", e);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the bytes of a binary samples file sequentially, mapping it into
+ * memory one window at a time through a {@link MappedFileByteSource}, so the
+ * memory used does not depend on the size of the file.
+ * 
+ * Failures to read the file are treated as its end, as done by
+ * {@link ByteSampleScanner}.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class SampleFileReader {
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final FileChannel file;
+	private final ByteSource source;
+	private ByteBuffer buffer = EMPTY;
+
+	/**
+	 * @param file
+	 *            File to be read
+	 * @param offset
+	 *            Position of the first byte to be read
+	 * @param windowSize
+	 *            Number of bytes mapped at once
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	SampleFileReader(File file, long offset, int windowSize)
+			throws IOException {
+		this.file = new FileInputStream(file).getChannel();
+		this.file.position(offset);
+		this.source = new MappedFileByteSource(this.file, windowSize);
+	}
+
+	/**
+	 * Maps more of the file until the given number of bytes is available or
+	 * the file ends
+	 * 
+	 * @return Number of bytes available, up to the given one
+	 */
+	int ensure(int bytes) {
+		while (this.buffer.remaining() < bytes) {
+			if (!this.refill()) {
+				return this.buffer.remaining();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return The next byte, as an unsigned value. Must be made available by
+	 *         {@link #ensure(int)} first.
+	 */
+	int next() {
+		return this.buffer.get() & 0xff;
+	}
+
+	/**
+	 * @return The next two bytes, as a signed little-endian value. Must be
+	 *         made available by {@link #ensure(int)} first.
+	 */
+	int nextShort() {
+		int low = this.buffer.get() & 0xff;
+		return (short) (low | this.buffer.get() << 8);
+	}
+
+	/**
+	 * Ignores the given number of bytes
+	 * 
+	 * @return false, if the file ended before them
+	 */
+	boolean skip(long bytes) {
+		long left = bytes;
+		while (left > 0) {
+			if (!this.buffer.hasRemaining() && !this.refill()) {
+				return false;
+			}
+			int skipped = (int) Math.min(left, this.buffer.remaining());
+			this.buffer.position(this.buffer.position() + skipped);
+			left -= skipped;
+		}
+		return true;
+	}
+
+	/**
+	 * Releases the file, if it was not released already
+	 */
+	void close() {
+		try {
+			this.file.close();
+		} catch (IOException e) {
+			// nothing else will be read anyway
+		}
+	}
+
+	private boolean refill() {
+		ByteBuffer next;
+		try {
+			next = this.source.refill(this.buffer);
+		} catch (IOException e) {
+			next = null;
+		}
+		if (next == null) {
+			return false;
+		}
+		this.buffer = next;
+		return true;
+	}
+}
@@ -15,102 +15,179 @@ limitations under the License.
  */
 package br.ime.usp.aztec.io;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.NoSuchElementException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 
 /**
- * Parses a signal from a given reader
+ * Parses a signal with one value per line. Every value read is kept, so that
+ * the signal can be iterated again: up to {@link #DEFAULT_REPLAY_LIMIT} values
+ * are kept in memory and the remaining ones in a temporary file. Consumers
+ * that read the signal only once may turn this off with
+ * {@link #withoutReplay()}.
+ * 
+ * The signal may be given as a {@link Reader}, in which case each line is
+ * parsed by {@link Double#parseDouble(String)}, or as raw ASCII bytes, which
+ * are parsed directly from a reusable buffer without creating objects per
+ * sample. Files can also be mapped into memory and parsed in place.
+ * 
+ * The input is closed when this parser is closed, even if the signal was not
+ * read until its end.
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
-public final class SignalParser implements Iterable<Double> {
+public final class SignalParser extends AbstractSignalSource implements
+		Closeable {
+
+	/**
+	 * Default number of values kept in memory for iterating the signal again
+	 */
+	public static final int DEFAULT_REPLAY_LIMIT = 8 * 1024 * 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAPPED_WINDOW_SIZE = 16 * 1024 * 1024;
 
-	private final Reader reader;
-	private final List<Double> readPoints = new ArrayList<Double>();
+	private final DoubleIterator scanner;
+	private final Closeable input;
+	private ReplayBuffer readPoints = new ReplayBuffer(DEFAULT_REPLAY_LIMIT);
+	private boolean iterated = false;
 
 	/**
 	 * @param reader
 	 *            Reader from where the signal should be read
 	 */
 	public SignalParser(Reader reader) {
-		this.reader = reader;
+		this.scanner = new ReaderSampleScanner(reader);
+		this.input = reader;
 	}
 
-	@Override
-	public String toString() {
-		StringBuilder builder = new StringBuilder();
-		builder.append('[');
-		boolean hasPoints = false;
-		for (Double d : this) {
-			builder.append(d);
-			builder.append(", ");
-			hasPoints = true;
-		}
-		if (hasPoints) {
-			int lastPosition = builder.length() - 1;
-			builder.delete(lastPosition - 1, lastPosition);
-		}
-		builder.append(']');
-		return builder.toString();
+	/**
+	 * @param input
+	 *            Stream of ASCII text from where the signal should be read
+	 */
+	public SignalParser(InputStream input) {
+		this(Channels.newChannel(input));
+	}
+
+	/**
+	 * @param channel
+	 *            Channel of ASCII text from where the signal should be read
+	 */
+	public SignalParser(ReadableByteChannel channel) {
+		ByteSource source = new ChannelByteSource(channel, BUFFER_SIZE);
+		this.scanner = new ByteSampleScanner(source);
+		this.input = source;
+	}
+
+	/**
+	 * Maps the given file into memory, in windows of fixed size, and parses
+	 * it directly from the mapped region. The channel is closed as soon as
+	 * its last window is mapped, or when this parser is closed.
+	 * 
+	 * @param file
+	 *            File of ASCII text from where the signal should be read,
+	 *            starting at its current position
+	 * @throws IOException
+	 *             if the size or the position of the file cannot be read
+	 */
+	public SignalParser(FileChannel file) throws IOException {
+		ByteSource source = new MappedFileByteSource(file, MAPPED_WINDOW_SIZE);
+		this.scanner = new ByteSampleScanner(source);
+		this.input = source;
+	}
+
+	/**
+	 * Limits how many of the values read are kept in memory. The remaining
+	 * ones are kept in a temporary file.
+	 * 
+	 * @param valuesInMemory
+	 *            Maximum number of values kept in memory
+	 * @return This parser
+	 * @throws IllegalStateException
+	 *             if the signal was already iterated
+	 */
+	public SignalParser withReplayLimit(int valuesInMemory) {
+		this.checkNotIterated();
+		this.readPoints = new ReplayBuffer(valuesInMemory);
+		return this;
+	}
+
+	/**
+	 * Keeps none of the values read, so the signal can be iterated only once.
+	 * 
+	 * @return This parser
+	 * @throws IllegalStateException
+	 *             if the signal was already iterated
+	 */
+	public SignalParser withoutReplay() {
+		this.checkNotIterated();
+		this.readPoints = null;
+		return this;
 	}
 
 	/**
-	 * @return An iterator for the parsed input values
-	 * @see Iterator
+	 * @return An iterator for the parsed input values. Values already parsed by
+	 *         previous iterators are not read again.
+	 * @throws IllegalStateException
+	 *             if values are not kept and the signal was already iterated
+	 * @see DoubleIterator
 	 */
 	@Override
-	public Iterator<Double> iterator() {
-		return new Iterator<Double>() {
+	public DoubleIterator doubleIterator() {
+		if (this.readPoints == null) {
+			this.checkNotIterated();
+			this.iterated = true;
+			return this.scanner;
+		}
+		this.iterated = true;
+		final ReplayBuffer replay = this.readPoints;
+		return new DoubleIterator() {
 
-			private final BufferedReader bufferedReader = new BufferedReader(
-					reader);
-			private final int numReadPoints = readPoints.size();
-			private int usedReadPoints = 0;
-			private String nextLine;
+			private long usedReadPoints = 0;
 
 			@Override
 			public boolean hasNext() {
-				return (usedReadPoints < numReadPoints) || nextLine() != null;
+				return (usedReadPoints < replay.size()) || scanner.hasNext();
 			}
 
 			@Override
-			public Double next() {
-				if (usedReadPoints < numReadPoints) {
-					return readPoints.get(usedReadPoints++);
-				}
-				try {
-					String toParse = nextLine();
-					this.nextLine = null;
-					double read = Double.parseDouble(toParse);
-					readPoints.add(read);
-					return read;
-				} catch (Exception e) {
-					throw new NoSuchElementException(
-							"Failed to read more items");
+			public double nextDouble() {
+				if (usedReadPoints < replay.size()) {
+					return replay.get(usedReadPoints++);
 				}
+				double read = scanner.nextDouble();
+				replay.add(read);
+				usedReadPoints++;
+				return read;
 			}
+		};
+	}
 
-			@Override
-			public void remove() {
-				throw new UnsupportedOperationException("Read-only iterator");
-			}
-
-			private String nextLine() {
-				if (this.nextLine == null) {
-					try {
-						this.nextLine = bufferedReader.readLine();
-					} catch (IOException e) {
-						this.nextLine = null;
-					}
-				}
-				return this.nextLine;
+	/**
+	 * Closes the input of this parser and forgets the values kept to iterate
+	 * the signal again, giving back the space of their temporary file
+	 * 
+	 * @throws IOException
+	 *             if the input or the temporary file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			this.input.close();
+		} finally {
+			if (this.readPoints != null) {
+				this.readPoints.close();
 			}
-		};
+		}
 	}
 
+	private void checkNotIterated() {
+		if (this.iterated) {
+			throw new IllegalStateException("Signal was already iterated");
+		}
+	}
 }
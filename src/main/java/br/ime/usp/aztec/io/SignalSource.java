@@ -0,0 +1,34 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+/**
+ * A signal that can be read as primitive double values. The algorithms read
+ * their input through {@link #doubleIterator()}, so that samples are never
+ * boxed. It is still an {@link Iterable} of {@link Double}, for those who do
+ * not care about it.
+ *
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see IterableSignalSource
+ */
+public interface SignalSource extends Iterable<Double> {
+
+	/**
+	 * @return A new iterator over the values of this signal, starting from its
+	 *         first value
+	 */
+	DoubleIterator doubleIterator();
+}
@@ -0,0 +1,63 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Reads and writes signed integers in a variable number of bytes. The sign is
+ * moved to the least significant bit (zigzag encoding), then the value is
+ * written seven bits per byte, least significant first, with the high bit of
+ * each byte telling if there are more bytes. Small values, positive or
+ * negative, take a single byte.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+final class VarInt {
+
+	private VarInt() {
+	}
+
+	static void write(DataOutput out, long value) throws IOException {
+		long zigzag = (value << 1) ^ (value >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		out.writeByte((int) zigzag);
+	}
+
+	static long read(DataInput in) throws IOException {
+		return read(in, in.readUnsignedByte());
+	}
+
+	static long read(DataInput in, int firstByte) throws IOException {
+		long zigzag = firstByte & 0x7F;
+		int shift = 7;
+		int current = firstByte;
+		while ((current & 0x80) != 0) {
+			if (shift > 63) {
+				throw new MalformedInputException();
+			}
+			current = in.readUnsignedByte();
+			zigzag |= (long) (current & 0x7F) << shift;
+			shift += 7;
+		}
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+}
@@ -0,0 +1,297 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Header of a PhysioNet WFDB record (the .hea file), describing where and how
+ * each signal of the record is stored. Only single-segment records are
+ * supported.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see <a href="http://www.physionet.org/physiotools/wag/header-5.htm">WFDB
+ *      header format</a>
+ */
+public final class WFDBHeader {
+
+	/**
+	 * Gain used by WFDB when the header gives none
+	 */
+	public static final double DEFAULT_GAIN = 200.0;
+
+	/**
+	 * Sampling frequency used by WFDB when the header gives none
+	 */
+	public static final double DEFAULT_SAMPLING_FREQUENCY = 250.0;
+
+	private final String recordName;
+	private final double samplingFrequency;
+	private final long numberOfSamples;
+	private final List<Signal> signals;
+
+	/**
+	 * Parses a header
+	 * 
+	 * @param reader
+	 *            Reader with the contents of the .hea file
+	 * @throws IOException
+	 *             if the header cannot be read
+	 * @throws MalformedInputException
+	 *             if the header is not valid or describes an unsupported record
+	 */
+	public WFDBHeader(Reader reader) throws IOException,
+			MalformedInputException {
+		BufferedReader lines = new BufferedReader(reader);
+		String[] record = nextLine(lines);
+		if (record == null || record.length < 2) {
+			throw new MalformedInputException("Missing WFDB record line");
+		}
+		if (record[0].indexOf('/') >= 0) {
+			throw new MalformedInputException(
+					"Multi-segment WFDB records are not supported");
+		}
+		this.recordName = record[0];
+		int numberOfSignals = parseInt(record[1]);
+		if (record.length > 2) {
+			this.samplingFrequency = parseDouble(leadingNumber(record[2]));
+		} else {
+			this.samplingFrequency = DEFAULT_SAMPLING_FREQUENCY;
+		}
+		this.numberOfSamples = record.length > 3 ? parseLong(record[3]) : 0;
+		this.signals = new ArrayList<Signal>(numberOfSignals);
+		for (int i = 0; i < numberOfSignals; i++) {
+			String[] fields = nextLine(lines);
+			if (fields == null || fields.length < 2) {
+				throw new MalformedInputException("Missing WFDB signal line "
+						+ i);
+			}
+			this.signals.add(new Signal(fields));
+		}
+	}
+
+	/**
+	 * @return Name of the record
+	 */
+	public String getRecordName() {
+		return this.recordName;
+	}
+
+	/**
+	 * @return Number of samples per second of each signal
+	 */
+	public double getSamplingFrequency() {
+		return this.samplingFrequency;
+	}
+
+	/**
+	 * @return Number of samples of each signal, or 0 if the header does not
+	 *         tell
+	 */
+	public long getNumberOfSamples() {
+		return this.numberOfSamples;
+	}
+
+	/**
+	 * @return Number of signals in the record
+	 */
+	public int getNumberOfSignals() {
+		return this.signals.size();
+	}
+
+	/**
+	 * @param index
+	 *            Index of the signal, starting at 0
+	 * @return Description of the signal
+	 * @throws IndexOutOfBoundsException
+	 *             if the record has no such signal
+	 */
+	public Signal getSignal(int index) {
+		return this.signals.get(index);
+	}
+
+	/**
+	 * Description of how one signal of a record is stored
+	 */
+	public static final class Signal {
+		private final String fileName;
+		private final int format;
+		private final int samplesPerFrame;
+		private final long byteOffset;
+		private final double gain;
+		private final int baseline;
+		private final String units;
+		private final String description;
+
+		Signal(String[] fields) throws MalformedInputException {
+			this.fileName = fields[0];
+
+			String format = fields[1];
+			int offsetStart = format.indexOf('+');
+			this.byteOffset = offsetStart < 0 ? 0 : parseLong(format
+					.substring(offsetStart + 1));
+			int samplesStart = format.indexOf('x');
+			if (samplesStart >= 0) {
+				this.samplesPerFrame = parseInt(leadingNumber(format
+						.substring(samplesStart + 1)));
+			} else {
+				this.samplesPerFrame = 1;
+			}
+			this.format = parseInt(leadingNumber(format));
+
+			String gain = fields.length > 2 ? fields[2] : "0";
+			int unitsStart = gain.indexOf('/');
+			this.units = unitsStart < 0 ? "mV" : gain.substring(unitsStart + 1);
+			int baselineStart = gain.indexOf('(');
+			int adcZero = fields.length > 4 ? parseInt(fields[4]) : 0;
+			if (baselineStart >= 0) {
+				this.baseline = parseInt(gain.substring(baselineStart + 1,
+						gain.indexOf(')', baselineStart)));
+			} else {
+				this.baseline = adcZero;
+			}
+			double parsedGain = parseDouble(leadingNumber(gain));
+			this.gain = parsedGain == 0.0 ? DEFAULT_GAIN : parsedGain;
+
+			StringBuilder description = new StringBuilder();
+			for (int i = 8; i < fields.length; i++) {
+				if (description.length() > 0) {
+					description.append(' ');
+				}
+				description.append(fields[i]);
+			}
+			this.description = description.toString();
+		}
+
+		/**
+		 * @return Name of the file where the samples are stored, relative to
+		 *         the header
+		 */
+		public String getFileName() {
+			return this.fileName;
+		}
+
+		/**
+		 * @return WFDB storage format, such as 16 or 212
+		 */
+		public int getFormat() {
+			return this.format;
+		}
+
+		/**
+		 * @return Number of samples of this signal in each frame
+		 */
+		public int getSamplesPerFrame() {
+			return this.samplesPerFrame;
+		}
+
+		/**
+		 * @return Number of bytes before the first sample in the file
+		 */
+		public long getByteOffset() {
+			return this.byteOffset;
+		}
+
+		/**
+		 * @return Number of ADC units per physical unit
+		 */
+		public double getGain() {
+			return this.gain;
+		}
+
+		/**
+		 * @return ADC value that corresponds to 0 physical units
+		 */
+		public int getBaseline() {
+			return this.baseline;
+		}
+
+		/**
+		 * @return Physical units of the signal, such as mV
+		 */
+		public String getUnits() {
+			return this.units;
+		}
+
+		/**
+		 * @return Description of the signal, such as the name of an ECG lead
+		 */
+		public String getDescription() {
+			return this.description;
+		}
+
+		/**
+		 * @return The value in physical units of a sample stored as the given
+		 *         ADC value
+		 */
+		public double toPhysical(int adcValue) {
+			return (adcValue - this.baseline) / this.gain;
+		}
+	}
+
+	private static String[] nextLine(BufferedReader lines) throws IOException {
+		String line;
+		while ((line = lines.readLine()) != null) {
+			line = line.trim();
+			if (line.length() > 0 && line.charAt(0) != '#') {
+				return line.split("\\s+");
+			}
+		}
+		return null;
+	}
+
+	private static String leadingNumber(String field) {
+		int end = 0;
+		while (end < field.length()
+				&& "0123456789.-eE".indexOf(field.charAt(end)) >= 0) {
+			end++;
+		}
+		return field.substring(0, end);
+	}
+
+	private static int parseInt(String number) throws MalformedInputException {
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			throw new MalformedInputException("Invalid number in WFDB header: "
+					+ number);
+		}
+	}
+
+	private static long parseLong(String number)
+			throws MalformedInputException {
+		try {
+			return Long.parseLong(number);
+		} catch (NumberFormatException e) {
+			throw new MalformedInputException("Invalid number in WFDB header: "
+					+ number);
+		}
+	}
+
+	private static double parseDouble(String number)
+			throws MalformedInputException {
+		try {
+			return Double.parseDouble(number);
+		} catch (NumberFormatException e) {
+			throw new MalformedInputException("Invalid number in WFDB header: "
+					+ number);
+		}
+	}
+}
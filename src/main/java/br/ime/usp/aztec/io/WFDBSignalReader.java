@@ -0,0 +1,246 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads one signal of a PhysioNet WFDB record straight from its binary
+ * samples, converted to physical units with the gain and baseline given in
+ * the header. Formats 16 (16-bit little-endian) and 212 (two 12-bit samples
+ * packed in three bytes) are supported.
+ * 
+ * The samples file is mapped into memory in windows and read again for each
+ * iteration, so the signal may be iterated many times without keeping its
+ * values. Samples marked as invalid by WFDB repeat the previous value of the
+ * signal.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class WFDBSignalReader extends AbstractSignalSource {
+
+	private static final int MAPPED_WINDOW_SIZE = 1024 * 1024;
+	private static final int INVALID_FORMAT_16_SAMPLE = Short.MIN_VALUE;
+	private static final int INVALID_FORMAT_212_SAMPLE = -2048;
+
+	private final WFDBHeader header;
+	private final WFDBHeader.Signal signal;
+	private final File samplesFile;
+	private final int format;
+	private final int invalidSample;
+	private final int frameSize;
+	private final int signalStart;
+	private final int windowSize;
+
+	/**
+	 * @param headerFile
+	 *            The .hea file of the record
+	 * @param signalIndex
+	 *            Index of the signal to be read, starting at 0
+	 * @throws IOException
+	 *             if the header cannot be read
+	 * @throws MalformedInputException
+	 *             if the header is not valid, or the signal does not exist or
+	 *             is stored in an unsupported format
+	 */
+	public WFDBSignalReader(File headerFile, int signalIndex)
+			throws IOException, MalformedInputException {
+		this(headerFile, signalIndex, MAPPED_WINDOW_SIZE);
+	}
+
+	WFDBSignalReader(File headerFile, int signalIndex, int windowSize)
+			throws IOException, MalformedInputException {
+		Reader reader = new FileReader(headerFile);
+		try {
+			this.header = new WFDBHeader(reader);
+		} finally {
+			reader.close();
+		}
+		if (signalIndex < 0 || signalIndex >= this.header.getNumberOfSignals()) {
+			throw new MalformedInputException("Record "
+					+ this.header.getRecordName() + " has no signal "
+					+ signalIndex);
+		}
+		this.signal = this.header.getSignal(signalIndex);
+		this.format = this.signal.getFormat();
+		if (this.format != 16 && this.format != 212) {
+			throw new MalformedInputException("Unsupported WFDB format "
+					+ this.format);
+		}
+		this.invalidSample = this.format == 16 ? INVALID_FORMAT_16_SAMPLE
+				: INVALID_FORMAT_212_SAMPLE;
+		this.samplesFile = new File(headerFile.getParentFile(),
+				this.signal.getFileName());
+		int frameSize = 0;
+		int signalStart = 0;
+		for (int i = 0; i < this.header.getNumberOfSignals(); i++) {
+			WFDBHeader.Signal other = this.header.getSignal(i);
+			if (other.getFileName().equals(this.signal.getFileName())) {
+				if (other.getFormat() != this.format) {
+					throw new MalformedInputException("Signals stored in "
+							+ other.getFileName()
+							+ " have different formats");
+				}
+				if (i == signalIndex) {
+					signalStart = frameSize;
+				}
+				frameSize += other.getSamplesPerFrame();
+			}
+		}
+		this.frameSize = frameSize;
+		this.signalStart = signalStart;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * @return Header of the record
+	 */
+	public WFDBHeader getHeader() {
+		return this.header;
+	}
+
+	/**
+	 * @return Description of the signal being read
+	 */
+	public WFDBHeader.Signal getSignal() {
+		return this.signal;
+	}
+
+	/**
+	 * @return An iterator that reads the samples file from its beginning
+	 * @throws IllegalStateException
+	 *             if the samples file cannot be opened
+	 */
+	@Override
+	public DoubleIterator doubleIterator() {
+		try {
+			return new SampleIterator();
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read "
+					+ this.samplesFile, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.header.getRecordName() + " " + this.signal.getDescription();
+	}
+
+	private final class SampleIterator implements DoubleIterator {
+		private final SampleFileReader file;
+		private final double[] frame;
+		private int nextInFrame;
+		private long framesRead = 0;
+		private boolean endOfSignal = false;
+		private int sample;
+		private int pairedSample;
+		private boolean hasPairedSample = false;
+		private double lastValue = 0.0;
+
+		SampleIterator() throws IOException {
+			this.file = new SampleFileReader(samplesFile,
+					signal.getByteOffset(), windowSize);
+			this.frame = new double[signal.getSamplesPerFrame()];
+			this.nextInFrame = this.frame.length;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.nextInFrame < this.frame.length) {
+				return true;
+			}
+			if (this.endOfSignal) {
+				return false;
+			}
+			if (this.readFrame()) {
+				this.nextInFrame = 0;
+				return true;
+			}
+			this.endOfSignal = true;
+			this.file.close();
+			return false;
+		}
+
+		@Override
+		public double nextDouble() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException("Failed to read more items");
+			}
+			return this.frame[this.nextInFrame++];
+		}
+
+		private boolean readFrame() {
+			long total = header.getNumberOfSamples();
+			if (total > 0 && this.framesRead >= total) {
+				return false;
+			}
+			for (int i = 0; i < frameSize; i++) {
+				if (!this.readSample()) {
+					return false;
+				}
+				int index = i - signalStart;
+				if (index >= 0 && index < this.frame.length) {
+					if (this.sample != invalidSample) {
+						this.lastValue = signal.toPhysical(this.sample);
+					}
+					this.frame[index] = this.lastValue;
+				}
+			}
+			this.framesRead++;
+			return true;
+		}
+
+		/**
+		 * Reads the next sample of the file, of any signal, into
+		 * {@link #sample}
+		 * 
+		 * @return false, if the file has no more samples
+		 */
+		private boolean readSample() {
+			if (format == 16) {
+				if (this.file.ensure(2) < 2) {
+					return false;
+				}
+				this.sample = this.file.nextShort();
+			} else if (this.hasPairedSample) {
+				this.sample = this.pairedSample;
+				this.hasPairedSample = false;
+			} else {
+				int available = this.file.ensure(3);
+				if (available < 2) {
+					return false;
+				}
+				int low = this.file.next();
+				int middle = this.file.next();
+				this.sample = twelveBits(low | (middle & 0x0f) << 8);
+				if (available == 3) {
+					int high = this.file.next();
+					this.pairedSample = twelveBits(high | (middle & 0xf0) << 4);
+					this.hasPairedSample = true;
+				}
+			}
+			return true;
+		}
+
+		private int twelveBits(int value) {
+			return (value << 20) >> 20;
+		}
+	}
+}
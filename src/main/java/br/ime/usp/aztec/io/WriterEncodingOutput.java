@@ -15,26 +15,96 @@ limitations under the License.
  */
 package br.ime.usp.aztec.io;
 
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
 
 /**
- * Writes the given values in a Writer, one per line, using Java's default
- * double formatting.
+ * Writes the given values in a Writer, one per line. Values are formatted by a
+ * {@link DoubleFormatter} into an internal buffer, which is given to the
+ * writer only when full or when this output is closed.
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
-public final class WriterEncodingOutput implements EncodingOutput {
+public final class WriterEncodingOutput extends AbstractEncodingOutput
+		implements Flushable {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int LINE_LENGTH = DoubleFormatter.MAX_LENGTH + 1;
+
 	private final Writer writer;
+	private final DoubleFormatter formatter;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int length = 0;
 
+	/**
+	 * Creates an output that writes the shortest representation of each
+	 * value
+	 * 
+	 * @param writer
+	 *            Where the values will be written
+	 */
 	public WriterEncodingOutput(Writer writer) {
+		this(writer, new DoubleFormatter());
+	}
+
+	/**
+	 * @param writer
+	 *            Where the values will be written
+	 * @param formatter
+	 *            Formatter used to convert the values to text
+	 */
+	public WriterEncodingOutput(Writer writer, DoubleFormatter formatter) {
 		this.writer = writer;
+		this.formatter = formatter;
 	}
 
 	@Override
 	public void put(double value) throws IOException {
-		this.writer.write(Double.toString(value));
-		this.writer.write('\n');
+		if (this.length + LINE_LENGTH > BUFFER_SIZE) {
+			this.flushBuffer();
+		}
+		this.length = this.formatter.format(value, this.buffer, this.length);
+		this.buffer[this.length++] = '\n';
+	}
+
+	/**
+	 * Formats the value only once and copies its line as many times as needed
+	 */
+	@Override
+	public void putRun(double value, int count) throws IOException {
+		if (count <= 0) {
+			return;
+		}
+		if (this.length + LINE_LENGTH > BUFFER_SIZE) {
+			this.flushBuffer();
+		}
+		int lineStart = this.length;
+		this.put(value);
+		int lineLength = this.length - lineStart;
+		for (int line = 1; line < count; line++) {
+			if (this.length + lineLength > BUFFER_SIZE) {
+				this.writer.write(this.buffer, 0, this.length);
+				System.arraycopy(this.buffer, lineStart, this.buffer, 0,
+						lineLength);
+				lineStart = 0;
+				this.length = 0;
+			}
+			System.arraycopy(this.buffer, lineStart, this.buffer, this.length,
+					lineLength);
+			this.length += lineLength;
+		}
+	}
+
+	/**
+	 * Gives the buffered values to the writer and flushes it
+	 * 
+	 * @throws IOException
+	 *             If the underlying writer throws this exception
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.flushBuffer();
+		this.writer.flush();
 	}
 
 	/**
@@ -44,8 +114,13 @@ public final class WriterEncodingOutput implements EncodingOutput {
 	 *             If the underlying writer throws this exception
 	 */
 	public void close() throws IOException {
+		this.flushBuffer();
 		this.writer.flush();
 		this.writer.close();
 	}
 
+	private void flushBuffer() throws IOException {
+		this.writer.write(this.buffer, 0, this.length);
+		this.length = 0;
+	}
 }
@@ -16,15 +16,20 @@ limitations under the License.
 package br.ime.usp.aztec.maztec;
 
 /**
- * Default implementation of the adaptive threshold of modified AZTEC algorithm
+ * Default implementation of the adaptive threshold of modified AZTEC algorithm.
+ * The statistics are updated on every sample, and the threshold is computed
+ * from them once every {@link MAZTECParameters#getThresholdUpdateInterval()}
+ * samples.
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
 public final class DefaultThresholdCalculator implements ThresholdCalculator {
 	private final SignalStatistics statsCalculator;
 	private final MAZTECParameters params;
+	private final int updateInterval;
 	private double threshold;
 	private double cf;
+	private int samplesUntilUpdate;
 
 	/**
 	 * Initialized a new threshold calculator for the modified AZTEC algorithm
@@ -43,11 +48,30 @@ public final class DefaultThresholdCalculator implements ThresholdCalculator {
 		this.statsCalculator = statsCalculator;
 		this.threshold = params.getInitialT();
 		this.cf = 0.0;
+		this.updateInterval = params.getThresholdUpdateInterval();
+		this.samplesUntilUpdate = this.updateInterval;
+	}
+
+	/**
+	 * Initialized a new threshold calculator for the modified AZTEC
+	 * algorithm, computing the statistics chosen in the parameters
+	 * 
+	 * @param params
+	 *            The parameters for the algorithm execution with an initial
+	 *            threshold value and the statistics to be used
+	 * @see MAZTECParameters#getStatistics()
+	 */
+	public DefaultThresholdCalculator(MAZTECParameters params) {
+		this(params, statisticsFor(params));
 	}
 
 	@Override
 	public void newSample(double sample) {
 		this.statsCalculator.update(sample);
+		if (--this.samplesUntilUpdate > 0) {
+			return;
+		}
+		this.samplesUntilUpdate = this.updateInterval;
 		double lastCf = this.cf;
 		this.cf = this.params.getC1()
 				* (this.statsCalculator.getStandardDeviation() + this.statsCalculator
@@ -72,4 +96,17 @@ public final class DefaultThresholdCalculator implements ThresholdCalculator {
 		this.statsCalculator.reset();
 	}
 
+	private static SignalStatistics statisticsFor(MAZTECParameters params) {
+		switch (params.getStatistics()) {
+		case SLIDING_WINDOW:
+			return new SlidingWindowSignalStatistics(
+					params.getStatisticsWindow());
+		case EXPONENTIAL:
+			return new ExponentialSignalStatistics(
+					params.getStatisticsWindow());
+		default:
+			return new OnlineSignalStatistics();
+		}
+	}
+
 }
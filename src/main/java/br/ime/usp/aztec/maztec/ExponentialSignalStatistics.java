@@ -0,0 +1,92 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.maztec;
+
+/**
+ * Computes exponentially weighted statistics of a signal: each new sample
+ * has weight <code>alpha = 2 / (span + 1)</code> and the weight of all the
+ * previous ones is multiplied by <code>1 - alpha</code>. Recent samples
+ * dominate the statistics, which keep following the signal however long it
+ * is, in constant time and memory per sample.
+ * 
+ * The first sample after creation or reset is taken as the average, with no
+ * deviation, so that the statistics are not biased towards zero.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class ExponentialSignalStatistics implements SignalStatistics {
+
+	private final double alpha;
+	private boolean empty = true;
+	private double average = 0.0;
+	private double variance = 0.0;
+	private double thirdMoment = 0.0;
+
+	/**
+	 * @param span
+	 *            Number of recent samples that account for most of the
+	 *            weight, as in the size of a sliding window
+	 * @throws IllegalArgumentException
+	 *             if the span is not positive
+	 */
+	public ExponentialSignalStatistics(int span) {
+		if (span < 1) {
+			throw new IllegalArgumentException("Span must be positive, but "
+					+ "was " + span);
+		}
+		this.alpha = 2.0 / (span + 1);
+	}
+
+	@Override
+	public double getAverage() {
+		return this.average;
+	}
+
+	@Override
+	public double getStandardDeviation() {
+		return Math.sqrt(this.variance);
+	}
+
+	@Override
+	public double getThirdMoment() {
+		return this.thirdMoment;
+	}
+
+	@Override
+	public void update(double value) {
+		if (this.empty) {
+			this.empty = false;
+			this.average = value;
+			return;
+		}
+		double delta = value - this.average;
+		double keep = 1.0 - this.alpha;
+		this.average += this.alpha * delta;
+		this.thirdMoment = keep
+				* (this.thirdMoment - 3 * this.alpha * delta * this.variance
+						+ this.alpha * (1 - 2 * this.alpha) * delta * delta
+						* delta);
+		this.variance = keep * (this.variance + this.alpha * delta * delta);
+	}
+
+	@Override
+	public void reset() {
+		this.empty = true;
+		this.average = 0.0;
+		this.variance = 0.0;
+		this.thirdMoment = 0.0;
+	}
+}
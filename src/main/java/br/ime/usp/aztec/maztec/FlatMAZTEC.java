@@ -0,0 +1,295 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.maztec;
+
+import java.io.IOException;
+
+import br.ime.usp.aztec.AbstractEncodingSession;
+import br.ime.usp.aztec.EncodingSession;
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.EncodingOutput;
+
+/**
+ * The modified AZTEC algorithm with its default threshold, computed from
+ * {@link OnlineSignalStatistics}, fused into a single loop. It gives exactly
+ * the same encoding as {@link MAZTEC} with a
+ * {@link DefaultThresholdCalculator}, doing the same floating point
+ * operations in the same order, but keeps the statistics and the threshold
+ * in primitive fields and reads the parameters only once, instead of calling
+ * both objects through their interfaces for every sample.
+ * 
+ * Encoders with other thresholds or statistics should use {@link MAZTEC}.
+ * Parameters that ask for statistics other than
+ * {@link MAZTECParameters.Statistics#ONLINE} are refused.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see MAZTEC
+ */
+public final class FlatMAZTEC {
+
+	/**
+	 * Encodes the given signal, writing the output to the
+	 * {@link EncodingOutput} specified in the {@link MAZTECParameters} passed
+	 * as argument
+	 * 
+	 * @param params
+	 *            Parameters for the execution of the algorithm, such as input,
+	 *            output and weights for updating the threshold of the algorithm
+	 * @throws IOException
+	 *             if an error occurs when outputting values
+	 * @throws IllegalArgumentException
+	 *             if the parameters ask for statistics other than the online
+	 *             ones
+	 * @see MAZTEC#encode(MAZTECParameters)
+	 */
+	public void encode(MAZTECParameters params) throws IOException {
+		Session session = new Session(params);
+		DoubleIterator samples = params.getInput().doubleIterator();
+		while (samples.hasNext()) {
+			session.process(samples.nextDouble());
+		}
+		session.finish();
+	}
+
+	/**
+	 * Starts an encoding whose samples are given one by one, as they arrive,
+	 * instead of read from the input of the parameters, which is ignored.
+	 * Each session has its own state, so many of them can be open at the
+	 * same time.
+	 * 
+	 * @param params
+	 *            Parameters for the execution of the algorithm, such as
+	 *            output and weights for updating the threshold
+	 * @return The session, which closes the output when closed
+	 * @throws IllegalArgumentException
+	 *             if the parameters ask for statistics other than the online
+	 *             ones
+	 */
+	public EncodingSession open(MAZTECParameters params) {
+		return new Session(params);
+	}
+
+	/**
+	 * @param params
+	 *            Parameters of the algorithm
+	 * @throws IllegalArgumentException
+	 *             if the parameters ask for statistics other than the online
+	 *             ones, which are the only ones fused into this engine
+	 */
+	static void checkStatistics(MAZTECParameters params) {
+		if (params.getStatistics() != MAZTECParameters.Statistics.ONLINE) {
+			throw new IllegalArgumentException("Only online statistics "
+					+ "can be used by this engine, but "
+					+ params.getStatistics() + " were asked for");
+		}
+	}
+
+	/**
+	 * State of the algorithm between samples. Besides being an
+	 * {@link EncodingSession}, it lets {@link ParallelMAZTEC} compare
+	 * sessions started at different samples.
+	 */
+	static final class Session extends AbstractEncodingSession {
+		private final double[] line = new double[2];
+		private final double c1;
+		private final double c2;
+		private final double tMin;
+		private final double tMax;
+		private final boolean improved;
+		private final int updateInterval;
+
+		private double min = Double.POSITIVE_INFINITY;
+		private double max = Double.NEGATIVE_INFINITY;
+		private double lastMin = this.min;
+		private double lastMax = this.max;
+		private int length = 0;
+		private boolean startedLine = false;
+
+		private double threshold;
+		private double cf = 0.0;
+		private int samplesUntilUpdate;
+
+		private int count = 0;
+		private double average = 0.0;
+		private double m2 = 0.0;
+		private double m3 = 0.0;
+
+		Session(MAZTECParameters params) {
+			this(params, params.getOutput());
+		}
+
+		/**
+		 * @param params
+		 *            Parameters of the algorithm, whose input and output are
+		 *            ignored
+		 * @param output
+		 *            Destination of the segments
+		 */
+		Session(MAZTECParameters params, EncodingOutput output) {
+			super(output);
+			checkStatistics(params);
+			this.c1 = params.getC1();
+			this.c2 = params.getC2();
+			this.tMin = params.getTMin();
+			this.tMax = params.getTMax();
+			this.improved = params.isImproved();
+			this.threshold = params.getInitialT();
+			this.updateInterval = params.getThresholdUpdateInterval();
+			this.samplesUntilUpdate = this.updateInterval;
+		}
+
+		private Session(Session other, EncodingOutput output) {
+			super(output);
+			this.c1 = other.c1;
+			this.c2 = other.c2;
+			this.tMin = other.tMin;
+			this.tMax = other.tMax;
+			this.improved = other.improved;
+			this.updateInterval = other.updateInterval;
+			this.min = other.min;
+			this.max = other.max;
+			this.lastMin = other.lastMin;
+			this.lastMax = other.lastMax;
+			this.length = other.length;
+			this.startedLine = other.startedLine;
+			this.threshold = other.threshold;
+			this.cf = other.cf;
+			this.samplesUntilUpdate = other.samplesUntilUpdate;
+			this.count = other.count;
+			this.average = other.average;
+			this.m2 = other.m2;
+			this.m3 = other.m3;
+		}
+
+		/**
+		 * @return Whether the last sample processed is the first one of a
+		 *         new line, so all the segments before it were written
+		 */
+		boolean hasStartedLine() {
+			return this.startedLine;
+		}
+
+		/**
+		 * @return The threshold for the next sample
+		 */
+		double getThreshold() {
+			return this.threshold;
+		}
+
+		/**
+		 * @return Whether both sessions would encode the next samples the
+		 *         same way
+		 */
+		boolean hasSameStateAs(Session other) {
+			return this.min == other.min && this.max == other.max
+					&& this.lastMin == other.lastMin
+					&& this.lastMax == other.lastMax
+					&& this.length == other.length
+					&& this.threshold == other.threshold
+					&& this.cf == other.cf
+					&& this.samplesUntilUpdate == other.samplesUntilUpdate
+					&& this.count == other.count
+					&& this.average == other.average && this.m2 == other.m2
+					&& this.m3 == other.m3;
+		}
+
+		/**
+		 * @param output
+		 *            Destination of the segments of the copy
+		 * @return A session that goes on from the state of this one
+		 */
+		Session copyState(EncodingOutput output) {
+			return new Session(this, output);
+		}
+
+		/**
+		 * @return Number of samples of the line being built, including the
+		 *         last one processed
+		 */
+		int getLineLength() {
+			return this.length;
+		}
+
+		@Override
+		protected void process(double value) throws IOException {
+			this.min = Math.min(this.min, value);
+			this.max = Math.max(this.max, value);
+			this.startedLine = this.max > this.min + this.threshold;
+			if (this.startedLine) {
+				this.writeLine(this.lastMin, this.lastMax, this.length);
+				this.max = value;
+				this.min = value;
+				this.length = 0;
+			}
+			this.lastMin = this.min;
+			this.lastMax = this.max;
+			this.length++;
+			this.updateThreshold(value);
+		}
+
+		@Override
+		protected void finish() throws IOException {
+			this.writeLine(this.min, this.max, this.length);
+		}
+
+		/**
+		 * Same as {@link OnlineSignalStatistics#update(double)} followed by
+		 * {@link DefaultThresholdCalculator#newSample(double)}
+		 */
+		private void updateThreshold(double value) {
+			double delta = (value - this.average);
+			int lastCount = this.count++;
+			double deltaByN = delta / this.count;
+			double updateSquareSumTerm = delta * deltaByN * lastCount;
+
+			this.average += deltaByN;
+			this.m3 += updateSquareSumTerm * deltaByN * (this.count - 2) - 3
+					* deltaByN * this.m2;
+			this.m2 += updateSquareSumTerm;
+			if (--this.samplesUntilUpdate > 0) {
+				return;
+			}
+			this.samplesUntilUpdate = this.updateInterval;
+			double stdDev = Math.sqrt(this.m2 / this.count);
+			double thirdMoment = this.m3 / this.count;
+
+			double lastCf = this.cf;
+			this.cf = this.c1 * (stdDev + thirdMoment);
+			this.threshold = this.threshold - this.c2 * (this.cf - lastCf)
+					* this.threshold;
+			if (this.threshold < this.tMin) {
+				this.threshold = this.tMin;
+			}
+			if (this.threshold > this.tMax) {
+				this.threshold = this.tMax;
+			}
+		}
+
+		private void writeLine(double min, double max, int length)
+				throws IOException {
+			this.line[0] = length;
+			this.line[1] = (max + min) * 0.5;
+			AbstractEncodingOutput.put(this.getOutput(), this.line, 0, 2);
+			if (this.improved) {
+				this.count = 0;
+				this.average = 0.0;
+				this.m2 = 0.0;
+				this.m3 = 0.0;
+			}
+		}
+	}
+}
@@ -17,6 +17,10 @@ package br.ime.usp.aztec.maztec;
 
 import java.io.IOException;
 
+import br.ime.usp.aztec.AbstractEncodingSession;
+import br.ime.usp.aztec.EncodingSession;
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleIterator;
 import br.ime.usp.aztec.io.EncodingOutput;
 
 /**
@@ -27,6 +31,7 @@ import br.ime.usp.aztec.io.EncodingOutput;
 public final class MAZTEC {
 
 	private final ThresholdCalculator thresholdCalculator;
+	private final double[] line = new double[2];
 
 	/**
 	 * Initializes a new instance of the encoder
@@ -55,34 +60,74 @@ public final class MAZTEC {
 	 * @see MAZTECParameters
 	 */
 	public void encode(MAZTECParameters params) throws IOException {
-		double min = Double.POSITIVE_INFINITY;
-		double max = Double.NEGATIVE_INFINITY;
-		double lastMin = min;
-		double lastMax = max;
-		int length = 0;
-		for (Double value : params.getInput()) {
-			min = Math.min(min, value);
-			max = Math.max(max, value);
-			if (max > min + this.thresholdCalculator.getCurrentThreshold()) {
-				this.writeLine(params, lastMin, lastMax, length);
-				max = value;
-				min = value;
-				length = 0;
-			}
-			lastMin = min;
-			lastMax = max;
-			length++;
-			this.thresholdCalculator.newSample(value);
+		Session session = new Session(params);
+		DoubleIterator samples = params.getInput().doubleIterator();
+		while (samples.hasNext()) {
+			session.process(samples.nextDouble());
 		}
-		this.writeLine(params, min, max, length);
+		session.finish();
+	}
+
+	/**
+	 * Starts an encoding whose samples are given one by one, as they arrive,
+	 * instead of read from the input of the parameters, which is ignored.
+	 * The threshold calculator keeps the state of the threshold, so each
+	 * session that is open at the same time needs its own encoder.
+	 * 
+	 * @param params
+	 *            Parameters for the execution of the algorithm, such as
+	 *            output and weights for updating the threshold
+	 * @return The session, which closes the output when closed
+	 */
+	public EncodingSession open(MAZTECParameters params) {
+		return new Session(params);
 	}
 
 	protected void writeLine(MAZTECParameters params, double min, double max,
 			int length) throws IOException {
-		params.getOutput().put(length);
-		params.getOutput().put((max + min) * 0.5);
+		this.line[0] = length;
+		this.line[1] = (max + min) * 0.5;
+		AbstractEncodingOutput.put(params.getOutput(), this.line, 0, 2);
 		if (params.isImproved()) {
 			this.thresholdCalculator.reset();
 		}
 	}
+
+	private final class Session extends AbstractEncodingSession {
+		private final MAZTECParameters params;
+		private double min = Double.POSITIVE_INFINITY;
+		private double max = Double.NEGATIVE_INFINITY;
+		private double lastMin = this.min;
+		private double lastMax = this.max;
+		private int length = 0;
+
+		Session(MAZTECParameters params) {
+			super(params.getOutput());
+			this.params = params;
+		}
+
+		@Override
+		protected void process(double value) throws IOException {
+			this.min = Math.min(this.min, value);
+			this.max = Math.max(this.max, value);
+			if (this.max > this.min
+					+ MAZTEC.this.thresholdCalculator.getCurrentThreshold()) {
+				MAZTEC.this.writeLine(this.params, this.lastMin, this.lastMax,
+						this.length);
+				this.max = value;
+				this.min = value;
+				this.length = 0;
+			}
+			this.lastMin = this.min;
+			this.lastMax = this.max;
+			this.length++;
+			MAZTEC.this.thresholdCalculator.newSample(value);
+		}
+
+		@Override
+		protected void finish() throws IOException {
+			MAZTEC.this.writeLine(this.params, this.min, this.max,
+					this.length);
+		}
+	}
 }
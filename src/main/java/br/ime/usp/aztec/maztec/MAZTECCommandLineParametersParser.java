@@ -20,9 +20,9 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 
 import br.ime.usp.aztec.CommandLineParametersParser;
-import br.ime.usp.aztec.io.SignalParser;
-import br.ime.usp.aztec.io.WriterEncodingOutput;
+import br.ime.usp.aztec.io.EncodingHeader;
 import br.ime.usp.aztec.maztec.MAZTECParameters.Builder;
+import br.ime.usp.aztec.maztec.MAZTECParameters.Statistics;
 
 /**
  * Handles command-line options for the improved AZTEC algorithm and prints a
@@ -39,17 +39,20 @@ public final class MAZTECCommandLineParametersParser extends
 		if (options.hasOption('I')) {
 			builder.improved();
 		}
-		if (options.hasOption('d')) {
-			builder.decoding();
+		this.chooseStatisticsGivenIn(options, builder);
+		if (options.hasOption("speculative")) {
+			builder.speculative();
 		}
-		return builder
-				.withInput(new SignalParser(this.openInputGivenIn(options)))
-				.withOutput(
-						new WriterEncodingOutput(this
-								.openOutputGivenIn(options)))
-				.withMinimumThreshold(
-						Double.parseDouble(options.getOptionValue('t',
-								String.valueOf(MAZTECParameters.DEFAULT_T_MIN))))
+		builder.withWarmUpSamples(Integer.parseInt(options.getOptionValue(
+				"overlap",
+				String.valueOf(MAZTECParameters.DEFAULT_WARM_UP_SAMPLES))));
+		String updateInterval = String
+				.valueOf(MAZTECParameters.DEFAULT_THRESHOLD_UPDATE_INTERVAL);
+		builder.withThresholdUpdateInterval(Integer.parseInt(options
+				.getOptionValue("update-every", updateInterval)));
+		builder.withMinimumThreshold(
+				Double.parseDouble(options.getOptionValue('t',
+						String.valueOf(MAZTECParameters.DEFAULT_T_MIN))))
 				.withMaximumThreshold(
 						Double.parseDouble(options.getOptionValue('T',
 								String.valueOf(MAZTECParameters.DEFAULT_T_MAX))))
@@ -61,8 +64,52 @@ public final class MAZTECCommandLineParametersParser extends
 								String.valueOf(MAZTECParameters.DEFAULT_C1))))
 				.withLastThresholdWeight(
 						Double.parseDouble(options.getOptionValue('2',
-								String.valueOf(MAZTECParameters.DEFAULT_C2))))
+								String.valueOf(MAZTECParameters.DEFAULT_C2))));
+		if (options.hasOption('d')) {
+			return builder
+					.decoding()
+					.withThreads(this.threadsGivenIn(options))
+					.withInput(this.openEncodingGivenIn(options))
+					.withOutput(this.openTextOutputGivenIn(options)).build();
+		}
+		EncodingHeader header = new EncodingHeader("MAZTEC");
+		MAZTECParameters params = builder
+				.withThreads(this.threadsGivenIn(options))
+				.withInput(this.openSignalGivenIn(options))
+				.withOutput(this.openEncodingOutputGivenIn(options, header))
 				.build();
+		header.withParameter("tMin", params.getTMin())
+				.withParameter("tMax", params.getTMax())
+				.withParameter("initialT", params.getInitialT())
+				.withParameter("c1", params.getC1())
+				.withParameter("c2", params.getC2())
+				.withParameter("improved", params.isImproved() ? 1.0 : 0.0);
+		if (params.getStatistics() == Statistics.SLIDING_WINDOW) {
+			header.withParameter("slidingWindow",
+					params.getStatisticsWindow());
+		} else if (params.getStatistics() == Statistics.EXPONENTIAL) {
+			header.withParameter("exponentialSpan",
+					params.getStatisticsWindow());
+		}
+		if (params.getThresholdUpdateInterval() > 1) {
+			header.withParameter("thresholdUpdateInterval",
+					params.getThresholdUpdateInterval());
+		}
+		return params;
+	}
+
+	private void chooseStatisticsGivenIn(CommandLine options, Builder builder) {
+		String statistics = options.getOptionValue("statistics", "online");
+		int window = Integer.parseInt(options.getOptionValue("window",
+				String.valueOf(MAZTECParameters.DEFAULT_STATISTICS_WINDOW)));
+		if (statistics.equals("window")) {
+			builder.withSlidingWindowStatistics(window);
+		} else if (statistics.equals("ewma")) {
+			builder.withExponentialStatistics(window);
+		} else if (!statistics.equals("online")) {
+			throw new IllegalArgumentException("Unknown statistics '"
+					+ statistics + "'. Use online, window or ewma");
+		}
 	}
 
 	@Override
@@ -88,7 +135,30 @@ public final class MAZTECCommandLineParametersParser extends
 						+ " Defaults to 0.08");
 		defaultOptions.addOption("I", false,
 				"Use the improved version of modified AZTEC algorithm");
+		defaultOptions.addOption(null, "statistics", true, "Samples the "
+				+ "threshold is computed from: online (all of them, the "
+				+ "default), window (the last ones) or ewma (all, weighted "
+				+ "towards the last ones). Use window or ewma on long signals, "
+				+ "so the threshold keeps following them");
+		defaultOptions.addOption(null, "window", true, "Number of samples "
+				+ "of --statistics window, or span of --statistics ewma. "
+				+ "Defaults to " + MAZTECParameters.DEFAULT_STATISTICS_WINDOW);
+		defaultOptions.addOption(null, "update-every", true, "Number of "
+				+ "samples between updates of the threshold, which is "
+				+ "cheaper but less accurate when bigger than 1. "
+				+ "Defaults to 1");
 		defaultOptions.addOption("d", false, "Decode instead of encode");
+		defaultOptions.addOption("j", true, "Number of threads decoding, "
+				+ "or encoding with --speculative, at the same time. "
+				+ "Defaults to 1");
+		defaultOptions.addOption(null, "speculative", false, "Encode "
+				+ "chunks of the signal with the threads given with -j, "
+				+ "guessing their thresholds, so the encoding may differ "
+				+ "slightly from the one of a single thread");
+		defaultOptions.addOption(null, "overlap", true, "Number of samples "
+				+ "before each chunk encoded with --speculative used to warm "
+				+ "up its threshold. Defaults to "
+				+ MAZTECParameters.DEFAULT_WARM_UP_SAMPLES);
 	}
 
 	@Override
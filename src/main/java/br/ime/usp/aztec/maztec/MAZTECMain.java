@@ -17,32 +17,29 @@ package br.ime.usp.aztec.maztec;
 
 import java.io.IOException;
 
+import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
-import br.ime.usp.aztec.AlgorithmMain;
+import br.ime.usp.aztec.AbstractAlgorithmMain;
 import br.ime.usp.aztec.Decoder;
+import br.ime.usp.aztec.MultiLeadEncoding;
+import br.ime.usp.aztec.ParallelDecoder;
 import br.ime.usp.aztec.io.PleaseHelpMeException;
 import br.ime.usp.aztec.io.ReadOnlyOutputException;
+import br.ime.usp.aztec.maztec.MAZTECParameters.Statistics;
 
 /**
  * Entry point for the modified AZTEC algorithm encoder
  * 
  * @author Luiz Fernando Oliveira Corte Real
  */
-public final class MAZTECMain implements AlgorithmMain {
+public final class MAZTECMain extends AbstractAlgorithmMain {
 
 	@Override
 	public void run(String[] args) throws IOException {
 		MAZTECCommandLineParametersParser parser = new MAZTECCommandLineParametersParser();
 		try {
-			MAZTECParameters params = parser.parse(args);
-			if (params.isDecoding()) {
-				new Decoder().decode(params.getInput(), params.getOutput());
-			} else {
-				new MAZTEC(new DefaultThresholdCalculator(params,
-						new OnlineSignalStatistics())).encode(params);
-			}
-			params.getOutput().close();
+			this.execute(parser, args);
 		} catch (PleaseHelpMeException e) {
 			parser.printHelp();
 		} catch (ParseException e) {
@@ -55,6 +52,69 @@ public final class MAZTECMain implements AlgorithmMain {
 		}
 	}
 
+	@Override
+	public void execute(String[] args) throws IOException, ParseException,
+			PleaseHelpMeException {
+		this.execute(new MAZTECCommandLineParametersParser(), args);
+	}
+
+	@Override
+	public Options getCommandLineOptions() {
+		return new MAZTECCommandLineParametersParser().getCommandLineOptions();
+	}
+
+	private void execute(MAZTECCommandLineParametersParser parser, String[] args)
+			throws IOException, ParseException, PleaseHelpMeException {
+		if (parser.asksForAllLeads(args)) {
+			parser.parseLeads(args).encode(
+					new MultiLeadEncoding.LeadEncoder<MAZTECParameters>() {
+						@Override
+						public void encode(MAZTECParameters parameters)
+								throws IOException {
+							boolean failed = true;
+							try {
+								MAZTECMain.encode(parameters);
+								failed = false;
+							} finally {
+								close(parameters.getInput(),
+										parameters.getOutput(), failed);
+							}
+						}
+					});
+			return;
+		}
+		MAZTECParameters params = parser.parse(args);
+		boolean failed = true;
+		try {
+			if (params.isDecoding() && params.getThreads() > 1) {
+				new ParallelDecoder(params.getThreads()).decode(
+						params.getInput(), params.getOutput());
+			} else if (params.isDecoding()) {
+				new Decoder().decode(params.getInput(), params.getOutput());
+			} else {
+				encode(params);
+			}
+			failed = false;
+		} finally {
+			close(params.getInput(), params.getOutput(), failed);
+		}
+	}
+
+	private static void encode(MAZTECParameters params) throws IOException {
+		boolean online = params.getStatistics() == Statistics.ONLINE;
+		if (online && params.isSpeculative() && params.getThreads() > 1) {
+			ParallelMAZTEC.Report report = new ParallelMAZTEC(
+					params.getThreads()).encode(params);
+			if (!report.isExact()) {
+				System.err.println("Parallel encoding of " + report);
+			}
+		} else if (online) {
+			new FlatMAZTEC().encode(params);
+		} else {
+			new MAZTEC(new DefaultThresholdCalculator(params)).encode(params);
+		}
+	}
+
 	private void handleIOError(RuntimeException e) {
 		System.err.println(e.getMessage());
 		System.exit(2);
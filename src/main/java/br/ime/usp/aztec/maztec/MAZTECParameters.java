@@ -20,7 +20,9 @@ import java.io.OutputStreamWriter;
 
 import br.ime.usp.aztec.AZTECCommandLineParametersParser;
 import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.IterableSignalSource;
 import br.ime.usp.aztec.io.SignalParser;
+import br.ime.usp.aztec.io.SignalSource;
 import br.ime.usp.aztec.io.WriterEncodingOutput;
 
 /**
@@ -57,14 +59,63 @@ public final class MAZTECParameters {
 	 */
 	public static final double DEFAULT_INITIAL_T = 0.1;
 
+	/**
+	 * Default number of samples of the statistics that follow only the last
+	 * samples of the signal
+	 */
+	public static final int DEFAULT_STATISTICS_WINDOW = 1000;
+
+	/**
+	 * Default number of samples between updates of the threshold
+	 */
+	public static final int DEFAULT_THRESHOLD_UPDATE_INTERVAL = 1;
+
+	/**
+	 * Default number of samples before each chunk of a parallel encoding
+	 * used to warm its threshold up
+	 */
+	public static final int DEFAULT_WARM_UP_SAMPLES = 10000;
+
+	/**
+	 * Which samples of the signal the threshold is computed from
+	 */
+	public enum Statistics {
+		/**
+		 * All the samples, since the start of the signal or, in improved
+		 * mode, since the last line
+		 * 
+		 * @see OnlineSignalStatistics
+		 */
+		ONLINE,
+		/**
+		 * The last samples, up to the statistics window
+		 * 
+		 * @see SlidingWindowSignalStatistics
+		 */
+		SLIDING_WINDOW,
+		/**
+		 * All the samples, with weights decaying exponentially, whose span is
+		 * the statistics window
+		 * 
+		 * @see ExponentialSignalStatistics
+		 */
+		EXPONENTIAL
+	}
+
 	private double c1;
 	private double c2;
 	private double tMin;
 	private double tMax;
 	private double initialT;
 	private boolean improved;
+	private Statistics statistics;
+	private int statisticsWindow;
+	private int thresholdUpdateInterval;
+	private int warmUpSamples;
+	private boolean speculative;
 	private boolean decoding;
-	private Iterable<Double> input;
+	private int threads;
+	private SignalSource input;
 	private EncodingOutput output;
 
 	private MAZTECParameters() {
@@ -112,6 +163,32 @@ public final class MAZTECParameters {
 		return this.improved;
 	}
 
+	/**
+	 * @return Which samples of the signal the threshold is computed from
+	 */
+	public Statistics getStatistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * @return Number of samples of a sliding window, or the span of
+	 *         exponentially weighted statistics. Ignored by
+	 *         {@link Statistics#ONLINE} statistics.
+	 */
+	public int getStatisticsWindow() {
+		return this.statisticsWindow;
+	}
+
+	/**
+	 * @return Number of samples between updates of the threshold. The
+	 *         statistics of the signal are updated on every sample, but the
+	 *         threshold is computed from them only once every this many
+	 *         samples, which changes the encoding when bigger than 1.
+	 */
+	public int getThresholdUpdateInterval() {
+		return this.thresholdUpdateInterval;
+	}
+
 	/**
 	 * @return Decode instead of encode
 	 */
@@ -120,9 +197,36 @@ public final class MAZTECParameters {
 	}
 
 	/**
-	 * @return Iterable with input signal values
+	 * @return Number of samples before each chunk of a parallel encoding
+	 *         that are encoded only to warm the threshold up
+	 * @see ParallelMAZTEC
+	 */
+	public int getWarmUpSamples() {
+		return this.warmUpSamples;
+	}
+
+	/**
+	 * @return Encode chunks of the signal at the same time, guessing their
+	 *         threshold, with a {@link ParallelMAZTEC}? The encoding may then
+	 *         differ slightly from the one of a single thread.
+	 */
+	public boolean isSpeculative() {
+		return this.speculative;
+	}
+
+	/**
+	 * @return Number of threads decoding at the same time, with a
+	 *         {@link br.ime.usp.aztec.ParallelDecoder}, or encoding at the
+	 *         same time, if {@link #isSpeculative() speculative}
+	 */
+	public int getThreads() {
+		return this.threads;
+	}
+
+	/**
+	 * @return Input signal values
 	 */
-	public Iterable<Double> getInput() {
+	public SignalSource getInput() {
 		return this.input;
 	}
 
@@ -148,7 +252,13 @@ public final class MAZTECParameters {
 			this.params.tMin = DEFAULT_T_MIN;
 			this.params.tMax = DEFAULT_T_MAX;
 			this.params.improved = false;
+			this.params.statistics = Statistics.ONLINE;
+			this.params.statisticsWindow = DEFAULT_STATISTICS_WINDOW;
+			this.params.thresholdUpdateInterval = DEFAULT_THRESHOLD_UPDATE_INTERVAL;
+			this.params.warmUpSamples = DEFAULT_WARM_UP_SAMPLES;
+			this.params.speculative = false;
 			this.params.decoding = false;
+			this.params.threads = 1;
 			this.params.input = new SignalParser(new InputStreamReader(
 					System.in));
 			this.params.output = new WriterEncodingOutput(
@@ -240,11 +350,21 @@ public final class MAZTECParameters {
 		 * @return The builder
 		 * @see MAZTECParameters#getInput()
 		 */
-		public Builder withInput(Iterable<Double> input) {
+		public Builder withInput(SignalSource input) {
 			this.params.input = input;
 			return this;
 		}
 
+		/**
+		 * @param input
+		 *            A signal, whose values will be unboxed as they are read
+		 * @return The builder
+		 * @see MAZTECParameters#getInput()
+		 */
+		public Builder withInput(Iterable<Double> input) {
+			return this.withInput(new IterableSignalSource(input));
+		}
+
 		/**
 		 * @param output
 		 *            A processor of the algorithm output
@@ -267,6 +387,92 @@ public final class MAZTECParameters {
 			return this;
 		}
 
+		/**
+		 * Computes the threshold only from the last samples of the signal
+		 * 
+		 * @param samples
+		 *            Number of samples in the window
+		 * @return The builder
+		 * @throws IllegalArgumentException
+		 *             if the number of samples is not positive
+		 * @see SlidingWindowSignalStatistics
+		 */
+		public Builder withSlidingWindowStatistics(int samples) {
+			return this.withStatistics(Statistics.SLIDING_WINDOW, samples);
+		}
+
+		/**
+		 * Computes the threshold from exponentially weighted statistics
+		 * 
+		 * @param span
+		 *            Number of recent samples that account for most of the
+		 *            weight
+		 * @return The builder
+		 * @throws IllegalArgumentException
+		 *             if the span is not positive
+		 * @see ExponentialSignalStatistics
+		 */
+		public Builder withExponentialStatistics(int span) {
+			return this.withStatistics(Statistics.EXPONENTIAL, span);
+		}
+
+		private Builder withStatistics(Statistics statistics, int window) {
+			if (window < 1) {
+				throw new IllegalArgumentException("Statistics window must "
+						+ "be positive, but was " + window);
+			}
+			this.params.statistics = statistics;
+			this.params.statisticsWindow = window;
+			return this;
+		}
+
+		/**
+		 * @param samples
+		 *            Number of samples between updates of the threshold
+		 * @return The builder
+		 * @throws IllegalArgumentException
+		 *             if the number of samples is not positive
+		 * @see MAZTECParameters#getThresholdUpdateInterval()
+		 */
+		public Builder withThresholdUpdateInterval(int samples) {
+			if (samples < 1) {
+				throw new IllegalArgumentException("Threshold update "
+						+ "interval must be positive, but was " + samples);
+			}
+			this.params.thresholdUpdateInterval = samples;
+			return this;
+		}
+
+		/**
+		 * @param samples
+		 *            Number of samples before each chunk of a parallel
+		 *            encoding used to warm its threshold up
+		 * @return The builder
+		 * @throws IllegalArgumentException
+		 *             if the number of samples is negative
+		 * @see MAZTECParameters#getWarmUpSamples()
+		 */
+		public Builder withWarmUpSamples(int samples) {
+			if (samples < 0) {
+				throw new IllegalArgumentException("Warm-up samples cannot "
+						+ "be negative, but were " + samples);
+			}
+			this.params.warmUpSamples = samples;
+			return this;
+		}
+
+		/**
+		 * Makes the encoding split the signal into chunks encoded at the same
+		 * time, guessing their threshold
+		 * 
+		 * @return the builder
+		 * @see MAZTECParameters#isSpeculative()
+		 */
+		public Builder speculative() {
+			this.params.speculative = true;
+			return this;
+		}
+
 		/**
 		 * Makes the program decode instead of encode
 		 * 
@@ -277,6 +483,18 @@ public final class MAZTECParameters {
 			return this;
 		}
 
+		/**
+		 * @param threads
+		 *            Number of threads decoding, or encoding speculatively,
+		 *            at the same time
+		 * @return the builder
+		 * @see MAZTECParameters#getThreads()
+		 */
+		public Builder withThreads(int threads) {
+			this.params.threads = threads;
+			return this;
+		}
+
 		/**
 		 * Call this method when you have finished the configuration of the
 		 * parameters
@@ -24,8 +24,6 @@ public final class OnlineSignalStatistics implements SignalStatistics {
 
 	private int count = 0;
 	private double average = 0.0;
-	private double stdDev = 0.0;
-	private double thirdMoment = 0.0;
 	private double m2 = 0.0;
 	private double m3 = 0.0;
 
@@ -36,12 +34,12 @@ public final class OnlineSignalStatistics implements SignalStatistics {
 
 	@Override
 	public double getStandardDeviation() {
-		return this.stdDev;
+		return this.count == 0 ? 0.0 : Math.sqrt(this.m2 / this.count);
 	}
 
 	@Override
 	public double getThirdMoment() {
-		return this.thirdMoment;
+		return this.count == 0 ? 0.0 : this.m3 / this.count;
 	}
 
 	@Override
@@ -55,16 +53,12 @@ public final class OnlineSignalStatistics implements SignalStatistics {
 		this.m3 += updateSquareSumTerm * deltaByN * (this.count - 2) - 3
 				* deltaByN * this.m2;
 		this.m2 += updateSquareSumTerm;
-		this.stdDev = Math.sqrt(this.m2 / this.count);
-		this.thirdMoment = this.m3 / this.count;
 	}
 
 	@Override
 	public void reset() {
 		this.count = 0;
 		this.average = 0.0;
-		this.stdDev = 0.0;
-		this.thirdMoment = 0.0;
 		this.m2 = 0.0;
 		this.m3 = 0.0;
 	}
@@ -0,0 +1,353 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.maztec;
+
+import java.io.IOException;
+
+import br.ime.usp.aztec.ChunkedEncoding;
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.EncodingOutput;
+
+/**
+ * Encodes a signal with the modified AZTEC algorithm, with its default
+ * threshold, using many threads. The encoding may differ from the one of
+ * {@link FlatMAZTEC}, as the threshold depends on the whole signal before
+ * each sample, so the chunks encoded in parallel can only guess it.
+ * 
+ * The whole signal is read first and split into chunks. Every chunk but the
+ * first is encoded in parallel by a new encoder, which starts
+ * {@link MAZTECParameters#getWarmUpSamples()} samples before the chunk so
+ * that its threshold adapts to the signal. Meanwhile, the first chunk is
+ * encoded from its start, and the encoding goes on into the next chunk until
+ * it starts a line at the same sample as the guess did. From there on, the
+ * rest of the guess is used and the encoding goes on from its end into the
+ * next chunk. If they never start a line at the same sample, the chunk is
+ * simply encoded again.
+ * 
+ * A join is exact when both encoders have the same state, which happens in
+ * improved mode, where the statistics start again at every line, once the
+ * threshold of both is clamped to the same limit. So in improved mode the
+ * encoding looks for an exact join during the warm-up samples after the
+ * start of the chunk before settling for an approximate one. How close the
+ * encoding is to the one of a single thread is reported by a {@link Report}.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ * @see FlatMAZTEC
+ * @see ChunkedEncoding
+ */
+public final class ParallelMAZTEC {
+
+	private static final EncodingOutput NOWHERE = new Discard();
+
+	private final int threads;
+
+	/**
+	 * @param threads
+	 *            Number of threads encoding at the same time
+	 * @throws IllegalArgumentException
+	 *             if the number of threads is not positive
+	 */
+	public ParallelMAZTEC(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be "
+					+ "positive, but was " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Encodes the given signal, writing the output to the
+	 * {@link EncodingOutput} specified in the {@link MAZTECParameters} passed
+	 * as argument. The whole signal is kept in memory.
+	 * 
+	 * @param params
+	 *            Parameters for the execution of the algorithm, such as input,
+	 *            output and weights for updating the threshold of the algorithm
+	 * @return How the chunks were joined
+	 * @throws IOException
+	 *             if an error occurs when outputting values
+	 * @throws IllegalArgumentException
+	 *             if the parameters ask for statistics other than the online
+	 *             ones
+	 * @see FlatMAZTEC#encode(MAZTECParameters)
+	 */
+	public Report encode(MAZTECParameters params) throws IOException {
+		FlatMAZTEC.checkStatistics(params);
+		DoubleList signal = new DoubleList();
+		DoubleIterator values = params.getInput().doubleIterator();
+		while (values.hasNext()) {
+			signal.add(values.nextDouble());
+		}
+		return this.encode(signal.toArray(), params);
+	}
+
+	/**
+	 * Same as {@link #encode(MAZTECParameters)}, but encoding the given
+	 * samples instead of the input of the parameters
+	 * 
+	 * @param samples
+	 *            The signal to be encoded
+	 * @param params
+	 *            Parameters for the execution of the algorithm, whose input is
+	 *            ignored
+	 * @return How the chunks were joined
+	 * @throws IOException
+	 *             if an error occurs when outputting values
+	 * @throws IllegalArgumentException
+	 *             if the parameters ask for statistics other than the online
+	 *             ones
+	 */
+	public Report encode(double[] samples, MAZTECParameters params)
+			throws IOException {
+		FlatMAZTEC.checkStatistics(params);
+		Encoding encoding = new Encoding(samples, this.threads, params);
+		encoding.encode(new FlatMAZTEC.Session(params));
+		return encoding.report;
+	}
+
+	/**
+	 * How the chunks of a parallel encoding were joined, which tells how
+	 * close it is to the encoding of a single thread
+	 */
+	public static final class Report {
+		private final int chunks;
+		private int exactJoins = 0;
+		private int approximateJoins = 0;
+		private double largestThresholdDifference = 0.0;
+
+		Report(int chunks) {
+			this.chunks = chunks;
+		}
+
+		void joined(FlatMAZTEC.Session actual, FlatMAZTEC.Session guess) {
+			if (actual.hasSameStateAs(guess)) {
+				this.exactJoins++;
+				return;
+			}
+			this.approximateJoins++;
+			double a = actual.getThreshold();
+			double b = guess.getThreshold();
+			double difference = a == b ? 0.0 : Math.abs(a - b)
+					/ Math.max(Math.abs(a), Math.abs(b));
+			this.largestThresholdDifference = Math.max(
+					this.largestThresholdDifference, difference);
+		}
+
+		/**
+		 * @return Number of chunks the signal was split into
+		 */
+		public int getChunks() {
+			return this.chunks;
+		}
+
+		/**
+		 * @return Number of chunks joined to the previous one with the same
+		 *         state, so that they are encoded as by a single thread
+		 */
+		public int getExactJoins() {
+			return this.exactJoins;
+		}
+
+		/**
+		 * @return Number of chunks joined to the previous one with a
+		 *         different threshold, so that they may be encoded with
+		 *         other segments than by a single thread
+		 */
+		public int getApproximateJoins() {
+			return this.approximateJoins;
+		}
+
+		/**
+		 * @return Number of chunks that were encoded again, because they
+		 *         never started a line at the same sample as their guess
+		 */
+		public int getChunksEncodedAgain() {
+			return this.chunks - 1 - this.exactJoins - this.approximateJoins;
+		}
+
+		/**
+		 * @return Largest difference, relative to the largest of them, between
+		 *         the threshold of a single thread and the guessed one at an
+		 *         approximate join
+		 */
+		public double getLargestThresholdDifference() {
+			return this.largestThresholdDifference;
+		}
+
+		/**
+		 * @return Whether the encoding is the same as by a single thread
+		 */
+		public boolean isExact() {
+			return this.approximateJoins == 0;
+		}
+
+		@Override
+		public String toString() {
+			return this.chunks + " chunks: " + this.exactJoins
+					+ " joined exactly, " + this.approximateJoins
+					+ String.format(" joined approximately (largest threshold "
+							+ "difference %.3g%%), ",
+							100 * this.largestThresholdDifference)
+					+ this.getChunksEncodedAgain() + " encoded again";
+		}
+	}
+
+	private static final class Encoding extends
+			ChunkedEncoding<FlatMAZTEC.Session> {
+		private final MAZTECParameters params;
+		private final Report report;
+
+		Encoding(double[] samples, int threads, MAZTECParameters params) {
+			super(samples, threads, "MAZTEC encoder");
+			this.params = params;
+			this.report = new Report(this.getChunks());
+		}
+
+		@Override
+		protected ThresholdGuess guess(double[] samples, int from, int to)
+				throws IOException {
+			return new ThresholdGuess(this.params, this.report, samples, from,
+					to);
+		}
+	}
+
+	/**
+	 * Encoding of a chunk started some samples before it, to warm the
+	 * threshold up. Only the line starts inside the chunk where a join can
+	 * happen are kept: all of them while looking for an exact join, and then
+	 * only the first ones, as an approximate join happens at the first line
+	 * start both encodings share.
+	 */
+	private static final class ThresholdGuess extends
+			ChunkedEncoding.Guess<FlatMAZTEC.Session> {
+		private final MAZTECParameters params;
+		private final Report report;
+		private final FlatMAZTEC.Session session;
+
+		ThresholdGuess(MAZTECParameters params, Report report,
+				double[] samples, int from, int to) throws IOException {
+			super(from, to);
+			this.params = params;
+			this.report = report;
+			this.session = new FlatMAZTEC.Session(params, this.getOutput());
+			int exactUntil = this.exactUntil();
+			int approximate = 0;
+			for (int i = warmUpStart(params, from); i < to; i++) {
+				this.session.process(samples[i]);
+				if (i >= from && this.session.hasStartedLine()
+						&& (i < exactUntil
+								|| approximate++ < JOINABLE_LINE_STARTS)) {
+					this.keepLineStart(this.session.copyState(NOWHERE), i);
+				}
+			}
+		}
+
+		/**
+		 * @return The first sample encoded before the chunk, at the same
+		 *         point of the threshold update interval as the chunk
+		 */
+		private static int warmUpStart(MAZTECParameters params, int from) {
+			int start = Math.max(0, from - params.getWarmUpSamples());
+			return start - start % params.getThresholdUpdateInterval();
+		}
+
+		/**
+		 * @return The sample from which joins are approximate. In improved
+		 *         mode, exact joins are looked for during the warm-up samples
+		 *         after the start of the chunk.
+		 */
+		private int exactUntil() {
+			if (this.params.isImproved()) {
+				return this.getFrom() + this.params.getWarmUpSamples();
+			}
+			return this.getFrom();
+		}
+
+		/**
+		 * Goes on encoding the chunk from the given session, until it starts
+		 * a line at the same sample as this guess did
+		 */
+		@Override
+		protected FlatMAZTEC.Session join(FlatMAZTEC.Session actual,
+				double[] samples) throws IOException {
+			int exactUntil = this.exactUntil();
+			FlatMAZTEC.Session replay = null;
+			int lineStart = 0;
+			for (int i = this.getFrom(); i < this.getTo(); i++) {
+				actual.process(samples[i]);
+				if (replay != null) {
+					replay.process(samples[i]);
+				}
+				if (actual.hasStartedLine()) {
+					while (lineStart < this.getLineStarts()
+							&& this.getLineStartSample(lineStart) < i) {
+						lineStart++;
+					}
+					if (lineStart < this.getLineStarts()
+							&& this.getLineStartSample(lineStart) == i) {
+						FlatMAZTEC.Session guess = this.getLineStart(lineStart);
+						if (i >= exactUntil) {
+							this.report.joined(actual, guess);
+							return this.joinAt(lineStart);
+						}
+						if (replay == null) {
+							replay = guess.copyState(NOWHERE);
+						}
+					}
+				}
+				if (replay != null && actual.hasSameStateAs(replay)) {
+					this.report.joined(actual, replay);
+					int start = i - actual.getLineLength() + 1;
+					int index = Math.min(lineStart, this.getLineStarts() - 1);
+					while (this.getLineStartSample(index) != start) {
+						index--;
+					}
+					return this.joinAt(index);
+				}
+			}
+			return actual;
+		}
+
+		private FlatMAZTEC.Session joinAt(int lineStart) throws IOException {
+			this.joinAt(lineStart, this.params.getOutput());
+			return this.session;
+		}
+	}
+
+	/**
+	 * Output of the copies of the state of a guess, whose segments are
+	 * already kept by the guess
+	 */
+	private static final class Discard extends AbstractEncodingOutput {
+		@Override
+		public void put(double value) {
+		}
+
+		@Override
+		public void putRun(double value, int count) {
+		}
+
+		@Override
+		public void put(double[] values, int offset, int length) {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
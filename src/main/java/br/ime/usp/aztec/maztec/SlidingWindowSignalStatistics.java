@@ -0,0 +1,141 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.maztec;
+
+/**
+ * Computes statistics of the last samples of a signal, up to a fixed number
+ * of them, so that the statistics keep following the signal however long it
+ * is. The samples are kept in a ring, and each update adds the newest sample
+ * to the moments and removes the oldest one, with the inverse of the update
+ * of {@link OnlineSignalStatistics}, in constant time.
+ * 
+ * Removing samples accumulates rounding errors, so the moments are computed
+ * again from the samples in the ring each time it is filled by new samples,
+ * which still costs constant time per sample on average.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class SlidingWindowSignalStatistics implements SignalStatistics {
+
+	private final double[] window;
+	private int next = 0;
+	private int count = 0;
+	private int updatesUntilRecompute;
+	private double average = 0.0;
+	private double m2 = 0.0;
+	private double m3 = 0.0;
+
+	/**
+	 * @param size
+	 *            Number of samples in the window
+	 * @throws IllegalArgumentException
+	 *             if the size is not positive
+	 */
+	public SlidingWindowSignalStatistics(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Window size must be "
+					+ "positive, but was " + size);
+		}
+		this.window = new double[size];
+		this.updatesUntilRecompute = size;
+	}
+
+	@Override
+	public double getAverage() {
+		return this.average;
+	}
+
+	@Override
+	public double getStandardDeviation() {
+		return this.count == 0 ? 0.0 : Math.sqrt(Math.max(0.0, this.m2
+				/ this.count));
+	}
+
+	@Override
+	public double getThirdMoment() {
+		return this.count == 0 ? 0.0 : this.m3 / this.count;
+	}
+
+	@Override
+	public void update(double value) {
+		if (this.count == this.window.length) {
+			this.remove(this.window[this.next]);
+		}
+		this.window[this.next] = value;
+		this.next = (this.next + 1) % this.window.length;
+		this.add(value);
+		if (--this.updatesUntilRecompute == 0) {
+			this.recompute();
+			this.updatesUntilRecompute = this.window.length;
+		}
+	}
+
+	@Override
+	public void reset() {
+		this.next = 0;
+		this.count = 0;
+		this.updatesUntilRecompute = this.window.length;
+		this.average = 0.0;
+		this.m2 = 0.0;
+		this.m3 = 0.0;
+	}
+
+	private void add(double value) {
+		double delta = (value - this.average);
+		int lastCount = this.count++;
+		double deltaByN = delta / this.count;
+		double updateSquareSumTerm = delta * deltaByN * lastCount;
+
+		this.average += deltaByN;
+		this.m3 += updateSquareSumTerm * deltaByN * (this.count - 2) - 3
+				* deltaByN * this.m2;
+		this.m2 += updateSquareSumTerm;
+	}
+
+	private void remove(double value) {
+		int n = this.count--;
+		if (this.count == 0) {
+			this.average = 0.0;
+			this.m2 = 0.0;
+			this.m3 = 0.0;
+			return;
+		}
+		double lastAverage = (n * this.average - value) / this.count;
+		double delta = value - lastAverage;
+		double deltaByN = delta / n;
+		double updateSquareSumTerm = delta * deltaByN * this.count;
+
+		this.average = lastAverage;
+		this.m2 -= updateSquareSumTerm;
+		this.m3 -= updateSquareSumTerm * deltaByN * (n - 2) - 3 * deltaByN
+				* this.m2;
+	}
+
+	private void recompute() {
+		double sum = 0.0;
+		for (int i = 0; i < this.count; i++) {
+			sum += this.window[i];
+		}
+		this.average = sum / this.count;
+		this.m2 = 0.0;
+		this.m3 = 0.0;
+		for (int i = 0; i < this.count; i++) {
+			double delta = this.window[i] - this.average;
+			this.m2 += delta * delta;
+			this.m3 += delta * delta * delta;
+		}
+	}
+}
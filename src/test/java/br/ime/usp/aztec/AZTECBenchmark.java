@@ -0,0 +1,106 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import java.io.IOException;
+
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.test.Signals;
+
+/**
+ * Compares the time taken by {@link AZTEC} and {@link FlatAZTEC} to encode a
+ * synthetic ECG kept in memory, so that only the algorithms are measured. It
+ * is not run with the tests; run its main method instead, optionally giving
+ * the number of samples and the value of K.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class AZTECBenchmark {
+	private static final int WARM_UP_RUNS = 5;
+	private static final int MEASURED_RUNS = 10;
+
+	private interface Encoder {
+		void encode(AZTECParameters parameters) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int samples = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		double k = args.length > 1 ? Double.parseDouble(args[1]) : 0.03;
+		DoubleList signal = Signals.ecg(samples);
+		Encoder objects = new Encoder() {
+			@Override
+			public void encode(AZTECParameters parameters) throws IOException {
+				new AZTEC().encode(parameters);
+			}
+		};
+		Encoder flat = new Encoder() {
+			@Override
+			public void encode(AZTECParameters parameters) throws IOException {
+				new FlatAZTEC().encode(parameters);
+			}
+		};
+		double objectsTime = measure("AZTEC", objects, signal, k);
+		double flatTime = measure("FlatAZTEC", flat, signal, k);
+		System.out.printf("FlatAZTEC takes %.2f of the time of AZTEC%n",
+				flatTime / objectsTime);
+	}
+
+	private static double measure(String name, Encoder encoder,
+			DoubleList signal, double k) throws IOException {
+		SegmentCounter output = new SegmentCounter();
+		AZTECParameters parameters = new AZTECParameters.Builder()
+				.withMaximumAcceptableVariation(k).withInput(signal)
+				.withOutput(output).build();
+		for (int i = 0; i < WARM_UP_RUNS; i++) {
+			encoder.encode(parameters);
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			output.values = 0;
+			long start = System.nanoTime();
+			encoder.encode(parameters);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		double nanosPerSample = (double) best / signal.size();
+		System.out.printf("%-10s %6.2f ns/sample, %d segments%n", name,
+				nanosPerSample, output.values / 2);
+		return nanosPerSample;
+	}
+
+	private static final class SegmentCounter extends AbstractEncodingOutput {
+		long values = 0;
+
+		@Override
+		public void put(double value) {
+			this.values++;
+		}
+
+		@Override
+		public void putRun(double value, int count) {
+			this.values += count;
+		}
+
+		@Override
+		public void put(double[] values, int offset, int length) {
+			this.values += length;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -17,12 +17,15 @@ package br.ime.usp.aztec;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Scanner;
@@ -30,7 +33,15 @@ import java.util.Scanner;
 import org.junit.Before;
 import org.junit.Test;
 
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.AsyncEncodingOutput;
+import br.ime.usp.aztec.io.BinaryEncodingInput;
+import br.ime.usp.aztec.io.BinaryEncodingOutput;
+import br.ime.usp.aztec.io.EncodingHeader;
 import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.EntropyEncodingOutput;
+import br.ime.usp.aztec.io.IndexedEncoding;
+import br.ime.usp.aztec.io.IndexedEncodingOutput;
 import br.ime.usp.aztec.io.PleaseHelpMeException;
 import br.ime.usp.aztec.io.ReadOnlyOutputException;
 
@@ -103,6 +114,197 @@ public final class AZTECCommandLineParametersParserTest {
 		assertThat(outputLine, containsString(number.toString()));
 	}
 
+	@Test
+	public void writesABinaryEncodingWithTheGivenParametersIfAsked()
+			throws Exception {
+		File tempFile = this.createTempFile();
+
+		AZTECParameters params = this.parser.parse(new String[] { "-K", "20",
+				"-T", "3", "-f", "binary", "-o", tempFile.getAbsolutePath() });
+		params.getOutput().put(4.0);
+		params.getOutput().put(1.5);
+		params.getOutput().close();
+
+		BinaryEncodingInput encoding = new BinaryEncodingInput(
+				new FileInputStream(tempFile));
+		assertThat(encoding.getHeader().getAlgorithm(), is("AZTEC"));
+		assertThat(encoding.getHeader().getParameters().get("K"), is(20.0));
+		assertThat(encoding.getHeader().getParameters().get("T"), is(3.0));
+		assertThat(encoding, contains(4.0, 1.5));
+	}
+
+	@Test
+	public void readsABinaryEncodingWhenDecodingIfAsked() throws Exception {
+		File tempFile = this.createTempFile();
+		BinaryEncodingOutput output = new BinaryEncodingOutput(
+				new FileOutputStream(tempFile), new EncodingHeader("AZTEC"));
+		output.put(4.0);
+		output.put(1.5);
+		output.close();
+
+		AZTECParameters params = this.parser.parse(new String[] { "-d", "-f",
+				"binary", "-i", tempFile.getAbsolutePath() });
+		assertThat(params.getInput(), contains(4.0, 1.5));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesToDecodeEncodingsOfOtherAlgorithms() throws Exception {
+		File tempFile = this.createTempFile();
+		BinaryEncodingOutput output = new BinaryEncodingOutput(
+				new FileOutputStream(tempFile), new EncodingHeader("AZTDIS"));
+		output.put(4.0);
+		output.put(1.5);
+		output.close();
+
+		this.parser.parse(new String[] { "-d", "-f", "binary", "-i",
+				tempFile.getAbsolutePath() });
+	}
+
+	@Test
+	public void readsBackAnEntropyEncodingIfAsked() throws Exception {
+		File tempFile = File.createTempFile("tmp", "ent");
+		tempFile.deleteOnExit();
+		EncodingOutput output = new EntropyEncodingOutput(
+				new FileOutputStream(tempFile), new EncodingHeader("AZTEC")
+						.withEntropyCodedAmplitudes(0.5));
+		output.put(4.0);
+		output.put(1.4);
+		output.close();
+
+		AZTECParameters params = this.parser.parse(new String[] { "-d", "-f",
+				"entropy", "-i", tempFile.getAbsolutePath() });
+		assertThat(params.getInput(), contains(4.0, 1.5));
+	}
+
+	@Test
+	public void readsAWindowOfAnIndexedEncodingIfAsked() throws Exception {
+		File tempFile = File.createTempFile("tmp", "idx");
+		tempFile.deleteOnExit();
+		IndexedEncodingOutput output = new IndexedEncodingOutput(
+				new FileOutputStream(tempFile),
+				new EncodingHeader("AZTEC").withIndex(1));
+		output.put(new double[] { 4.0, 1.5, 2.0, 3.0, 1.0, 2.5 }, 0, 6);
+		output.close();
+
+		AZTECParameters params = this.parser.parse(new String[] { "-d", "-f",
+				"indexed", "-i", tempFile.getAbsolutePath(), "--from", "5",
+				"--to", "6" });
+		assertThat(params.getInput(),
+				is(instanceOf(IndexedEncoding.Window.class)));
+		assertThat(params.getInput(), contains(2.0, 3.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodesOnlyIndexedEncodingsFromAGivenSample() throws Exception {
+		this.parser.parse(new String[] { "-d", "-f", "binary", "--from", "5" });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void requiresTheResolutionOfEntropyEncodings() throws Exception {
+		this.parser.parse(new String[] { "-K", "20", "-f", "entropy" });
+	}
+
+	@Test
+	public void writesTheOutputInTheBackgroundIfAsked() throws Exception {
+		File tempFile = File.createTempFile("tmp", "txt");
+		tempFile.deleteOnExit();
+		AZTECParameters params = this.parser.parse(new String[] { "-K", "20",
+				"--async-output", "-o", tempFile.getAbsolutePath() });
+		assertThat(params.getOutput(),
+				is(instanceOf(AsyncEncodingOutput.class)));
+		AbstractEncodingOutput.put(params.getOutput(), new double[] { 2.0,
+				1.5 }, 0, 2);
+		params.getOutput().close();
+		assertThat(new Scanner(tempFile).useDelimiter("\\A").next(),
+				is("2.0\n1.5\n"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesUnknownFormats() throws Exception {
+		this.parser.parse(new String[] { "-K", "20", "-f", "xml" });
+	}
+
+	@Test
+	public void readsTheChosenSignalOfAWFDBRecordIfAsked() throws Exception {
+		File header = File.createTempFile("record", ".hea");
+		File samples = new File(header.getPath().replace(".hea", ".dat"));
+		FileWriter writer = new FileWriter(header);
+		writer.write("record 2 360\n" + samples.getName() + " 16 1\n"
+				+ samples.getName() + " 16 2\n");
+		writer.close();
+		FileOutputStream output = new FileOutputStream(samples);
+		output.write(new byte[] { 1, 0, 2, 0, 3, 0, 4, 0 });
+		output.close();
+		samples.deleteOnExit();
+		header.deleteOnExit();
+
+		String record = header.getPath().replace(".hea", "");
+		AZTECParameters params = this.parser.parse(new String[] { "-K", "20",
+				"-s", "wfdb", "-c", "1", "-i", record });
+		assertThat(params.getInput(), contains(1.0, 2.0));
+	}
+
+	@Test
+	public void readsTheChosenColumnOfACSVFileIfAsked() throws Exception {
+		File file = this.createCSVFile();
+		AZTECParameters params = this.parser.parse(new String[] { "-K", "20",
+				"-s", "csv", "-c", "1", "-i", file.getAbsolutePath() });
+		assertThat(params.getInput(), contains(2.0, 4.0));
+	}
+
+	@Test
+	public void givesParametersForEachLeadOfACSVFileIfAllAreAsked()
+			throws Exception {
+		File file = this.createCSVFile();
+		File output = File.createTempFile("leads", "");
+		String[] args = new String[] { "-K", "20", "-s", "csv", "-c", "all",
+				"-i", file.getAbsolutePath(), "-o", output.getAbsolutePath() };
+		assertTrue("Should ask for all leads", this.parser.asksForAllLeads(args));
+		MultiLeadEncoding<AZTECParameters> leads = this.parser
+				.parseLeads(args);
+		assertThat(leads.getNumberOfLeads(), is(2));
+		leads.encode(new MultiLeadEncoding.LeadEncoder<AZTECParameters>() {
+			@Override
+			public void encode(AZTECParameters parameters) throws IOException {
+				new AZTEC().encode(parameters);
+				parameters.getOutput().close();
+			}
+		});
+		for (int lead = 0; lead < 2; lead++) {
+			File leadOutput = new File(output.getPath() + "." + lead);
+			leadOutput.deleteOnExit();
+			assertThat(new Scanner(leadOutput).useDelimiter("\\A").next(),
+					is("2.0\n" + (lead + 2) + ".0\n"));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesToEncodeAllLeadsWithoutAnOutputFile() throws Exception {
+		this.parser.parseLeads(new String[] { "-K", "20", "-s", "csv", "-c",
+				"all", "-i", this.createCSVFile().getAbsolutePath() });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesToEncodeAllLeadsOfAnythingButCSVFiles()
+			throws Exception {
+		this.parser.parseLeads(new String[] { "-K", "20", "-c", "all", "-i",
+				this.createTempFile().getAbsolutePath(), "-o", "leads" });
+	}
+
+	private File createCSVFile() throws IOException {
+		File file = File.createTempFile("leads", ".csv");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write("I,II\n1,2\n3,4\n");
+		writer.close();
+		return file;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesUnknownSignalFormats() throws Exception {
+		this.parser.parse(new String[] { "-K", "20", "-s", "xml" });
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void requiresMaximumVoltageVariationOrHelpFlag() throws Exception {
 		this.parser.parse(new String[] {});
@@ -118,6 +320,30 @@ public final class AZTECCommandLineParametersParserTest {
 		assertThat(this.parser.parse(this.defaultParameters).getN(), is(25.0));
 	}
 
+	@Test
+	public void extractsTheNumberOfThreadsFromCommandLine()
+			throws Exception {
+		AZTECParameters params = this.parser.parse(new String[] { "-d", "-j",
+				"4" });
+		assertThat(params.getThreads(), is(4));
+		assertThat(this.parser.parse(new String[] { "-d" })
+				.getThreads(), is(1));
+	}
+
+	@Test
+	public void extractsTheNumberOfEncodingThreadsFromCommandLine()
+			throws Exception {
+		AZTECParameters params = this.parser.parse(new String[] { "-K", "20",
+				"-j", "3" });
+		assertThat(params.getThreads(), is(3));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesANonPositiveNumberOfThreads()
+			throws Exception {
+		this.parser.parse(new String[] { "-d", "-j", "0" });
+	}
+
 	@Test
 	public void isEncodingIfDecodeFlagNotSpecified() throws Exception {
 		assertFalse("Should not indicate that is decoding",
@@ -0,0 +1,114 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.AbstractSignalSource;
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.DoubleList;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class AbstractAlgorithmMainTest {
+
+	@Test
+	public void closesTheOutputAndTheInput() throws Exception {
+		ClosingInput input = new ClosingInput();
+		ClosingOutput output = new ClosingOutput(false);
+
+		AbstractAlgorithmMain.close(input, output, false);
+
+		assertThat(output.closed, is(true));
+		assertThat(input.closed, is(true));
+	}
+
+	@Test
+	public void closesTheInputEvenIfTheOutputCannotBeClosed()
+			throws Exception {
+		ClosingInput input = new ClosingInput();
+		try {
+			AbstractAlgorithmMain.close(input, new ClosingOutput(true), false);
+			fail("Should have thrown the failure to close the output");
+		} catch (IOException e) {
+			assertThat(e.getMessage(), is("Disk full"));
+		}
+		assertThat(input.closed, is(true));
+	}
+
+	@Test
+	public void doesNotHideTheFailureOfTheRun() throws Exception {
+		ClosingInput input = new ClosingInput();
+
+		AbstractAlgorithmMain.close(input, new ClosingOutput(true), true);
+
+		assertThat(input.closed, is(true));
+	}
+
+	@Test
+	public void ignoresInputsThatCannotBeClosed() throws Exception {
+		ClosingOutput output = new ClosingOutput(false);
+
+		AbstractAlgorithmMain.close(new DoubleList(), output, false);
+
+		assertThat(output.closed, is(true));
+	}
+
+	private static final class ClosingInput extends AbstractSignalSource
+			implements Closeable {
+		boolean closed = false;
+
+		@Override
+		public DoubleIterator doubleIterator() {
+			return new DoubleList().doubleIterator();
+		}
+
+		@Override
+		public void close() {
+			this.closed = true;
+		}
+	}
+
+	private static final class ClosingOutput extends AbstractEncodingOutput {
+		private final boolean fails;
+		boolean closed = false;
+
+		ClosingOutput(boolean fails) {
+			this.fails = fails;
+		}
+
+		@Override
+		public void put(double value) {
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.closed = true;
+			if (this.fails) {
+				throw new IOException("Disk full");
+			}
+		}
+	}
+}
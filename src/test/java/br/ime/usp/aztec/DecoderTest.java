@@ -16,12 +16,20 @@ limitations under the License.
 package br.ime.usp.aztec;
 
 import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
+import java.io.FileOutputStream;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import br.ime.usp.aztec.io.EncodingHeader;
+import br.ime.usp.aztec.io.IndexedEncoding;
+import br.ime.usp.aztec.io.IndexedEncodingOutput;
 import br.ime.usp.aztec.io.IterableEncodingOutput;
 
 /**
@@ -81,4 +89,38 @@ public final class DecoderTest {
 		assertThat(this.output,
 				contains(1.0, 1.0, 1.0, 2.0, 3.0, 4.0, 3.0, 2.0, 1.0, 0.0));
 	}
+
+	@Test
+	public void decodesALongSlopeAfterAShortOne() throws Exception {
+		Iterable<Double> encoded = asList(1.0, 0.0, -2.0, 2.0, -100.0, 100.0);
+		this.decoder.decode(encoded, this.output);
+		double expected = 2.0;
+		int position = 0;
+		for (Double value : this.output) {
+			if (position > 2) {
+				expected += 1.0;
+			}
+			if (position >= 3) {
+				assertThat(value, closeTo(expected, 1e-9));
+			}
+			position++;
+		}
+		assertThat(position, is(103));
+	}
+
+	@Test
+	public void decodesOnlyTheGivenSamplesOfAnIndexedEncoding()
+			throws Exception {
+		File file = File.createTempFile("tmp", "idx");
+		file.deleteOnExit();
+		IndexedEncodingOutput encoding = new IndexedEncodingOutput(
+				new FileOutputStream(file), new EncodingHeader("AZTEC")
+						.withIndex(2));
+		encoding.put(new double[] { 3.0, 1.0, -3.0, 3.0, -4.0, -4.0, 2.0,
+				5.0 }, 0, 8);
+		encoding.close();
+		this.decoder.decode(new IndexedEncoding(file), 4, 11, this.output);
+		assertThat(this.output,
+				contains(3.0, 4.0, 3.0, 2.0, 1.0, 0.0, 5.0));
+	}
 }
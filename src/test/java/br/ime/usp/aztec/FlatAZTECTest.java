@@ -0,0 +1,210 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.Test;
+
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.EncodingOutput;
+import br.ime.usp.aztec.io.IterableEncodingOutput;
+import br.ime.usp.aztec.io.WriterEncodingOutput;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class FlatAZTECTest {
+
+	@Test
+	public void encodesLinesAndSlopesAsAZTEC() throws Exception {
+		IterableEncodingOutput output = new IterableEncodingOutput();
+		new FlatAZTEC().encode(new AZTECParameters.Builder()
+				.withMaximumAcceptableVariation(0.1)
+				.withMaximumLineLength(10.0)
+				.withInput(asList(1.0, 1.0, 1.0, 1.1, 1.2, 1.3, 1.4, 1.5, 1.5,
+						1.6, 1.8, 1.9, 2.0)).withOutput(output).build());
+		assertThat(output, contains(4.0, 1.05, -9.0, 0.8));
+	}
+
+	@Test
+	public void givesTheSameEncodingAsAZTECForNoisySignals()
+			throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			DoubleList signal = new DoubleList();
+			double value = random.nextGaussian();
+			int samples = random.nextInt(2000);
+			for (int j = 0; j < samples; j++) {
+				switch (random.nextInt(3)) {
+				case 0:
+					value += random.nextGaussian() * 0.05;
+					break;
+				case 1:
+					value += random.nextGaussian() * 0.5;
+					break;
+				default:
+					value += Math.signum(random.nextGaussian()) * 0.2;
+				}
+				signal.add(value);
+			}
+			assertSameEncoding(signal, random.nextDouble() * 0.5,
+					random.nextInt(8), 1 + random.nextInt(40));
+		}
+	}
+
+	@Test
+	public void givesTheSameEncodingAsAZTECForAnECGLikeSignal()
+			throws Exception {
+		DoubleList signal = new DoubleList();
+		Random random = new Random(7);
+		for (int i = 0; i < 50000; i++) {
+			double beat = (i % 300) / 300.0;
+			double value = Math.exp(-Math.pow((beat - 0.3) * 40, 2)) * 1.2
+					- Math.exp(-Math.pow((beat - 0.27) * 60, 2)) * 0.2
+					+ Math.exp(-Math.pow((beat - 0.6) * 10, 2)) * 0.3;
+			signal.add(value + random.nextGaussian() * 0.01);
+		}
+		for (double k : new double[] { 0.01, 0.03, 0.1 }) {
+			assertSameEncoding(signal, k, AZTECParameters.DEFAULT_T,
+					AZTECParameters.DEFAULT_N);
+		}
+	}
+
+	@Test
+	public void givesTheSameEncodingAsAZTECForShortSignals()
+			throws Exception {
+		double[][] signals = { {}, { 1.0 }, { 1.0, 5.0 }, { 1.0, 5.0, 1.0 },
+				{ 0.0, -1.0, -2.0, -3.0, -2.0 } };
+		for (double[] values : signals) {
+			DoubleList signal = new DoubleList();
+			signal.add(values, 0, values.length);
+			assertSameEncoding(signal, 0.5, 2, 3);
+			assertSameEncoding(signal, 0.5, 0, Double.POSITIVE_INFINITY);
+		}
+	}
+
+	private static void assertSameEncoding(DoubleList signal, double k,
+			double t, double n) throws Exception {
+		IterableEncodingOutput expected = new IterableEncodingOutput();
+		new AZTEC().encode(new AZTECParameters.Builder()
+				.withMaximumAcceptableVariation(k).withMaximumSlopeLineSize(t)
+				.withMaximumLineLength(n).withInput(signal)
+				.withOutput(expected).build());
+		IterableEncodingOutput actual = new IterableEncodingOutput();
+		new FlatAZTEC().encode(new AZTECParameters.Builder()
+				.withMaximumAcceptableVariation(k).withMaximumSlopeLineSize(t)
+				.withMaximumLineLength(n).withInput(signal).withOutput(actual)
+				.build());
+		assertThat(actual.getValues().toArray(), is(expected.getValues()
+				.toArray()));
+	}
+
+	@Test
+	public void encodesSamplesPushedInBatchesAsTheWholeSignal()
+			throws Exception {
+		DoubleList signal = new DoubleList();
+		Random random = new Random(3);
+		double value = 0.0;
+		for (int i = 0; i < 20000; i++) {
+			value += random.nextGaussian() * 0.1;
+			signal.add(value);
+		}
+		IterableEncodingOutput expected = new IterableEncodingOutput();
+		new FlatAZTEC().encode(parameters(signal, expected));
+		IterableEncodingOutput actual = new IterableEncodingOutput();
+		EncodingSession session = new FlatAZTEC().open(parameters(
+				new DoubleList(), actual));
+		double[] samples = signal.toArray();
+		for (int i = 0; i < samples.length;) {
+			int batch = Math.min(random.nextInt(50), samples.length - i);
+			if (batch == 1) {
+				session.accept(samples[i]);
+			} else {
+				session.accept(samples, i, batch);
+			}
+			i += batch;
+		}
+		session.close();
+		assertThat(actual.getValues().toArray(), is(expected.getValues()
+				.toArray()));
+	}
+
+	@Test
+	public void putsEachSegmentAsSoonAsItIsFinal() throws Exception {
+		IterableEncodingOutput output = new IterableEncodingOutput();
+		EncodingSession session = new FlatAZTEC().open(parameters(
+				new DoubleList(), output));
+		session.accept(new double[] { 1.0, 1.0, 1.0, 1.0, 1.0 }, 0, 5);
+		assertThat(output.getValues().size(), is(0));
+		session.accept(9.0);
+		assertThat(output, contains(5.0, 1.0));
+		session.close();
+		assertThat(output, contains(5.0, 1.0, 1.0, 9.0));
+	}
+
+	@Test
+	public void keepsManySessionsOpenAtTheSameTime() throws Exception {
+		IterableEncodingOutput[] outputs = new IterableEncodingOutput[10000];
+		EncodingSession[] sessions = new EncodingSession[outputs.length];
+		for (int i = 0; i < sessions.length; i++) {
+			outputs[i] = new IterableEncodingOutput();
+			sessions[i] = new FlatAZTEC().open(parameters(new DoubleList(),
+					outputs[i]));
+		}
+		for (int sample = 0; sample < 10; sample++) {
+			for (int i = 0; i < sessions.length; i++) {
+				sessions[i].accept(i + (sample < 5 ? 0.0 : 100.0));
+			}
+		}
+		for (int i = 0; i < sessions.length; i++) {
+			sessions[i].close();
+			assertThat(outputs[i], contains(5.0, (double) i, 5.0, i + 100.0));
+		}
+	}
+
+	@Test
+	public void flushesTheOutput() throws Exception {
+		StringWriter writer = new StringWriter();
+		EncodingSession session = new FlatAZTEC().open(parameters(
+				new DoubleList(), new WriterEncodingOutput(writer)));
+		session.accept(new double[] { 1.0, 1.0, 1.0, 1.0, 9.0 }, 0, 5);
+		session.flush();
+		assertThat(writer.toString(), is("4.0\n1.0\n"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void refusesSamplesAfterBeingClosed() throws Exception {
+		EncodingSession session = new FlatAZTEC().open(parameters(
+				new DoubleList(), new IterableEncodingOutput()));
+		session.close();
+		session.close();
+		session.accept(1.0);
+	}
+
+	private static AZTECParameters parameters(DoubleList signal,
+			EncodingOutput output) {
+		return new AZTECParameters.Builder()
+				.withMaximumAcceptableVariation(0.1).withInput(signal)
+				.withOutput(output).build();
+	}
+}
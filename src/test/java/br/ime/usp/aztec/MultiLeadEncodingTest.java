@@ -0,0 +1,99 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import br.ime.usp.aztec.io.CSVRowParser;
+import br.ime.usp.aztec.io.DoubleIterator;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.PipedSignal;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class MultiLeadEncodingTest {
+	private PipedSignal[] leads;
+
+	@Test
+	public void feedsEachLeadWithItsColumn() throws Exception {
+		final List<DoubleList> outputs = new ArrayList<DoubleList>();
+		MultiLeadEncoding<Integer> encoding = this.encoding("1,2,3\n4,5,6\n");
+		for (int i = 0; i < 3; i++) {
+			outputs.add(new DoubleList());
+		}
+		final PipedSignal[] leads = this.leads;
+		encoding.encode(new MultiLeadEncoding.LeadEncoder<Integer>() {
+			@Override
+			public void encode(Integer lead) {
+				DoubleIterator values = leads[lead].doubleIterator();
+				while (values.hasNext()) {
+					outputs.get(lead).add(values.nextDouble());
+				}
+			}
+		});
+		assertThat(outputs.get(0), contains(1.0, 4.0));
+		assertThat(outputs.get(1), contains(2.0, 5.0));
+		assertThat(outputs.get(2), contains(3.0, 6.0));
+	}
+
+	@Test(expected = IOException.class)
+	public void throwsWhatALeadEncoderThrowsAfterTheOthersFinish()
+			throws Exception {
+		StringBuilder rows = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			rows.append(i).append(',').append(-i).append('\n');
+		}
+		MultiLeadEncoding<Integer> encoding = this.encoding(rows.toString());
+		final PipedSignal[] leads = this.leads;
+		encoding.encode(new MultiLeadEncoding.LeadEncoder<Integer>() {
+			@Override
+			public void encode(Integer lead) throws IOException {
+				if (lead == 1) {
+					throw new IOException("Disk full");
+				}
+				DoubleIterator values = leads[lead].doubleIterator();
+				while (values.hasNext()) {
+					values.nextDouble();
+				}
+			}
+		});
+	}
+
+	private MultiLeadEncoding<Integer> encoding(String text)
+			throws IOException {
+		CSVRowParser rows = new CSVRowParser(
+				Channels.newChannel(new ByteArrayInputStream(text.getBytes())));
+		this.leads = new PipedSignal[rows.getNumberOfColumns()];
+		Integer[] parameters = new Integer[this.leads.length];
+		for (int i = 0; i < this.leads.length; i++) {
+			this.leads[i] = new PipedSignal();
+			parameters[i] = i;
+		}
+		return new MultiLeadEncoding<Integer>(rows, this.leads,
+				Arrays.asList(parameters));
+	}
+}
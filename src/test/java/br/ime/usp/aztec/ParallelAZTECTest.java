@@ -0,0 +1,100 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.test.Signals;
+import br.ime.usp.aztec.io.IterableEncodingOutput;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class ParallelAZTECTest {
+	private static final int SAMPLES =
+			ChunkedEncoding.MIN_CHUNK_SAMPLES * 5 + 123;
+
+	@Test
+	public void givesTheSameEncodingAsASingleThreadForAnECGLikeSignal()
+			throws Exception {
+		DoubleList signal = Signals.ecg(SAMPLES);
+		for (double k : new double[] { 0.005, 0.03, 0.1, 2.0 }) {
+			assertSameEncoding(signal, k, 3);
+		}
+	}
+
+	@Test
+	public void givesTheSameEncodingAsASingleThreadForARandomWalk()
+			throws Exception {
+		DoubleList signal = new DoubleList();
+		Random random = new Random(42);
+		double value = 0.0;
+		for (int i = 0; i < SAMPLES; i++) {
+			value += random.nextGaussian() * 0.1;
+			signal.add(value);
+		}
+		for (int threads = 2; threads <= 4; threads++) {
+			assertSameEncoding(signal, 0.1, threads);
+		}
+	}
+
+	@Test
+	public void givesTheSameEncodingWhenChunksNeverStartALine()
+			throws Exception {
+		DoubleList signal = new DoubleList();
+		for (int i = 0; i < SAMPLES; i++) {
+			signal.add(i % 2 == 0 ? i * 0.01 : -i * 0.01);
+		}
+		assertSameEncoding(signal, 0.001, 4);
+	}
+
+	@Test
+	public void encodesShortSignalsWithASingleThread() throws Exception {
+		IterableEncodingOutput output = new IterableEncodingOutput();
+		new ParallelAZTEC(4).encode(new AZTECParameters.Builder()
+				.withMaximumAcceptableVariation(0.1)
+				.withInput(asList(1.0, 1.0, 1.0, 1.0, 2.0)).withOutput(output)
+				.build());
+		assertThat(output, contains(4.0, 1.0, 1.0, 2.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void requiresAPositiveNumberOfThreads() {
+		new ParallelAZTEC(0);
+	}
+
+	private static void assertSameEncoding(DoubleList signal, double k,
+			int threads) throws Exception {
+		IterableEncodingOutput expected = new IterableEncodingOutput();
+		new FlatAZTEC().encode(new AZTECParameters.Builder()
+				.withMaximumAcceptableVariation(k).withInput(signal)
+				.withOutput(expected).build());
+		IterableEncodingOutput actual = new IterableEncodingOutput();
+		new ParallelAZTEC(threads).encode(new AZTECParameters.Builder()
+				.withMaximumAcceptableVariation(k).withInput(signal)
+				.withOutput(actual).build());
+		assertThat(actual.getValues().toArray(), is(expected.getValues()
+				.toArray()));
+	}
+}
@@ -0,0 +1,93 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.IterableEncodingOutput;
+import br.ime.usp.aztec.io.IterableSignalSource;
+import br.ime.usp.aztec.io.MalformedInputException;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class ParallelDecoderTest {
+
+	@Test
+	public void decodesExactlyAsTheSequentialDecoder() throws Exception {
+		DoubleList encoded = new DoubleList();
+		Random random = new Random(42);
+		encoded.add(-5);
+		encoded.add(2.5);
+		while (encoded.size() < 200000) {
+			int length = 1 + random.nextInt(20);
+			encoded.add(random.nextInt(3) == 0 ? length : -length);
+			encoded.add(random.nextGaussian() * 0.7);
+		}
+		IterableEncodingOutput expected = new IterableEncodingOutput();
+		new Decoder().decode(encoded, expected);
+		for (int threads = 1; threads <= 4; threads++) {
+			double[] decoded = new ParallelDecoder(threads).decode(encoded);
+			assertThat(decoded, is(expected.getValues().toArray()));
+		}
+	}
+
+	@Test
+	public void decodesLongSlopesWithoutLinesBetweenThem() throws Exception {
+		DoubleList encoded = new DoubleList();
+		for (int i = 0; i < 10; i++) {
+			encoded.add(-ParallelDecoder.MIN_CHUNK_SAMPLES);
+			encoded.add(i % 2 == 0 ? 1.0 : -0.9);
+		}
+		IterableEncodingOutput expected = new IterableEncodingOutput();
+		new Decoder().decode(encoded, expected);
+		assertThat(new ParallelDecoder(3).decode(encoded), is(expected
+				.getValues().toArray()));
+	}
+
+	@Test
+	public void givesTheDecodedSignalToTheOutput() throws Exception {
+		IterableEncodingOutput output = new IterableEncodingOutput();
+		new ParallelDecoder(2).decode(new IterableSignalSource(asList(3.0,
+				1.0, -3.0, 3.0)), output);
+		assertThat(output, contains(1.0, 1.0, 1.0, 2.0, 3.0, 4.0));
+	}
+
+	@Test
+	public void decodesAnEmptyEncoding() throws Exception {
+		assertThat(new ParallelDecoder(2).decode(new DoubleList()).length,
+				is(0));
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesALengthWithoutAmplitude() throws Exception {
+		new ParallelDecoder(2).decode(new IterableSignalSource(asList(3.0,
+				1.0, 2.0)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void requiresAPositiveNumberOfThreads() {
+		new ParallelDecoder(0);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class TasksTest {
+
+	@Test
+	public void runsTasksOnNamedDaemonThreads() throws Exception {
+		ExecutorService pool = Tasks.newPool(1, "Worker");
+		try {
+			Thread thread = Tasks.get(pool.submit(new Callable<Thread>() {
+				@Override
+				public Thread call() {
+					return Thread.currentThread();
+				}
+			}), "workers");
+			assertThat(thread.getName(), is("Worker 0"));
+			assertThat(thread.isDaemon(), is(true));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void throwsTheIOExceptionOfATaskAsItIs() throws Exception {
+		final IOException failure = new IOException("Broken");
+		ExecutorService pool = Tasks.newPool(1, "Worker");
+		try {
+			Future<Void> task = pool.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					throw failure;
+				}
+			});
+			Tasks.waitFor(Arrays.asList(task), "workers");
+			fail("Should have thrown the failure of the task");
+		} catch (IOException e) {
+			assertThat(e, is(sameInstance(failure)));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void waitsForAllTasksBeforeThrowingTheFirstFailure()
+			throws Exception {
+		final IOException failure = new IOException("Broken");
+		final CountDownLatch failed = new CountDownLatch(1);
+		ExecutorService pool = Tasks.newPool(2, "Worker");
+		try {
+			Future<Void> failing = pool.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					failed.countDown();
+					throw failure;
+				}
+			});
+			Future<Void> slow = pool.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					failed.await();
+					Thread.sleep(50);
+					return null;
+				}
+			});
+			try {
+				Tasks.waitForAll(Arrays.asList(failing, slow), "workers");
+				fail("Should have thrown the failure of the task");
+			} catch (IOException e) {
+				assertThat(e, is(sameInstance(failure)));
+			}
+			assertThat(slow.isDone(), is(true));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void wrapsOtherCheckedExceptions() throws Exception {
+		Exception failure = new Exception("Broken");
+		try {
+			throw Tasks.rethrow(failure);
+		} catch (IllegalStateException e) {
+			assertThat(e.getCause(), is(sameInstance((Throwable) failure)));
+		}
+	}
+}
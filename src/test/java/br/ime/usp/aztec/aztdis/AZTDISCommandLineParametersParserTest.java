@@ -19,6 +19,7 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileWriter;
@@ -28,6 +29,7 @@ import java.util.Scanner;
 import org.junit.Before;
 import org.junit.Test;
 
+import br.ime.usp.aztec.MultiLeadEncoding;
 import br.ime.usp.aztec.io.EncodingOutput;
 import br.ime.usp.aztec.io.PleaseHelpMeException;
 import br.ime.usp.aztec.io.ReadOnlyOutputException;
@@ -113,6 +115,46 @@ public final class AZTDISCommandLineParametersParserTest {
 				is(AZTDISParameters.DEFAULT_K));
 	}
 
+	@Test
+	public void givesParametersForEachLeadOfACSVFileIfAllAreAsked()
+			throws Exception {
+		File file = File.createTempFile("leads", ".csv");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write("I,II\n1,2\n3,4\n");
+		writer.close();
+		File output = File.createTempFile("leads", "");
+		String[] args = new String[] { "-t", "0.1", "-e", "3", "-s", "csv",
+				"-c", "all", "-i", file.getAbsolutePath(), "-o",
+				output.getAbsolutePath() };
+		assertTrue("Should ask for all leads",
+				this.parser.asksForAllLeads(args));
+		MultiLeadEncoding<AZTDISParameters> leads = this.parser
+				.parseLeads(args);
+		assertThat(leads.getNumberOfLeads(), is(2));
+		leads.encode(new MultiLeadEncoding.LeadEncoder<AZTDISParameters>() {
+			@Override
+			public void encode(AZTDISParameters parameters)
+					throws IOException {
+				new AZTDIS().encode(parameters);
+				parameters.getOutput().close();
+			}
+		});
+		for (int lead = 0; lead < 2; lead++) {
+			File leadOutput = new File(output.getPath() + "." + lead);
+			leadOutput.deleteOnExit();
+			assertThat(new Scanner(leadOutput).useDelimiter("\\A").next(),
+					is("0.0\n" + (lead + 2) + ".0\n1.0\n" + (lead + 2)
+							+ ".0\n"));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesToWriteAnIndexedEncoding() throws Exception {
+		this.parser.parse(new String[] { "-t", "0.1", "-e", "3", "-f",
+				"indexed", "-o", this.createTempFile().getAbsolutePath() });
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void requiresThresholdOrHelpFlag() throws Exception {
 		this.parser.parse(new String[] { "-e", "3.0" });
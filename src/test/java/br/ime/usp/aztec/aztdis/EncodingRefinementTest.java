@@ -17,12 +17,15 @@ package br.ime.usp.aztec.aztdis;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.contains;
-import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.IterableSignalSource;
+
 /**
  * @author Luiz Fernando Oliveira Corte Real
  */
@@ -43,7 +46,7 @@ public final class EncodingRefinementTest {
 		Iterable<Double> refinedEncoding = this.encodingRefinement.refine(
 				encoding, signal, 0.8);
 
-		assertThat(refinedEncoding, equalTo(encoding));
+		assertThat(refinedEncoding, contains(0.0, 1.05, 6.0, 1.05));
 	}
 
 	@Test
@@ -71,4 +74,58 @@ public final class EncodingRefinementTest {
 		assertThat(refinedEncoding,
 				contains(0.0, 1.05, 4.0, 1.0, 7.0, 1.12, 8.0, 1.12));
 	}
+
+	@Test
+	public void refinesAnInMemorySignalIntoTheGivenList() throws Exception {
+		double[] signal = { 1.0, 1.01, 1.1, 1.1, 1.0, 1.12, 1.12 };
+		DoubleList encoding = new DoubleList();
+		for (double value : asList(0.0, 1.05, 5.0, 1.12, 6.0, 1.12)) {
+			encoding.add(value);
+		}
+		DoubleList refinement = new DoubleList();
+		refinement.add(42.0);
+
+		this.encodingRefinement.refine(encoding, signal, 0.08, refinement);
+
+		assertThat(refinement,
+				contains(0.0, 1.05, 4.0, 1.0, 5.0, 1.12, 6.0, 1.12));
+	}
+
+	@Test
+	public void givesTheSameRefinementForInMemoryAndIteratedSignals()
+			throws Exception {
+		DoubleList signal = new DoubleList();
+		DoubleList encoding = new DoubleList();
+		for (int i = 0; i < 989; i++) {
+			signal.add(Math.sin(i / 10.0) + (i % 7) * 0.05);
+		}
+		signal.addRun(1.0, 11);
+		encoding.add(0.0);
+		encoding.add(signal.get(0));
+		for (int i = 89; i < 1000; i += 100) {
+			encoding.add(i);
+			encoding.add(signal.get(i));
+		}
+		encoding.add(999.0);
+		encoding.add(1.0);
+		DoubleList refinement = new DoubleList();
+
+		this.encodingRefinement.refine(encoding, signal.toArray(), 0.1,
+				refinement);
+
+		assertThat(refinement.toArray(), is(this.encodingRefinement.refine(
+				encoding, new IterableSignalSource(signal), 0.1).toArray()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotRefineAnEncodingIntoItself() throws Exception {
+		DoubleList encoding = new DoubleList();
+		encoding.add(0.0);
+		encoding.add(1.0);
+		encoding.add(1.0);
+		encoding.add(1.0);
+
+		this.encodingRefinement.refine(encoding, new double[] { 1.0, 1.0 },
+				0.1, encoding);
+	}
 }
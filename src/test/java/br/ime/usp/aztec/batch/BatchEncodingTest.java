@@ -0,0 +1,203 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.batch;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.cli.Options;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ime.usp.aztec.AZTECMain;
+import br.ime.usp.aztec.AbstractAlgorithmMain;
+import br.ime.usp.aztec.maztec.MAZTECMain;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class BatchEncodingTest {
+	private static final String[] ARGS = { "-T", "5", "-K", "2" };
+
+	private File directory;
+	private File outputDirectory;
+	private File journalFile;
+	private List<File> inputs;
+
+	@Before
+	public void setUp() throws Exception {
+		this.directory = File.createTempFile("batch", "");
+		this.directory.delete();
+		this.directory.mkdir();
+		this.outputDirectory = new File(this.directory, "out");
+		this.journalFile = new File(this.directory, "journal");
+		this.inputs = new ArrayList<File>();
+		Random random = new Random(42);
+		for (int i = 0; i < 5; i++) {
+			File input = new File(this.directory, "signal" + i + ".txt");
+			this.writeSignal(input, random, 100 + 300 * i);
+			this.inputs.add(input);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		delete(this.directory);
+	}
+
+	@Test
+	public void encodesEachFileAsASingleRunWould() throws Exception {
+		BatchEncoding.Result result = this.batch(new AZTECMain()).encode(
+				this.inputs, 3);
+
+		assertThat(result.getEncoded(), is(5));
+		assertThat(result.getFailures().isEmpty(), is(true));
+		for (File input : this.inputs) {
+			File expected = new File(this.directory, input.getName() + ".ref");
+			new AZTECMain().execute(new String[] { "-T", "5", "-K", "2",
+					"-i", input.getPath(), "-o", expected.getPath() });
+			assertThat(read(new File(this.outputDirectory, input.getName()
+					+ ".azt")), is(read(expected)));
+		}
+	}
+
+	@Test
+	public void skipsTheFilesRecordedInTheJournal() throws Exception {
+		this.batch(new AZTECMain()).encode(this.inputs, 2);
+
+		BatchEncoding.Result result = this.batch(new AZTECMain()).encode(
+				this.inputs, 2);
+		assertThat(result.getEncoded(), is(0));
+		assertThat(result.getSkipped(), is(5));
+
+		this.writeSignal(this.inputs.get(1), new Random(7), 50);
+		result = this.batch(new AZTECMain()).encode(this.inputs, 2);
+		assertThat(result.getEncoded(), is(1));
+		assertThat(result.getSkipped(), is(4));
+	}
+
+	@Test
+	public void keepsEncodingTheOtherFilesWhenOneFails() throws Exception {
+		final File broken = this.inputs.get(2);
+		AbstractAlgorithmMain failsOnBroken = new AbstractAlgorithmMain() {
+			@Override
+			public void run(String[] args) {
+			}
+
+			@Override
+			public Options getCommandLineOptions() {
+				return new AZTECMain().getCommandLineOptions();
+			}
+
+			@Override
+			public void execute(String[] args) throws IOException {
+				if (Arrays.asList(args).contains(broken.getPath())) {
+					throw new IOException("Broken");
+				}
+				new File(args[args.length - 1]).createNewFile();
+			}
+		};
+
+		BatchEncoding.Result result = this.batch(failsOnBroken).encode(
+				this.inputs, 2);
+
+		assertThat(result.getEncoded(), is(4));
+		assertThat(result.getFailures().keySet(), contains(broken));
+		assertThat(new File(this.outputDirectory, broken.getName() + ".azt")
+				.exists(), is(false));
+		result = this.batch(new AZTECMain()).encode(this.inputs, 2);
+		assertThat(result.getEncoded(), is(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesOutputsGivenInTheAlgorithmOptions() throws Exception {
+		new BatchEncoding(new AZTECMain(), new String[] { "-T", "5", "-o",
+				"out" }, this.outputDirectory, ".azt", this.journal());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesOutputsGivenTogetherWithOtherOptions()
+			throws Exception {
+		new BatchEncoding(new MAZTECMain(), new String[] { "-Io", "out" },
+				this.outputDirectory, ".mzt", this.journal());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesInputsWhoseOutputsWouldOverwriteEachOther()
+			throws Exception {
+		File other = new File(this.directory, "other");
+		other.mkdir();
+		File sameName = new File(other, this.inputs.get(0).getName());
+		this.writeSignal(sameName, new Random(1), 10);
+		this.inputs.add(sameName);
+
+		this.batch(new AZTECMain()).encode(this.inputs, 2);
+	}
+
+	private BatchEncoding batch(AbstractAlgorithmMain algorithm)
+			throws IOException {
+		return new BatchEncoding(algorithm, ARGS, this.outputDirectory,
+				".azt", this.journal());
+	}
+
+	private ProgressJournal journal() throws IOException {
+		return new ProgressJournal(this.journalFile, "aztec "
+				+ Arrays.toString(ARGS));
+	}
+
+	private void writeSignal(File file, Random random, int samples)
+			throws IOException {
+		FileWriter writer = new FileWriter(file);
+		double value = 0;
+		for (int i = 0; i < samples; i++) {
+			value += random.nextGaussian() * 4;
+			writer.write(Math.round(value) + "\n");
+		}
+		writer.close();
+	}
+
+	private static byte[] read(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			byte[] bytes = new byte[(int) in.length()];
+			in.readFully(bytes);
+			return bytes;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
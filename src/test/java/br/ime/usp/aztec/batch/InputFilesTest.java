@@ -0,0 +1,88 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.batch;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class InputFilesTest {
+	private File directory;
+	private File a;
+	private File b;
+	private File c;
+
+	@Before
+	public void setUp() throws Exception {
+		this.directory = File.createTempFile("inputs", "");
+		this.directory.delete();
+		this.directory.mkdir();
+		this.a = this.create("a.txt");
+		this.b = this.create("b.txt");
+		this.c = this.create("c.dat");
+		new File(this.directory, "sub.txt").mkdir();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (File file : this.directory.listFiles()) {
+			file.delete();
+		}
+		this.directory.delete();
+	}
+
+	@Test
+	public void findsAllTheFilesOfADirectory() throws Exception {
+		assertThat(InputFiles.find(this.directory.getPath()),
+				contains(this.a, this.b, this.c));
+	}
+
+	@Test
+	public void findsTheFilesMatchingAGlob() throws Exception {
+		assertThat(InputFiles.find(new File(this.directory, "*.txt")
+				.getPath()), contains(this.a, this.b));
+		assertThat(InputFiles.find(new File(this.directory, "?.d*")
+				.getPath()), contains(this.c));
+	}
+
+	@Test
+	public void readsTheFilesListedInAManifest() throws Exception {
+		File manifest = new File(this.directory, "manifest");
+		FileWriter writer = new FileWriter(manifest);
+		writer.write("# records\nc.dat\n\n" + this.a.getAbsolutePath() + "\n");
+		writer.close();
+
+		assertThat(InputFiles.listedIn(manifest),
+				contains(new File(this.directory.getAbsoluteFile(), "c.dat"),
+						this.a.getAbsoluteFile()));
+	}
+
+	private File create(String name) throws IOException {
+		File file = new File(this.directory, name);
+		file.createNewFile();
+		return file;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.batch;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class ProgressJournalTest {
+	private static final String ENCODING = "aztec -T 5";
+
+	private File journalFile;
+	private File input;
+
+	@Before
+	public void setUp() throws Exception {
+		this.journalFile = File.createTempFile("batch", ".journal");
+		this.journalFile.delete();
+		this.input = File.createTempFile("signal", ".txt");
+		write(this.input, "1\n2\n");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.journalFile.delete();
+		this.input.delete();
+	}
+
+	@Test
+	public void remembersTheFilesMarkedByPreviousJournals() throws Exception {
+		ProgressJournal journal = new ProgressJournal(this.journalFile,
+				ENCODING);
+		assertThat(journal.isDone(this.input), is(false));
+		journal.markDone(this.input);
+		assertThat(journal.isDone(this.input), is(true));
+		journal.close();
+
+		journal = new ProgressJournal(this.journalFile, ENCODING);
+		assertThat(journal.isDone(this.input), is(true));
+		assertThat(journal.size(), is(1));
+		journal.close();
+	}
+
+	@Test
+	public void forgetsFilesChangedAfterBeingMarked() throws Exception {
+		ProgressJournal journal = new ProgressJournal(this.journalFile,
+				ENCODING);
+		journal.markDone(this.input);
+		journal.close();
+
+		write(this.input, "1\n2\n3\n");
+
+		journal = new ProgressJournal(this.journalFile, ENCODING);
+		assertThat(journal.isDone(this.input), is(false));
+		journal.close();
+	}
+
+	@Test
+	public void forgetsFilesEncodedWithOtherOptions() throws Exception {
+		ProgressJournal journal = new ProgressJournal(this.journalFile,
+				ENCODING);
+		journal.markDone(this.input);
+		journal.close();
+
+		journal = new ProgressJournal(this.journalFile, "aztec -T 10");
+		assertThat(journal.isDone(this.input), is(false));
+		journal.close();
+	}
+
+	private static void write(File file, String contents) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		writer.write(contents);
+		writer.close();
+	}
+}
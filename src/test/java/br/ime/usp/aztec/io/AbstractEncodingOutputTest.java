@@ -0,0 +1,80 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class AbstractEncodingOutputTest {
+
+	@Test
+	public void addsManyValuesToOutputsThatOnlyAddOne() throws Exception {
+		final List<Double> values = new ArrayList<Double>();
+		EncodingOutput output = new EncodingOutput() {
+			@Override
+			public void put(double value) {
+				values.add(value);
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		AbstractEncodingOutput.putRun(output, 1.0, 2);
+		AbstractEncodingOutput.put(output, new double[] { 2.0, 3.0, 4.0 }, 1,
+				2);
+		assertThat(values, contains(1.0, 1.0, 3.0, 4.0));
+	}
+
+	@Test
+	public void addsManyValuesAtOnceToOutputsExtendingIt() throws Exception {
+		final int[] bulkCalls = { 0 };
+		EncodingOutput output = new AbstractEncodingOutput() {
+			@Override
+			public void put(double value) {
+				throw new AssertionError("Values should be added at once");
+			}
+
+			@Override
+			public void putRun(double value, int count) {
+				bulkCalls[0]++;
+			}
+
+			@Override
+			public void put(double[] values, int offset, int length) {
+				bulkCalls[0]++;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		AbstractEncodingOutput.putRun(output, 1.0, 2);
+		AbstractEncodingOutput.put(output, new double[] { 2.0, 3.0 }, 0, 2);
+		assertThat(bulkCalls[0], is(2));
+	}
+}
@@ -0,0 +1,187 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class AsyncEncodingOutputTest {
+
+	@Test
+	public void writesAllValuesInOrderBeforeClosing() throws Exception {
+		IterableEncodingOutput values = new IterableEncodingOutput();
+		AsyncEncodingOutput output = new AsyncEncodingOutput(values, 3, 2);
+		output.put(1.0);
+		output.putRun(2.0, 4);
+		output.put(new double[] { 3.0, 4.0, 5.0, 6.0, 7.0 }, 1, 3);
+		output.put(8.0);
+		output.close();
+		assertThat(values, contains(1.0, 2.0, 2.0, 2.0, 2.0, 4.0, 5.0, 6.0,
+				8.0));
+	}
+
+	@Test
+	public void closesTheDecoratedOutput() throws Exception {
+		final AtomicInteger closed = new AtomicInteger();
+		EncodingOutput output = new AsyncEncodingOutput(new CountingOutput() {
+			@Override
+			public void close() {
+				closed.incrementAndGet();
+			}
+		});
+		output.close();
+		output.close();
+		assertThat(closed.get(), is(1));
+	}
+
+	@Test
+	public void waitsForTheDecoratedOutputWhenAllBuffersAreFull()
+			throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountingOutput slow = new CountingOutput() {
+			@Override
+			public void put(double[] values, int offset, int length)
+					throws IOException {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e.getMessage());
+				}
+				super.put(values, offset, length);
+			}
+		};
+		final EncodingOutput output = new AsyncEncodingOutput(slow, 10, 3);
+		final AtomicInteger put = new AtomicInteger();
+		Thread algorithm = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < 100; i++) {
+						output.put(i);
+						put.incrementAndGet();
+					}
+					output.close();
+				} catch (IOException e) {
+					fail(e.getMessage());
+				}
+			}
+		};
+		algorithm.start();
+		algorithm.join(200);
+		assertThat(put.get(), lessThanOrEqualTo(40));
+		release.countDown();
+		algorithm.join(TimeUnit.SECONDS.toMillis(10));
+		assertThat(put.get(), is(100));
+		assertThat(slow.count, is(100));
+	}
+
+	@Test
+	public void throwsTheFailureOfTheDecoratedOutputWhenClosed()
+			throws Exception {
+		EncodingOutput output = new AsyncEncodingOutput(new CountingOutput() {
+			@Override
+			public void put(double[] values, int offset, int length)
+					throws IOException {
+				throw new IOException("Disk full");
+			}
+		});
+		output.put(1.0);
+		try {
+			output.close();
+			fail("Should have thrown the failure of the output");
+		} catch (IOException e) {
+			assertThat(e.getMessage(), is("Disk full"));
+		}
+	}
+
+	@Test
+	public void throwsTheFailureOfTheDecoratedOutputWhenPuttingMore()
+			throws Exception {
+		EncodingOutput output = new AsyncEncodingOutput(new CountingOutput() {
+			@Override
+			public void put(double[] values, int offset, int length) {
+				throw new IllegalArgumentException("Not a length");
+			}
+		}, 1, 2);
+		boolean thrown = false;
+		for (int i = 0; i < 1000 && !thrown; i++) {
+			try {
+				output.put(0.5);
+			} catch (IllegalArgumentException e) {
+				thrown = true;
+			}
+			Thread.sleep(1);
+		}
+		assertTrue("Should have thrown the failure of the output", thrown);
+	}
+
+	@Test
+	public void writesAndFlushesTheValuesPutWhenFlushed() throws Exception {
+		StringWriter writer = new StringWriter();
+		AsyncEncodingOutput output = new AsyncEncodingOutput(
+				new WriterEncodingOutput(writer), 3, 2);
+		output.put(new double[] { 1.0, 2.0, 3.0, 4.0 }, 0, 4);
+		output.flush();
+		assertThat(writer.toString(), is("1.0\n2.0\n3.0\n4.0\n"));
+		output.put(5.0);
+		output.close();
+		assertThat(writer.toString(), is("1.0\n2.0\n3.0\n4.0\n5.0\n"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void needsAtLeastTwoBuffers() {
+		new AsyncEncodingOutput(new CountingOutput(), 10, 1);
+	}
+
+	private static class CountingOutput extends AbstractEncodingOutput {
+		volatile int count = 0;
+
+		@Override
+		public void put(double value) throws IOException {
+			this.count++;
+		}
+
+		@Override
+		public void putRun(double value, int count) throws IOException {
+			this.count += count;
+		}
+
+		@Override
+		public void put(double[] values, int offset, int length)
+				throws IOException {
+			this.count += length;
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+	}
+}
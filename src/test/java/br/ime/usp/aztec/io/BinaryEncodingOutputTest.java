@@ -0,0 +1,128 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class BinaryEncodingOutputTest {
+	private ByteArrayOutputStream bytes;
+
+	@Before
+	public void setUp() throws Exception {
+		this.bytes = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void readsBackExactlyWhatWasWrittenWithDoubleAmplitudes()
+			throws Exception {
+		this.write(new EncodingHeader("AZTEC"), 4.0, 1.05, -9.0, 0.8, 300.0,
+				-1.0 / 3.0);
+		assertThat(this.read(), contains(4.0, 1.05, -9.0, 0.8, 300.0,
+				-1.0 / 3.0));
+	}
+
+	@Test
+	public void readsBackFloatAmplitudes() throws Exception {
+		this.write(new EncodingHeader("AZTEC").withFloatAmplitudes(), 4.0,
+				1.5, -9.0, -0.25);
+		assertThat(this.read(), contains(4.0, 1.5, -9.0, -0.25));
+	}
+
+	@Test
+	public void roundsScaledAmplitudesToTheGivenResolution() throws Exception {
+		this.write(new EncodingHeader("AZTEC").withScaledAmplitudes(0.5), 4.0,
+				1.4, -9.0, -0.8);
+		assertThat(this.read(), contains(4.0, 1.5, -9.0, -1.0));
+	}
+
+	@Test
+	public void storesShortLengthsAndScaledAmplitudesInOneByteEach()
+			throws Exception {
+		this.write(new EncodingHeader("AZTEC").withScaledAmplitudes(0.01));
+		int headerSize = this.bytes.size();
+		this.bytes.reset();
+		this.write(new EncodingHeader("AZTEC").withScaledAmplitudes(0.01),
+				25.0, 0.5, -10.0, -0.6);
+		assertThat(this.bytes.size() - headerSize, is(4));
+	}
+
+	@Test
+	public void isSmallerThanText() throws Exception {
+		this.write(new EncodingHeader("AZTEC"), 25.0, 1.2345, -10.0, -0.6789);
+		assertThat(this.bytes.size(), lessThan(60));
+	}
+
+	@Test
+	public void recordsTheAlgorithmAndItsParametersInTheHeader()
+			throws Exception {
+		this.write(new EncodingHeader("MAZTEC").withParameter("c1", 1.0)
+				.withParameter("c2", 0.08).withScaledAmplitudes(0.001), 1.0,
+				2.0);
+		EncodingHeader header = new BinaryEncodingInput(
+				new ByteArrayInputStream(this.bytes.toByteArray())).getHeader();
+		assertThat(header.getAlgorithm(), is("MAZTEC"));
+		assertThat(header.getParameters().get("c1"), is(1.0));
+		assertThat(header.getParameters().get("c2"), is(0.08));
+		assertThat(header.getAmplitudeFormat(),
+				is(EncodingHeader.AmplitudeFormat.SCALED));
+		assertThat(header.getResolution(), is(0.001));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesLengthsThatAreNotIntegers() throws Exception {
+		this.write(new EncodingHeader("AZTEC"), 2.5, 1.0);
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesToReadSomethingThatIsNotABinaryEncoding()
+			throws Exception {
+		new BinaryEncodingInput(new ByteArrayInputStream("1.0\n2.0\n"
+				.getBytes()));
+	}
+
+	private void write(EncodingHeader header, double... values)
+			throws IOException {
+		EncodingOutput output = new BinaryEncodingOutput(this.bytes, header);
+		for (double value : values) {
+			output.put(value);
+		}
+		output.close();
+	}
+
+	private SignalSource read() throws IOException {
+		IterableEncodingOutput values = new IterableEncodingOutput();
+		DoubleIterator iterator = new BinaryEncodingInput(
+				new ByteArrayInputStream(this.bytes.toByteArray()))
+				.doubleIterator();
+		while (iterator.hasNext()) {
+			values.put(iterator.nextDouble());
+		}
+		return values;
+	}
+}
@@ -0,0 +1,76 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class CSVColumnReaderTest {
+
+	@Test
+	public void readsOnlyTheChosenColumn() throws Exception {
+		File file = createFile("I,II,III\n1,2,3\n4,5,6\n");
+		assertThat(new CSVColumnReader(file, 0), contains(1.0, 4.0));
+		assertThat(new CSVColumnReader(file, 2), contains(3.0, 6.0));
+	}
+
+	@Test
+	public void readsTheFileAgainInEachIteration() throws Exception {
+		CSVColumnReader reader = new CSVColumnReader(
+				createFile("1;2\n3;4\n"), 1);
+		assertThat(reader, contains(2.0, 4.0));
+		assertThat(reader, contains(2.0, 4.0));
+	}
+
+	@Test
+	public void isDescribedByTheNameOfItsColumn() throws Exception {
+		File file = createFile("I,II\n1,2\n");
+		assertThat(new CSVColumnReader(file, 1).toString(),
+				is(file.getName() + " II"));
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesColumnsThatDoNotExist() throws Exception {
+		new CSVColumnReader(createFile("1,2\n"), 2);
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void failsWhenReachingAMalformedRow() throws Exception {
+		DoubleIterator values = new CSVColumnReader(
+				createFile("1,2\n3\n"), 0).doubleIterator();
+		values.nextDouble();
+		values.nextDouble();
+	}
+
+	private static File createFile(String text) throws Exception {
+		File file = File.createTempFile("leads", ".csv");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write(text);
+		writer.close();
+		return file;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class CSVRowParserTest {
+
+	@Test
+	public void takesTheFirstLineAsColumnNamesIfItIsNotMadeOfNumbers()
+			throws Exception {
+		CSVRowParser parser = parse("time,MLII, V5\n0,1.5,-2\n");
+		assertThat(parser.getNumberOfColumns(), is(3));
+		assertArrayEquals(new String[] { "time", "MLII", "V5" },
+				parser.getColumnNames());
+		double[] row = new double[3];
+		assertTrue(parser.nextRow(row));
+		assertArrayEquals(new double[] { 0.0, 1.5, -2.0 }, row, 0.0);
+		assertFalse(parser.nextRow(row));
+	}
+
+	@Test
+	public void namesColumnsByTheirIndexesIfTheFirstLineIsMadeOfNumbers()
+			throws Exception {
+		CSVRowParser parser = parse("1,2\n3,4");
+		assertArrayEquals(new String[] { "0", "1" }, parser.getColumnNames());
+		double[] row = new double[2];
+		assertTrue(parser.nextRow(row));
+		assertArrayEquals(new double[] { 1.0, 2.0 }, row, 0.0);
+		assertTrue(parser.nextRow(row));
+		assertArrayEquals(new double[] { 3.0, 4.0 }, row, 0.0);
+		assertFalse(parser.nextRow(row));
+	}
+
+	@Test
+	public void detectsSemicolonsAndTabsAsSeparators() throws Exception {
+		double[] row = new double[2];
+		CSVRowParser semicolons = parse("a;b\r\n1.5;2\r\n");
+		assertTrue(semicolons.nextRow(row));
+		assertArrayEquals(new double[] { 1.5, 2.0 }, row, 0.0);
+		CSVRowParser tabs = parse("3\t4\n");
+		assertTrue(tabs.nextRow(row));
+		assertArrayEquals(new double[] { 3.0, 4.0 }, row, 0.0);
+	}
+
+	@Test
+	public void skipsBlankLines() throws Exception {
+		CSVRowParser parser = parse("\n1,2\n\n \r\n3,4\n\n");
+		double[] row = new double[2];
+		assertTrue(parser.nextRow(row));
+		assertTrue(parser.nextRow(row));
+		assertArrayEquals(new double[] { 3.0, 4.0 }, row, 0.0);
+		assertFalse(parser.nextRow(row));
+	}
+
+	@Test
+	public void hasNoColumnsIfTheInputIsEmpty() throws Exception {
+		CSVRowParser parser = parse("");
+		assertThat(parser.getNumberOfColumns(), is(0));
+		assertFalse(parser.nextRow(new double[0]));
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesRowsWithADifferentNumberOfColumns() throws Exception {
+		CSVRowParser parser = parse("a,b\n1,2\n3\n");
+		double[] row = new double[2];
+		parser.nextRow(row);
+		parser.nextRow(row);
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesValuesThatAreNotNumbers() throws Exception {
+		parse("a,b\n1,x\n").nextRow(new double[2]);
+	}
+
+	@Test
+	public void readsRowsLongerThanTheMappedWindow() throws Exception {
+		File file = File.createTempFile("leads", ".csv");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write("a,b\n10.25,-3\n7,8\n");
+		writer.close();
+		CSVRowParser parser = new CSVRowParser(new MappedFileByteSource(
+				new FileInputStream(file).getChannel(), 5));
+		double[] row = new double[2];
+		assertTrue(parser.nextRow(row));
+		assertArrayEquals(new double[] { 10.25, -3.0 }, row, 0.0);
+		assertTrue(parser.nextRow(row));
+		assertArrayEquals(new double[] { 7.0, 8.0 }, row, 0.0);
+		assertFalse(parser.nextRow(row));
+		parser.close();
+	}
+
+	private static CSVRowParser parse(String text) throws IOException {
+		return new CSVRowParser(Channels.newChannel(new ByteArrayInputStream(
+				text.getBytes("US-ASCII"))));
+	}
+}
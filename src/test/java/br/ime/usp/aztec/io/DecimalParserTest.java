@@ -0,0 +1,84 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class DecimalParserTest {
+	private DecimalParser parser;
+
+	@Before
+	public void setUp() throws Exception {
+		this.parser = new DecimalParser();
+	}
+
+	@Test
+	public void parsesCommonSignalFormatsExactlyAsTheJDKDoes()
+			throws Exception {
+		String[] numbers = { "0", "1", "-1", "+2.5", "1.0", "0.1", "-0.0",
+				".5", "5.", "1e3", "1E-3", "-3.2e-3", "123456789.012345",
+				"0.000001", "-1024.125", "9007199254740993", "0.30000000000000004",
+				"1.7976931348623157E308", "4.9E-324", "1e400", "NaN",
+				"-Infinity", "0x1p3", "2.5d" };
+		for (String number : numbers) {
+			this.assertParsesLikeTheJDK(number);
+		}
+	}
+
+	@Test
+	public void parsesRandomDecimalsExactlyAsTheJDKDoes() throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			double value = (random.nextDouble() - 0.5)
+					* Math.pow(10, random.nextInt(12) - 4);
+			this.assertParsesLikeTheJDK(Double.toString(value));
+			this.assertParsesLikeTheJDK(String.format("%.3f", value));
+			this.assertParsesLikeTheJDK(String.valueOf(random.nextInt(4096)
+					- 2048));
+		}
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void rejectsText() throws Exception {
+		this.parse("abc");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void rejectsEmptyNumbers() throws Exception {
+		this.parse("");
+	}
+
+	private void assertParsesLikeTheJDK(String number) {
+		long expected = Double.doubleToRawLongBits(Double.parseDouble(number));
+		assertThat(number, Double.doubleToRawLongBits(this.parse(number)),
+				is(expected));
+	}
+
+	private double parse(String number) {
+		byte[] bytes = ("  " + number + "  ").getBytes();
+		return this.parser.parse(ByteBuffer.wrap(bytes), 2, bytes.length - 2);
+	}
+}
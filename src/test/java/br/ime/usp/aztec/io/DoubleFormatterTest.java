@@ -0,0 +1,117 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class DoubleFormatterTest {
+	private DoubleFormatter formatter;
+	private char[] buffer;
+
+	@Before
+	public void setUp() throws Exception {
+		this.formatter = new DoubleFormatter();
+		this.buffer = new char[DoubleFormatter.MAX_LENGTH + 3];
+	}
+
+	@Test
+	public void writesValuesAsDoubleToStringDoes() throws Exception {
+		double[] values = { 0.0, -0.0, 1.0, -2.5, 1.05, 0.1, 100.0, 123456.7,
+				1234567.0, 1.0E7, 12345678.9, 0.001, 9.99E-4, 1.0E-5,
+				Math.PI, -Math.E, 1.0E100, 1.7976931348623157E308,
+				2.2250738585072014E-308, Double.NaN,
+				Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (double value : values) {
+			assertThat(this.format(value), is(Double.toString(value)));
+		}
+	}
+
+	@Test
+	public void writesTheShortestRepresentationThatIsReadBackTheSame()
+			throws Exception {
+		assertThat(this.format(Double.MIN_VALUE), is("5.0E-324"));
+		assertThat(this.format(2.0E-3), is("0.002"));
+		assertThat(this.format(1.0E23), is("1.0E23"));
+	}
+
+	@Test
+	public void randomValuesAreReadBackTheSame() throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			double value = Double.longBitsToDouble(random.nextLong());
+			if (Double.isNaN(value)) {
+				continue;
+			}
+			this.assertReadBackTheSame(value);
+		}
+		for (int i = 0; i < 100000; i++) {
+			this.assertReadBackTheSame((random.nextDouble() - 0.5) * 10);
+		}
+	}
+
+	@Test
+	public void writesAtTheGivenOffset() throws Exception {
+		this.buffer[0] = '[';
+		int end = this.formatter.format(-2.5, this.buffer, 1);
+		assertThat(new String(this.buffer, 0, end), is("[-2.5"));
+	}
+
+	@Test
+	public void roundsToTheGivenDecimalPlaces() throws Exception {
+		this.formatter = new DoubleFormatter(3);
+		assertThat(this.format(1.23456), is("1.235"));
+		assertThat(this.format(-0.0004), is("0"));
+		assertThat(this.format(-0.0015), is("-0.002"));
+		assertThat(this.format(0.05), is("0.05"));
+		assertThat(this.format(25.0), is("25"));
+		assertThat(this.format(-1000.1), is("-1000.1"));
+	}
+
+	@Test
+	public void writesTheShortestRepresentationIfValueIsTooBigToRound()
+			throws Exception {
+		this.formatter = new DoubleFormatter(3);
+		assertThat(this.format(1.0E20), is("1.0E20"));
+		assertThat(this.format(Double.NaN), is("NaN"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionIfDecimalPlacesAreNegative() throws Exception {
+		new DoubleFormatter(-1);
+	}
+
+	private void assertReadBackTheSame(double value) {
+		String formatted = this.format(value);
+		assertThat(formatted, Double.parseDouble(formatted), is(value));
+		assertThat(formatted, formatted.length(),
+				is(lessThanOrEqualTo(Double.toString(value).length())));
+	}
+
+	private String format(double value) {
+		int end = this.formatter.format(value, this.buffer, 0);
+		return new String(this.buffer, 0, end);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class DoubleListTest {
+	private DoubleList list;
+
+	@Before
+	public void setUp() throws Exception {
+		this.list = new DoubleList(2);
+	}
+
+	@Test
+	public void startsEmpty() throws Exception {
+		assertTrue(this.list.isEmpty());
+		assertFalse(this.list.doubleIterator().hasNext());
+	}
+
+	@Test
+	public void growsAsValuesAreAdded() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			this.list.add(i);
+		}
+		assertThat(this.list.size(), is(100));
+		for (int i = 0; i < 100; i++) {
+			assertThat(this.list.get(i), is((double) i));
+		}
+	}
+
+	@Test
+	public void addsRunsAndPartsOfArrays() throws Exception {
+		this.list.add(1.0);
+		this.list.addRun(2.0, 3);
+		this.list.add(new double[] { 3.0, 4.0, 5.0, 6.0 }, 1, 2);
+		assertThat(this.list, contains(1.0, 2.0, 2.0, 2.0, 4.0, 5.0));
+	}
+
+	@Test
+	public void iteratesOverPrimitiveValues() throws Exception {
+		this.list.add(1.5);
+		this.list.add(-2.5);
+		DoubleIterator values = this.list.doubleIterator();
+		assertThat(values.nextDouble(), is(1.5));
+		assertThat(values.nextDouble(), is(-2.5));
+		assertFalse(values.hasNext());
+	}
+
+	@Test
+	public void keepsRoomAfterClear() throws Exception {
+		this.list.add(1.0);
+		this.list.clear();
+		this.list.add(2.0);
+		assertThat(this.list, contains(2.0));
+		assertThat(this.list.toArray().length, is(1));
+	}
+
+	@Test
+	public void printsValuesAsAList() throws Exception {
+		this.list.add(1.0);
+		this.list.add(2.0);
+		assertThat(this.list.toString(), is("[1.0, 2.0]"));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void throwsExceptionWhenReadingPastTheEnd() throws Exception {
+		this.list.add(1.0);
+		this.list.get(1);
+	}
+}
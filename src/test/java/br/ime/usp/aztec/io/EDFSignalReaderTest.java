@@ -0,0 +1,165 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class EDFSignalReaderTest {
+	@Test
+	public void readsHeader() throws Exception {
+		File file = createFile(edf(2, new String[] { "ECG I", "ECG II" },
+				new int[] { 2, 1 }, 1, 2, 3, 4, 5, 6));
+		EDFHeader header = new EDFSignalReader(file, 0).getHeader();
+		assertThat(header.getNumberOfRecords(), is(2));
+		assertThat(header.getRecordDuration(), is(1.0));
+		assertThat(header.getNumberOfSignals(), is(2));
+		assertThat(header.getSize(), is(768));
+		assertThat(header.getRecordSize(), is(6));
+		assertThat(header.getSignal(1).getLabel(), is("ECG II"));
+		assertThat(header.getSignal(1).getPhysicalDimension(), is("uV"));
+		assertThat(header.getSignal(1).getRecordOffset(), is(4));
+	}
+
+	@Test
+	public void readsOnlyTheChosenSignalOfEachRecordInPhysicalUnits()
+			throws Exception {
+		File file = createFile(edf(2, new String[] { "ECG I", "ECG II" },
+				new int[] { 2, 1 }, 1, 2, 3, -4, -5, -6));
+		assertThat(new EDFSignalReader(file, 0), contains(1.0, 2.0, -4.0,
+				-5.0));
+		assertThat(new EDFSignalReader(file, 1), contains(3.0, -6.0));
+	}
+
+	@Test
+	public void readsRecordsSplitBetweenMappedWindows() throws Exception {
+		File file = createFile(edf(3, new String[] { "A", "B", "C" },
+				new int[] { 1, 3, 1 }, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12,
+				13, 14, 15));
+		EDFSignalReader signal = new EDFSignalReader(file, 1, 3);
+		assertThat(signal, contains(2.0, 3.0, 4.0, 7.0, 8.0, 9.0, 12.0, 13.0,
+				14.0));
+		assertThat(signal, contains(2.0, 3.0, 4.0, 7.0, 8.0, 9.0, 12.0, 13.0,
+				14.0));
+	}
+
+	@Test
+	public void readsUntilTheEndOfTheFileIfNumberOfRecordsIsUnknown()
+			throws Exception {
+		File file = createFile(edf(-1, new String[] { "A" }, new int[] { 2 },
+				1, 2, 3, 4, 5));
+		assertThat(new EDFSignalReader(file, 0), contains(1.0, 2.0, 3.0, 4.0));
+	}
+
+	@Test
+	public void convertsDigitalValuesWithTheCalibrationOfTheSignal()
+			throws Exception {
+		EDFHeader.Signal signal = new EDFHeader.Signal("ECG", "", "mV", -1.0,
+				1.0, -1000, 1000, "", 1, 0);
+		assertThat(signal.toPhysical(500), is(0.5));
+		assertThat(signal.toPhysical(-1000), is(-1.0));
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesAnnotationSignals() throws Exception {
+		File file = createFile(edf(1, new String[] { "EDF Annotations" },
+				new int[] { 1 }, 0));
+		new EDFSignalReader(file, 0);
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesFilesThatAreNotEDF() throws Exception {
+		new EDFSignalReader(createFile("1.0\n2.0\n".getBytes()), 0);
+	}
+
+	/**
+	 * @return An EDF file whose signals are in uV, with the same physical and
+	 *         digital values
+	 */
+	static byte[] edf(int records, String[] labels, int[] samplesPerRecord,
+			int... samples) throws IOException {
+		int signals = labels.length;
+		StringBuilder header = new StringBuilder();
+		field(header, "0", 8);
+		field(header, "patient", 80);
+		field(header, "recording", 80);
+		field(header, "01.01.12", 8);
+		field(header, "00.00.00", 8);
+		field(header, String.valueOf(256 * (signals + 1)), 8);
+		field(header, "", 44);
+		field(header, String.valueOf(records), 8);
+		field(header, "1", 8);
+		field(header, String.valueOf(signals), 4);
+		String[][] values = { labels, repeat("transducer", signals),
+				repeat("uV", signals), repeat("-32768", signals),
+				repeat("32767", signals), repeat("-32768", signals),
+				repeat("32767", signals), repeat("", signals) };
+		int[] widths = { 16, 80, 8, 8, 8, 8, 8, 80 };
+		for (int i = 0; i < values.length; i++) {
+			for (String value : values[i]) {
+				field(header, value, widths[i]);
+			}
+		}
+		for (int count : samplesPerRecord) {
+			field(header, String.valueOf(count), 8);
+		}
+		for (int i = 0; i < signals; i++) {
+			field(header, "", 32);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(header.toString().getBytes("US-ASCII"));
+		for (int sample : samples) {
+			bytes.write(sample);
+			bytes.write(sample >> 8);
+		}
+		return bytes.toByteArray();
+	}
+
+	static File createFile(byte[] contents) throws IOException {
+		File file = File.createTempFile("signal", ".edf");
+		file.deleteOnExit();
+		FileOutputStream output = new FileOutputStream(file);
+		output.write(contents);
+		output.close();
+		return file;
+	}
+
+	private static void field(StringBuilder header, String value, int width) {
+		header.append(value);
+		for (int i = value.length(); i < width; i++) {
+			header.append(' ');
+		}
+	}
+
+	private static String[] repeat(String value, int count) {
+		String[] values = new String[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = value;
+		}
+		return values;
+	}
+}
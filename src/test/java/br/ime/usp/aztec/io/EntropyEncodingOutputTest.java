@@ -0,0 +1,189 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class EntropyEncodingOutputTest {
+	private ByteArrayOutputStream bytes;
+
+	@Before
+	public void setUp() throws Exception {
+		this.bytes = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void roundsAmplitudesToTheGivenResolution() throws Exception {
+		this.write(header(0.5), 4.0, 1.4, -9.0, -0.8, 3.0, 2.6);
+		assertThat(this.read(), contains(4.0, 1.5, -9.0, -1.0, 3.0, 2.5));
+	}
+
+	@Test
+	public void readsBackTheSameValuesAsAScaledBinaryEncoding()
+			throws Exception {
+		double[] values = new double[20000];
+		Random random = new Random(42);
+		for (int i = 0; i < values.length; i += 2) {
+			int length = 1 + random.nextInt(25);
+			values[i] = random.nextBoolean() ? length : -length;
+			values[i + 1] = random.nextGaussian() * 3;
+		}
+		this.write(header(0.001), values);
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		BinaryEncodingOutput output = new BinaryEncodingOutput(binary,
+				new EncodingHeader("AZTEC").withScaledAmplitudes(0.001));
+		output.put(values, 0, values.length);
+		output.close();
+
+		DoubleIterator expected = new BinaryEncodingInput(
+				new ByteArrayInputStream(binary.toByteArray()))
+				.doubleIterator();
+		DoubleIterator actual = this.input().doubleIterator();
+		for (int i = 0; i < values.length; i++) {
+			assertThat(actual.nextDouble(), is(expected.nextDouble()));
+		}
+		assertThat(actual.hasNext(), is(false));
+	}
+
+	@Test
+	public void readsBackExtremeLengthsAndAmplitudes() throws Exception {
+		this.write(header(1.0), Long.MAX_VALUE >> 11, 1e18, -(1L << 40),
+				-1e18, 1.0, 0.0, 1.0, 4e9);
+		assertThat(this.read(), contains((double) (Long.MAX_VALUE >> 11),
+				1e18, (double) -(1L << 40), -1e18, 1.0, 0.0, 1.0, 4e9));
+	}
+
+	@Test
+	public void compressesRepetitiveEncodingsBetterThanABinaryEncoding()
+			throws Exception {
+		double[] values = new double[2000];
+		for (int i = 0; i < values.length; i += 4) {
+			values[i] = 12;
+			values[i + 1] = 0.1;
+			values[i + 2] = -3;
+			values[i + 3] = 0.45;
+		}
+		this.write(header(0.01), values);
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		BinaryEncodingOutput output = new BinaryEncodingOutput(binary,
+				new EncodingHeader("AZTEC").withScaledAmplitudes(0.01));
+		output.put(values, 0, values.length);
+		output.close();
+		assertThat(this.bytes.size(), lessThan(binary.size() / 5));
+	}
+
+	@Test
+	public void isEmptyIfNothingWasPut() throws Exception {
+		this.write(header(0.01));
+		assertThat(this.input().doubleIterator().hasNext(), is(false));
+	}
+
+	@Test
+	public void doesNotWriteALengthWithoutItsAmplitude() throws Exception {
+		this.write(header(1.0), 2.0, 5.0, 3.0);
+		assertThat(this.read(), contains(2.0, 5.0));
+	}
+
+	@Test
+	public void recordsTheResolutionInTheHeader() throws Exception {
+		this.write(header(0.001).withParameter("K", 0.05), 1.0, 2.0);
+		EncodingHeader header = this.input().getHeader();
+		assertThat(header.getAmplitudeFormat(),
+				is(EncodingHeader.AmplitudeFormat.ENTROPY_CODED));
+		assertThat(header.getResolution(), is(0.001));
+		assertThat(header.getParameters().get("K"), is(0.05));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void failsWhenTheEncodingIsTruncated() throws Exception {
+		double[] values = new double[2000];
+		Arrays.fill(values, 3.0);
+		this.write(header(1.0), values);
+		byte[] truncated = Arrays.copyOf(this.bytes.toByteArray(),
+				this.bytes.size() / 2);
+		DoubleIterator iterator = new EntropyEncodingInput(
+				new ByteArrayInputStream(truncated)).doubleIterator();
+		while (iterator.hasNext()) {
+			iterator.nextDouble();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesHeadersWithoutEntropyCodedAmplitudes() {
+		new EntropyEncodingOutput(this.bytes,
+				new EncodingHeader("AZTEC").withScaledAmplitudes(0.1));
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesToReadABinaryEncoding() throws Exception {
+		EncodingOutput output = new BinaryEncodingOutput(this.bytes,
+				new EncodingHeader("AZTEC"));
+		output.put(1.0);
+		output.put(2.0);
+		output.close();
+		this.input();
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void cannotBeReadAsABinaryEncoding() throws Exception {
+		this.write(header(1.0), 1.0, 2.0);
+		new BinaryEncodingInput(new ByteArrayInputStream(
+				this.bytes.toByteArray()));
+	}
+
+	private static EncodingHeader header(double resolution) {
+		return new EncodingHeader("AZTEC")
+				.withEntropyCodedAmplitudes(resolution);
+	}
+
+	private void write(EncodingHeader header, double... values)
+			throws IOException {
+		EntropyEncodingOutput output = new EntropyEncodingOutput(this.bytes,
+				header);
+		output.put(values, 0, values.length);
+		output.close();
+	}
+
+	private EntropyEncodingInput input() throws IOException {
+		return new EntropyEncodingInput(new ByteArrayInputStream(
+				this.bytes.toByteArray()));
+	}
+
+	private SignalSource read() throws IOException {
+		IterableEncodingOutput values = new IterableEncodingOutput();
+		DoubleIterator iterator = this.input().doubleIterator();
+		while (iterator.hasNext()) {
+			values.put(iterator.nextDouble());
+		}
+		return values;
+	}
+}
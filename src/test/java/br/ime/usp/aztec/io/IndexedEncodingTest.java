@@ -0,0 +1,213 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ime.usp.aztec.Decoder;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class IndexedEncodingTest {
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		this.file = File.createTempFile("indexed", ".bin");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.file.delete();
+	}
+
+	@Test
+	public void decodesAnyWindowAsTheSameSamplesOfTheWholeSignal()
+			throws Exception {
+		this.decodesWindowsAsTheWholeSignal(header().withIndex(4));
+		this.decodesWindowsAsTheWholeSignal(header().withScaledAmplitudes(
+				0.01).withIndex(3));
+		this.decodesWindowsAsTheWholeSignal(header().withFloatAmplitudes()
+				.withIndex(1));
+	}
+
+	private void decodesWindowsAsTheWholeSignal(EncodingHeader header)
+			throws Exception {
+		double[] values = new double[400];
+		Random random = new Random(42);
+		values[0] = 3;
+		values[1] = 1.5;
+		for (int i = 2; i < values.length; i += 2) {
+			int length = 1 + random.nextInt(9);
+			values[i] = random.nextBoolean() ? length : -length;
+			values[i + 1] = random.nextGaussian() * 3;
+		}
+		this.write(header, values);
+		double[] whole = this.decode(new IterableSignalSource(this.read()));
+
+		IndexedEncoding encoding = new IndexedEncoding(this.file);
+		assertThat(encoding.getNumberOfSamples(), is((long) whole.length));
+		assertThat(encoding.getNumberOfSegments(), is(200L));
+		for (int i = 0; i < 200; i++) {
+			int from = random.nextInt(whole.length);
+			int to = from + random.nextInt(whole.length - from + 1);
+			double[] window = this.decode(encoding.window(from, to));
+			assertThat(window.length, is(to - from));
+			for (int j = 0; j < window.length; j++) {
+				assertThat(window[j], is(whole[from + j]));
+			}
+		}
+	}
+
+	@Test
+	public void startsWindowsAtTheEntryBeforeTheirFirstSample()
+			throws Exception {
+		this.write(header().withIndex(2), 3, 1, -2, 4, 5, 7, 1, 0, 2, 8);
+		IndexedEncoding encoding = new IndexedEncoding(this.file);
+		IndexedEncoding.Window window = encoding.window(9, 11);
+		assertThat(window.getFirstSegmentSample(), is(5L));
+		assertThat(window.getInitialValue(), is(5.0));
+		assertThat(window, contains(5.0, 7.0, 1.0, 0.0));
+		assertThat(encoding.window(0, 1), contains(3.0, 1.0));
+	}
+
+	@Test
+	public void decodesWindowsStartingInTheMiddleOfASlope() throws Exception {
+		this.write(header().withIndex(1), 2, 1, -4, 4, 2, 0);
+		IndexedEncoding encoding = new IndexedEncoding(this.file);
+		assertThat(this.decode(encoding.window(3, 7)), is(new double[] {
+				3.0, 4.0, 5.0, 0.0 }));
+	}
+
+	@Test
+	public void endsWindowsAtTheEndOfTheSignal() throws Exception {
+		this.write(header().withIndex(1), 2, 1, 3, 2);
+		IndexedEncoding encoding = new IndexedEncoding(this.file);
+		assertThat(encoding.window(3, 100).getToSample(), is(5L));
+		assertThat(this.decode(encoding.window(3, 100)), is(new double[] {
+				2.0, 2.0 }));
+		assertThat(encoding.window(5, 100).doubleIterator().hasNext(),
+				is(false));
+	}
+
+	@Test
+	public void isEmptyIfNothingWasPut() throws Exception {
+		this.write(header().withIndex(1));
+		IndexedEncoding encoding = new IndexedEncoding(this.file);
+		assertThat(encoding.getNumberOfSamples(), is(0L));
+		assertThat(encoding.window(0, 10).doubleIterator().hasNext(),
+				is(false));
+	}
+
+	@Test
+	public void doesNotWriteALengthWithoutItsAmplitude() throws Exception {
+		this.write(header().withIndex(1), 2.0, 5.0, 3.0);
+		assertThat(new IndexedEncoding(this.file).window(0, 10),
+				contains(2.0, 5.0));
+	}
+
+	@Test
+	public void recordsTheIndexIntervalInTheHeader() throws Exception {
+		this.write(header().withParameter("K", 0.05).withIndex(16), 1, 2);
+		EncodingHeader header = new IndexedEncoding(this.file).getHeader();
+		assertThat(header.isIndexed(), is(true));
+		assertThat(header.getIndexInterval(), is(16));
+		assertThat(header.getParameters().get("K"), is(0.05));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesWindowsEndingBeforeStarting() throws Exception {
+		this.write(header().withIndex(1), 2, 1);
+		new IndexedEncoding(this.file).window(2, 1);
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesEncodingsWithoutTrailer() throws Exception {
+		this.write(header().withIndex(1), 2, 1, 3, 2);
+		RandomAccessFile truncated = new RandomAccessFile(this.file, "rw");
+		truncated.setLength(truncated.length() - 1);
+		truncated.close();
+		new IndexedEncoding(this.file);
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesEncodingsWithoutIndex() throws Exception {
+		FileOutputStream bytes = new FileOutputStream(this.file);
+		EncodingOutput output = new BinaryEncodingOutput(bytes, header());
+		output.put(1);
+		output.put(2);
+		output.close();
+		new IndexedEncoding(this.file);
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void cannotBeReadAsABinaryEncoding() throws Exception {
+		this.write(header().withIndex(1), 1, 2);
+		RandomAccessFile input = new RandomAccessFile(this.file, "r");
+		byte[] bytes = new byte[(int) input.length()];
+		input.readFully(bytes);
+		input.close();
+		new BinaryEncodingInput(new ByteArrayInputStream(bytes));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesHeadersWithoutIndex() throws Exception {
+		new IndexedEncodingOutput(new FileOutputStream(this.file), header());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesEntropyCodedAmplitudes() throws Exception {
+		new IndexedEncodingOutput(new FileOutputStream(this.file), header()
+				.withEntropyCodedAmplitudes(0.1).withIndex(1));
+	}
+
+	private static EncodingHeader header() {
+		return new EncodingHeader("AZTEC");
+	}
+
+	private void write(EncodingHeader header, double... values)
+			throws IOException {
+		IndexedEncodingOutput output = new IndexedEncodingOutput(
+				new FileOutputStream(this.file), header);
+		output.put(values, 0, values.length);
+		output.close();
+	}
+
+	private Iterable<Double> read() throws Exception {
+		IndexedEncoding encoding = new IndexedEncoding(this.file);
+		return encoding.window(0, encoding.getNumberOfSamples());
+	}
+
+	private double[] decode(SignalSource encoded) throws Exception {
+		IterableEncodingOutput samples = new IterableEncodingOutput();
+		new Decoder().decode(encoded, samples);
+		return samples.getValues().toArray();
+	}
+}
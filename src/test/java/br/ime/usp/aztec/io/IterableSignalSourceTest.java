@@ -0,0 +1,45 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class IterableSignalSourceTest {
+	@Test
+	public void unboxesTheValuesOfTheAdaptedIterable() throws Exception {
+		SignalSource source = new IterableSignalSource(asList(1.0, -2.5, 3.0));
+		DoubleIterator values = source.doubleIterator();
+		assertThat(values.nextDouble(), is(1.0));
+		assertThat(values.nextDouble(), is(-2.5));
+		assertThat(values.nextDouble(), is(3.0));
+		assertFalse(values.hasNext());
+	}
+
+	@Test
+	public void isStillIterableAsBoxedValues() throws Exception {
+		SignalSource source = new IterableSignalSource(asList(1.0, 2.0));
+		assertThat(source, contains(1.0, 2.0));
+	}
+}
@@ -0,0 +1,91 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class LineReaderTest {
+
+	@Test
+	public void splitsLinesEndedByAnyTerminator() throws Exception {
+		assertThat(this.lines("a\nb\r\nc\rd", 64),
+				contains("a", "b", "c", "d"));
+	}
+
+	@Test
+	public void keepsEmptyLines() throws Exception {
+		assertThat(this.lines("a\n\r\n\nb\n", 64), contains("a", "", "", "b"));
+	}
+
+	@Test
+	public void joinsCarriageReturnAndLineFeedSplitBetweenBuffers()
+			throws Exception {
+		assertThat(this.lines("ab\r\ncd\r\nef", 3),
+				contains("ab", "cd", "ef"));
+	}
+
+	@Test
+	public void readsLinesLongerThanTheBuffer() throws Exception {
+		assertThat(this.lines("abcdefgh\nij", 2), contains("abcdefgh", "ij"));
+	}
+
+	@Test
+	public void readsALastUnterminatedLineThatFillsTheBuffer()
+			throws Exception {
+		assertThat(this.lines("5\n1234567890123456", 16),
+				contains("5", "1234567890123456"));
+	}
+
+	@Test
+	public void readsNoLineFromAnEmptySource() throws Exception {
+		LineReader lines = this.reader("", 4);
+		assertThat(lines.hasMoreLines(), is(false));
+		assertThat(lines.readLine(), is(false));
+	}
+
+	private List<String> lines(String text, int bufferSize)
+			throws IOException {
+		LineReader lines = this.reader(text, bufferSize);
+		List<String> read = new ArrayList<String>();
+		while (lines.readLine()) {
+			StringBuilder line = new StringBuilder();
+			for (int i = lines.lineStart(); i < lines.lineEnd(); i++) {
+				line.append((char) lines.buffer().get(i));
+			}
+			read.add(line.toString());
+		}
+		return read;
+	}
+
+	private LineReader reader(String text, int bufferSize) {
+		return new LineReader(new ChannelByteSource(
+				Channels.newChannel(new ByteArrayInputStream(text.getBytes())),
+				bufferSize));
+	}
+}
@@ -0,0 +1,118 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class PipedSignalTest {
+
+	@Test
+	public void givesTheValuesPutBeforeClosing() throws Exception {
+		PipedSignal signal = new PipedSignal();
+		signal.put(1.0);
+		signal.put(-2.5);
+		signal.close();
+		assertThat(signal, contains(1.0, -2.5));
+	}
+
+	@Test
+	public void handsManyChunksOverToAnotherThread() throws Exception {
+		final PipedSignal signal = new PipedSignal();
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+		Future<Double> sum = reader.submit(new Callable<Double>() {
+			@Override
+			public Double call() {
+				double sum = 0;
+				DoubleIterator values = signal.doubleIterator();
+				while (values.hasNext()) {
+					sum += values.nextDouble();
+				}
+				return sum;
+			}
+		});
+		for (int i = 1; i <= 1000000; i++) {
+			signal.put(i);
+		}
+		signal.close();
+		assertThat(sum.get(), is(500000500000.0));
+		reader.shutdown();
+	}
+
+	@Test
+	public void ignoresValuesPutAfterTheReaderAbandonedIt() throws Exception {
+		PipedSignal signal = new PipedSignal();
+		signal.abandon();
+		for (int i = 0; i < 1000000; i++) {
+			signal.put(i);
+		}
+		signal.close();
+	}
+
+	@Test
+	public void failsInsteadOfEndingIfTheReaderIsInterrupted()
+			throws Exception {
+		PipedSignal signal = new PipedSignal();
+		Thread.currentThread().interrupt();
+		try {
+			signal.doubleIterator().hasNext();
+			fail("Should not have taken the interruption as the end");
+		} catch (IllegalStateException e) {
+			assertThat(e.getCause(), instanceOf(InterruptedIOException.class));
+		}
+		assertThat(Thread.interrupted(), is(true));
+	}
+
+	@Test
+	public void throwsTheFailureAfterTheValuesPutBeforeIt() throws Exception {
+		PipedSignal signal = new PipedSignal();
+		signal.put(1.0);
+		IllegalStateException failure = new IllegalStateException("Broken");
+		signal.fail(failure);
+		DoubleIterator values = signal.doubleIterator();
+		assertThat(values.nextDouble(), is(1.0));
+		assertThat(values.hasNext(), is(true));
+		try {
+			values.nextDouble();
+			fail("Should have thrown the failure");
+		} catch (IllegalStateException e) {
+			assertThat(e, is(sameInstance(failure)));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void canBeIteratedOnlyOnce() throws Exception {
+		PipedSignal signal = new PipedSignal();
+		signal.close();
+		signal.doubleIterator();
+		signal.doubleIterator();
+	}
+}
@@ -0,0 +1,127 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.io.StringReader;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class PrefetchingSignalSourceTest {
+
+	@Test
+	public void givesTheValuesInTheSameOrderAsTheSource() throws Exception {
+		DoubleList source = new DoubleList();
+		for (int i = 0; i < 100000; i++) {
+			source.add(i * 0.5);
+		}
+		DoubleIterator values = new PrefetchingSignalSource(source)
+				.doubleIterator();
+		for (int i = 0; i < 100000; i++) {
+			assertThat(values.nextDouble(), is(i * 0.5));
+		}
+		assertThat(values.hasNext(), is(false));
+	}
+
+	@Test
+	public void readsTheSourceAgainInEachIteration() throws Exception {
+		SignalSource signal = new PrefetchingSignalSource(new SignalParser(
+				new StringReader("1\n2\n3\n")));
+		assertThat(signal, contains(1.0, 2.0, 3.0));
+		assertThat(signal, contains(1.0, 2.0, 3.0));
+	}
+
+	@Test
+	public void failsWhenAskedForTheValueThatCouldNotBeRead()
+			throws Exception {
+		DoubleIterator values = new PrefetchingSignalSource(new SignalParser(
+				new StringReader("1\n2\nthree\n4\n")).withoutReplay())
+				.doubleIterator();
+		assertThat(values.nextDouble(), is(1.0));
+		assertThat(values.nextDouble(), is(2.0));
+		assertThat(values.hasNext(), is(true));
+		try {
+			values.nextDouble();
+			fail("Should have failed on the third value");
+		} catch (NoSuchElementException e) {
+			// as the parser itself does
+		}
+	}
+
+	@Test
+	public void givesNothingForAnEmptySource() throws Exception {
+		assertThat(new PrefetchingSignalSource(new DoubleList())
+				.doubleIterator().hasNext(), is(false));
+	}
+
+	@Test
+	public void stopsReadingWhenClosedBeforeTheEndOfTheSignal()
+			throws Exception {
+		EndlessSignal source = new EndlessSignal();
+		PrefetchingSignalSource signal = new PrefetchingSignalSource(source);
+		DoubleIterator values = signal.doubleIterator();
+		assertThat(values.nextDouble(), is(0.0));
+
+		signal.close();
+
+		assertThat(source.closed, is(true));
+		Thread reader;
+		while ((reader = source.reader) == null) {
+			Thread.yield();
+		}
+		reader.join(TimeUnit.SECONDS.toMillis(10));
+		assertThat(reader.isAlive(), is(false));
+	}
+
+	private static final class EndlessSignal extends AbstractSignalSource
+			implements Closeable {
+		volatile boolean closed = false;
+		volatile Thread reader;
+
+		@Override
+		public DoubleIterator doubleIterator() {
+			this.reader = Thread.currentThread();
+			return new DoubleIterator() {
+				private double next = 0.0;
+
+				@Override
+				public boolean hasNext() {
+					return true;
+				}
+
+				@Override
+				public double nextDouble() {
+					return this.next++;
+				}
+			};
+		}
+
+		@Override
+		public void close() {
+			this.closed = true;
+		}
+	}
+}
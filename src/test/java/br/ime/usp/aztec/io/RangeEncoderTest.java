@@ -0,0 +1,97 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class RangeEncoderTest {
+
+	@Test
+	public void decodesTheSameBitsAndDirectBits() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		RangeEncoder encoder = new RangeEncoder(bytes);
+		short[] probabilities = RangeEncoder.newProbabilities(4);
+		Random random = new Random(7);
+		for (int i = 0; i < 10000; i++) {
+			encoder.encodeBit(probabilities, i & 3, random.nextInt(10) == 0 ? 1
+					: 0);
+			encoder.encodeDirectBits(random.nextInt(), 1 + i % 32);
+		}
+		encoder.finish();
+
+		RangeDecoder decoder = new RangeDecoder(new ByteArrayInputStream(
+				bytes.toByteArray()));
+		probabilities = RangeEncoder.newProbabilities(4);
+		random = new Random(7);
+		for (int i = 0; i < 10000; i++) {
+			assertThat(decoder.decodeBit(probabilities, i & 3),
+					is(random.nextInt(10) == 0 ? 1 : 0));
+			int bits = 1 + i % 32;
+			int mask = bits == 32 ? -1 : (1 << bits) - 1;
+			assertThat(decoder.decodeDirectBits(bits), is(random.nextInt()
+					& mask));
+		}
+	}
+
+	@Test
+	public void takesLessThanABitForBitsThatAreEasyToPredict()
+			throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		RangeEncoder encoder = new RangeEncoder(bytes);
+		short[] probabilities = RangeEncoder.newProbabilities(1);
+		for (int i = 0; i < 80000; i++) {
+			encoder.encodeBit(probabilities, 0, i % 100 == 0 ? 1 : 0);
+		}
+		encoder.finish();
+		assertThat(bytes.size(), lessThan(2000));
+	}
+
+	@Test
+	public void decodesTheSameIntegersWithAnAdaptiveModel() throws Exception {
+		long[] values = { 0, 1, -1, 2, 255, -256, 1L << 31, -(1L << 33),
+				Long.MAX_VALUE, Long.MIN_VALUE, 12345678901L };
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		RangeEncoder encoder = new RangeEncoder(bytes);
+		AdaptiveIntegerModel model = new AdaptiveIntegerModel();
+		for (long value : values) {
+			model.encode(encoder, value);
+		}
+		encoder.finish();
+
+		RangeDecoder decoder = new RangeDecoder(new ByteArrayInputStream(
+				bytes.toByteArray()));
+		model = new AdaptiveIntegerModel();
+		for (long value : values) {
+			assertThat(model.decode(decoder), is(value));
+		}
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void refusesStreamsThatEndTooEarly() throws Exception {
+		new RangeDecoder(new ByteArrayInputStream(new byte[3]));
+	}
+}
@@ -0,0 +1,95 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class ReplayBufferTest {
+	@Test
+	public void keepsValuesInMemoryUpToItsCapacity() throws Exception {
+		ReplayBuffer buffer = new ReplayBuffer(3000);
+		this.addValues(buffer, 3000);
+		this.assertValues(buffer, 3000);
+	}
+
+	@Test
+	public void keepsValuesBeyondItsCapacityInATemporaryFile()
+			throws Exception {
+		ReplayBuffer buffer = new ReplayBuffer(5, 4, 3);
+		this.addValues(buffer, 50);
+		this.assertValues(buffer, 50);
+		this.assertValues(buffer, 50);
+	}
+
+	@Test
+	public void readsValuesBackWhileOthersAreAdded() throws Exception {
+		ReplayBuffer buffer = new ReplayBuffer(2, 4, 3);
+		for (int i = 0; i < 30; i++) {
+			buffer.add(i);
+			this.assertValues(buffer, i + 1);
+		}
+	}
+
+	@Test
+	public void keepsEveryValueInATemporaryFileIfCapacityIsZero()
+			throws Exception {
+		ReplayBuffer buffer = new ReplayBuffer(0, 4, 8);
+		this.addValues(buffer, 17);
+		for (int i = 16; i >= 0; i--) {
+			assertThat(buffer.get(i), is((double) i));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void forgetsItsValuesWhenClosed() throws Exception {
+		ReplayBuffer buffer = new ReplayBuffer(2, 4, 3);
+		this.addValues(buffer, 10);
+		buffer.close();
+		buffer.get(0);
+	}
+
+	@Test
+	public void canBeClosedWithoutATemporaryFile() throws Exception {
+		ReplayBuffer buffer = new ReplayBuffer(10);
+		this.addValues(buffer, 5);
+		buffer.close();
+		buffer.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionIfCapacityIsNegative() throws Exception {
+		new ReplayBuffer(-1);
+	}
+
+	private void addValues(ReplayBuffer buffer, int count) {
+		for (int i = 0; i < count; i++) {
+			buffer.add(i);
+		}
+	}
+
+	private void assertValues(ReplayBuffer buffer, int count) {
+		assertThat(buffer.size(), is((long) count));
+		for (int i = 0; i < count; i++) {
+			assertThat(buffer.get(i), is((double) i));
+		}
+	}
+}
@@ -16,10 +16,20 @@ limitations under the License.
 package br.ime.usp.aztec.io;
 
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
 
 import org.junit.Test;
 
@@ -55,4 +65,172 @@ public final class SignalParserTest {
 		assertThat(parsedSignal, contains(1.0, 2.0, 3.0, 4.0, 5.0));
 		assertThat(parsedSignal, contains(1.0, 2.0, 3.0, 4.0, 5.0));
 	}
+
+	@Test
+	public void readsPrimitiveValuesWithTheSameOrderAsBoxedOnes()
+			throws Exception {
+		String signal = "1.0\n2.0\n3.0\n";
+		SignalParser parsedSignal = new SignalParser(new StringReader(signal));
+		DoubleIterator values = parsedSignal.doubleIterator();
+		assertThat(values.nextDouble(), is(1.0));
+		assertThat(values.nextDouble(), is(2.0));
+		assertThat(values.nextDouble(), is(3.0));
+		assertFalse(values.hasNext());
+		assertThat(parsedSignal, contains(1.0, 2.0, 3.0));
+	}
+
+	@Test
+	public void keepsReadingFromWhereAnIncompleteIterationStopped()
+			throws Exception {
+		String signal = "1.0\n2.0\n3.0\n4.0\n5.0";
+		SignalParser parsedSignal = new SignalParser(new StringReader(signal));
+		DoubleIterator values = parsedSignal.doubleIterator();
+		values.nextDouble();
+		values.nextDouble();
+		assertThat(parsedSignal, contains(1.0, 2.0, 3.0, 4.0, 5.0));
+		assertThat(values.nextDouble(), is(3.0));
+	}
+
+	@Test
+	public void readsNumbersFromAStreamOfBytes() throws Exception {
+		String signal = "1.0\n-2.5\n3e2\n0.001\n8";
+		Iterable<Double> parsedSignal = new SignalParser(
+				new ByteArrayInputStream(signal.getBytes()));
+		assertThat(parsedSignal, contains(1.0, -2.5, 300.0, 0.001, 8.0));
+		assertThat(parsedSignal, contains(1.0, -2.5, 300.0, 0.001, 8.0));
+	}
+
+	@Test
+	public void readsBytesWithAnyKindOfLineBreakAndSurroundingSpaces()
+			throws Exception {
+		String signal = "1.0\r\n 2.0 \r3.0\n\t4.0\r\n";
+		Iterable<Double> parsedSignal = new SignalParser(
+				new ByteArrayInputStream(signal.getBytes()));
+		assertThat(parsedSignal, contains(1.0, 2.0, 3.0, 4.0));
+	}
+
+	@Test
+	public void readsLinesSplitBetweenTwoBufferFills() throws Exception {
+		String signal = "1.25\r\n-22.5\r\n333.75\r\n4444.125\r\n";
+		SignalSource parsedSignal = new SignalParserOverTinyBuffer(signal);
+		assertThat(parsedSignal, contains(1.25, -22.5, 333.75, 4444.125));
+	}
+
+	@Test
+	public void readsNumbersFromAMappedFile() throws Exception {
+		File file = this.createTempFile("1.0\n-2.5\r\n3e2\n0.001\n8");
+		Iterable<Double> parsedSignal = new SignalParser(new FileInputStream(
+				file).getChannel());
+		assertThat(parsedSignal, contains(1.0, -2.5, 300.0, 0.001, 8.0));
+		assertThat(parsedSignal, contains(1.0, -2.5, 300.0, 0.001, 8.0));
+	}
+
+	@Test
+	public void readsLinesSplitBetweenTwoMappedWindows() throws Exception {
+		File file = this.createTempFile("1.25\r\n-22.5\r\n333.75\r\n4444.125");
+		DoubleIterator values = new ByteSampleScanner(new MappedFileByteSource(
+				new FileInputStream(file).getChannel(), 3));
+		assertThat(values.nextDouble(), is(1.25));
+		assertThat(values.nextDouble(), is(-22.5));
+		assertThat(values.nextDouble(), is(333.75));
+		assertThat(values.nextDouble(), is(4444.125));
+		assertFalse(values.hasNext());
+	}
+
+	@Test
+	public void closesAMappedFileNotReadUntilItsEnd() throws Exception {
+		File file = this.createTempFile("1.0\n2.0\n3.0\n4.0\n");
+		FileChannel channel = new FileInputStream(file).getChannel();
+		MappedFileByteSource source = new MappedFileByteSource(channel, 4);
+		DoubleIterator values = new ByteSampleScanner(source);
+		values.nextDouble();
+
+		source.close();
+
+		assertFalse(channel.isOpen());
+	}
+
+	@Test
+	public void closesItsInputWhenClosed() throws Exception {
+		FileChannel channel = new FileInputStream(
+				this.createTempFile("1.0\n2.0\n")).getChannel();
+		SignalParser parsedSignal = new SignalParser(channel);
+
+		parsedSignal.close();
+
+		assertFalse(channel.isOpen());
+	}
+
+	@Test
+	public void readsNothingFromAnEmptyMappedFile() throws Exception {
+		File file = this.createTempFile("");
+		SignalSource parsedSignal = new SignalParser(new FileInputStream(file)
+				.getChannel());
+		assertFalse(parsedSignal.doubleIterator().hasNext());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void failsOnTheFirstByteLineThatIsNotANumber() throws Exception {
+		String signal = "1.0\nnot a number\n";
+		DoubleIterator values = new SignalParser(new ByteArrayInputStream(
+				signal.getBytes())).doubleIterator();
+		values.nextDouble();
+		values.nextDouble();
+	}
+
+	private File createTempFile(String contents) throws IOException {
+		File tempFile = File.createTempFile("tmp", "txt");
+		tempFile.deleteOnExit();
+		FileWriter fileWriter = new FileWriter(tempFile);
+		fileWriter.append(contents);
+		fileWriter.close();
+		return tempFile;
+	}
+
+	private static final class SignalParserOverTinyBuffer extends
+			AbstractSignalSource {
+		private final String signal;
+
+		SignalParserOverTinyBuffer(String signal) {
+			this.signal = signal;
+		}
+
+		@Override
+		public DoubleIterator doubleIterator() {
+			return new ByteSampleScanner(new ChannelByteSource(
+					Channels.newChannel(new ByteArrayInputStream(this.signal
+							.getBytes())), 3));
+		}
+	}
+
+	@Test
+	public void iteratesAgainValuesKeptOutOfMemory() throws Exception {
+		SignalParser parsedSignal = new SignalParser(new StringReader(
+				"1.0\n2.0\n3.0\n4.0\n5.0\n")).withReplayLimit(2);
+		assertThat(parsedSignal, contains(1.0, 2.0, 3.0, 4.0, 5.0));
+		assertThat(parsedSignal, contains(1.0, 2.0, 3.0, 4.0, 5.0));
+	}
+
+	@Test
+	public void readsTheSignalOnceWithoutKeepingValues() throws Exception {
+		SignalParser parsedSignal = new SignalParser(new StringReader(
+				"1.0\n2.0\n")).withoutReplay();
+		assertThat(parsedSignal, contains(1.0, 2.0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void cannotIterateTwiceWithoutKeepingValues() throws Exception {
+		SignalParser parsedSignal = new SignalParser(new StringReader(
+				"1.0\n2.0\n")).withoutReplay();
+		parsedSignal.doubleIterator();
+		parsedSignal.doubleIterator();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void cannotChangeReplayLimitAfterIterating() throws Exception {
+		SignalParser parsedSignal = new SignalParser(new StringReader(
+				"1.0\n2.0\n"));
+		parsedSignal.doubleIterator();
+		parsedSignal.withReplayLimit(10);
+	}
 }
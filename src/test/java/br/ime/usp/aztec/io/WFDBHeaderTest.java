@@ -0,0 +1,91 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class WFDBHeaderTest {
+	@Test
+	public void readsRecordLine() throws Exception {
+		WFDBHeader header = this.parse("# comment\n100 2 360 650000\n"
+				+ "100.dat 212 200 11 1024 995 -22131 0 MLII\n"
+				+ "100.dat 212 200 11 1024 1011 20052 0 V5\n");
+		assertThat(header.getRecordName(), is("100"));
+		assertThat(header.getNumberOfSignals(), is(2));
+		assertThat(header.getSamplingFrequency(), is(360.0));
+		assertThat(header.getNumberOfSamples(), is(650000L));
+	}
+
+	@Test
+	public void usesADCZeroAsBaselineIfNoneIsGiven() throws Exception {
+		WFDBHeader header = this.parse("100 1 360 650000\n"
+				+ "100.dat 212 200 11 1024 995 -22131 0 MLII\n");
+		WFDBHeader.Signal signal = header.getSignal(0);
+		assertThat(signal.getFileName(), is("100.dat"));
+		assertThat(signal.getFormat(), is(212));
+		assertThat(signal.getGain(), is(200.0));
+		assertThat(signal.getBaseline(), is(1024));
+		assertThat(signal.getDescription(), is("MLII"));
+		assertThat(signal.toPhysical(995), is(-0.145));
+	}
+
+	@Test
+	public void readsFormatModifiersBaselineAndUnits() throws Exception {
+		WFDBHeader header = this.parse("rec 1 500/1000\n"
+				+ "rec.dat 16x2:1+512 1000(-12)/uV 16 0 0 0 0 lead I\n");
+		WFDBHeader.Signal signal = header.getSignal(0);
+		assertThat(header.getSamplingFrequency(), is(500.0));
+		assertThat(header.getNumberOfSamples(), is(0L));
+		assertThat(signal.getFormat(), is(16));
+		assertThat(signal.getSamplesPerFrame(), is(2));
+		assertThat(signal.getByteOffset(), is(512L));
+		assertThat(signal.getGain(), is(1000.0));
+		assertThat(signal.getBaseline(), is(-12));
+		assertThat(signal.getUnits(), is("uV"));
+		assertThat(signal.getDescription(), is("lead I"));
+	}
+
+	@Test
+	public void usesDefaultGainIfNoneIsGiven() throws Exception {
+		WFDBHeader header = this.parse("rec 1\nrec.dat 16\n");
+		assertThat(header.getSamplingFrequency(),
+				is(WFDBHeader.DEFAULT_SAMPLING_FREQUENCY));
+		assertThat(header.getSignal(0).getGain(), is(WFDBHeader.DEFAULT_GAIN));
+		assertThat(header.getSignal(0).getBaseline(), is(0));
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void throwsExceptionIfASignalLineIsMissing() throws Exception {
+		this.parse("rec 2 360\nrec.dat 16\n");
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void throwsExceptionForMultiSegmentRecords() throws Exception {
+		this.parse("multi/2 1 360\n");
+	}
+
+	private WFDBHeader parse(String header) throws Exception {
+		return new WFDBHeader(new StringReader(header));
+	}
+}
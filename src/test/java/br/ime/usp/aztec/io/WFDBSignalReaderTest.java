@@ -0,0 +1,147 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class WFDBSignalReaderTest {
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		this.directory = File.createTempFile("record", "");
+		this.directory.delete();
+		this.directory.mkdir();
+		this.directory.deleteOnExit();
+	}
+
+	@Test
+	public void readsFormat16SamplesInPhysicalUnits() throws Exception {
+		File header = this.createRecord("rec 1 360 4\n"
+				+ "rec.dat 16 100(10) 16 0\n", format16(10, 110, -90, 260));
+		assertThat(new WFDBSignalReader(header, 0),
+				contains(0.0, 1.0, -1.0, 2.5));
+	}
+
+	@Test
+	public void readsOnlyTheChosenSignalOfInterleavedFormat212Samples()
+			throws Exception {
+		File header = this.createRecord("rec 2 360 3\n"
+				+ "rec.dat 212 200 12 0\n" + "rec.dat 212 100 12 0\n",
+				format212(200, -100, -400, 50, 2047, -2047));
+		assertThat(new WFDBSignalReader(header, 0),
+				contains(1.0, -2.0, 10.235));
+		assertThat(new WFDBSignalReader(header, 1),
+				contains(-1.0, 0.5, -20.47));
+	}
+
+	@Test
+	public void readsTheLastSampleOfAnOddNumberOfFormat212Samples()
+			throws Exception {
+		File header = this.createRecord("rec 1 360\n" + "rec.dat 212 1\n",
+				new byte[] { 1, 0, 2, 3, 0 });
+		assertThat(new WFDBSignalReader(header, 0, 2), contains(1.0, 2.0,
+				3.0));
+	}
+
+	@Test
+	public void repeatsPreviousValueInPlaceOfInvalidSamples() throws Exception {
+		File header = this.createRecord("rec 1 360\n" + "rec.dat 16 1\n",
+				format16(5, -32768, 7));
+		assertThat(new WFDBSignalReader(header, 0), contains(5.0, 5.0, 7.0));
+	}
+
+	@Test
+	public void readsAllSamplesOfASignalInEachFrame() throws Exception {
+		File header = this.createRecord("rec 2 360 2\n"
+				+ "rec.dat 16x2+2 1\n" + "rec.dat 16+2 1\n",
+				format16(-1, 1, 2, 3, 4, 5, 6, 7));
+		assertThat(new WFDBSignalReader(header, 0, 4), contains(1.0, 2.0,
+				4.0, 5.0));
+		assertThat(new WFDBSignalReader(header, 1), contains(3.0, 6.0));
+	}
+
+	@Test
+	public void readsTheSignalAgainInEachIteration() throws Exception {
+		File header = this.createRecord("rec 1 360\n" + "rec.dat 16 1\n",
+				format16(1, 2));
+		WFDBSignalReader signal = new WFDBSignalReader(header, 0);
+		assertThat(signal, contains(1.0, 2.0));
+		assertThat(signal, contains(1.0, 2.0));
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void throwsExceptionForUnsupportedFormats() throws Exception {
+		File header = this.createRecord("rec 1 360\n" + "rec.dat 80 1\n",
+				new byte[0]);
+		new WFDBSignalReader(header, 0);
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void throwsExceptionIfTheSignalDoesNotExist() throws Exception {
+		File header = this.createRecord("rec 1 360\n" + "rec.dat 16 1\n",
+				new byte[0]);
+		new WFDBSignalReader(header, 1);
+	}
+
+	private File createRecord(String header, byte[] samples)
+			throws IOException {
+		File headerFile = new File(this.directory, "rec.hea");
+		FileWriter writer = new FileWriter(headerFile);
+		writer.write(header);
+		writer.close();
+		File samplesFile = new File(this.directory, "rec.dat");
+		FileOutputStream output = new FileOutputStream(samplesFile);
+		output.write(samples);
+		output.close();
+		headerFile.deleteOnExit();
+		samplesFile.deleteOnExit();
+		return headerFile;
+	}
+
+	private static byte[] format16(int... samples) {
+		byte[] bytes = new byte[samples.length * 2];
+		for (int i = 0; i < samples.length; i++) {
+			bytes[2 * i] = (byte) samples[i];
+			bytes[2 * i + 1] = (byte) (samples[i] >> 8);
+		}
+		return bytes;
+	}
+
+	private static byte[] format212(int... samples) {
+		byte[] bytes = new byte[samples.length / 2 * 3];
+		for (int i = 0; i < samples.length; i += 2) {
+			int first = samples[i] & 0xfff;
+			int second = samples[i + 1] & 0xfff;
+			bytes[i / 2 * 3] = (byte) first;
+			bytes[i / 2 * 3 + 1] = (byte) ((first >> 8) | ((second >> 8) << 4));
+			bytes[i / 2 * 3 + 2] = (byte) second;
+		}
+		return bytes;
+	}
+}
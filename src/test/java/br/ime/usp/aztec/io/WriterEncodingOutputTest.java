@@ -0,0 +1,95 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class WriterEncodingOutputTest {
+	private StringWriter writer;
+	private WriterEncodingOutput output;
+
+	@Before
+	public void setUp() throws Exception {
+		this.writer = new StringWriter();
+		this.output = new WriterEncodingOutput(this.writer);
+	}
+
+	@Test
+	public void writesOneValuePerLine() throws Exception {
+		this.output.put(1.0);
+		this.output.put(-2.5);
+		this.output.close();
+		assertThat(this.writer.toString(), is("1.0\n-2.5\n"));
+	}
+
+	@Test
+	public void writesARunAsTheSameValueInManyLines() throws Exception {
+		this.output.putRun(1.05, 3);
+		this.output.putRun(2.0, 0);
+		this.output.put(4.0);
+		this.output.close();
+		assertThat(this.writer.toString(), is("1.05\n1.05\n1.05\n4.0\n"));
+	}
+
+	@Test
+	public void writesARunLongerThanASingleWrite() throws Exception {
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			expected.append("0.5\n");
+		}
+		this.output.putRun(0.5, 1000);
+		this.output.close();
+		assertThat(this.writer.toString(), is(expected.toString()));
+	}
+
+	@Test
+	public void writesOnlyTheGivenPartOfAnArray() throws Exception {
+		this.output.put(new double[] { 1.0, 2.0, 3.0, 4.0 }, 1, 2);
+		this.output.close();
+		assertThat(this.writer.toString(), is("2.0\n3.0\n"));
+	}
+
+	@Test
+	public void writesARunLongerThanTheBuffer() throws Exception {
+		StringBuilder expected = new StringBuilder("1.0\n");
+		for (int i = 0; i < 5000; i++) {
+			expected.append("-1.05\n");
+		}
+		this.output.put(1.0);
+		this.output.putRun(-1.05, 5000);
+		this.output.close();
+		assertThat(this.writer.toString(), is(expected.toString()));
+	}
+
+	@Test
+	public void writesValuesWithTheGivenFormatter() throws Exception {
+		this.output = new WriterEncodingOutput(this.writer,
+				new DoubleFormatter(3));
+		this.output.put(1.23456);
+		this.output.putRun(-0.5, 2);
+		this.output.close();
+		assertThat(this.writer.toString(), is("1.235\n-0.5\n-0.5\n"));
+	}
+}
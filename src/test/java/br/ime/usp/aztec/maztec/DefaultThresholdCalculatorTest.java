@@ -180,6 +180,38 @@ public final class DefaultThresholdCalculatorTest {
 				closeTo(1.1, 1.0e-10));
 	}
 
+	@Test
+	public void updatesThresholdOnlyOnceEveryUpdateInterval()
+			throws Exception {
+		ThresholdCalculator thresholdCalculator = new DefaultThresholdCalculator(
+				new MAZTECParameters.Builder().withInitialThreshold(0.07)
+						.withThresholdUpdateInterval(3).build(), this.stats);
+		this.stats.returnsStandardDeviation(0.5);
+		this.stats.returnsThirdMoment(0.0);
+		thresholdCalculator.newSample(42);
+		thresholdCalculator.newSample(43);
+
+		assertThat(thresholdCalculator.getCurrentThreshold(), is(0.07));
+
+		thresholdCalculator.newSample(44);
+
+		assertThat(thresholdCalculator.getCurrentThreshold(),
+				closeTo(0.0672, 1.0e-10));
+
+		this.stats.returnsStandardDeviation(0.6);
+		this.stats.returnsThirdMoment(0.1);
+		thresholdCalculator.newSample(45);
+		thresholdCalculator.newSample(46);
+
+		assertThat(thresholdCalculator.getCurrentThreshold(),
+				closeTo(0.0672, 1.0e-10));
+
+		thresholdCalculator.newSample(47);
+
+		assertThat(thresholdCalculator.getCurrentThreshold(),
+				closeTo(0.0661248, 1.0e-10));
+	}
+
 	@Test
 	public void resetsTheStatisticsWhenResetIsCalled() throws Exception {
 		this.thresholdCalculator.reset();
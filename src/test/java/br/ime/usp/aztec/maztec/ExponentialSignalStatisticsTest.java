@@ -0,0 +1,91 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.maztec;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class ExponentialSignalStatisticsTest {
+	@Test
+	public void startsFromTheFirstSample() throws Exception {
+		SignalStatistics stats = new ExponentialSignalStatistics(9);
+		stats.update(5.0);
+		assertThat(stats.getAverage(), is(5.0));
+		assertThat(stats.getStandardDeviation(), is(0.0));
+		assertThat(stats.getThirdMoment(), is(0.0));
+	}
+
+	@Test
+	public void givesTheMomentsOfTheExponentiallyWeightedSamples()
+			throws Exception {
+		int span = 19;
+		double alpha = 2.0 / (span + 1);
+		SignalStatistics stats = new ExponentialSignalStatistics(span);
+		double[] signal = new double[300];
+		Random random = new Random(42);
+		for (int i = 0; i < signal.length; i++) {
+			signal[i] = random.nextGaussian() + (i > 150 ? 3 : 0);
+			stats.update(signal[i]);
+		}
+
+		double[] weights = new double[signal.length];
+		for (int i = 0; i < signal.length; i++) {
+			weights[i] = Math.pow(1 - alpha, signal.length - 1 - i)
+					* (i == 0 ? 1 : alpha);
+		}
+		double average = 0.0;
+		for (int i = 0; i < signal.length; i++) {
+			average += weights[i] * signal[i];
+		}
+		double variance = 0.0;
+		double thirdMoment = 0.0;
+		for (int i = 0; i < signal.length; i++) {
+			double delta = signal[i] - average;
+			variance += weights[i] * delta * delta;
+			thirdMoment += weights[i] * delta * delta * delta;
+		}
+		assertThat(stats.getAverage(), closeTo(average, 1e-12));
+		assertThat(stats.getStandardDeviation(),
+				closeTo(Math.sqrt(variance), 1e-12));
+		assertThat(stats.getThirdMoment(), closeTo(thirdMoment, 1e-12));
+	}
+
+	@Test
+	public void behavesAsANewObjectAfterResetIsCalled() throws Exception {
+		SignalStatistics stats = new ExponentialSignalStatistics(3);
+		stats.update(10.0);
+		stats.update(-4.0);
+		stats.reset();
+		assertThat(stats.getAverage(), is(0.0));
+		assertThat(stats.getStandardDeviation(), is(0.0));
+		assertThat(stats.getThirdMoment(), is(0.0));
+		stats.update(1.0);
+		assertThat(stats.getAverage(), is(1.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void needsAPositiveSpan() throws Exception {
+		new ExponentialSignalStatistics(0);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.maztec;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+import br.ime.usp.aztec.EncodingSession;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.IterableEncodingOutput;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class FlatMAZTECTest {
+
+	@Test
+	public void givesTheSameEncodingAsMAZTECForNoisySignals()
+			throws Exception {
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			DoubleList signal = new DoubleList();
+			double value = random.nextGaussian();
+			int samples = random.nextInt(2000);
+			for (int j = 0; j < samples; j++) {
+				value += random.nextGaussian() * (random.nextBoolean() ? 0.05
+						: 0.5);
+				signal.add(value);
+			}
+			MAZTECParameters.Builder params = new MAZTECParameters.Builder()
+					.withCriterionFunctionWeight(random.nextDouble() * 2)
+					.withLastThresholdWeight(random.nextDouble() * 0.2)
+					.withInitialThreshold(random.nextDouble());
+			if (random.nextBoolean()) {
+				params.withMinimumThreshold(0.01).withMaximumThreshold(2);
+			}
+			if (random.nextBoolean()) {
+				params.improved();
+			}
+			if (random.nextBoolean()) {
+				params.withThresholdUpdateInterval(1 + random.nextInt(16));
+			}
+			assertSameEncoding(signal, params);
+		}
+	}
+
+	@Test
+	public void givesTheSameEncodingAsMAZTECForAnECGLikeSignal()
+			throws Exception {
+		DoubleList signal = new DoubleList();
+		Random random = new Random(7);
+		for (int i = 0; i < 50000; i++) {
+			double beat = (i % 300) / 300.0;
+			double value = Math.exp(-Math.pow((beat - 0.3) * 40, 2)) * 1.2
+					- Math.exp(-Math.pow((beat - 0.27) * 60, 2)) * 0.2
+					+ Math.exp(-Math.pow((beat - 0.6) * 10, 2)) * 0.3;
+			signal.add(value + random.nextGaussian() * 0.01);
+		}
+		assertSameEncoding(signal, new MAZTECParameters.Builder());
+		assertSameEncoding(signal, new MAZTECParameters.Builder().improved());
+		assertSameEncoding(signal, new MAZTECParameters.Builder()
+				.withMinimumThreshold(0.02).withMaximumThreshold(0.2));
+	}
+
+	@Test
+	public void givesTheSameEncodingWhenSamplesArePushedToASession()
+			throws Exception {
+		DoubleList signal = new DoubleList();
+		Random random = new Random(3);
+		for (int i = 0; i < 1000; i++) {
+			signal.add(Math.sin(i * 0.05) + random.nextGaussian() * 0.02);
+		}
+		IterableEncodingOutput pushed = new IterableEncodingOutput();
+		EncodingSession session = new FlatMAZTEC()
+				.open(new MAZTECParameters.Builder()
+						.withInput(Collections.<Double> emptyList())
+						.withOutput(pushed).improved().build());
+		double[] values = signal.toArray();
+		session.accept(values, 0, 600);
+		for (int i = 600; i < values.length; i++) {
+			session.accept(values[i]);
+		}
+		session.close();
+
+		IterableEncodingOutput expected = new IterableEncodingOutput();
+		new FlatMAZTEC().encode(new MAZTECParameters.Builder()
+				.withInput(signal).withOutput(expected).improved().build());
+		assertThat(pushed.getValues().toArray(), is(expected.getValues()
+				.toArray()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesStatisticsOtherThanTheOnlineOnes() throws Exception {
+		new FlatMAZTEC().encode(new MAZTECParameters.Builder()
+				.withInput(Collections.<Double> emptyList())
+				.withOutput(new IterableEncodingOutput())
+				.withSlidingWindowStatistics(100).build());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesSessionsWithStatisticsOtherThanTheOnlineOnes()
+			throws Exception {
+		new FlatMAZTEC().open(new MAZTECParameters.Builder()
+				.withInput(Collections.<Double> emptyList())
+				.withOutput(new IterableEncodingOutput())
+				.withExponentialStatistics(100).build());
+	}
+
+	private static void assertSameEncoding(DoubleList signal,
+			MAZTECParameters.Builder params) throws Exception {
+		IterableEncodingOutput expected = new IterableEncodingOutput();
+		MAZTECParameters expectedParams = params.withInput(signal)
+				.withOutput(expected).build();
+		new MAZTEC(new DefaultThresholdCalculator(expectedParams,
+				new OnlineSignalStatistics())).encode(expectedParams);
+		IterableEncodingOutput actual = new IterableEncodingOutput();
+		new FlatMAZTEC().encode(params.withOutput(actual).build());
+		assertThat(actual.getValues().toArray(), is(expected.getValues()
+				.toArray()));
+	}
+}
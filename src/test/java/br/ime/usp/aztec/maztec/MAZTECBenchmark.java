@@ -0,0 +1,151 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.maztec;
+
+import java.io.IOException;
+
+import br.ime.usp.aztec.Decoder;
+import br.ime.usp.aztec.io.AbstractEncodingOutput;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.IterableEncodingOutput;
+import br.ime.usp.aztec.test.Signals;
+
+/**
+ * Compares the time taken by {@link MAZTEC}, with the default threshold, and
+ * {@link FlatMAZTEC} to encode a synthetic ECG kept in memory, so that only
+ * the algorithms are measured. Then reports, for several threshold update
+ * intervals, the time taken by {@link FlatMAZTEC}, the compression ratio
+ * (samples per value of the encoding) and the PRD (percent root-mean-square
+ * difference) between the signal and its decoding, next to the ones of
+ * updating the threshold on every sample. It is not run with the tests; run
+ * its main method instead, optionally giving the number of samples.
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class MAZTECBenchmark {
+	private static final int WARM_UP_RUNS = 5;
+	private static final int MEASURED_RUNS = 10;
+	private static final int[] UPDATE_INTERVALS = { 1, 2, 4, 8, 16, 32, 64 };
+
+	private interface Encoder {
+		void encode(MAZTECParameters params) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int samples = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		DoubleList signal = Signals.ecg(samples);
+		Encoder pluggable = new Encoder() {
+			@Override
+			public void encode(MAZTECParameters params) throws IOException {
+				new MAZTEC(new DefaultThresholdCalculator(params,
+						new OnlineSignalStatistics())).encode(params);
+			}
+		};
+		Encoder flat = new Encoder() {
+			@Override
+			public void encode(MAZTECParameters params) throws IOException {
+				new FlatMAZTEC().encode(params);
+			}
+		};
+		double pluggableTime = measure("MAZTEC", pluggable, signal, 1);
+		double flatTime = measure("FlatMAZTEC", flat, signal, 1);
+		System.out.printf("FlatMAZTEC takes %.2f of the time of MAZTEC%n%n",
+				flatTime / pluggableTime);
+
+		double[] everySample = accuracy(signal, 1);
+		System.out.printf("%-8s %10s %8s %8s %10s%n", "interval",
+				"ns/sample", "CR", "PRD (%)", "PRD change");
+		for (int interval : UPDATE_INTERVALS) {
+			double time = measure(null, flat, signal, interval);
+			double[] accuracy = accuracy(signal, interval);
+			System.out.printf("%-8d %10.2f %8.2f %8.3f %+10.3f%n", interval,
+					time, accuracy[0], accuracy[1], accuracy[1]
+							- everySample[1]);
+		}
+	}
+
+	/**
+	 * @return The compression ratio and the PRD of the encoding of the
+	 *         signal by {@link FlatMAZTEC}
+	 */
+	private static double[] accuracy(DoubleList signal, int interval)
+			throws IOException {
+		IterableEncodingOutput encoding = new IterableEncodingOutput();
+		new FlatMAZTEC().encode(new MAZTECParameters.Builder()
+				.withThresholdUpdateInterval(interval).withInput(signal)
+				.withOutput(encoding).build());
+		IterableEncodingOutput decoding = new IterableEncodingOutput();
+		new Decoder().decode(encoding, decoding);
+		DoubleList decoded = decoding.getValues();
+		double error = 0.0;
+		double energy = 0.0;
+		for (int i = 0; i < signal.size(); i++) {
+			double difference = signal.get(i) - decoded.get(i);
+			error += difference * difference;
+			energy += signal.get(i) * signal.get(i);
+		}
+		return new double[] {
+				(double) signal.size() / encoding.getValues().size(),
+				100 * Math.sqrt(error / energy) };
+	}
+
+	private static double measure(String name, Encoder encoder,
+			DoubleList signal, int interval) throws IOException {
+		SegmentCounter output = new SegmentCounter();
+		MAZTECParameters params = new MAZTECParameters.Builder()
+				.withThresholdUpdateInterval(interval).withInput(signal)
+				.withOutput(output).build();
+		for (int i = 0; i < WARM_UP_RUNS; i++) {
+			encoder.encode(params);
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			output.values = 0;
+			long start = System.nanoTime();
+			encoder.encode(params);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		double nanosPerSample = (double) best / signal.size();
+		if (name != null) {
+			System.out.printf("%-10s %6.2f ns/sample, %d segments%n", name,
+					nanosPerSample, output.values / 2);
+		}
+		return nanosPerSample;
+	}
+
+	private static final class SegmentCounter extends AbstractEncodingOutput {
+		long values = 0;
+
+		@Override
+		public void put(double value) {
+			this.values++;
+		}
+
+		@Override
+		public void putRun(double value, int count) {
+			this.values += count;
+		}
+
+		@Override
+		public void put(double[] values, int offset, int length) {
+			this.values += length;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
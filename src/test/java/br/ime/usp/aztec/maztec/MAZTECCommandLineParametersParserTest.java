@@ -173,6 +173,52 @@ public final class MAZTECCommandLineParametersParserTest {
 		assertTrue("Should indicate that is decoding", params.isDecoding());
 	}
 
+	@Test
+	public void extractsTheStatisticsFromCommandLine() throws Exception {
+		MAZTECParameters params = this.parser.parse(new String[] {
+				"--statistics", "window", "--window", "300" });
+		assertThat(params.getStatistics(),
+				is(MAZTECParameters.Statistics.SLIDING_WINDOW));
+		assertThat(params.getStatisticsWindow(), is(300));
+
+		params = this.parser.parse(new String[] { "--statistics", "ewma" });
+		assertThat(params.getStatistics(),
+				is(MAZTECParameters.Statistics.EXPONENTIAL));
+		assertThat(params.getStatisticsWindow(),
+				is(MAZTECParameters.DEFAULT_STATISTICS_WINDOW));
+	}
+
+	@Test
+	public void extractsTheThresholdUpdateIntervalFromCommandLine()
+			throws Exception {
+		assertThat(this.parser.parse(new String[] { "--update-every", "16" })
+				.getThresholdUpdateInterval(), is(16));
+	}
+
+	@Test
+	public void extractsTheThreadsAndOverlapOfAParallelEncoding()
+			throws Exception {
+		MAZTECParameters params = this.parser.parse(new String[] { "-j", "4",
+				"--speculative", "--overlap", "500" });
+		assertThat(params.getThreads(), is(4));
+		assertThat(params.isSpeculative(), is(true));
+		assertThat(params.getWarmUpSamples(), is(500));
+	}
+
+	@Test
+	public void doesNotEncodeSpeculativelyJustBecauseOfTheThreads()
+			throws Exception {
+		MAZTECParameters params = this.parser.parse(new String[] { "-j",
+				"4" });
+		assertThat(params.getThreads(), is(4));
+		assertThat(params.isSpeculative(), is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwsExceptionIfTheStatisticsAreUnknown() throws Exception {
+		this.parser.parse(new String[] { "--statistics", "median" });
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void throwsExceptionIfInputFileGivenDoesNotExist() throws Exception {
 		MAZTECParameters params = this.parser.parse(new String[] { "-i",
@@ -95,5 +95,65 @@ public final class MAZTECParametersTest {
 		assertTrue(decoding.isDecoding());
 	}
 
+	@Test
+	public void computesTheThresholdFromAllTheSamplesByDefault()
+			throws Exception {
+		MAZTECParameters params = new MAZTECParameters.Builder().build();
+		assertThat(params.getStatistics(),
+				is(MAZTECParameters.Statistics.ONLINE));
+	}
+
+	@Test
+	public void knowsTheWindowOfTheStatistics() throws Exception {
+		MAZTECParameters window = new MAZTECParameters.Builder()
+				.withSlidingWindowStatistics(250).build();
+		assertThat(window.getStatistics(),
+				is(MAZTECParameters.Statistics.SLIDING_WINDOW));
+		assertThat(window.getStatisticsWindow(), is(250));
+
+		MAZTECParameters exponential = new MAZTECParameters.Builder()
+				.withExponentialStatistics(40).build();
+		assertThat(exponential.getStatistics(),
+				is(MAZTECParameters.Statistics.EXPONENTIAL));
+		assertThat(exponential.getStatisticsWindow(), is(40));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotAcceptAnEmptyStatisticsWindow() throws Exception {
+		new MAZTECParameters.Builder().withSlidingWindowStatistics(0);
+	}
+
+	@Test
+	public void updatesTheThresholdOnEverySampleByDefault() throws Exception {
+		assertThat(new MAZTECParameters.Builder().build()
+				.getThresholdUpdateInterval(), is(1));
+		assertThat(new MAZTECParameters.Builder()
+				.withThresholdUpdateInterval(8).build()
+				.getThresholdUpdateInterval(), is(8));
+	}
+
+	@Test
+	public void knowsHowManySamplesWarmUpEachChunkOfAParallelEncoding()
+			throws Exception {
+		assertThat(new MAZTECParameters.Builder().build().getWarmUpSamples(),
+				is(MAZTECParameters.DEFAULT_WARM_UP_SAMPLES));
+		assertThat(new MAZTECParameters.Builder().withWarmUpSamples(0)
+				.build().getWarmUpSamples(), is(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void doesNotAcceptANegativeNumberOfWarmUpSamples()
+			throws Exception {
+		new MAZTECParameters.Builder().withWarmUpSamples(-1);
+	}
+
+	@Test
+	public void encodesSpeculativelyOnlyIfAsked() throws Exception {
+		assertThat(new MAZTECParameters.Builder().withThreads(4).build()
+				.isSpeculative(), is(false));
+		assertThat(new MAZTECParameters.Builder().speculative().build()
+				.isSpeculative(), is(true));
+	}
+
 	// Is it worth testing the other methods of the builder?
 }
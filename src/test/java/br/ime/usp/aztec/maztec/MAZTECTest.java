@@ -20,11 +20,13 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import br.ime.usp.aztec.EncodingSession;
 import br.ime.usp.aztec.io.IterableEncodingOutput;
 import br.ime.usp.aztec.test.MockThresholdCalculator;
 
@@ -93,6 +95,26 @@ public final class MAZTECTest {
 		assertThat(this.thresholdCalculator.timesCalledReset(), is(2));
 	}
 
+	@Test
+	public void encodesSamplesPushedToASessionAsTheWholeSignal()
+			throws Exception {
+		List<Double> signal = asList(1.0, 1.1, 1.0, 0.9, 1.0);
+		MAZTECParameters params = this
+				.createDefaultParametersUsingInput(Collections
+						.<Double> emptyList());
+		this.thresholdCalculator.defineThresholds(0.1, 0.15, 0.25, 0.19, 0.2);
+
+		EncodingSession session = new MAZTEC(this.thresholdCalculator)
+				.open(params);
+		session.accept(signal.get(0));
+		session.accept(new double[] { 1.1, 1.0, 0.9 }, 0, 3);
+		assertThat(this.output, contains(3.0, 1.05));
+		session.accept(signal.get(4));
+		session.close();
+
+		assertThat(this.output, contains(3.0, 1.05, 2.0, 0.95));
+	}
+
 	private MAZTECParameters createDefaultParametersUsingInput(
 			Iterable<Double> signal) {
 		return new MAZTECParameters.Builder().withInput(signal)
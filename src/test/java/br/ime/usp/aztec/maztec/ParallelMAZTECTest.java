@@ -0,0 +1,121 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.maztec;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+
+import org.junit.Test;
+
+import br.ime.usp.aztec.ChunkedEncoding;
+import br.ime.usp.aztec.io.DoubleList;
+import br.ime.usp.aztec.io.IterableEncodingOutput;
+import br.ime.usp.aztec.test.Signals;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class ParallelMAZTECTest {
+	private static final int SAMPLES =
+			ChunkedEncoding.MIN_CHUNK_SAMPLES * 5 + 123;
+
+	@Test
+	public void staysCloseToTheEncodingOfASingleThread() throws Exception {
+		double[] signal = Signals.ecg(SAMPLES).toArray();
+		IterableEncodingOutput expected = new IterableEncodingOutput();
+		new FlatMAZTEC().encode(new MAZTECParameters.Builder()
+				.withInput(asDoubleList(signal)).withOutput(expected).build());
+		IterableEncodingOutput actual = new IterableEncodingOutput();
+		ParallelMAZTEC.Report report = new ParallelMAZTEC(3).encode(signal,
+				new MAZTECParameters.Builder().withOutput(actual).build());
+
+		assertThat(report.getChunks(), is(5));
+		assertThat(report.getApproximateJoins(), is(4));
+		assertThat(report.isExact(), is(false));
+		assertThat(report.getLargestThresholdDifference(), lessThan(1e-3));
+		assertThat((double) actual.getValues().size(), closeTo(expected
+				.getValues().size(), expected.getValues().size() * 0.01));
+		assertThat(decodedLength(actual), is(SAMPLES));
+	}
+
+	@Test
+	public void givesTheSameEncodingOnceTheThresholdsMeetInImprovedMode()
+			throws Exception {
+		double[] signal = Signals.ecg(SAMPLES).toArray();
+		IterableEncodingOutput expected = new IterableEncodingOutput();
+		new FlatMAZTEC().encode(improvedAndClamped()
+				.withInput(asDoubleList(signal)).withOutput(expected).build());
+		IterableEncodingOutput actual = new IterableEncodingOutput();
+		ParallelMAZTEC.Report report = new ParallelMAZTEC(2).encode(signal,
+				improvedAndClamped().withOutput(actual).build());
+
+		assertThat(report.getExactJoins(), is(4));
+		assertThat(report.isExact(), is(true));
+		assertThat(actual.getValues().toArray(), is(expected.getValues()
+				.toArray()));
+	}
+
+	@Test
+	public void encodesShortSignalsWithASingleThread() throws Exception {
+		IterableEncodingOutput output = new IterableEncodingOutput();
+		ParallelMAZTEC.Report report = new ParallelMAZTEC(4)
+				.encode(new MAZTECParameters.Builder()
+						.withInput(asList(1.0, 1.1, 1.0, 0.9, 1.0))
+						.withInitialThreshold(0.3).withOutput(output).build());
+		assertThat(output, contains(5.0, 1.0));
+		assertThat(report.getChunks(), is(1));
+		assertThat(report.isExact(), is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesStatisticsOtherThanTheOnlineOnes() throws Exception {
+		new ParallelMAZTEC(3).encode(Signals.ecg(SAMPLES).toArray(),
+				new MAZTECParameters.Builder()
+						.withOutput(new IterableEncodingOutput())
+						.withSlidingWindowStatistics(100).build());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void requiresAPositiveNumberOfThreads() {
+		new ParallelMAZTEC(0);
+	}
+
+	private static MAZTECParameters.Builder improvedAndClamped() {
+		return new MAZTECParameters.Builder().improved()
+				.withMinimumThreshold(0.01).withMaximumThreshold(0.05)
+				.withLastThresholdWeight(5);
+	}
+
+	private static DoubleList asDoubleList(double[] values) {
+		DoubleList list = new DoubleList(values.length);
+		list.add(values, 0, values.length);
+		return list;
+	}
+
+	private static int decodedLength(IterableEncodingOutput encoding) {
+		double[] values = encoding.getValues().toArray();
+		int length = 0;
+		for (int i = 0; i < values.length; i += 2) {
+			length += Math.abs((int) values[i]);
+		}
+		return length;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.maztec;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class SlidingWindowSignalStatisticsTest {
+	@Test
+	public void hasTheStatisticsOfAllSamplesWhileTheWindowIsNotFull()
+			throws Exception {
+		SignalStatistics stats = new SlidingWindowSignalStatistics(10);
+		stats.update(1.0);
+		stats.update(2.0);
+		stats.update(3.0);
+		stats.update(6.0);
+		assertThat(stats.getAverage(), is(3.0));
+		assertThat(stats.getStandardDeviation(), is(Math.sqrt(3.5)));
+		assertThat(stats.getThirdMoment(), is(4.5));
+	}
+
+	@Test
+	public void forgetsTheSamplesThatLeftTheWindow() throws Exception {
+		SignalStatistics stats = new SlidingWindowSignalStatistics(4);
+		for (double value : new double[] { 100.0, -50.0, 1.0, 2.0, 3.0, 6.0 }) {
+			stats.update(value);
+		}
+		assertThat(stats.getAverage(), closeTo(3.0, 1e-9));
+		assertThat(stats.getStandardDeviation(),
+				closeTo(Math.sqrt(3.5), 1e-9));
+		assertThat(stats.getThirdMoment(), closeTo(4.5, 1e-9));
+	}
+
+	@Test
+	public void followsTheStatisticsOfTheLastSamplesOfALongSignal()
+			throws Exception {
+		int size = 50;
+		SignalStatistics stats = new SlidingWindowSignalStatistics(size);
+		double[] signal = new double[100000];
+		Random random = new Random(42);
+		for (int i = 0; i < signal.length; i++) {
+			signal[i] = 1e4 + Math.sin(i * 0.001) * 100
+					+ random.nextGaussian();
+			stats.update(signal[i]);
+			if (i % 997 == 0 || i == signal.length - 1) {
+				SignalStatistics expected = new OnlineSignalStatistics();
+				for (int j = Math.max(0, i - size + 1); j <= i; j++) {
+					expected.update(signal[j]);
+				}
+				assertThat(stats.getAverage(),
+						closeTo(expected.getAverage(), 1e-8));
+				assertThat(stats.getStandardDeviation(),
+						closeTo(expected.getStandardDeviation(), 1e-6));
+				assertThat(stats.getThirdMoment(),
+						closeTo(expected.getThirdMoment(), 1e-4));
+			}
+		}
+	}
+
+	@Test
+	public void behavesAsANewObjectAfterResetIsCalled() throws Exception {
+		SignalStatistics stats = new SlidingWindowSignalStatistics(3);
+		stats.update(10.0);
+		stats.update(-4.0);
+		stats.reset();
+		assertThat(stats.getAverage(), is(0.0));
+		assertThat(stats.getStandardDeviation(), is(0.0));
+		assertThat(stats.getThirdMoment(), is(0.0));
+		stats.update(1.0);
+		stats.update(2.0);
+		assertThat(stats.getAverage(), is(1.5));
+		assertThat(stats.getStandardDeviation(), is(0.5));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void needsAPositiveWindow() throws Exception {
+		new SlidingWindowSignalStatistics(0);
+	}
+}
@@ -0,0 +1,51 @@
+/*
+Copyright 2012 Luiz Fernando Oliveira Corte Real
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package br.ime.usp.aztec.test;
+
+import java.util.Random;
+
+import br.ime.usp.aztec.io.DoubleList;
+
+/**
+ * Signals shared by the tests and benchmarks of the encoders
+ * 
+ * @author Luiz Fernando Oliveira Corte Real
+ */
+public final class Signals {
+
+	private Signals() {
+	}
+
+	/**
+	 * @param samples
+	 *            Number of samples
+	 * @return A signal that looks like an ECG, with a beat every 300 samples
+	 *         and some noise. The same number of samples always gives the
+	 *         same signal.
+	 */
+	public static DoubleList ecg(int samples) {
+		DoubleList signal = new DoubleList(samples);
+		Random random = new Random(42);
+		for (int i = 0; i < samples; i++) {
+			double beat = (i % 300) / 300.0;
+			double value = Math.exp(-Math.pow((beat - 0.3) * 40, 2)) * 1.2
+					- Math.exp(-Math.pow((beat - 0.27) * 60, 2)) * 0.2
+					+ Math.exp(-Math.pow((beat - 0.6) * 10, 2)) * 0.3;
+			signal.add(value + random.nextGaussian() * 0.01);
+		}
+		return signal;
+	}
+}